@@ -55,6 +55,12 @@ public interface BookKeeperServerStats {
     String READ_ENTRY = "READ_ENTRY";
     String READ_ENTRY_REJECTED = "READ_ENTRY_REJECTED";
     String READ_ENTRY_SCHEDULING_DELAY = "READ_ENTRY_SCHEDULING_DELAY";
+    String READ_SCHEDULER_QUEUE_TIME = "READ_SCHEDULER_QUEUE_TIME";
+    String READ_SCHEDULER_QUEUED = "READ_SCHEDULER_QUEUED";
+    String CLIENT_ADD_REQUESTS = "CLIENT_ADD_REQUESTS";
+    String CLIENT_READ_REQUESTS = "CLIENT_READ_REQUESTS";
+    String CLIENT_THROTTLED_REQUESTS = "CLIENT_THROTTLED_REQUESTS";
+    String CLIENT_ADMISSION_BUSY_CLIENTS = "CLIENT_ADMISSION_BUSY_CLIENTS";
     String READ_ENTRY_FENCE_REQUEST = "READ_ENTRY_FENCE_REQUEST";
     String READ_ENTRY_FENCE_WAIT = "READ_ENTRY_FENCE_WAIT";
     String READ_ENTRY_FENCE_READ = "READ_ENTRY_FENCE_READ";
@@ -70,6 +76,8 @@ public interface BookKeeperServerStats {
     String GET_BOOKIE_INFO = "GET_BOOKIE_INFO";
     String GET_LIST_OF_ENTRIES_OF_LEDGER = "GET_LIST_OF_ENTRIES_OF_LEDGER";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST = "GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST";
+    String MULTI_READ_ENTRY = "MULTI_READ_ENTRY";
+    String MULTI_READ_ENTRY_REQUEST = "MULTI_READ_ENTRY_REQUEST";
 
     // Ensemble Stats
     String WATCHER_SCOPE = "bookie_watcher";
@@ -170,6 +178,11 @@ public interface BookKeeperServerStats {
     String PENDING_GET_FILE_INFO = "PENDING_GET_FILE_INFO";
     String WRITE_FILE_INFO_CACHE_SIZE = "WRITE_FILE_INFO_CACHE_SIZE";
     String READ_FILE_INFO_CACHE_SIZE = "READ_FILE_INFO_CACHE_SIZE";
+    String FILE_INFO_LOAD = "FILE_INFO_LOAD";
+    String FILE_INFO_OPEN = "FILE_INFO_OPEN";
+    String FILE_INFO_CLOSE = "FILE_INFO_CLOSE";
+    String FILE_INFO_OPEN_HANDLES = "FILE_INFO_OPEN_HANDLES";
+    String FILE_INFO_PENDING_CLOSES = "FILE_INFO_PENDING_CLOSES";
     String BOOKIES_JOINED = "BOOKIES_JOINED";
     String BOOKIES_LEFT = "BOOKIES_LEFT";
 
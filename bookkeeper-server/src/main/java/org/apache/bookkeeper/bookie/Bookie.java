@@ -19,6 +19,8 @@
 package org.apache.bookkeeper.bookie;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.PrimitiveIterator;
 import java.util.concurrent.CompletableFuture;
@@ -57,6 +59,30 @@ public interface Bookie {
     // TODO: Shouldn't this be async?
     ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException;
+
+    /**
+     * Read an entry. An entry of at least minRegionSize bytes, stored in an entry log file, can be returned
+     * as the {@link FileRegion} of the file holding it, to be sent without being copied in memory.
+     *
+     * @return the entry, either as a {@link ByteBuf} or as a {@link FileRegion}
+     */
+    default ReferenceCounted readEntryOrRegion(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, NoLedgerException, BookieException {
+        return readEntry(ledgerId, entryId);
+    }
+
+    /**
+     * Asynchronously read an entry. The default implementation reads the entry on the calling thread.
+     */
+    default CompletableFuture<ByteBuf> readEntryAsync(long ledgerId, long entryId) {
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        try {
+            future.complete(readEntry(ledgerId, entryId));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
     long readLastAddConfirmed(long ledgerId) throws IOException, BookieException;
     PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException, NoLedgerException;
 
@@ -31,7 +31,11 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.BufferedReader;
 import java.io.File;
@@ -53,11 +57,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import org.apache.bookkeeper.bookie.storage.CompactionEntryLog;
+import org.apache.bookkeeper.bookie.storage.EntryLogReadExecutor;
 import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.conf.ServerConfiguration;
@@ -286,6 +294,11 @@ public class DefaultEntryLogger implements EntryLogger {
     private final int maxSaneEntrySize;
 
     private final ByteBufAllocator allocator;
+    // null when asynchronous reads are served on the calling thread
+    private final EntryLogReadExecutor readExecutor;
+    // chunk size of the prefetching scans, 0 when scans read entry by entry
+    private final int scanPrefetchChunkSize;
+    private final ExecutorService scanPrefetchExecutor;
 
     final ServerConfiguration conf;
 
@@ -315,6 +328,16 @@ public class DefaultEntryLogger implements EntryLogger {
     public DefaultEntryLogger(ServerConfiguration conf,
                               LedgerDirsManager ledgerDirsManager, EntryLogListener listener, StatsLogger statsLogger,
                               ByteBufAllocator allocator) throws IOException {
+        this(conf, ledgerDirsManager, listener, statsLogger, allocator, null);
+    }
+
+    /**
+     * Create an EntryLogger which serves {@link #readEntryAsync} from the given read executor, which
+     * remains owned by the caller.
+     */
+    public DefaultEntryLogger(ServerConfiguration conf,
+                              LedgerDirsManager ledgerDirsManager, EntryLogListener listener, StatsLogger statsLogger,
+                              ByteBufAllocator allocator, EntryLogReadExecutor readExecutor) throws IOException {
         //We reserve 500 bytes as overhead for the protocol.  This is not 100% accurate
         // but the protocol varies so an exact value is difficult to determine
         this.maxSaneEntrySize = conf.getNettyMaxFrameSizeBytes() - 500;
@@ -322,6 +345,14 @@ public class DefaultEntryLogger implements EntryLogger {
         this.ledgerDirsManager = ledgerDirsManager;
         this.conf = conf;
         entryLogPerLedgerEnabled = conf.isEntryLogPerLedgerEnabled();
+        this.readExecutor = readExecutor;
+        this.scanPrefetchChunkSize = conf.getEntryLogScanPrefetchChunkSize();
+        if (scanPrefetchChunkSize > 0) {
+            this.scanPrefetchExecutor = Executors.newCachedThreadPool(
+                    new DefaultThreadFactory("EntryLoggerScanPrefetch", true));
+        } else {
+            this.scanPrefetchExecutor = null;
+        }
         if (listener != null) {
             addListener(listener);
         }
@@ -354,6 +385,9 @@ public class DefaultEntryLogger implements EntryLogger {
         if (entryLogPerLedgerEnabled) {
             this.entryLogManager = new EntryLogManagerForEntryLogPerLedger(conf, ledgerDirsManager,
                     entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus, statsLogger);
+        } else if (conf.isEntryLogPerDirectoryEnabled()) {
+            this.entryLogManager = new EntryLogManagerForEntryLogPerDirectory(conf, ledgerDirsManager,
+                    entryLoggerAllocator, listeners, recentlyCreatedEntryLogsStatus);
         } else {
             this.entryLogManager = new EntryLogManagerForSingleEntryLog(conf, ledgerDirsManager, entryLoggerAllocator,
                     listeners, recentlyCreatedEntryLogsStatus);
@@ -418,7 +452,42 @@ public class DefaultEntryLogger implements EntryLogger {
      * and don't cause a change in the channel's position. We use this map to store the file channels. Each
      * file channel is mapped to a log id which represents an open log file.
      */
-    private final ConcurrentMap<Long, FileChannel> logid2FileChannel = new ConcurrentHashMap<Long, FileChannel>();
+    private final ConcurrentMap<Long, LogFileChannel> logid2FileChannel =
+            new ConcurrentHashMap<Long, LogFileChannel>();
+
+    /**
+     * The file channel of an entry log opened for reading. The entry logger holds a reference while the log is
+     * open and each file region sent from the log holds another one, so that removing the log while a region
+     * is being transferred doesn't close the channel under the transfer. The channel is closed by the last
+     * reference released.
+     */
+    static class LogFileChannel extends AbstractReferenceCounted {
+        private final long logId;
+        private final FileChannel fileChannel;
+
+        LogFileChannel(long logId, FileChannel fileChannel) {
+            this.logId = logId;
+            this.fileChannel = fileChannel;
+        }
+
+        FileChannel getFileChannel() {
+            return fileChannel;
+        }
+
+        @Override
+        protected void deallocate() {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                LOG.warn("Exception while closing channel for log file:" + logId);
+            }
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+    }
 
     /**
      * Put the logId, bc pair in the map responsible for the current thread.
@@ -435,13 +504,9 @@ public class DefaultEntryLogger implements EntryLogger {
      * @param logId
      */
     public void removeFromChannelsAndClose(long logId) {
-        FileChannel fileChannel = logid2FileChannel.remove(logId);
+        LogFileChannel fileChannel = logid2FileChannel.remove(logId);
         if (null != fileChannel) {
-            try {
-                fileChannel.close();
-            } catch (IOException e) {
-                LOG.warn("Exception while closing channel for log file:" + logId);
-            }
+            fileChannel.release();
         }
     }
 
@@ -831,6 +896,14 @@ public class DefaultEntryLogger implements EntryLogger {
         return internalReadEntry(ledgerId, entryId, entryLocation, true /* validateEntry */);
     }
 
+    @Override
+    public CompletableFuture<ByteBuf> readEntryAsync(long ledgerId, long entryId, long entryLocation) {
+        if (readExecutor == null) {
+            return EntryLogger.super.readEntryAsync(ledgerId, entryId, entryLocation);
+        }
+        return readExecutor.submit(() -> readEntry(ledgerId, entryId, entryLocation));
+    }
+
     @Override
     public ByteBuf readEntry(long location) throws IOException, Bookie.NoEntryException {
         return internalReadEntry(-1L, -1L, location, false /* validateEntry */);
@@ -857,6 +930,71 @@ public class DefaultEntryLogger implements EntryLogger {
             throw new IOException("Bad entry read from log file id: " + entryLogId, e);
         }
 
+        return readEntryData(ledgerId, entryId, entryLogId, pos, fc, entrySize);
+    }
+
+    @Override
+    public ReferenceCounted readEntryOrRegion(long ledgerId, long entryId, long entryLocation, int minRegionSize)
+            throws IOException, Bookie.NoEntryException {
+        long entryLogId = logIdForOffset(entryLocation);
+        long pos = posForOffset(entryLocation);
+
+        BufferedReadChannel fc;
+        int entrySize;
+        try {
+            fc = getFCForEntryInternal(ledgerId, entryId, entryLogId, pos);
+
+            ByteBuf sizeBuff = readEntrySize(ledgerId, entryId, entryLogId, pos, fc);
+            entrySize = sizeBuff.getInt(0);
+            validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
+        } catch (EntryLookupException e) {
+            throw new IOException("Bad entry read from log file id: " + entryLogId, e);
+        }
+
+        if (entrySize >= minRegionSize && isWrittenToFile(entryLogId, pos + entrySize)) {
+            LogFileChannel logFileChannel = retainLogFileChannel(entryLogId, fc.validateAndGetFileChannel());
+            if (null != logFileChannel) {
+                return new EntryLogFileRegion(logFileChannel, pos, entrySize);
+            }
+        }
+        return readEntryData(ledgerId, entryId, entryLogId, pos, fc, entrySize);
+    }
+
+    /**
+     * Take a reference on the file channel of an entry log, to send a region of it.
+     *
+     * @return the retained channel, or null if the log has been removed in the meantime
+     */
+    private LogFileChannel retainLogFileChannel(long entryLogId, FileChannel fileChannel) {
+        LogFileChannel logFileChannel = logid2FileChannel.get(entryLogId);
+        if (null == logFileChannel || logFileChannel.getFileChannel() != fileChannel) {
+            return null;
+        }
+        try {
+            logFileChannel.retain();
+            return logFileChannel;
+        } catch (IllegalReferenceCountException e) {
+            // released by a concurrent removal of the log
+            return null;
+        }
+    }
+
+    /**
+     * Whether the entry log file holds the data up to the given position, or if some of it is still in the
+     * write buffer of the current log channel.
+     */
+    private boolean isWrittenToFile(long entryLogId, long endPos) {
+        BufferedLogChannel bc = entryLogManager.getCurrentLogIfPresent(entryLogId);
+        if (null == bc) {
+            return true;
+        }
+        synchronized (bc) {
+            return endPos <= bc.getFileChannelPosition();
+        }
+    }
+
+    private ByteBuf readEntryData(long ledgerId, long entryId, long entryLogId, long pos, BufferedReadChannel fc,
+                                  int entrySize) throws IOException {
         ByteBuf data = allocator.buffer(entrySize, entrySize);
         int rc = readFromLogChannel(entryLogId, fc, data, pos);
         if (rc != entrySize) {
@@ -907,12 +1045,13 @@ public class DefaultEntryLogger implements EntryLogger {
         File file = findFile(entryLogId);
         // get channel is used to open an existing entry log file
         // it would be better to open using read mode
-        FileChannel newFc = new RandomAccessFile(file, "r").getChannel();
-        FileChannel oldFc = logid2FileChannel.putIfAbsent(entryLogId, newFc);
-        if (null != oldFc) {
-            newFc.close();
-            newFc = oldFc;
+        LogFileChannel newLogFc = new LogFileChannel(entryLogId, new RandomAccessFile(file, "r").getChannel());
+        LogFileChannel oldLogFc = logid2FileChannel.putIfAbsent(entryLogId, newLogFc);
+        if (null != oldLogFc) {
+            newLogFc.release();
+            newLogFc = oldLogFc;
         }
+        FileChannel newFc = newLogFc.getFileChannel();
         // We set the position of the write buffer of this buffered channel to Long.MAX_VALUE
         // so that there are no overlaps with the write buffer while reading
         if (entryLogManager instanceof EntryLogManagerForSingleEntryLog) {
@@ -1000,6 +1139,14 @@ public class DefaultEntryLogger implements EntryLogger {
         // the header where all of the ledger entries are.
         long pos = LOGFILE_HEADER_SIZE;
 
+        // The log being written may still have entries in the write buffer, only
+        // the logs which are not written anymore can be read ahead from the file
+        if (scanPrefetchChunkSize > 0 && entryLogManager.getCurrentLogIfPresent(entryLogId) == null) {
+            new PrefetchingEntryLogScan(entryLogId, bc.validateAndGetFileChannel(), scanPrefetchChunkSize,
+                    scanPrefetchExecutor, allocator).scan(pos, scanner);
+            return;
+        }
+
         // Start with a reasonably sized buffer size
         ByteBuf data = allocator.directBuffer(1024 * 1024);
 
@@ -1189,13 +1336,15 @@ public class DefaultEntryLogger implements EntryLogger {
     public void close() {
         // since logChannel is buffered channel, do flush when shutting down
         LOG.info("Stopping EntryLogger");
+        if (scanPrefetchExecutor != null) {
+            scanPrefetchExecutor.shutdown();
+        }
         try {
             flush();
-            for (FileChannel fc : logid2FileChannel.values()) {
-                fc.close();
+            // remove the channels, so we don't need to go through them again in finally block in normal case.
+            for (Long logId : logid2FileChannel.keySet()) {
+                removeFromChannelsAndClose(logId);
             }
-            // clear the mapping, so we don't need to go through the channels again in finally block in normal case.
-            logid2FileChannel.clear();
             entryLogManager.close();
             synchronized (compactionLogLock) {
                 if (compactionLogChannel != null) {
@@ -1207,8 +1356,8 @@ public class DefaultEntryLogger implements EntryLogger {
             // we have no idea how to avoid io exception during shutting down, so just ignore it
             LOG.error("Error flush entry log during shutting down, which may cause entry log corrupted.", ie);
         } finally {
-            for (FileChannel fc : logid2FileChannel.values()) {
-                IOUtils.close(LOG, fc);
+            for (Long logId : logid2FileChannel.keySet()) {
+                removeFromChannelsAndClose(logId);
             }
 
             entryLogManager.forceClose();
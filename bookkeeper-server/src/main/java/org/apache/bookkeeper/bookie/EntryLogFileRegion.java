@@ -0,0 +1,53 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.channel.DefaultFileRegion;
+
+/**
+ * The region of an entry log file holding an entry, sent to the client with a zero-copy file transfer.
+ *
+ * <p>The file channel is shared with the entry logger. The region holds a reference on it until it is
+ * released, so that the channel isn't closed by a removal of the entry log during the transfer.
+ */
+class EntryLogFileRegion extends DefaultFileRegion {
+
+    private final DefaultEntryLogger.LogFileChannel logFileChannel;
+
+    /**
+     * Create the region from a reference on the log channel, which is released with the region.
+     */
+    EntryLogFileRegion(DefaultEntryLogger.LogFileChannel logFileChannel, long position, long count) {
+        super(logFileChannel.getFileChannel(), position, count);
+        this.logFileChannel = logFileChannel;
+    }
+
+    @VisibleForTesting
+    DefaultEntryLogger.LogFileChannel getLogFileChannel() {
+        return logFileChannel;
+    }
+
+    @Override
+    protected void deallocate() {
+        logFileChannel.release();
+    }
+}
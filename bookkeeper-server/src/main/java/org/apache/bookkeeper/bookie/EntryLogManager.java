@@ -95,6 +95,15 @@ interface EntryLogManager {
      */
     boolean commitEntryMemTableFlush() throws IOException;
 
+    /*
+     * returns the key used to order the flush of the entries of the given
+     * ledger when the memtable is flushed in parallel. Ledgers which are
+     * written to the same entrylog should share the same key.
+     */
+    default long getFlushOrderingKey(long ledgerId) {
+        return ledgerId;
+    }
+
     /*
      * creates new separate log for compaction.
      */
@@ -41,7 +41,7 @@ abstract class EntryLogManagerBase implements EntryLogManager {
     volatile List<BufferedLogChannel> rotatedLogChannels;
     final EntryLoggerAllocator entryLoggerAllocator;
     final LedgerDirsManager ledgerDirsManager;
-    private final List<DefaultEntryLogger.EntryLogListener> listeners;
+    final List<DefaultEntryLogger.EntryLogListener> listeners;
     /**
      * The maximum size of a entry logger file.
      */
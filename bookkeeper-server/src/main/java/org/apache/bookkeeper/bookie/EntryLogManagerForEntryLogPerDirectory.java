@@ -0,0 +1,389 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.bookie.DefaultEntryLogger.INVALID_LID;
+
+import io.netty.buffer.ByteBuf;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger.BufferedLogChannel;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger.EntryLogListener;
+import org.apache.bookkeeper.bookie.LedgerDirsManager.LedgerDirsListener;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.util.IOUtils;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Entrylog manager keeping an active entrylog per ledger directory.
+ *
+ * <p>Ledgers are statically spread across a slot per ledger directory, each slot having its own
+ * active entrylog in its directory (or in another writable directory when its own one is full)
+ * and its own lock. Entries of different slots can hence be written concurrently, which lets
+ * {@link SortedLedgerStorage} flush its memtable to all the ledger directories in parallel.
+ *
+ * <p>Apart from that, it behaves like {@link EntryLogManagerForSingleEntryLog}: logs are rolled
+ * (all together) when the memtable is flushed across a rotation and before a checkpoint, and only
+ * rotated logs are synced by checkpoints.
+ */
+@Slf4j
+class EntryLogManagerForEntryLogPerDirectory extends EntryLogManagerBase {
+
+    private static class Slot {
+        final int index;
+        final File ledgerDir;
+        final AtomicBoolean shouldCreateNewEntryLog = new AtomicBoolean(false);
+        volatile BufferedLogChannel activeLogChannel;
+        long logIdBeforeFlush = INVALID_LID;
+
+        Slot(int index, File ledgerDir) {
+            this.index = index;
+            this.ledgerDir = ledgerDir;
+        }
+
+        long getCurrentLogId() {
+            BufferedLogChannel currentActiveLogChannel = activeLogChannel;
+            if (currentActiveLogChannel != null) {
+                return currentActiveLogChannel.getLogId();
+            } else {
+                return DefaultEntryLogger.UNINITIALIZED_LOG_ID;
+            }
+        }
+    }
+
+    private final Slot[] slots;
+    private final DefaultEntryLogger.RecentEntryLogsStatus recentlyCreatedEntryLogsStatus;
+
+    EntryLogManagerForEntryLogPerDirectory(ServerConfiguration conf, LedgerDirsManager ledgerDirsManager,
+            EntryLoggerAllocator entryLoggerAllocator, List<DefaultEntryLogger.EntryLogListener> listeners,
+            DefaultEntryLogger.RecentEntryLogsStatus recentlyCreatedEntryLogsStatus) {
+        super(conf, ledgerDirsManager, entryLoggerAllocator, listeners);
+        this.rotatedLogChannels = new LinkedList<BufferedLogChannel>();
+        this.recentlyCreatedEntryLogsStatus = recentlyCreatedEntryLogsStatus;
+        List<File> ledgerDirs = ledgerDirsManager.getAllLedgerDirs();
+        this.slots = new Slot[ledgerDirs.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i, ledgerDirs.get(i));
+        }
+        // Register listener for disk full notifications.
+        ledgerDirsManager.addLedgerDirsListener(getLedgerDirsListener());
+    }
+
+    private LedgerDirsListener getLedgerDirsListener() {
+        return new LedgerDirsListener() {
+            @Override
+            public void diskFull(File disk) {
+                rollLogsOnDisk(disk);
+            }
+
+            @Override
+            public void diskAlmostFull(File disk) {
+                rollLogsOnDisk(disk);
+            }
+        };
+    }
+
+    private void rollLogsOnDisk(File disk) {
+        // If the disk of an active entry log is full, then create a new entry log for its slot.
+        for (Slot slot : slots) {
+            BufferedLogChannel currentActiveLogChannel = slot.activeLogChannel;
+            if (currentActiveLogChannel != null
+                    && currentActiveLogChannel.getLogFile().getParentFile().equals(disk)) {
+                slot.shouldCreateNewEntryLog.set(true);
+            }
+        }
+    }
+
+    private Slot getSlot(long ledgerId) {
+        return slots[MathUtils.signSafeMod(ledgerId, slots.length)];
+    }
+
+    @Override
+    public long getFlushOrderingKey(long ledgerId) {
+        // the ordered executor ignores the lowest bit of the ordering key
+        return ((long) getSlot(ledgerId).index) << 1;
+    }
+
+    @Override
+    public long addEntry(long ledger, ByteBuf entry, boolean rollLog) throws IOException {
+        synchronized (getSlot(ledger)) {
+            return super.addEntry(ledger, entry, rollLog);
+        }
+    }
+
+    @Override
+    BufferedLogChannel getCurrentLogForLedgerForAddEntry(long ledgerId, int entrySize, boolean rollLog)
+            throws IOException {
+        Slot slot = getSlot(ledgerId);
+        synchronized (slot) {
+            if (null == slot.activeLogChannel) {
+                // log channel can be null because the file is deferred to be created
+                createNewLog(slot, "because current active log channel has not initialized yet");
+                return slot.activeLogChannel;
+            }
+
+            boolean reachEntryLogLimit = rollLog ? reachEntryLogLimit(slot.activeLogChannel, entrySize)
+                    : readEntryLogHardLimit(slot.activeLogChannel, entrySize);
+            // Create new log if logSizeLimit reached or current disk is full
+            boolean createNewLog = slot.shouldCreateNewEntryLog.get();
+            if (createNewLog || reachEntryLogLimit) {
+                slot.activeLogChannel.flushAndForceWriteIfRegularFlush(false);
+                createNewLog(slot,
+                    ": createNewLog = " + createNewLog + ", reachEntryLogLimit = " + reachEntryLogLimit);
+                // Reset the flag
+                if (createNewLog) {
+                    slot.shouldCreateNewEntryLog.set(false);
+                }
+            }
+            return slot.activeLogChannel;
+        }
+    }
+
+    @Override
+    void createNewLog(long ledgerId, String reason) throws IOException {
+        createNewLog(getSlot(ledgerId), reason);
+    }
+
+    private void createNewLog(Slot slot, String reason) throws IOException {
+        synchronized (slot) {
+            log.info("Creating a new entry log file for slot {} {}", slot.index, reason);
+            BufferedLogChannel logChannel = slot.activeLogChannel;
+            if (null != logChannel) {
+                // flush the internal buffer back to filesystem but not sync disk
+                logChannel.flush();
+
+                // Append ledgers map at the end of entry log
+                logChannel.appendLedgersMap();
+            }
+
+            BufferedLogChannel newLogChannel = entryLoggerAllocator.createNewLogInDirectory(selectDirForSlot(slot));
+            slot.activeLogChannel = newLogChannel;
+            if (null != logChannel) {
+                synchronized (this) {
+                    rotatedLogChannels.add(logChannel);
+                }
+                log.info("Flushing entry logger {} back to filesystem, pending for syncing entry loggers : {}.",
+                        logChannel.getLogId(), rotatedLogChannels);
+                for (EntryLogListener listener : listeners) {
+                    listener.onRotateEntryLog();
+                }
+            }
+        }
+    }
+
+    private File selectDirForSlot(Slot slot) throws LedgerDirsManager.NoWritableLedgerDirException {
+        List<File> writableLedgerDirs = ledgerDirsManager.getWritableLedgerDirsForNewLog();
+        if (writableLedgerDirs.contains(slot.ledgerDir)) {
+            return slot.ledgerDir;
+        }
+        return getDirForNextEntryLog(writableLedgerDirs);
+    }
+
+    @Override
+    public void setCurrentLogForLedgerAndAddToRotate(long ledgerId, BufferedLogChannel logChannel) {
+        Slot slot = getSlot(ledgerId);
+        synchronized (slot) {
+            BufferedLogChannel hasToRotateLogChannel = slot.activeLogChannel;
+            slot.activeLogChannel = logChannel;
+            if (hasToRotateLogChannel != null) {
+                synchronized (this) {
+                    rotatedLogChannels.add(hasToRotateLogChannel);
+                }
+            }
+        }
+    }
+
+    @Override
+    public BufferedLogChannel getCurrentLogForLedger(long ledgerId) {
+        return getSlot(ledgerId).activeLogChannel;
+    }
+
+    @Override
+    public BufferedLogChannel getCurrentLogIfPresent(long entryLogId) {
+        for (Slot slot : slots) {
+            BufferedLogChannel activeLogChannelTemp = slot.activeLogChannel;
+            if ((activeLogChannelTemp != null) && (activeLogChannelTemp.getLogId() == entryLogId)) {
+                return activeLogChannelTemp;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Returns writable ledger dir with least number of current active
+     * entrylogs.
+     */
+    @Override
+    public File getDirForNextEntryLog(List<File> writableLedgerDirs) {
+        Map<File, Integer> activeLogsPerDir = new HashMap<>();
+        for (Slot slot : slots) {
+            BufferedLogChannel currentActiveLogChannel = slot.activeLogChannel;
+            if (currentActiveLogChannel != null) {
+                activeLogsPerDir.merge(currentActiveLogChannel.getLogFile().getParentFile(), 1, Integer::sum);
+            }
+        }
+        Collections.shuffle(writableLedgerDirs);
+        File selectedDir = writableLedgerDirs.get(0);
+        for (File dir : writableLedgerDirs) {
+            if (activeLogsPerDir.getOrDefault(dir, 0) < activeLogsPerDir.getOrDefault(selectedDir, 0)) {
+                selectedDir = dir;
+            }
+        }
+        return selectedDir;
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        flushRotatedLogs();
+    }
+
+    @Override
+    public void flushCurrentLogs() throws IOException {
+        for (Slot slot : slots) {
+            /**
+             * flushCurrentLogs method is called during checkpoint, so
+             * metadata of the file also should be force written.
+             */
+            flushLogChannel(slot.activeLogChannel, true);
+        }
+    }
+
+    @Override
+    void flushRotatedLogs() throws IOException {
+        List<BufferedLogChannel> channels = null;
+        synchronized (this) {
+            channels = rotatedLogChannels;
+            rotatedLogChannels = new LinkedList<BufferedLogChannel>();
+        }
+        if (null == channels) {
+            return;
+        }
+        Iterator<BufferedLogChannel> chIter = channels.iterator();
+        while (chIter.hasNext()) {
+            BufferedLogChannel channel = chIter.next();
+            try {
+                channel.flushAndForceWrite(true);
+            } catch (IOException ioe) {
+                // rescue from flush exception, add unflushed channels back
+                synchronized (this) {
+                    if (null == rotatedLogChannels) {
+                        rotatedLogChannels = channels;
+                    } else {
+                        rotatedLogChannels.addAll(0, channels);
+                    }
+                }
+                throw ioe;
+            }
+            // remove the channel from the list after it is successfully flushed
+            chIter.remove();
+            // since this channel is only used for writing, after flushing the channel,
+            // we had to close the underlying file channel. Otherwise, we might end up
+            // leaking fds which cause the disk spaces could not be reclaimed.
+            channel.close();
+            recentlyCreatedEntryLogsStatus.flushRotatedEntryLog(channel.getLogId());
+            log.info("Synced entry logger {} to disk.", channel.getLogId());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Slot slot : slots) {
+            if (slot.activeLogChannel != null) {
+                slot.activeLogChannel.close();
+            }
+        }
+    }
+
+    @Override
+    public void forceClose() {
+        for (Slot slot : slots) {
+            IOUtils.close(log, slot.activeLogChannel);
+        }
+    }
+
+    @Override
+    public void prepareEntryMemTableFlush() {
+        for (Slot slot : slots) {
+            slot.logIdBeforeFlush = slot.getCurrentLogId();
+        }
+    }
+
+    @Override
+    public boolean commitEntryMemTableFlush() throws IOException {
+        /*
+         * same as the single entrylog case: if any entry log reached the
+         * limit, or if the memtable was flushed spanning over two entry
+         * log files, we roll the logs and start checkpointing. All the
+         * active logs are rolled, since the checkpoint only syncs the
+         * rotated ones.
+         */
+        boolean rollLogs = false;
+        for (Slot slot : slots) {
+            if (reachEntryLogLimit(slot.activeLogChannel, 0L) || slot.getCurrentLogId() != slot.logIdBeforeFlush) {
+                rollLogs = true;
+                break;
+            }
+        }
+        if (rollLogs) {
+            log.info("Rolling entry loggers since one of them reached size limitation");
+            rollActiveLogs("due to reaching log limit after flushing memtable");
+        }
+        return rollLogs;
+    }
+
+    @Override
+    public void prepareSortedLedgerStorageCheckpoint(long numBytesFlushed) throws IOException {
+        if (numBytesFlushed > 0) {
+            // if bytes are added between previous flush and this checkpoint,
+            // it means bytes might live at current active entry logs, we need
+            // roll them and then issue checkpoint to underlying
+            // interleaved ledger storage.
+            rollActiveLogs("due to preparing checkpoint : numBytesFlushed = " + numBytesFlushed);
+        }
+    }
+
+    private void rollActiveLogs(String reason) throws IOException {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                if (slot.activeLogChannel != null) {
+                    createNewLog(slot, reason);
+                }
+            }
+        }
+    }
+
+    @Override
+    public BufferedLogChannel createNewLogForCompaction() throws IOException {
+        BufferedLogChannel newLogForCompaction = entryLoggerAllocator.createNewLogForCompaction(
+                selectDirForNextEntryLog());
+        entryLoggerAllocator.setWritingCompactingLogId(newLogForCompaction.getLogId());
+        return newLogForCompaction;
+    }
+}
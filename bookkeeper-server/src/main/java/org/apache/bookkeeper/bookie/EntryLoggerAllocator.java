@@ -131,6 +131,16 @@ class EntryLoggerAllocator {
         }
     }
 
+    /**
+     * Create a new log in the given directory. The preallocated log is not used since
+     * it might have been allocated in another directory.
+     */
+    BufferedLogChannel createNewLogInDirectory(File dir) throws IOException {
+        synchronized (createEntryLogLock) {
+            return allocateNewLog(dir);
+        }
+    }
+
     BufferedLogChannel createNewLogForCompaction(File dirForNextEntryLog) throws IOException {
         synchronized (createCompactionLogLock) {
             return allocateNewLog(dirForNextEntryLog, COMPACTING_SUFFIX);
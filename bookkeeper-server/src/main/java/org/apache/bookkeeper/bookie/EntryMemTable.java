@@ -119,12 +119,21 @@ public class EntryMemTable implements AutoCloseable{
     */
     public EntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
                          final StatsLogger statsLogger) {
+        this(conf, source, statsLogger, true);
+    }
+
+    /**
+     * Constructor for the memtables which keep the entries in their own table.
+     * @param useSkipList whether the entries are kept in the skip list
+     */
+    EntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
+                  final StatsLogger statsLogger, boolean useSkipList) {
         this.checkpointSource = source;
-        this.kvmap = newSkipList();
+        this.kvmap = useSkipList ? newSkipList() : EntrySkipList.EMPTY_VALUE;
         this.snapshot = EntrySkipList.EMPTY_VALUE;
         this.conf = conf;
         this.size = new AtomicLong(0);
-        this.allocator = new SkipListArena(conf);
+        this.allocator = useSkipList ? new SkipListArena(conf) : null;
         this.previousFlushSucceeded = new AtomicBoolean(true);
         // skip list size limit
         this.skipListSizeLimit = conf.getSkipListSizeLimit();
@@ -317,8 +326,7 @@ public class EntryMemTable implements AutoCloseable{
 
             this.lock.readLock().lock();
             try {
-                EntryKeyValue toAdd = cloneWithAllocator(ledgerId, entryId, entry);
-                size = internalAdd(toAdd);
+                size = addToTable(ledgerId, entryId, entry);
                 if (size == 0) {
                     skipListSemaphore.release(len);
                 }
@@ -338,6 +346,16 @@ public class EntryMemTable implements AutoCloseable{
         }
     }
 
+    /**
+     * Add the entry to the current table. Callers should ensure they already have the read lock taken.
+     *
+     * @return the size of the entry, or 0 if the entry was already present
+     */
+    long addToTable(long ledgerId, long entryId, final ByteBuffer entry) throws IOException {
+        EntryKeyValue toAdd = cloneWithAllocator(ledgerId, entryId, entry);
+        return internalAdd(toAdd);
+    }
+
     /**
     * Internal version of add() that doesn't clone KVs with the
     * allocator, and doesn't take the lock.
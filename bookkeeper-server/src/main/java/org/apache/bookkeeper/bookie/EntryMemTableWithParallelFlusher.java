@@ -54,7 +54,9 @@ class EntryMemTableWithParallelFlusher extends EntryMemTable {
      *
      * <p>SubMaps of the snapshot corresponding to the entries of the ledgers are
      * created and submitted to the flushExecutor with ledgerId as the
-     * orderingKey to flush process the entries of a ledger.
+     * orderingKey to flush process the entries of a ledger. The flusher can map
+     * ledgers to other ordering keys, e.g. to flush the ledgers sharing an
+     * entrylog from the same thread.
      */
     @Override
     long flushSnapshot(final SkipListFlusher flusher, Checkpoint checkpoint) throws IOException {
@@ -83,7 +85,7 @@ class EntryMemTableWithParallelFlusher extends EntryMemTable {
                         ConcurrentNavigableMap<EntryKey, EntryKeyValue> thisLedgerEntries = keyValues
                                 .subMap(thisLedgerFirstEntry, thisLedgerCeilingKeyMarker);
                         pendingNumOfLedgerFlushes.register();
-                        flushExecutor.executeOrdered(thisLedgerId, () -> {
+                        flushExecutor.executeOrdered(flusher.getFlushOrderingKey(thisLedgerId), () -> {
                             try {
                                 long ledger;
                                 boolean ledgerDeleted = false;
@@ -456,11 +456,14 @@ class FileInfo extends Watchable<LastAddConfirmedUpdateNotification> {
                 return;
             }
             isClosed = true;
-            checkOpen(force, true);
-            // Any time when we force close a file, we should try to flush header.
-            // otherwise, we might lose fence bit.
-            if (force) {
-                flushHeader();
+            // The index file of a deleted ledger must not be recreated.
+            if (!deleted) {
+                checkOpen(force, true);
+                // Any time when we force close a file, we should try to flush header.
+                // otherwise, we might lose fence bit.
+                if (force) {
+                    flushHeader();
+                }
             }
             changed = true;
             if (fc != null) {
@@ -20,12 +20,22 @@
  */
 package org.apache.bookkeeper.bookie;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.bookie.stats.FileInfoBackingCacheStats;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
 
 @Slf4j
@@ -35,12 +45,39 @@ class FileInfoBackingCache {
     final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     final ConcurrentLongHashMap<CachedFileInfo> fileInfos =
             ConcurrentLongHashMap.<CachedFileInfo>newBuilder().build();
+    // evicted file infos whose index file is being flushed and closed
+    final ConcurrentLongHashMap<CachedFileInfo> pendingCloses =
+            ConcurrentLongHashMap.<CachedFileInfo>newBuilder().build();
     final FileLoader fileLoader;
     final int fileInfoVersionToWrite;
+    // null if index files are opened lazily, on the first access to the file info
+    private final ThreadPoolExecutor openExecutor;
+    // null if index files are closed by the thread evicting the file info
+    private final ThreadPoolExecutor closeExecutor;
+    private final FileInfoBackingCacheStats stats;
 
     FileInfoBackingCache(FileLoader fileLoader, int fileInfoVersionToWrite) {
+        this(fileLoader, fileInfoVersionToWrite, 0, 0, 1, NullStatsLogger.INSTANCE);
+    }
+
+    FileInfoBackingCache(FileLoader fileLoader, int fileInfoVersionToWrite,
+                         int numOpenThreads, int numCloseThreads, int maxPendingOperations,
+                         StatsLogger statsLogger) {
         this.fileLoader = fileLoader;
         this.fileInfoVersionToWrite = fileInfoVersionToWrite;
+        this.openExecutor = newExecutor("FileInfoOpener", numOpenThreads, maxPendingOperations);
+        this.closeExecutor = newExecutor("FileInfoCloser", numCloseThreads, maxPendingOperations);
+        this.stats = new FileInfoBackingCacheStats(statsLogger,
+                () -> fileInfos.size() + pendingCloses.size(),
+                () -> pendingCloses.size());
+    }
+
+    private static ThreadPoolExecutor newExecutor(String name, int numThreads, int maxPendingOperations) {
+        if (numThreads <= 0) {
+            return null;
+        }
+        return new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxPendingOperations)), new DefaultThreadFactory(name, true));
     }
 
     /**
@@ -74,40 +111,154 @@ class FileInfoBackingCache {
             lock.readLock().unlock();
         }
 
-        File backingFile = fileLoader.load(ledgerId, masterKey != null);
-        CachedFileInfo newFi = new CachedFileInfo(ledgerId, backingFile, masterKey);
-
-        // else FileInfo not found, create it under write lock
-        lock.writeLock().lock();
+        long startNanos = MathUtils.nowInNano();
+        boolean success = false;
         try {
-            CachedFileInfo fi = fileInfos.get(ledgerId);
-            if (fi != null) {
-                // someone is already putting a fileinfo here, so use the existing one and recycle the new one
-                newFi.recycle();
+            CachedFileInfo fi = loadNewFileInfo(ledgerId, masterKey);
+            success = true;
+            return fi;
+        } finally {
+            if (success) {
+                stats.getLoadStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
             } else {
-                fileInfos.put(ledgerId, newFi);
-                fi = newFi;
+                stats.getLoadStats().registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private CachedFileInfo loadNewFileInfo(long ledgerId, byte[] masterKey) throws IOException {
+        while (true) {
+            // The index file of an evicted file info may not be closed yet. The new file info takes
+            // over its index file, which is only opened once the close completed (see CachedFileInfo#previous),
+            // otherwise the header flushed on close could overwrite the one of the new file info.
+            CachedFileInfo previous = pendingCloses.get(ledgerId);
+            File backingFile = null != previous ? previous.evictedLf : fileLoader.load(ledgerId, masterKey != null);
+            CachedFileInfo newFi = new CachedFileInfo(ledgerId, backingFile, masterKey);
+
+            // else FileInfo not found, create it under write lock
+            CachedFileInfo fi;
+            lock.writeLock().lock();
+            try {
+                CachedFileInfo pendingClose = pendingCloses.get(ledgerId);
+                if (null != pendingClose && pendingClose != previous) {
+                    // the file info was loaded and evicted again in the meantime
+                    newFi.recycle();
+                    continue;
+                }
+                fi = fileInfos.get(ledgerId);
+                if (fi != null) {
+                    // someone is already putting a fileinfo here, so use the existing one and recycle the new one
+                    newFi.recycle();
+                } else {
+                    newFi.previous = pendingClose;
+                    fileInfos.put(ledgerId, newFi);
+                    fi = newFi;
+                }
+
+                // see comment above for why we assert
+                tryRetainFileInfo(fi);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (fi == newFi) {
+                CachedFileInfo pendingClose = newFi.previous;
+                if (null == pendingClose) {
+                    openAsync(newFi);
+                } else {
+                    pendingClose.closed.thenRun(() -> openAsync(newFi));
+                }
             }
+            return fi;
+        }
+    }
+
+    /**
+     * Open the index file of a new file info on the opener threads, so that the open overlaps
+     * with the caller. The caller only waits for it if it accesses the file info before the
+     * open completes.
+     */
+    private void openAsync(CachedFileInfo fi) {
+        if (null == openExecutor || !fi.tryRetain()) {
+            return;
+        }
+        try {
+            openExecutor.execute(() -> open(fi));
+        } catch (RejectedExecutionException ree) {
+            // Queue is full (or we are shutting down), the file is opened on first access
+            fi.release();
+        }
+    }
 
-            // see comment above for why we assert
-            return tryRetainFileInfo(fi);
+    private void open(CachedFileInfo fi) {
+        long startNanos = MathUtils.nowInNano();
+        try {
+            synchronized (fi) {
+                if (!fi.isClosed()) {
+                    fi.checkOpen(false);
+                }
+            }
+            stats.getOpenStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+        } catch (IOException ioe) {
+            // the failure is raised again on the first access to the file info
+            log.debug("Failed to open index file of ledger {}", fi.ledgerId, ioe);
+            stats.getOpenStats().registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
         } finally {
-            lock.writeLock().unlock();
+            fi.release();
         }
     }
 
     private void releaseFileInfo(long ledgerId, CachedFileInfo fileInfo) {
         lock.writeLock().lock();
         try {
-            if (fileInfo.markDead()) {
-                fileInfo.close(true);
-                fileInfos.remove(ledgerId, fileInfo);
+            if (!fileInfo.markDead()) {
+                return;
+            }
+            fileInfos.remove(ledgerId, fileInfo);
+            // the index file can no longer be moved once the file info is dead
+            fileInfo.evictedLf = fileInfo.getLf();
+            pendingCloses.put(ledgerId, fileInfo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (null != closeExecutor) {
+            try {
+                closeExecutor.execute(() -> closeFileInfo(ledgerId, fileInfo));
+                return;
+            } catch (RejectedExecutionException ree) {
+                // Queue is full (or we are shutting down), close on the caller thread
             }
+        }
+        closeFileInfo(ledgerId, fileInfo);
+    }
+
+    private void closeFileInfo(long ledgerId, CachedFileInfo fileInfo) {
+        long startNanos = MathUtils.nowInNano();
+        try {
+            // the file info may have been loaded while the previous one was still closing
+            fileInfo.awaitPreviousClose();
+            // does not flush the header, nor recreate the index file, if the ledger was deleted in the meantime
+            fileInfo.close(true);
+            stats.getCloseStats().registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
         } catch (IOException ioe) {
             log.error("Error evicting file info({}) for ledger {} from backing cache",
                       fileInfo, ledgerId, ioe);
+            stats.getCloseStats().registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
         } finally {
-            lock.writeLock().unlock();
+            pendingCloses.remove(ledgerId, fileInfo);
+            fileInfo.closed.complete(null);
+        }
+    }
+
+    /**
+     * Wait for the pending opens and closes of index files to complete, and stop the opener
+     * and closer threads.
+     */
+    void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor executor : new ThreadPoolExecutor[] { openExecutor, closeExecutor }) {
+            if (null != executor) {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
@@ -128,11 +279,51 @@ class FileInfoBackingCache {
     class CachedFileInfo extends FileInfo {
         final long ledgerId;
         final AtomicInteger refCount;
+        // completed once the index file is closed, after the file info was evicted
+        final CompletableFuture<Void> closed;
+        // index file of the file info once evicted, which the next file info of the ledger takes over
+        volatile File evictedLf;
+        // the evicted file info of the same ledger whose index file was still being closed when this
+        // file info was loaded, null once that close completed
+        volatile CachedFileInfo previous;
 
         CachedFileInfo(long ledgerId, File lf, byte[] masterKey) throws IOException {
             super(lf, masterKey, fileInfoVersionToWrite);
             this.ledgerId = ledgerId;
             this.refCount = new AtomicInteger(0);
+            this.closed = new CompletableFuture<>();
+        }
+
+        /**
+         * Wait for the index file of the previous file info of the ledger to be closed, so that
+         * the header it flushes is read rather than overwritten. This is usually done by the time
+         * the file info is accessed, as the index file is only opened once the close completed.
+         */
+        void awaitPreviousClose() {
+            CachedFileInfo previous = this.previous;
+            if (null != previous) {
+                previous.closed.join();
+                this.previous = null;
+            }
+        }
+
+        @Override
+        void checkOpen(boolean create) throws IOException {
+            awaitPreviousClose();
+            super.checkOpen(create);
+        }
+
+        /**
+         * Delete the index file, and prevent the close of the previous file info of the ledger,
+         * if still pending, from flushing its header and recreating the index file.
+         */
+        @Override
+        public boolean delete() {
+            CachedFileInfo previous = this.previous;
+            if (null != previous) {
+                previous.delete();
+            }
+            return super.delete();
         }
 
         /**
@@ -33,14 +33,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.bookkeeper.bookie.stats.IndexInMemPageMgrStats;
@@ -49,32 +44,55 @@ import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 // CHECKSTYLE.ON: IllegalImport
 
 class IndexInMemPageMgr {
     private static final Logger LOG = LoggerFactory.getLogger(IndexInMemPageMgr.class);
-    private static final ConcurrentHashMap<Long, LedgerEntryPage> EMPTY_PAGE_MAP =
-            new ConcurrentHashMap<Long, LedgerEntryPage>();
 
     private static class InMemPageCollection implements LEPStateChangeCallback {
 
-        final ConcurrentMap<Long, ConcurrentMap<Long, LedgerEntryPage>> pages;
-        final Map<EntryKey, LedgerEntryPage> lruCleanPageMap;
+        // Number of locks serializing the mutations of the page table, must be a power of 2
+        private static final int NUM_STRIPES = 64;
+        // Number of eviction candidates we try to reclaim before giving up and flushing
+        private static final int MAX_EVICTION_ATTEMPTS = 16;
+        // Max number of pages the clock hand goes over to find an eviction candidate
+        private static final int MAX_CLOCK_SCAN = 1024;
+        // The clock pages are stored in chunks, so that they can be scanned without a lock while pages are added
+        private static final int CLOCK_CHUNK_BITS = 10;
+        private static final int CLOCK_CHUNK_SIZE = 1 << CLOCK_CHUNK_BITS;
+
+        // Lookups are lock free, mutations of the pages of a ledger are done under the ledger's stripe
+        final ConcurrentLongHashMap<ConcurrentLongHashMap<LedgerEntryPage>> pages;
+        private final Object[] stripes;
+        // All the pages ever allocated, swept by the clock hand to find clean pages to evict. Pages are
+        // only ever added, under the lock of the chunk list, and published by the increment of the count
+        private final List<LedgerEntryPage[]> clockChunks;
+        private volatile int numClockPages = 0;
+        private final AtomicInteger clockHand = new AtomicInteger(0);
+        private volatile long ledgerToFlush = -1L;
         final ConcurrentLinkedQueue<LedgerEntryPage> listOfFreePages;
 
         // Stats
         private final IndexInMemPageMgrStats inMemPageMgrStats;
 
         public InMemPageCollection(StatsLogger statsLogger) {
-            pages = new ConcurrentHashMap<>();
-            lruCleanPageMap =
-                    Collections.synchronizedMap(new LinkedHashMap<EntryKey, LedgerEntryPage>(16, 0.75f, true));
+            pages = ConcurrentLongHashMap.<ConcurrentLongHashMap<LedgerEntryPage>>newBuilder().build();
+            stripes = new Object[NUM_STRIPES];
+            for (int i = 0; i < NUM_STRIPES; i++) {
+                stripes[i] = new Object();
+            }
+            clockChunks = new CopyOnWriteArrayList<LedgerEntryPage[]>();
             listOfFreePages = new ConcurrentLinkedQueue<LedgerEntryPage>();
             inMemPageMgrStats = new IndexInMemPageMgrStats(statsLogger);
         }
 
+        private Object stripe(long ledgerId) {
+            return stripes[(int) (ledgerId ^ (ledgerId >>> 32)) & (NUM_STRIPES - 1)];
+        }
+
         /**
          * Retrieve the LedgerEntryPage corresponding to the ledger and firstEntry.
          *
@@ -83,37 +101,54 @@ class IndexInMemPageMgr {
          * @returns LedgerEntryPage if present
          */
         private LedgerEntryPage getPage(long ledgerId, long firstEntry) {
-            ConcurrentMap<Long, LedgerEntryPage> map = pages.get(ledgerId);
+            ConcurrentLongHashMap<LedgerEntryPage> map = pages.get(ledgerId);
             if (null != map) {
                 return map.get(firstEntry);
             }
             return null;
         }
 
+        /**
+         * Retrieve the LedgerEntryPage corresponding to the ledger and firstEntry and mark it in use.
+         * The page is checked to still be mapped once it is in use, as it might have been evicted
+         * and provisioned for another ledger in between.
+         *
+         * @param ledgerId Ledger id
+         * @param firstEntry Id of the first entry in the page
+         * @returns LedgerEntryPage in use if present
+         */
+        private LedgerEntryPage usePage(long ledgerId, long firstEntry) {
+            LedgerEntryPage lep = getPage(ledgerId, firstEntry);
+            if (null == lep) {
+                return null;
+            }
+            lep.usePage();
+            if (lep != getPage(ledgerId, firstEntry)) {
+                lep.releasePage();
+                return null;
+            }
+            return lep;
+        }
+
         /**
          * Add a LedgerEntryPage to the page map.
          *
          * @param lep Ledger Entry Page object
          */
         private LedgerEntryPage putPage(LedgerEntryPage lep) {
-            // Do a get here to avoid too many new ConcurrentHashMaps() as putIntoTable is called frequently.
-            ConcurrentMap<Long, LedgerEntryPage> map = pages.get(lep.getLedger());
-            if (null == map) {
-                ConcurrentMap<Long, LedgerEntryPage> mapToPut = new ConcurrentHashMap<Long, LedgerEntryPage>();
-                map = pages.putIfAbsent(lep.getLedger(), mapToPut);
+            long ledgerId = lep.getLedger();
+            synchronized (stripe(ledgerId)) {
+                ConcurrentLongHashMap<LedgerEntryPage> map = pages.get(ledgerId);
                 if (null == map) {
-                    map = mapToPut;
+                    map = ConcurrentLongHashMap.<LedgerEntryPage>newBuilder()
+                            .expectedItems(4)
+                            .concurrencyLevel(1)
+                            .build();
+                    pages.put(ledgerId, map);
                 }
+                LedgerEntryPage oldPage = map.putIfAbsent(lep.getFirstEntry(), lep);
+                return null == oldPage ? lep : oldPage;
             }
-            LedgerEntryPage oldPage = map.putIfAbsent(lep.getFirstEntry(), lep);
-            if (null == oldPage) {
-                oldPage = lep;
-                // Also include this in the clean page map if it qualifies.
-                // Note: This is done for symmetry and correctness, however it should never
-                // get exercised since we shouldn't attempt a put without the page being in use
-                addToCleanPagesList(lep);
-            }
-            return oldPage;
         }
 
         /**
@@ -125,16 +160,18 @@ class IndexInMemPageMgr {
         private long getLastEntryInMem(long ledgerId) {
             long lastEntry = 0;
             // Find the last entry in the cache
-            ConcurrentMap<Long, LedgerEntryPage> map = pages.get(ledgerId);
+            ConcurrentLongHashMap<LedgerEntryPage> map = pages.get(ledgerId);
             if (map != null) {
                 for (LedgerEntryPage lep: map.values()) {
                     if (lep.getMaxPossibleEntry() < lastEntry) {
                         continue;
                     }
                     lep.usePage();
-                    long highest = lep.getLastEntry();
-                    if (highest > lastEntry) {
-                        lastEntry = highest;
+                    if (lep.getLedger() == ledgerId) {
+                        long highest = lep.getLastEntry();
+                        if (highest > lastEntry) {
+                            lastEntry = highest;
+                        }
                     }
                     lep.releasePage();
                 }
@@ -150,10 +187,12 @@ class IndexInMemPageMgr {
          */
         private void removeEntriesForALedger(long ledgerId) {
             // remove pages first to avoid page flushed when deleting file info
-            ConcurrentMap<Long, LedgerEntryPage> lPages = pages.remove(ledgerId);
+            ConcurrentLongHashMap<LedgerEntryPage> lPages;
+            synchronized (stripe(ledgerId)) {
+                lPages = pages.remove(ledgerId);
+            }
             if (null != lPages) {
-                for (Map.Entry<Long, LedgerEntryPage> pageEntry: lPages.entrySet()) {
-                    LedgerEntryPage lep = pageEntry.getValue();
+                for (LedgerEntryPage lep: lPages.values()) {
                     lep.usePage();
                     lep.markDeleted();
                     lep.releasePage();
@@ -162,67 +201,151 @@ class IndexInMemPageMgr {
         }
 
         /**
-         * Gets the list of pages in memory that have been changed and hence need to
+         * Gets the pages in memory that have been changed and hence need to
          * be written as a part of the flush operation that is being issued.
+         * The returned pages are in use and must be released by the caller.
          *
          * @param ledgerId Ledger id
-         * @returns last entry in the in memory pages.
+         * @returns the dirty pages of the ledger.
          */
-        private LinkedList<Long> getFirstEntryListToBeFlushed(long ledgerId) {
-            ConcurrentMap<Long, LedgerEntryPage> pageMap = pages.get(ledgerId);
+        private List<LedgerEntryPage> getDirtyPagesToBeFlushed(long ledgerId) {
+            ConcurrentLongHashMap<LedgerEntryPage> pageMap = pages.get(ledgerId);
             if (pageMap == null || pageMap.isEmpty()) {
-                return null;
+                return Collections.emptyList();
             }
 
-            LinkedList<Long> firstEntryList = new LinkedList<Long>();
-            for (ConcurrentMap.Entry<Long, LedgerEntryPage> entry: pageMap.entrySet()) {
-                LedgerEntryPage lep = entry.getValue();
+            List<LedgerEntryPage> dirtyPages = new ArrayList<LedgerEntryPage>();
+            for (LedgerEntryPage lep: pageMap.values()) {
                 if (lep.isClean()) {
-                    if (!lep.inUse()) {
-                        addToCleanPagesList(lep);
-                    }
                     if (LOG.isTraceEnabled()) {
                         LOG.trace("Page is clean " + lep);
                     }
+                    continue;
+                }
+                // flushing a page doesn't count as an access for the eviction clock
+                boolean referenced = lep.isReferenced();
+                lep.usePage();
+                if (!referenced) {
+                    lep.clearReferenced();
+                }
+                if (lep == pageMap.get(lep.getFirstEntry()) && !lep.isClean()) {
+                    dirtyPages.add(lep);
                 } else {
-                    firstEntryList.add(lep.getFirstEntry());
+                    lep.releasePage();
                 }
             }
-            return firstEntryList;
+            return dirtyPages;
+        }
+
+        /**
+         * Get the set of active ledgers.
+         *
+         */
+        List<Long> getActiveLedgers() {
+            return pages.keys();
         }
 
         /**
-         * Add the LedgerEntryPage to the clean page LRU map.
+         * Register a newly allocated page, so that it can be evicted later on.
          *
          * @param lep Ledger Entry Page object
          */
-        private void addToCleanPagesList(LedgerEntryPage lep) {
-            synchronized (lruCleanPageMap) {
-                if (lep.isClean() && !lep.inUse()) {
-                    lruCleanPageMap.put(lep.getEntryKey(), lep);
+        void registerPage(LedgerEntryPage lep) {
+            synchronized (clockChunks) {
+                int idx = numClockPages;
+                if ((idx & (CLOCK_CHUNK_SIZE - 1)) == 0) {
+                    clockChunks.add(new LedgerEntryPage[CLOCK_CHUNK_SIZE]);
                 }
+                clockChunks.get(idx >>> CLOCK_CHUNK_BITS)[idx & (CLOCK_CHUNK_SIZE - 1)] = lep;
+                numClockPages = idx + 1;
             }
         }
 
+        private LedgerEntryPage clockPage(int idx) {
+            return clockChunks.get(idx >>> CLOCK_CHUNK_BITS)[idx & (CLOCK_CHUNK_SIZE - 1)];
+        }
+
         /**
-         * Remove the LedgerEntryPage from the clean page LRU map.
+         * Advance the clock hand until it finds a clean page which is not in use and which
+         * was not referenced since the hand last went over it. The hand goes over at most
+         * two rounds of the pages, and at most {@link #MAX_CLOCK_SCAN} pages, without any lock:
+         * concurrent scans share the hand, and a page is only taken once it is reclaimed. If
+         * there is no such page, the ledger of the first dirty page that would have been evicted
+         * otherwise is recorded, so that it can be flushed.
          *
-         * @param lep Ledger Entry Page object
+         * @returns the eviction candidate, or null if there is no clean page
          */
-        private void removeFromCleanPageList(LedgerEntryPage lep) {
-            synchronized (lruCleanPageMap) {
-                if (!lep.isClean() || lep.inUse()) {
-                    lruCleanPageMap.remove(lep.getEntryKey());
+        private LedgerEntryPage nextEvictionCandidate() {
+            int numPages = numClockPages;
+            if (numPages == 0) {
+                return null;
+            }
+            LedgerEntryPage dirtyVictim = null;
+            // Two rounds, since the first one might only clear the reference bits
+            int maxScan = (int) Math.min(2L * numPages, MAX_CLOCK_SCAN);
+            for (int i = 0; i < maxScan; i++) {
+                LedgerEntryPage lep = clockPage(Math.floorMod(clockHand.getAndIncrement(), numPages));
+                if (lep.inUse() || lep.isDeleted() || lep.getLedger() < 0) {
+                    continue;
+                }
+                if (lep.clearReferenced()) {
+                    continue;
+                }
+                if (!lep.isClean()) {
+                    if (null == dirtyVictim) {
+                        dirtyVictim = lep;
+                    }
+                    continue;
                 }
+                return lep;
+            }
+            if (null != dirtyVictim) {
+                ledgerToFlush = dirtyVictim.getLedger();
             }
+            return null;
         }
 
         /**
-         * Get the set of active ledgers.
+         * Get the ledger of a dirty page the clock hand would have evicted, if any.
          *
+         * @returns ledger id, or -1 if the clock hand did not go over a dirty page to evict
          */
-        Set<Long> getActiveLedgers() {
-            return pages.keySet();
+        long pollLedgerToFlush() {
+            long ledgerId = ledgerToFlush;
+            ledgerToFlush = -1L;
+            return ledgerId;
+        }
+
+        /**
+         * Remove a clean page which is not in use from the page map.
+         *
+         * @param lep Ledger Entry Page object
+         * @returns whether the page was reclaimed
+         */
+        private boolean reclaimPage(LedgerEntryPage lep) {
+            EntryKey key = lep.getEntryKey();
+            long ledgerId = key.getLedgerId();
+            long firstEntry = key.getEntryId();
+            synchronized (stripe(ledgerId)) {
+                // The page map is the definitive source of information. Its possible for the ledger
+                // to have been deleted or the page to have already been reclaimed, in which case we
+                // should leave this page alone.
+                ConcurrentLongHashMap<LedgerEntryPage> pageMap = pages.get(ledgerId);
+                if (null == pageMap || lep != pageMap.get(firstEntry) || !lep.isClean() || lep.inUse()) {
+                    return false;
+                }
+                pageMap.remove(firstEntry);
+                if (!lep.isClean() || lep.inUse()) {
+                    // Someone used this page while we were reclaiming it.
+                    pageMap.put(firstEntry, lep);
+                    return false;
+                }
+                // Do some bookkeeping on the page table
+                if (pageMap.isEmpty()) {
+                    pages.remove(ledgerId, pageMap);
+                }
+                return true;
+            }
         }
 
         /**
@@ -240,55 +363,24 @@ class IndexInMemPageMgr {
                 lep.usePage();
                 return lep;
             }
-            while (lruCleanPageMap.size() > 0) {
-                lep = null;
-                synchronized (lruCleanPageMap) {
-                    Iterator<Map.Entry<EntryKey, LedgerEntryPage>> iterator = lruCleanPageMap.entrySet().iterator();
-
-                    Map.Entry<EntryKey, LedgerEntryPage> entry = null;
-                    while (iterator.hasNext()) {
-                        entry = iterator.next();
-                        iterator.remove();
-                        if (entry.getValue().isClean() && !entry.getValue().inUse()) {
-                            lep = entry.getValue();
-                            break;
-                        }
-                    }
-
-                    if (null == lep) {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("Did not find eligible page in the first pass");
-                        }
-                        return null;
+            for (int i = 0; i < MAX_EVICTION_ATTEMPTS; i++) {
+                lep = nextEvictionCandidate();
+                if (null == lep) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Did not find eligible page in the first pass");
                     }
+                    return null;
                 }
-
                 // We found a candidate page, lets see if we can reclaim it before its re-used
-                ConcurrentMap<Long, LedgerEntryPage> pageMap = pages.get(lep.getLedger());
-                // Remove from map only if nothing has changed since we checked this lep.
-                // Its possible for the ledger to have been deleted or the page to have already
-                // been reclaimed. The page map is the definitive source of information, if anything
-                // has changed we should leave this page along and continue iterating to find
-                // another suitable page.
-                if ((null != pageMap) && (pageMap.remove(lep.getFirstEntry(), lep))) {
-                    if (!lep.isClean()) {
-                        // Someone wrote to this page while we were reclaiming it.
-                        pageMap.put(lep.getFirstEntry(), lep);
-                        lep = null;
-                    } else {
-                        // Do some bookkeeping on the page table
-                        pages.remove(lep.getLedger(), EMPTY_PAGE_MAP);
-                        // We can now safely reset this lep and return it.
-                        lep.usePage();
-                        lep.zeroPage();
-                        lep.setLedgerAndFirstEntry(ledgerId, firstEntry);
-                        return lep;
-                    }
-                } else {
-                    lep = null;
+                if (reclaimPage(lep)) {
+                    // We can now safely reset this lep and return it.
+                    lep.usePage();
+                    lep.zeroPage();
+                    lep.setLedgerAndFirstEntry(ledgerId, firstEntry);
+                    return lep;
                 }
             }
-            return lep;
+            return null;
         }
 
         public void addToListOfFreePages(LedgerEntryPage lep) {
@@ -302,29 +394,30 @@ class IndexInMemPageMgr {
 
         @Override
         public void onSetInUse(LedgerEntryPage lep) {
-            removeFromCleanPageList(lep);
+            lep.markReferenced();
         }
 
         @Override
         public void onResetInUse(LedgerEntryPage lep) {
-            if (!lep.isDeleted()) {
-                addToCleanPagesList(lep);
-            } else {
+            if (lep.isDeleted()) {
                 addToListOfFreePages(lep);
             }
         }
 
         @Override
         public void onSetClean(LedgerEntryPage lep) {
-            addToCleanPagesList(lep);
+            // clean pages are found by the clock hand
         }
 
         @Override
         public void onSetDirty(LedgerEntryPage lep) {
-            removeFromCleanPageList(lep);
+            // dirty pages are skipped by the clock hand
         }
     }
 
+    // Number of times a clean page is looked for, flushing a ledger in between, before giving up
+    private static final int MAX_GRAB_ATTEMPTS = 64;
+
     final int pageSize;
     final int entriesPerPage;
     final int pageLimit;
@@ -408,7 +501,7 @@ class IndexInMemPageMgr {
      */
     LedgerEntryPage getLedgerEntryPage(long ledger,
                                               long pageEntry) throws IOException {
-        LedgerEntryPage lep = getLedgerEntryPageFromCache(ledger, pageEntry, false);
+        LedgerEntryPage lep = getLedgerEntryPageFromCache(ledger, pageEntry);
         if (lep == null) {
             ledgerCacheMissCounter.inc();
             lep = grabLedgerEntryPage(ledger, pageEntry);
@@ -418,17 +511,8 @@ class IndexInMemPageMgr {
         return lep;
     }
 
-    LedgerEntryPage getLedgerEntryPageFromCache(long ledger,
-                                                       long firstEntry,
-                                                       boolean onlyDirty) {
-        LedgerEntryPage lep = pageMapAndList.getPage(ledger, firstEntry);
-        if (onlyDirty && null != lep && lep.isClean()) {
-            return null;
-        }
-        if (null != lep) {
-            lep.usePage();
-        }
-        return lep;
+    LedgerEntryPage getLedgerEntryPageFromCache(long ledger, long firstEntry) {
+        return pageMapAndList.usePage(ledger, firstEntry);
     }
 
     /**
@@ -487,7 +571,7 @@ class IndexInMemPageMgr {
             throw new IllegalArgumentException(entry + " is not a multiple of " + entriesPerPage);
         }
 
-        while (true) {
+        for (int attempt = 0; attempt < MAX_GRAB_ATTEMPTS; attempt++) {
             boolean canAllocate = false;
             if (pageCount.incrementAndGet() <= pageLimit) {
                 canAllocate = true;
@@ -499,6 +583,7 @@ class IndexInMemPageMgr {
                 LedgerEntryPage lep = new LedgerEntryPage(pageSize, entriesPerPage, pageMapAndList);
                 lep.setLedgerAndFirstEntry(ledger, entry);
                 lep.usePage();
+                pageMapAndList.registerPage(lep);
                 return lep;
             }
 
@@ -508,12 +593,24 @@ class IndexInMemPageMgr {
             }
             LOG.info("Could not grab a clean page for ledger {}, entry {}, force flushing dirty ledgers.",
                     ledger, entry);
+            long ledgerToFlush = pageMapAndList.pollLedgerToFlush();
+            if (ledgerToFlush >= 0) {
+                try {
+                    flushSpecificLedger(ledgerToFlush);
+                    continue;
+                } catch (Bookie.NoLedgerException e) {
+                    // the ledger was deleted meanwhile, fall back to flushing any ledger
+                }
+            }
             flushOneOrMoreLedgers(false);
         }
+        // all the pages are in use, or get dirty again as fast as they are flushed
+        throw new IOException("Could not grab a clean page for ledger " + ledger + ", entry " + entry
+                + " after " + MAX_GRAB_ATTEMPTS + " attempts");
     }
 
     void flushOneOrMoreLedgers(boolean doAll) throws IOException {
-        List<Long> ledgersToFlush = new ArrayList<>(pageMapAndList.getActiveLedgers());
+        List<Long> ledgersToFlush = pageMapAndList.getActiveLedgers();
         for (Long potentiallyDirtyLedger : ledgersToFlush) {
             try {
                 flushSpecificLedger(potentiallyDirtyLedger);
@@ -533,28 +630,20 @@ class IndexInMemPageMgr {
      * @throws IOException
      */
     private void flushSpecificLedger(long ledger) throws IOException {
-        LinkedList<Long> firstEntryList = pageMapAndList.getFirstEntryListToBeFlushed(ledger);
-
-        // flush ledger index file header if necessary
-        indexPersistenceManager.flushLedgerHeader(ledger);
-
-        if (null == firstEntryList || firstEntryList.size() == 0) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Nothing to flush for ledger {}.", ledger);
-            }
-            // nothing to do
-            return;
-        }
-
-        // Now flush all the pages of a ledger
-        List<LedgerEntryPage> entries = new ArrayList<LedgerEntryPage>(firstEntryList.size());
+        List<LedgerEntryPage> entries = pageMapAndList.getDirtyPagesToBeFlushed(ledger);
         try {
-            for (Long firstEntry: firstEntryList) {
-                LedgerEntryPage lep = getLedgerEntryPageFromCache(ledger, firstEntry, true);
-                if (lep != null) {
-                    entries.add(lep);
+            // flush ledger index file header if necessary
+            indexPersistenceManager.flushLedgerHeader(ledger);
+
+            if (entries.isEmpty()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Nothing to flush for ledger {}.", ledger);
                 }
+                // nothing to do
+                return;
             }
+
+            // Now flush all the pages of a ledger
             indexPersistenceManager.flushLedgerEntries(ledger, entries);
         } finally {
             for (LedgerEntryPage lep: entries) {
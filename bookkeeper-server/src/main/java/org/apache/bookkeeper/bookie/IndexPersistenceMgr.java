@@ -103,7 +103,8 @@ public class IndexPersistenceMgr {
         // build the file info cache
         int concurrencyLevel = Math.max(1, Math.max(conf.getNumAddWorkerThreads(), conf.getNumReadWorkerThreads()));
         fileInfoBackingCache = new FileInfoBackingCache(this::createFileInfoBackingFile,
-                conf.getFileInfoFormatVersionToWrite());
+                conf.getFileInfoFormatVersionToWrite(), conf.getFileInfoOpenThreads(),
+                conf.getFileInfoCloseThreads(), conf.getFileInfoMaxPendingOperations(), statsLogger);
         RemovalListener<Long, CachedFileInfo> fileInfoEvictionListener = this::handleLedgerEviction;
         writeFileInfoCache = buildCache(
             concurrencyLevel,
@@ -341,6 +342,12 @@ public class IndexPersistenceMgr {
     }
 
     void close() throws IOException {
+        try {
+            fileInfoBackingCache.shutdown();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for pending file info closes", ie);
+        }
         // Don't force create the file. We may have many dirty ledgers and file create/flush
         // can be quite expensive as a result. We can use this optimization in this case
         // because metadata will be recovered from the journal when we restart anyway.
@@ -541,7 +548,7 @@ public class IndexPersistenceMgr {
             Collections.sort(entries, new Comparator<LedgerEntryPage>() {
                 @Override
                 public int compare(LedgerEntryPage o1, LedgerEntryPage o2) {
-                    return (int) (o1.getFirstEntry() - o2.getFirstEntry());
+                    return Long.compare(o1.getFirstEntry(), o2.getFirstEntry());
                 }
             });
             int[] versions = new int[entries.size()];
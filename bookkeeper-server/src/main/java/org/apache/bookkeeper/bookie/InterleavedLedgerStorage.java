@@ -37,6 +37,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -406,7 +407,6 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
 
     @Override
     public ByteBuf getEntry(long ledgerId, long entryId) throws IOException {
-        long offset;
         /*
          * If entryId is BookieProtocol.LAST_ADD_CONFIRMED, then return the last written.
          */
@@ -414,29 +414,36 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
             entryId = ledgerCache.getLastEntry(ledgerId);
         }
 
-        // Get Offset
+        long offset = getEntryOffset(ledgerId, entryId);
+        // Get Entry
         long startTimeNanos = MathUtils.nowInNano();
         boolean success = false;
         try {
-            offset = ledgerCache.getEntryOffset(ledgerId, entryId);
-            if (offset == 0) {
-                throw new Bookie.NoEntryException(ledgerId, entryId);
-            }
+            ByteBuf retBytes = entryLogger.readEntry(ledgerId, entryId, offset);
             success = true;
+            return retBytes;
         } finally {
             if (success) {
-                getOffsetStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                getEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
             } else {
-                getOffsetStats.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                getEntryStats.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
             }
         }
-        // Get Entry
-        startTimeNanos = MathUtils.nowInNano();
-        success = false;
+    }
+
+    @Override
+    public ReferenceCounted getEntryOrRegion(long ledgerId, long entryId, int minRegionSize) throws IOException {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return getEntry(ledgerId, entryId);
+        }
+
+        long offset = getEntryOffset(ledgerId, entryId);
+        long startTimeNanos = MathUtils.nowInNano();
+        boolean success = false;
         try {
-            ByteBuf retBytes = entryLogger.readEntry(ledgerId, entryId, offset);
+            ReferenceCounted entry = entryLogger.readEntryOrRegion(ledgerId, entryId, offset, minRegionSize);
             success = true;
-            return retBytes;
+            return entry;
         } finally {
             if (success) {
                 getEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
@@ -446,6 +453,25 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
         }
     }
 
+    private long getEntryOffset(long ledgerId, long entryId) throws IOException {
+        long startTimeNanos = MathUtils.nowInNano();
+        boolean success = false;
+        try {
+            long offset = ledgerCache.getEntryOffset(ledgerId, entryId);
+            if (offset == 0) {
+                throw new Bookie.NoEntryException(ledgerId, entryId);
+            }
+            success = true;
+            return offset;
+        } finally {
+            if (success) {
+                getOffsetStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                getOffsetStats.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
     private void flushOrCheckpoint(boolean isCheckpointFlush)
             throws IOException {
 
@@ -50,6 +50,8 @@ public class LedgerEntryPage implements AutoCloseable {
     private volatile int last = -1; // Last update position
     private final LEPStateChangeCallback callback;
     private boolean deleted;
+    // Whether the page was used since the eviction clock hand last went over it
+    private volatile boolean referenced = false;
 
     public static int getIndexEntrySize() {
         return indexEntrySize;
@@ -93,6 +95,29 @@ public class LedgerEntryPage implements AutoCloseable {
         return deleted;
     }
 
+    boolean isReferenced() {
+        return referenced;
+    }
+
+    void markReferenced() {
+        if (!referenced) {
+            referenced = true;
+        }
+    }
+
+    /**
+     * Clear the reference bit of the page.
+     *
+     * @return whether the page was referenced
+     */
+    boolean clearReferenced() {
+        if (referenced) {
+            referenced = false;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
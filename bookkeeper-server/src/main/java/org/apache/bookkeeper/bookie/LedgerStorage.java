@@ -24,6 +24,8 @@ package org.apache.bookkeeper.bookie;
 import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,7 +34,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
 import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
 import org.apache.bookkeeper.common.util.Watcher;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
@@ -144,6 +148,36 @@ public interface LedgerStorage {
      */
     ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException;
 
+    /**
+     * Read an entry from storage. An entry of at least minRegionSize bytes, stored in an entry log file,
+     * can be returned as the {@link FileRegion} of the file holding it, to be sent without being copied
+     * in memory.
+     *
+     * <p>The default implementation always reads the entry in a buffer.
+     *
+     * @return the entry, either as a {@link ByteBuf} or as a {@link FileRegion}
+     */
+    default ReferenceCounted getEntryOrRegion(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        return getEntry(ledgerId, entryId);
+    }
+
+    /**
+     * Asynchronously read an entry from storage.
+     *
+     * <p>The default implementation reads the entry on the calling thread. Implementations backed by an
+     * entry logger with asynchronous reads do not block the caller while waiting on disk I/O.
+     */
+    default CompletableFuture<ByteBuf> getEntryAsync(long ledgerId, long entryId) {
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        try {
+            future.complete(getEntry(ledgerId, entryId));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
     /**
      * Get last add confirmed.
      *
@@ -319,6 +353,13 @@ public interface LedgerStorage {
         return new ArrayList<>();
     }
 
+    /**
+     * Verify the entry logs of the storage against the block checksums recorded in them.
+     * Storage implementations whose entry logs have no block checksums have nothing to verify.
+     */
+    default void verifyEntryLogs(BlockVerificationListener listener) throws IOException {
+    }
+
     /**
      * Whether force triggered Garbage Collection is running or not.
      *
@@ -0,0 +1,554 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Bookie.NoLedgerException;
+import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.bookie.storage.ldb.ArrayGroupSort;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link EntryMemTable} which keeps the entries out of the java heap.
+ *
+ * <p>Entry payloads are copied into large direct buffers handed out by a bump-the-pointer arena, and they are
+ * indexed by a primitive (ledgerId, entryId) hash map, so adding an entry doesn't create any per-entry object.
+ * The index is sorted only when the snapshot is flushed, by sorting a run of (ledgerId, entryId, location,
+ * length) tuples, which gives the flusher the same ledger/entry order as the skip list does.
+ *
+ * <p>Snapshot, flush and checkpoint semantics are the same as {@link EntryMemTable}. Entries returned by
+ * {@link #getEntry(long, long)} and {@link #getLastEntry(long)} are copied on the heap, since the arena is
+ * released as soon as the snapshot is flushed.
+ *
+ * <p>When the entry logger writes to several entry logs at once (entry log per ledger or per ledger directory),
+ * the ledgers of the snapshot are flushed in parallel, like {@link EntryMemTableWithParallelFlusher} does.
+ */
+public class OffHeapEntryMemTable extends EntryMemTable {
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapEntryMemTable.class);
+
+    /**
+     * Set of entries added between two snapshots, along with the arena holding their payloads.
+     */
+    static class EntryTable {
+        static final EntryTable EMPTY_VALUE = new EntryTable(Checkpoint.MAX, null, 0, 0);
+
+        final Checkpoint cp;
+        // (ledgerId, entryId) -> (location in the arena, length)
+        private final ConcurrentLongLongPairHashMap index;
+        // ledgerId -> entries of the ledger
+        private final ConcurrentLongHashMap<LedgerEntries> ledgers;
+
+        private final ByteBufAllocator allocator;
+        private final int chunkSize;
+        private final int maxAlloc;
+        private final List<ByteBuf> buffers = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Chunk> curChunk = new AtomicReference<>();
+
+        EntryTable(Checkpoint cp, ByteBufAllocator allocator, int chunkSize, int maxAlloc) {
+            this.cp = cp;
+            this.index = ConcurrentLongLongPairHashMap.newBuilder().build();
+            this.ledgers = ConcurrentLongHashMap.<LedgerEntries>newBuilder().build();
+            this.allocator = allocator;
+            this.chunkSize = chunkSize;
+            this.maxAlloc = maxAlloc;
+        }
+
+        int compareTo(final Checkpoint cp) {
+            return this.cp.compareTo(cp);
+        }
+
+        boolean isEmpty() {
+            return this == EMPTY_VALUE || index.isEmpty();
+        }
+
+        long size() {
+            return index.size();
+        }
+
+        /**
+         * Copy the entry into the arena and index it.
+         *
+         * @return false if the entry was already present
+         */
+        boolean add(long ledgerId, long entryId, ByteBuffer entry) {
+            if (index.containsKey(ledgerId, entryId)) {
+                return false;
+            }
+            int len = entry.remaining();
+            long location = allocate(len);
+            buffers.get((int) (location >>> 32)).nioBuffer((int) location, len).put(entry);
+            if (!index.putIfAbsent(ledgerId, entryId, location, len)) {
+                // Added concurrently, the space stays wasted in the arena until the table is released,
+                // as with the SkipListArena
+                return false;
+            }
+            ledgers.computeIfAbsent(ledgerId, id -> new LedgerEntries()).add(entryId);
+            return true;
+        }
+
+        EntryKeyValue get(long ledgerId, long entryId) {
+            LongPair location = index.get(ledgerId, entryId);
+            if (location == null) {
+                return null;
+            }
+            return read(ledgerId, entryId, location.first, (int) location.second);
+        }
+
+        EntryKeyValue getLast(long ledgerId) {
+            LedgerEntries entries = ledgers.get(ledgerId);
+            if (entries == null) {
+                return null;
+            }
+            return get(ledgerId, entries.lastEntryId.get());
+        }
+
+        private EntryKeyValue read(long ledgerId, long entryId, long location, int length) {
+            byte[] data = new byte[length];
+            buffers.get((int) (location >>> 32)).getBytes((int) location, data);
+            return new EntryKeyValue(ledgerId, entryId, data);
+        }
+
+        ByteBuf slice(long location, int length) {
+            return buffers.get((int) (location >>> 32)).slice((int) location, length);
+        }
+
+        /**
+         * Return the entries of the table as (ledgerId, entryId, location, length) tuples,
+         * sorted by ledgerId and entryId. Must not be called while entries are being added.
+         */
+        long[] sortedRun() {
+            long[] run = new long[(int) index.size() * 4];
+            AtomicInteger pos = new AtomicInteger();
+            index.forEach((ledgerId, entryId, location, length) -> {
+                int i = pos.getAndAdd(4);
+                run[i] = ledgerId;
+                run[i + 1] = entryId;
+                run[i + 2] = location;
+                run[i + 3] = length;
+            });
+            ArrayGroupSort.sort(run);
+            return run;
+        }
+
+        /**
+         * Collect the ids of the entries of the given ledger into <i>ids</i>, growing it when needed.
+         *
+         * @return the array holding the collected ids
+         */
+        long[] collectEntries(long ledgerId, long[] ids, AtomicInteger count) {
+            LedgerEntries entries = ledgers.get(ledgerId);
+            if (entries == null) {
+                return ids;
+            }
+            long[][] holder = { ids };
+            entries.entryIds.forEach(entryId -> {
+                int i = count.getAndIncrement();
+                if (i == holder[0].length) {
+                    holder[0] = Arrays.copyOf(holder[0], Math.max(16, i * 2));
+                }
+                holder[0][i] = entryId;
+            });
+            return holder[0];
+        }
+
+        private long allocate(int size) {
+            if (size > maxAlloc) {
+                // Large entries get their own buffer, they don't fragment the arena
+                return ((long) addBuffer(allocator.directBuffer(size, size))) << 32;
+            }
+
+            while (true) {
+                Chunk c = curChunk.get();
+                if (c == null) {
+                    synchronized (this) {
+                        if (curChunk.get() == null) {
+                            curChunk.set(new Chunk(addBuffer(allocator.directBuffer(chunkSize, chunkSize)),
+                                    chunkSize));
+                        }
+                    }
+                    continue;
+                }
+
+                int offset = c.alloc(size);
+                if (offset != -1) {
+                    return (((long) c.bufferIdx) << 32) | offset;
+                }
+                // Not enough space, retire this chunk unless someone already did it
+                curChunk.compareAndSet(c, null);
+            }
+        }
+
+        private synchronized int addBuffer(ByteBuf buffer) {
+            buffers.add(buffer);
+            return buffers.size() - 1;
+        }
+
+        void release() {
+            for (ByteBuf buffer : buffers) {
+                buffer.release();
+            }
+            buffers.clear();
+            index.clear();
+            ledgers.clear();
+        }
+
+        /**
+         * The ids of the entries of a ledger, so that they can be listed without scanning the whole table.
+         */
+        private static class LedgerEntries {
+            final ConcurrentLongHashSet entryIds = ConcurrentLongHashSet.newBuilder()
+                    .expectedItems(16).concurrencyLevel(1).build();
+            final AtomicLong lastEntryId = new AtomicLong(-1);
+
+            void add(long entryId) {
+                entryIds.add(entryId);
+                long last;
+                while ((last = lastEntryId.get()) < entryId) {
+                    if (lastEntryId.compareAndSet(last, entryId)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private static class Chunk {
+            final int bufferIdx;
+            final int capacity;
+            final AtomicInteger nextFreeOffset = new AtomicInteger();
+
+            Chunk(int bufferIdx, int capacity) {
+                this.bufferIdx = bufferIdx;
+                this.capacity = capacity;
+            }
+
+            int alloc(int size) {
+                while (true) {
+                    int oldOffset = nextFreeOffset.get();
+                    if (oldOffset + size > capacity) {
+                        return -1;
+                    }
+                    if (nextFreeOffset.compareAndSet(oldOffset, oldOffset + size)) {
+                        return oldOffset;
+                    }
+                }
+            }
+        }
+    }
+
+    private final ByteBufAllocator byteBufAllocator;
+    private final int chunkSize;
+    private final int maxAlloc;
+    // null when the snapshot is flushed sequentially
+    private final OrderedExecutor flushExecutor;
+
+    volatile EntryTable table;
+
+    // Snapshot of the memtable, made for the flusher
+    volatile EntryTable snapshotTable;
+
+    public OffHeapEntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
+                                final StatsLogger statsLogger, final ByteBufAllocator allocator) {
+        super(conf, source, statsLogger, false);
+        this.byteBufAllocator = allocator;
+        this.chunkSize = conf.getSkipListArenaChunkSize();
+        this.maxAlloc = conf.getSkipListArenaMaxAllocSize();
+        this.table = newTable();
+        this.snapshotTable = EntryTable.EMPTY_VALUE;
+        if (conf.isEntryLogPerLedgerEnabled() || conf.isEntryLogPerDirectoryEnabled()) {
+            this.flushExecutor = OrderedExecutor.newBuilder().numThreads(conf.getNumOfMemtableFlushThreads())
+                    .name("MemtableFlushThreads").build();
+        } else {
+            this.flushExecutor = null;
+        }
+    }
+
+    private EntryTable newTable() {
+        return new EntryTable(checkpointSource.newCheckpoint(), byteBufAllocator, chunkSize, maxAlloc);
+    }
+
+    @Override
+    void dump() {
+        LOG.info("Memtable has {} entries, snapshot has {} entries", table.size(), snapshotTable.size());
+    }
+
+    @Override
+    Checkpoint snapshot(Checkpoint oldCp) throws IOException {
+        Checkpoint cp = null;
+        // No-op if snapshot currently has entries
+        if (this.snapshotTable.isEmpty() && this.table.compareTo(oldCp) < 0) {
+            final long startTimeNanos = MathUtils.nowInNano();
+            this.lock.writeLock().lock();
+            try {
+                if (this.snapshotTable.isEmpty() && !this.table.isEmpty()
+                        && this.table.compareTo(oldCp) < 0) {
+                    this.snapshotTable = this.table;
+                    this.table = newTable();
+                    // get the checkpoint of the memtable.
+                    cp = this.table.cp;
+                    // Reset heap to not include any keys
+                    this.size.set(0);
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+
+            if (null != cp) {
+                memTableStats.getSnapshotStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                memTableStats.getSnapshotStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        return cp;
+    }
+
+    @Override
+    long flushSnapshot(final SkipListFlusher flusher, Checkpoint checkpoint) throws IOException {
+        long size = 0;
+        if (this.snapshotTable.compareTo(checkpoint) < 0) {
+            synchronized (this) {
+                EntryTable entries = this.snapshotTable;
+                if (entries.compareTo(checkpoint) < 0) {
+                    long[] run = entries.sortedRun();
+                    if (flushExecutor == null) {
+                        size = flushRun(flusher, entries, run, 0, run.length);
+                    } else {
+                        size = flushRunInParallel(flusher, entries, run);
+                    }
+                    memTableStats.getFlushBytesCounter().addCount(size);
+                    clearSnapshot(entries);
+                }
+            }
+        }
+
+        skipListSemaphore.release((int) size);
+        return size;
+    }
+
+    /**
+     * Flush the entries of the sorted run between the given positions.
+     *
+     * @return the size of the flushed entries
+     */
+    private static long flushRun(SkipListFlusher flusher, EntryTable entries, long[] run, int from, int to)
+            throws IOException {
+        long size = 0;
+        long ledger, ledgerGC = -1;
+        for (int i = from; i < to; i += 4) {
+            ledger = run[i];
+            int length = (int) run[i + 3];
+            size += length;
+            if (ledgerGC != ledger) {
+                try {
+                    flusher.process(ledger, run[i + 1], entries.slice(run[i + 2], length));
+                } catch (NoLedgerException exception) {
+                    ledgerGC = ledger;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Flush the ledgers of the sorted run in parallel, the entries of a ledger being flushed in order
+     * by the thread picked by the flusher ordering key.
+     *
+     * @return the size of the flushed entries
+     */
+    private long flushRunInParallel(SkipListFlusher flusher, EntryTable entries, long[] run) throws IOException {
+        AtomicLong flushedSize = new AtomicLong();
+        Phaser pendingNumOfLedgerFlushes = new Phaser(1);
+        AtomicReference<Exception> exceptionWhileFlushingParallelly = new AtomicReference<>();
+
+        int start = 0;
+        while (start < run.length) {
+            long ledgerId = run[start];
+            int end = start + 4;
+            while (end < run.length && run[end] == ledgerId) {
+                end += 4;
+            }
+            final int from = start;
+            final int to = end;
+            pendingNumOfLedgerFlushes.register();
+            flushExecutor.executeOrdered(flusher.getFlushOrderingKey(ledgerId), () -> {
+                try {
+                    flushedSize.addAndGet(flushRun(flusher, entries, run, from, to));
+                    pendingNumOfLedgerFlushes.arriveAndDeregister();
+                } catch (Exception exc) {
+                    LOG.error("Got Exception while trying to flush process entries: ", exc);
+                    exceptionWhileFlushingParallelly.set(exc);
+                    pendingNumOfLedgerFlushes.forceTermination();
+                }
+            });
+            start = end;
+        }
+
+        boolean phaserTerminatedAbruptly;
+        try {
+            phaserTerminatedAbruptly = (pendingNumOfLedgerFlushes.arriveAndAwaitAdvance() < 0);
+        } catch (IllegalStateException ise) {
+            throw new IOException("Got IllegalStateException while awaiting on Phaser", ise);
+        }
+        if (phaserTerminatedAbruptly) {
+            throw new IOException("Failed to flush the memtable snapshot in parallel",
+                    exceptionWhileFlushingParallelly.get());
+        }
+        return flushedSize.get();
+    }
+
+    /**
+     * The passed snapshot was successfully persisted; release its arena.
+     */
+    private void clearSnapshot(final EntryTable entries) {
+        this.lock.writeLock().lock();
+        try {
+            assert this.snapshotTable == entries;
+            this.snapshotTable = EntryTable.EMPTY_VALUE;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        // readers copy the entries under the read lock, so nobody can access the arena anymore
+        if (entries != EntryTable.EMPTY_VALUE) {
+            entries.release();
+        }
+    }
+
+    @Override
+    long addToTable(long ledgerId, long entryId, final ByteBuffer entry) {
+        int len = entry.remaining();
+        if (!table.add(ledgerId, entryId, entry)) {
+            return 0;
+        }
+        this.size.addAndGet(len);
+        return len;
+    }
+
+    @Override
+    public EntryKeyValue getEntry(long ledgerId, long entryId) throws IOException {
+        EntryKeyValue value = null;
+        long startTimeNanos = MathUtils.nowInNano();
+        boolean success = false;
+        this.lock.readLock().lock();
+        try {
+            value = this.table.get(ledgerId, entryId);
+            if (value == null) {
+                value = this.snapshotTable.get(ledgerId, entryId);
+            }
+            success = true;
+        } finally {
+            this.lock.readLock().unlock();
+            if (success) {
+                memTableStats.getGetEntryStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                memTableStats.getGetEntryStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public EntryKeyValue getLastEntry(long ledgerId) throws IOException {
+        EntryKeyValue value = null;
+        long startTimeNanos = MathUtils.nowInNano();
+        boolean success = false;
+        this.lock.readLock().lock();
+        try {
+            value = this.table.getLast(ledgerId);
+            if (value == null) {
+                value = this.snapshotTable.getLast(ledgerId);
+            }
+            success = true;
+        } finally {
+            this.lock.readLock().unlock();
+            if (success) {
+                memTableStats.getGetEntryStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                memTableStats.getGetEntryStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    boolean isEmpty() {
+        return size.get() == 0 && snapshotTable.isEmpty();
+    }
+
+    /*
+     * Unlike the skip list based memtable, the returned iterator is a point in time view of the
+     * entries of the ledger, in ascending order.
+     */
+    @Override
+    PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) {
+        AtomicInteger count = new AtomicInteger();
+        long[] ids = new long[0];
+        this.lock.readLock().lock();
+        try {
+            ids = this.table.collectEntries(ledgerId, ids, count);
+            ids = this.snapshotTable.collectEntries(ledgerId, ids, count);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return Arrays.stream(ids, 0, count.get()).sorted().distinct().iterator();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        this.lock.writeLock().lock();
+        try {
+            this.table.release();
+            if (this.snapshotTable != EntryTable.EMPTY_VALUE) {
+                this.snapshotTable.release();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+}
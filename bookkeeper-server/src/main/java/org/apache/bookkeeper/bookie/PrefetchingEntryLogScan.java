@@ -0,0 +1,248 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sequential scan of an entry log which reads the file in large chunks.
+ *
+ * <p>Two chunk buffers are used: while the entries of one chunk are handed to the scanner, the next chunk
+ * is read ahead on the prefetch executor. Entries are passed to the scanner as slices of the chunk buffer,
+ * without copy. Each buffer has a headroom of the size of a chunk in front of it, where the tail of the previous
+ * chunk is moved when an entry straddles two chunks, so that it can be passed as a single slice too. The rare
+ * entries larger than a chunk are read on their own.
+ */
+class PrefetchingEntryLogScan {
+    private static final Logger LOG = LoggerFactory.getLogger(PrefetchingEntryLogScan.class);
+
+    // entry size (4 bytes) and ledger id (8 bytes)
+    private static final int ENTRY_HEADER_SIZE = 4 + 8;
+
+    private final long entryLogId;
+    private final FileChannel fc;
+    private final long fileSize;
+    private final int chunkSize;
+    private final int headroom;
+    private final ExecutorService prefetchExecutor;
+    private final ByteBufAllocator allocator;
+
+    private ByteBuf current;
+    private ByteBuf next;
+    // file position of the first byte at the headroom index of each buffer
+    private long currentStart;
+    private long nextStart;
+    private CompletableFuture<ByteBuf> pendingPrefetch;
+
+    PrefetchingEntryLogScan(long entryLogId, FileChannel fc, int chunkSize,
+                            ExecutorService prefetchExecutor, ByteBufAllocator allocator) throws IOException {
+        this.entryLogId = entryLogId;
+        this.fc = fc;
+        this.fileSize = fc.size();
+        this.chunkSize = chunkSize;
+        this.headroom = chunkSize;
+        this.prefetchExecutor = prefetchExecutor;
+        this.allocator = allocator;
+    }
+
+    void scan(long startPos, EntryLogScanner scanner) throws IOException {
+        current = allocator.directBuffer(headroom + chunkSize, headroom + chunkSize);
+        next = allocator.directBuffer(headroom + chunkSize, headroom + chunkSize);
+        try {
+            startChunks(startPos);
+
+            long pos = startPos;
+            while (pos < fileSize) {
+                if (!ensureAvailable(pos, ENTRY_HEADER_SIZE)) {
+                    LOG.warn("Short read for entry size from entrylog {}", entryLogId);
+                    return;
+                }
+                int index = indexOf(pos);
+                int entrySize = current.getInt(index);
+                if (entrySize <= 0) { // hitting padding
+                    pos++;
+                    continue;
+                }
+                long ledgerId = current.getLong(index + Integer.BYTES);
+                long offset = pos;
+                pos += Integer.BYTES;
+
+                if (ledgerId == DefaultEntryLogger.INVALID_LID || !scanner.accept(ledgerId)) {
+                    // skip this entry
+                    pos += entrySize;
+                    continue;
+                }
+
+                if (entrySize > chunkSize) {
+                    // too large to be held by the chunk buffers, read it on its own and restart the chunks after it
+                    if (!processLargeEntry(scanner, ledgerId, offset, pos, entrySize)) {
+                        return;
+                    }
+                    pos += entrySize;
+                    startChunks(pos);
+                    continue;
+                }
+
+                if (!ensureAvailable(pos, entrySize)) {
+                    LOG.warn("Short read for ledger entry from entryLog {}@{} ({})", entryLogId, pos, entrySize);
+                    return;
+                }
+                scanner.process(ledgerId, offset, current.slice(indexOf(pos), entrySize));
+
+                // Advance position to the next entry
+                pos += entrySize;
+            }
+        } finally {
+            awaitPrefetch();
+            ReferenceCountUtil.release(current);
+            ReferenceCountUtil.release(next);
+        }
+    }
+
+    private int indexOf(long pos) {
+        return (int) (pos - currentStart) + headroom;
+    }
+
+    /**
+     * Discard the buffered chunks and start reading from the given position.
+     */
+    private void startChunks(long pos) throws IOException {
+        awaitPrefetch();
+        currentStart = pos;
+        readChunk(current, pos);
+        prefetch(current.writerIndex() - headroom + pos);
+    }
+
+    private void prefetch(long pos) {
+        nextStart = pos;
+        ByteBuf buf = next;
+        if (pos >= fileSize) {
+            buf.writerIndex(headroom);
+            pendingPrefetch = CompletableFuture.completedFuture(buf);
+            return;
+        }
+        pendingPrefetch = CompletableFuture.supplyAsync(() -> {
+            try {
+                readChunk(buf, pos);
+                return buf;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, prefetchExecutor);
+    }
+
+    private ByteBuf awaitPrefetch() throws IOException {
+        if (pendingPrefetch == null) {
+            return null;
+        }
+        try {
+            return pendingPrefetch.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading ahead entry log " + entryLogId, ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException && ee.getCause().getCause() instanceof IOException) {
+                throw (IOException) ee.getCause().getCause();
+            }
+            throw new IOException("Failed to read ahead entry log " + entryLogId, ee.getCause());
+        } finally {
+            pendingPrefetch = null;
+        }
+    }
+
+    /**
+     * Make sure that the given range of the file is held contiguously in the current buffer, moving to the
+     * next chunk if needed.
+     *
+     * @return false if the range goes past the end of the file
+     */
+    private boolean ensureAvailable(long pos, int length) throws IOException {
+        if (pos + length > fileSize) {
+            return false;
+        }
+        if (indexOf(pos) + length <= current.writerIndex()) {
+            return true;
+        }
+
+        ByteBuf prefetched = awaitPrefetch();
+        // move the unread tail of the current chunk in front of the next chunk
+        int tailIndex = indexOf(pos);
+        int tailLength = Math.max(0, current.writerIndex() - tailIndex);
+        if (tailLength > 0) {
+            prefetched.setBytes(headroom - tailLength, current, tailIndex, tailLength);
+        }
+
+        next = current;
+        current = prefetched;
+        currentStart = nextStart;
+        prefetch(currentStart + current.writerIndex() - headroom);
+
+        if (indexOf(pos) + length > current.writerIndex()) {
+            // skipped entries went past the next chunk too
+            startChunks(pos);
+        }
+        return true;
+    }
+
+    private boolean processLargeEntry(EntryLogScanner scanner, long ledgerId, long offset,
+                                      long pos, int entrySize) throws IOException {
+        if (pos + entrySize > fileSize) {
+            LOG.warn("Short read for ledger entry from entryLog {}@{} ({})", entryLogId, pos, entrySize);
+            return false;
+        }
+        ByteBuf data = allocator.directBuffer(entrySize, entrySize);
+        try {
+            readFully(data, 0, pos, entrySize);
+            scanner.process(ledgerId, offset, data);
+            return true;
+        } finally {
+            ReferenceCountUtil.release(data);
+        }
+    }
+
+    private void readChunk(ByteBuf buf, long pos) throws IOException {
+        int length = (int) Math.min(chunkSize, fileSize - pos);
+        readFully(buf, headroom, pos, length);
+    }
+
+    private void readFully(ByteBuf buf, int index, long pos, int length) throws IOException {
+        ByteBuffer nioBuffer = buf.nioBuffer(index, length);
+        while (nioBuffer.hasRemaining()) {
+            int read = fc.read(nioBuffer, pos + nioBuffer.position());
+            if (read < 0) {
+                throw new EOFException("Short read from entry log " + entryLogId + " at " + pos);
+            }
+        }
+        buf.writerIndex(index + length);
+    }
+}
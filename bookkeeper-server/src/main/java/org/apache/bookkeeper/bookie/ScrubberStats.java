@@ -30,4 +30,10 @@ public class ScrubberStats {
     public static final String RUN_DURATION = "runTime";
     public static final String DETECTED_SCRUB_ERRORS = "detectedScrubErrors";
     public static final String DETECTED_FATAL_SCRUB_ERRORS = "detectedFatalScrubErrors";
+
+    public static final String ENTRY_LOG_SCRUB_RUN_DURATION = "entryLogScrubRunTime";
+    public static final String ENTRY_LOG_VERIFIED_BLOCKS = "entryLogVerifiedBlocks";
+    public static final String ENTRY_LOG_VERIFIED_BYTES = "entryLogVerifiedBytes";
+    public static final String ENTRY_LOG_CORRUPTED_BLOCKS = "entryLogCorruptedBlocks";
+    public static final String ENTRY_LOG_SCRUB_RATE = "entryLogScrubRate";
 }
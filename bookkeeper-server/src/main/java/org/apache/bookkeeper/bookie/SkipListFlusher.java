@@ -37,4 +37,15 @@ public interface SkipListFlusher {
      * @throws IOException
      */
     void process(long ledgerId, long entryId, ByteBuf entry) throws IOException;
+
+    /**
+     * Get the key used to order the processing of the entries of a ledger, when entries are
+     * processed in parallel. Entries of ledgers with the same key are processed by the same thread.
+     *
+     * @param ledgerId Ledger ID.
+     * @return the ordering key
+     */
+    default long getFlushOrderingKey(long ledgerId) {
+        return ledgerId;
+    }
 }
@@ -25,6 +25,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.List;
@@ -59,6 +60,7 @@ public class SortedLedgerStorage
     private StateManager stateManager;
     private ServerConfiguration conf;
     private StatsLogger statsLogger;
+    private ByteBufAllocator allocator;
     private final InterleavedLedgerStorage interleavedLedgerStorage;
 
     public SortedLedgerStorage() {
@@ -80,6 +82,7 @@ public class SortedLedgerStorage
             throws IOException {
         this.conf = conf;
         this.statsLogger = statsLogger;
+        this.allocator = allocator;
 
         interleavedLedgerStorage.initializeWithEntryLogListener(
             conf,
@@ -112,7 +115,9 @@ public class SortedLedgerStorage
     public void setCheckpointSource(CheckpointSource checkpointSource) {
         interleavedLedgerStorage.setCheckpointSource(checkpointSource);
 
-        if (conf.isEntryLogPerLedgerEnabled()) {
+        if (conf.isSkipListOffHeapEnabled()) {
+            this.memTable = new OffHeapEntryMemTable(conf, checkpointSource, statsLogger, allocator);
+        } else if (conf.isEntryLogPerLedgerEnabled() || conf.isEntryLogPerDirectoryEnabled()) {
             this.memTable = new EntryMemTableWithParallelFlusher(conf, checkpointSource, statsLogger);
         } else {
             this.memTable = new EntryMemTable(conf, checkpointSource, statsLogger);
@@ -239,6 +244,25 @@ public class SortedLedgerStorage
         return buffToRet;
     }
 
+    @Override
+    public ReferenceCounted getEntryOrRegion(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return getLastEntryId(ledgerId);
+        }
+        try {
+            return interleavedLedgerStorage.getEntryOrRegion(ledgerId, entryId, minRegionSize);
+        } catch (Bookie.NoEntryException nee) {
+            EntryKeyValue kv = memTable.getEntry(ledgerId, entryId);
+            if (null == kv) {
+                // The entry might have been flushed since we last checked
+                return interleavedLedgerStorage.getEntryOrRegion(ledgerId, entryId, minRegionSize);
+            } else {
+                return kv.getValueAsByteBuffer();
+            }
+        }
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException {
         return interleavedLedgerStorage.getLastAddConfirmed(ledgerId);
@@ -292,6 +316,11 @@ public class SortedLedgerStorage
         interleavedLedgerStorage.processEntry(ledgerId, entryId, buffer, false);
     }
 
+    @Override
+    public long getFlushOrderingKey(long ledgerId) {
+        return interleavedLedgerStorage.getEntryLogger().getEntryLogManager().getFlushOrderingKey(ledgerId);
+    }
+
     @Override
     public void flush() throws IOException {
         memTable.flush(this, Checkpoint.MAX);
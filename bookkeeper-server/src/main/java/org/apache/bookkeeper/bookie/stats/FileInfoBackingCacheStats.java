@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.bookkeeper.bookie.stats;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.BOOKIE_SCOPE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FILE_INFO_CLOSE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FILE_INFO_LOAD;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FILE_INFO_OPEN;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FILE_INFO_OPEN_HANDLES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FILE_INFO_PENDING_CLOSES;
+
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+
+/**
+ * A umbrella class for {@link org.apache.bookkeeper.bookie.FileInfoBackingCache} stats.
+ */
+@StatsDoc(
+    name = BOOKIE_SCOPE,
+    category = CATEGORY_SERVER,
+    help = "Index file handle cache related stats"
+)
+@Getter
+public class FileInfoBackingCacheStats {
+
+    @StatsDoc(
+        name = FILE_INFO_LOAD,
+        help = "operation stats of loading the file info of a ledger which isn't in the backing cache"
+    )
+    private final OpStatsLogger loadStats;
+    @StatsDoc(
+        name = FILE_INFO_OPEN,
+        help = "operation stats of opening index files on the file info opener threads"
+    )
+    private final OpStatsLogger openStats;
+    @StatsDoc(
+        name = FILE_INFO_CLOSE,
+        help = "operation stats of flushing and closing the index files of evicted file infos"
+    )
+    private final OpStatsLogger closeStats;
+    @StatsDoc(
+        name = FILE_INFO_OPEN_HANDLES,
+        help = "Current number of file infos which might hold an open index file"
+    )
+    private final Gauge<Number> openHandlesGauge;
+    @StatsDoc(
+        name = FILE_INFO_PENDING_CLOSES,
+        help = "Current number of evicted file infos waiting to be closed"
+    )
+    private final Gauge<Number> pendingClosesGauge;
+
+    public FileInfoBackingCacheStats(StatsLogger statsLogger,
+                                     Supplier<Number> openHandlesSupplier,
+                                     Supplier<Number> pendingClosesSupplier) {
+        loadStats = statsLogger.getOpStatsLogger(FILE_INFO_LOAD);
+        openStats = statsLogger.getOpStatsLogger(FILE_INFO_OPEN);
+        closeStats = statsLogger.getOpStatsLogger(FILE_INFO_CLOSE);
+        openHandlesGauge = new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return openHandlesSupplier.get();
+            }
+        };
+        statsLogger.registerGauge(FILE_INFO_OPEN_HANDLES, openHandlesGauge);
+        pendingClosesGauge = new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return pendingClosesSupplier.get();
+            }
+        };
+        statsLogger.registerGauge(FILE_INFO_PENDING_CLOSES, pendingClosesGauge);
+    }
+}
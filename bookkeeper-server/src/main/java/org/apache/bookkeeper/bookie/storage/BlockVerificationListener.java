@@ -0,0 +1,57 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Receives the outcome of the verification of the block checksums of an entry log.
+ * See {@link EntryLogger#verifyEntryLog(long, BlockVerificationListener)}.
+ */
+public interface BlockVerificationListener {
+
+    /**
+     * Called before a block is read from disk. Implementations can block to throttle the verification.
+     * @param blockSize the number of bytes about to be read
+     */
+    void beforeBlock(int blockSize) throws IOException;
+
+    /**
+     * The content of the block matched its recorded checksum.
+     * @param readNanos the time it took to read the block from disk
+     */
+    void onBlockVerified(long logId, long startOffset, long endOffset, long readNanos);
+
+    /**
+     * The content of the block didn't match its recorded checksum, or could not be parsed.
+     * @param ledgers the ledgers with entries found in the corrupted range, as far as they could be
+     *                identified
+     */
+    void onBlockCorrupted(long logId, long startOffset, long endOffset, Set<Long> ledgers);
+
+    /**
+     * Return true to abort the verification of the current entry log.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+
+/**
+ * Bounded pool of threads used by the entry loggers to serve {@link EntryLogger#readEntryAsync} calls.
+ *
+ * <p>The number of outstanding reads is bounded by the queue size. When the queue is full, the read is
+ * performed on the calling thread, which naturally pushes back on the producer of the reads.
+ */
+public class EntryLogReadExecutor implements AutoCloseable {
+
+    /**
+     * A blocking read against an entry log.
+     */
+    @FunctionalInterface
+    public interface Read {
+        ByteBuf read() throws IOException, BookieException;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    public EntryLogReadExecutor(String name, int numThreads, int maxPendingReads) {
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPendingReads), new DefaultThreadFactory(name));
+    }
+
+    /**
+     * Create a read executor from the server configuration.
+     *
+     * @return the read executor, or null if asynchronous entry log reads are disabled
+     */
+    public static EntryLogReadExecutor create(ServerConfiguration conf, String name) {
+        int numThreads = conf.getEntryLogReadAsyncThreads();
+        if (numThreads <= 0) {
+            return null;
+        }
+        return new EntryLogReadExecutor(name, numThreads, conf.getEntryLogReadAsyncMaxPendingRequests());
+    }
+
+    public int getNumThreads() {
+        return executor.getCorePoolSize();
+    }
+
+    public int getPendingReads() {
+        return executor.getQueue().size();
+    }
+
+    public CompletableFuture<ByteBuf> submit(Read read) {
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> complete(future, read));
+        } catch (RejectedExecutionException ree) {
+            // Queue is full (or we are shutting down), read on the caller thread
+            complete(future, read);
+        }
+        return future;
+    }
+
+    /**
+     * Perform a read and complete the future with its outcome.
+     */
+    public static void complete(CompletableFuture<ByteBuf> future, Read read) {
+        try {
+            future.complete(read.read());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
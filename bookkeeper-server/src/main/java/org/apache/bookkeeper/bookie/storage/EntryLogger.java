@@ -21,8 +21,11 @@
 package org.apache.bookkeeper.bookie.storage;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import org.apache.bookkeeper.bookie.AbstractLogCompactor;
 import org.apache.bookkeeper.bookie.Bookie.NoEntryException;
 import org.apache.bookkeeper.bookie.EntryLogMetadata;
@@ -67,6 +70,37 @@ public interface EntryLogger extends AutoCloseable {
     ByteBuf readEntry(long ledgerId, long entryId, long entryLocation)
             throws IOException, NoEntryException;
 
+    /**
+     * Asynchronously read an entry from an entrylog location, and verify that is matches
+     * the expected ledger and entry ID.
+     * The default implementation performs a blocking read on the calling thread.
+     * @param ledgerId the ledgerID to match
+     * @param entryId the entryID to match
+     * @param entryLocation the location from which to read the entry
+     * @return a future completed with the entry, or with the read failure
+     */
+    default CompletableFuture<ByteBuf> readEntryAsync(long ledgerId, long entryId, long entryLocation) {
+        CompletableFuture<ByteBuf> future = new CompletableFuture<>();
+        EntryLogReadExecutor.complete(future, () -> readEntry(ledgerId, entryId, entryLocation));
+        return future;
+    }
+
+    /**
+     * Read an entry from an entrylog location, and verify that is matches the expected ledger and entry ID.
+     * An entry of at least minRegionSize bytes, already written to the entrylog file, can be returned as
+     * the {@link FileRegion} of the file holding it, to be sent without being copied in memory.
+     * The default implementation always reads the entry in a buffer.
+     * @param ledgerId the ledgerID to match
+     * @param entryId the entryID to match
+     * @param entryLocation the location from which to read the entry
+     * @param minRegionSize the min size of an entry returned as a file region
+     * @return the entry, either as a {@link ByteBuf} or as a {@link FileRegion}
+     */
+    default ReferenceCounted readEntryOrRegion(long ledgerId, long entryId, long entryLocation, int minRegionSize)
+            throws IOException, NoEntryException {
+        return readEntry(ledgerId, entryId, entryLocation);
+    }
+
     /**
      * Flush any outstanding writes to disk.
      */
@@ -119,6 +153,15 @@ public interface EntryLogger extends AutoCloseable {
      */
     EntryLogMetadata getEntryLogMetadata(long entryLogId, AbstractLogCompactor.Throttler throttler) throws IOException;
 
+    /**
+     * Verify the content of the given entrylog against the block checksums recorded in it.
+     * Entry loggers which don't record block checksums have nothing to verify.
+     * @return false if the entrylog has no block checksums
+     */
+    default boolean verifyEntryLog(long entryLogId, BlockVerificationListener listener) throws IOException {
+        return false;
+    }
+
     /**
      * Check whether an entrylog with the given ID exists.
      */
@@ -0,0 +1,252 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.directentrylogger;
+
+import static org.apache.bookkeeper.common.util.ExceptionMessageHelper.exMsg;
+
+import com.scurrilous.circe.checksum.Crc32cIntChecksum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
+
+/**
+ * Checksums of the entries of a log file, grouped in blocks of consecutive entries.
+ *
+ * <p>The checksum of a block is the CRC32C of the size prefix and payload of each entry in the block,
+ * padding excluded. The checksums are written as a single delimited record just before the ledgers map,
+ * and the header records its offset.
+ *
+ * <pre>
+ * length: (4 bytes) [0-3]
+ * ledger id (-1): (8 bytes) [4 - 11]
+ * entry id (-3): (8 bytes) [12-19]
+ * num blocks: (4 bytes) [20 - 23]
+ * blocks: sequence of (start offset, end offset, crc32c) (4 + 4 + 4 bytes each) [24..]
+ * </pre>
+ */
+class BlockChecksums {
+    static final int BLOCK_SIZE = 1024 * 1024;
+    static final int HEADER_SIZE = 8 + 8 + 4;
+    static final int BLOCK_ENTRY_SIZE = 4 + 4 + 4;
+
+    // EntryId used to mark an entry (belonging to INVALID_ID) as the block checksums record
+    static final long BLOCK_CHECKSUMS_ENTRY_ID = -3L;
+
+    private final byte[] sizeBytes = new byte[Integer.BYTES];
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] checksums = new int[16];
+    private int count = 0;
+
+    private int blockStart = -1;
+    private int blockEnd = -1;
+    private int blockChecksum = 0;
+
+    /**
+     * Account for the content of an entry which is about to be written. As writing the entry
+     * consumes its readable bytes, this must be called before {@link LogWriter#writeDelimited}.
+     */
+    void beforeWrite(ByteBuf entry) {
+        if (blockStart < 0) {
+            blockChecksum = 0;
+        }
+        blockChecksum = resumeChecksum(blockChecksum, sizeBytes, entry.readableBytes());
+        blockChecksum = Crc32cIntChecksum.resumeChecksum(blockChecksum, entry);
+    }
+
+    /**
+     * Account for the position of an entry which has been written.
+     * @param offset the offset of the payload of the entry, as returned by {@link LogWriter#writeDelimited}
+     * @param entrySize the size of the payload of the entry
+     */
+    void afterWrite(int offset, int entrySize) {
+        if (blockStart < 0) {
+            blockStart = offset - Integer.BYTES;
+        }
+        blockEnd = offset + entrySize;
+
+        if (blockEnd - blockStart >= BLOCK_SIZE) {
+            closeBlock();
+        }
+    }
+
+    private void closeBlock() {
+        if (blockStart < 0) {
+            return;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            checksums = Arrays.copyOf(checksums, count * 2);
+        }
+        starts[count] = blockStart;
+        ends[count] = blockEnd;
+        checksums[count] = blockChecksum;
+        count++;
+        blockStart = -1;
+    }
+
+    /**
+     * Write the checksums record to the log.
+     * @return the offset of the record
+     */
+    long write(LogWriter writer, ByteBufAllocator allocator) throws IOException {
+        closeBlock();
+        ByteBuf buf = allocator.buffer(HEADER_SIZE + BLOCK_ENTRY_SIZE * count);
+        try {
+            buf.writeLong(LogMetadata.INVALID_LID);
+            buf.writeLong(BLOCK_CHECKSUMS_ENTRY_ID);
+            buf.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                buf.writeInt(starts[i]);
+                buf.writeInt(ends[i]);
+                buf.writeInt(checksums[i]);
+            }
+            long offset = writer.position();
+            writer.writeDelimited(buf);
+            return offset;
+        } finally {
+            ReferenceCountUtil.release(buf);
+        }
+    }
+
+    /**
+     * Read the checksums record of a log.
+     * @return the checksums, or null if the log was written without them
+     */
+    static BlockChecksums read(LogReader reader) throws IOException {
+        long offset;
+        ByteBuf header = reader.readBufferAt(0, Header.LOGFILE_LEGACY_HEADER_SIZE);
+        try {
+            offset = Header.extractBlockChecksumsOffset(header);
+        } finally {
+            ReferenceCountUtil.release(header);
+        }
+        if (offset <= 0) {
+            return null;
+        }
+        if (offset >= Integer.MAX_VALUE) {
+            throw new IOException(exMsg("blockChecksumsOffset too high").kv("logId", reader.logId())
+                                  .kv("offset", offset).toString());
+        }
+
+        int size = reader.readIntAt(offset);
+        if (size < HEADER_SIZE || size > reader.maxOffset() - offset) {
+            throw new IOException(exMsg("Bad block checksums size").kv("logId", reader.logId())
+                                  .kv("offset", offset).kv("size", size).toString());
+        }
+        ByteBuf buf = reader.readBufferAt(offset + Integer.BYTES, size);
+        try {
+            long ledgerId = buf.readLong();
+            long entryId = buf.readLong();
+            int numBlocks = buf.readInt();
+            if (ledgerId != LogMetadata.INVALID_LID
+                || entryId != BLOCK_CHECKSUMS_ENTRY_ID
+                || numBlocks * BLOCK_ENTRY_SIZE != buf.readableBytes()) {
+                throw new IOException(exMsg("Bad block checksums record").kv("logId", reader.logId())
+                                      .kv("ledgerId", ledgerId).kv("entryId", entryId)
+                                      .kv("numBlocks", numBlocks).kv("size", size).toString());
+            }
+            BlockChecksums blockChecksums = new BlockChecksums();
+            for (int i = 0; i < numBlocks; i++) {
+                blockChecksums.blockStart = buf.readInt();
+                blockChecksums.blockEnd = buf.readInt();
+                blockChecksums.blockChecksum = buf.readInt();
+                blockChecksums.closeBlock();
+            }
+            return blockChecksums;
+        } finally {
+            ReferenceCountUtil.release(buf);
+        }
+    }
+
+    /**
+     * Verify every block of the log against its checksum.
+     */
+    void verify(LogReader reader, ByteBufAllocator allocator, int maxSaneEntrySize,
+                BlockVerificationListener listener) throws IOException {
+        ByteBuf entry = allocator.directBuffer(maxSaneEntrySize);
+        try {
+            for (int i = 0; i < count && !listener.isCancelled(); i++) {
+                listener.beforeBlock(ends[i] - starts[i]);
+
+                long start = System.nanoTime();
+                Set<Long> ledgers = new HashSet<>();
+                boolean valid;
+                try {
+                    valid = computeChecksum(reader, entry, maxSaneEntrySize, starts[i], ends[i], ledgers)
+                        == checksums[i];
+                } catch (IOException ioe) {
+                    valid = false;
+                }
+                if (valid) {
+                    listener.onBlockVerified(reader.logId(), starts[i], ends[i], System.nanoTime() - start);
+                } else {
+                    listener.onBlockCorrupted(reader.logId(), starts[i], ends[i], ledgers);
+                }
+            }
+        } finally {
+            ReferenceCountUtil.release(entry);
+        }
+    }
+
+    private int computeChecksum(LogReader reader, ByteBuf entry, int maxSaneEntrySize,
+                                int start, int end, Set<Long> ledgers) throws IOException {
+        int checksum = 0;
+        int offset = start;
+        while (offset < end) {
+            int entrySize = reader.readIntAt(offset);
+            if (entrySize < 0) { // padding, skip it
+                offset = Buffer.nextAlignment(offset);
+                continue;
+            } else if (entrySize == 0 || entrySize > maxSaneEntrySize
+                       || offset + Integer.BYTES + entrySize > end) {
+                throw new IOException(exMsg("Invalid entry size in block").kv("logId", reader.logId())
+                                      .kv("offset", offset).kv("entrySize", entrySize).toString());
+            }
+            offset += Integer.BYTES;
+
+            entry.clear();
+            reader.readIntoBufferAt(entry, offset, entrySize);
+            if (entrySize >= Long.BYTES && entry.getLong(0) >= 0) {
+                ledgers.add(entry.getLong(0));
+            }
+            checksum = resumeChecksum(checksum, sizeBytes, entrySize);
+            checksum = Crc32cIntChecksum.resumeChecksum(checksum, entry);
+            offset += entrySize;
+        }
+        return checksum;
+    }
+
+    private static int resumeChecksum(int checksum, byte[] scratch, int value) {
+        scratch[0] = (byte) (value >>> 24);
+        scratch[1] = (byte) (value >>> 16);
+        scratch[2] = (byte) (value >>> 8);
+        scratch[3] = (byte) value;
+        return Crc32cIntChecksum.resumeChecksum(checksum, scratch, 0, scratch.length);
+    }
+}
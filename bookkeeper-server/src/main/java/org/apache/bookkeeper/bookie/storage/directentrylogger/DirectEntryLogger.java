@@ -51,8 +51,10 @@ import java.util.stream.Collectors;
 import org.apache.bookkeeper.bookie.AbstractLogCompactor;
 import org.apache.bookkeeper.bookie.Bookie.NoEntryException;
 import org.apache.bookkeeper.bookie.EntryLogMetadata;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
 import org.apache.bookkeeper.bookie.storage.CompactionEntryLog;
 import org.apache.bookkeeper.bookie.storage.EntryLogIds;
+import org.apache.bookkeeper.bookie.storage.EntryLogReadExecutor;
 import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.common.util.nativeio.NativeIO;
@@ -83,6 +85,7 @@ public class DirectEntryLogger implements EntryLogger {
     private final NativeIO nativeIO;
     private final List<Cache<?, ?>> allCaches = new CopyOnWriteArrayList<>();
     private final ThreadLocal<Cache<Integer, LogReader>> caches;
+    private final EntryLogReadExecutor readExecutor;
 
     private static final int NUMBER_OF_WRITE_BUFFERS = 8;
 
@@ -101,7 +104,34 @@ public class DirectEntryLogger implements EntryLogger {
                              int maxFdCacheTimeSeconds,
                              Slogger slogParent,
                              StatsLogger stats) throws IOException {
+        this(ledgerDir, ids, nativeIO, allocator, writeExecutor, flushExecutor, maxFileSize, maxSaneEntrySize,
+             totalWriteBufferSize, totalReadBufferSize, readBufferSize, numReadThreads, maxFdCacheTimeSeconds,
+             null, slogParent, stats);
+    }
+
+    /**
+     * Create a DirectEntryLogger which serves {@link #readEntryAsync} from the given read executor.
+     * The threads of the read executor must be accounted for in numReadThreads, as each of them
+     * keeps its own cache of log readers.
+     */
+    public DirectEntryLogger(File ledgerDir,
+                             EntryLogIds ids,
+                             NativeIO nativeIO,
+                             ByteBufAllocator allocator,
+                             ExecutorService writeExecutor,
+                             ExecutorService flushExecutor,
+                             long maxFileSize,
+                             int maxSaneEntrySize,
+                             long totalWriteBufferSize,
+                             long totalReadBufferSize,
+                             int readBufferSize,
+                             int numReadThreads,
+                             int maxFdCacheTimeSeconds,
+                             EntryLogReadExecutor readExecutor,
+                             Slogger slogParent,
+                             StatsLogger stats) throws IOException {
         this.ledgerDir = ledgerDir;
+        this.readExecutor = readExecutor;
         this.flushExecutor = flushExecutor;
         this.writeExecutor = writeExecutor;
         this.pendingFlushes = new ArrayList<>();
@@ -211,6 +241,14 @@ public class DirectEntryLogger implements EntryLogger {
         return internalReadEntry(ledgerId, entryId, entryLocation, true);
     }
 
+    @Override
+    public CompletableFuture<ByteBuf> readEntryAsync(long ledgerId, long entryId, long entryLocation) {
+        if (readExecutor == null) {
+            return EntryLogger.super.readEntryAsync(ledgerId, entryId, entryLocation);
+        }
+        return readExecutor.submit(() -> internalReadEntry(ledgerId, entryId, entryLocation, true));
+    }
+
     private LogReader getReader(int logId) throws IOException {
         Cache<Integer, LogReader> cache = caches.get();
         try {
@@ -390,6 +428,19 @@ public class DirectEntryLogger implements EntryLogger {
         }
     }
 
+    @Override
+    public boolean verifyEntryLog(long entryLogId, BlockVerificationListener listener) throws IOException {
+        checkArgument(entryLogId < Integer.MAX_VALUE, "Entry log id must be an int [%d]", entryLogId);
+        try (LogReader reader = newDirectReader((int) entryLogId)) {
+            BlockChecksums checksums = BlockChecksums.read(reader);
+            if (checksums == null) {
+                return false;
+            }
+            checksums.verify(reader, allocator, maxSaneEntrySize, listener);
+            return true;
+        }
+    }
+
     @Override
     public boolean logExists(long logId) {
         checkArgument(logId < Integer.MAX_VALUE, "Entry log id must be an int [%d]", logId);
@@ -36,6 +36,7 @@ import java.io.IOException;
  * Log file HeaderVersion enum: 4 bytes
  * Ledger map offset: 8 bytes
  * Ledgers Count: 4 bytes
+ * Block checksums offset: 8 bytes (0 if the log has no block checksums)
  * </pre>
  */
 class Header {
@@ -44,6 +45,7 @@ class Header {
     static final int HEADER_VERSION_OFFSET = 4;
     static final int LEDGERS_MAP_OFFSET = HEADER_VERSION_OFFSET + Integer.BYTES;
     static final int LEDGER_COUNT_OFFSET = LEDGERS_MAP_OFFSET + Long.BYTES;
+    static final int BLOCK_CHECKSUMS_OFFSET = LEDGER_COUNT_OFFSET + Integer.BYTES;
     static final int HEADER_V0 = 0; // Old log file format (no ledgers map index)
     static final int HEADER_V1 = 1; // Introduced ledger map index
     static final int HEADER_CURRENT_VERSION = HEADER_V1;
@@ -77,6 +79,11 @@ class Header {
         return header.getInt(LEDGER_COUNT_OFFSET);
     }
 
+    static long extractBlockChecksumsOffset(ByteBuf header) throws IOException {
+        assertFingerPrint(header);
+        return header.getLong(BLOCK_CHECKSUMS_OFFSET);
+    }
+
     static void assertFingerPrint(ByteBuf header) throws IOException {
         if (header.getByte(0) != 'B'
             || header.getByte(1) != 'K'
@@ -97,9 +104,16 @@ class Header {
 
     static void writeHeader(ByteBuf header,
                             long ledgerMapOffset, int ledgerCount) throws IOException {
+        writeHeader(header, ledgerMapOffset, ledgerCount, 0L);
+    }
+
+    static void writeHeader(ByteBuf header,
+                            long ledgerMapOffset, int ledgerCount,
+                            long blockChecksumsOffset) throws IOException {
         header.writeBytes(EMPTY_HEADER);
         header.setLong(LEDGERS_MAP_OFFSET, ledgerMapOffset);
         header.setInt(LEDGER_COUNT_OFFSET, ledgerCount);
+        header.setLong(BLOCK_CHECKSUMS_OFFSET, blockChecksumsOffset);
     }
 
 }
@@ -60,6 +60,14 @@ class LogMetadata {
                       EntryLogMetadata metadata,
                       ByteBufAllocator allocator)
             throws IOException {
+        write(writer, metadata, 0L, allocator);
+    }
+
+    static void write(LogWriter writer,
+                      EntryLogMetadata metadata,
+                      long blockChecksumsOffset,
+                      ByteBufAllocator allocator)
+            throws IOException {
         long ledgerMapOffset = writer.position();
         ConcurrentLongLongHashMap ledgersMap = metadata.getLedgersMap();
         int numberOfLedgers = (int) ledgersMap.size();
@@ -112,7 +120,7 @@ class LogMetadata {
         }
         ByteBuf buf = allocator.buffer(Buffer.ALIGNMENT);
         try {
-            Header.writeHeader(buf, ledgerMapOffset, numberOfLedgers);
+            Header.writeHeader(buf, ledgerMapOffset, numberOfLedgers, blockChecksumsOffset);
             writer.writeAt(0, buf);
         } finally {
             ReferenceCountUtil.release(buf);
@@ -34,6 +34,7 @@ class WriterWithMetadata {
     private final LogWriter writer;
     private final EntryLogMetadata metadata;
     private final ByteBufAllocator allocator;
+    private final BlockChecksums blockChecksums = new BlockChecksums();
 
     WriterWithMetadata(LogWriter writer, EntryLogMetadata metadata,
                        ByteBufAllocator allocator) throws IOException {
@@ -62,8 +63,10 @@ class WriterWithMetadata {
     long addEntry(long ledgerId, ByteBuf entry) throws IOException {
         int size = entry.readableBytes();
         metadata.addLedgerSize(ledgerId, size + Integer.BYTES);
-        long offset = writer.writeDelimited(entry);
+        blockChecksums.beforeWrite(entry);
+        int offset = writer.writeDelimited(entry);
         checkState(offset < Integer.MAX_VALUE, "Offsets can't be higher than max int (%d)", offset);
+        blockChecksums.afterWrite(offset, size);
         return ((long) writer.logId()) << 32 | offset;
     }
 
@@ -72,8 +75,9 @@ class WriterWithMetadata {
     }
 
     void finalizeAndClose() throws IOException {
+        long blockChecksumsOffset = blockChecksums.write(writer, allocator);
         writer.flush();
-        LogMetadata.write(writer, metadata, allocator);
+        LogMetadata.write(writer, metadata, blockChecksumsOffset, allocator);
         writer.close();
     }
 }
@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.internal.PlatformDependent;
 import java.io.File;
@@ -39,6 +40,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
@@ -54,6 +56,8 @@ import org.apache.bookkeeper.bookie.LedgerCache;
 import org.apache.bookkeeper.bookie.LedgerDirsManager;
 import org.apache.bookkeeper.bookie.LedgerStorage;
 import org.apache.bookkeeper.bookie.StateManager;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
+import org.apache.bookkeeper.bookie.storage.EntryLogReadExecutor;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.bookie.storage.directentrylogger.DirectEntryLogger;
 import org.apache.bookkeeper.bookie.storage.directentrylogger.EntryLogIdsImpl;
@@ -126,6 +130,7 @@ public class DbLedgerStorage implements LedgerStorage {
 
     private ExecutorService entryLoggerWriteExecutor = null;
     private ExecutorService entryLoggerFlushExecutor = null;
+    private EntryLogReadExecutor entryLoggerReadExecutor = null;
 
     protected ByteBufAllocator allocator;
 
@@ -177,6 +182,9 @@ public class DbLedgerStorage implements LedgerStorage {
         long readAheadCacheBatchBytesSize = conf.getInt(READ_AHEAD_CACHE_BATCH_BYTES_SIZE,
                 DEFAULT_READ_AHEAD_CACHE_BATCH_BYTES_SIZE);
 
+        // a single pool serves the asynchronous reads of all the directories
+        entryLoggerReadExecutor = EntryLogReadExecutor.create(conf, "EntryLoggerRead");
+
         ledgerStorageList = Lists.newArrayList();
         for (int i = 0; i < ledgerDirsManager.getAllLedgerDirs().size(); i++) {
             File ledgerDir = ledgerDirsManager.getAllLedgerDirs().get(i);
@@ -223,6 +231,10 @@ public class DbLedgerStorage implements LedgerStorage {
                 if (numReadThreads == 0) {
                     numReadThreads = conf.getServerNumIOThreads();
                 }
+                if (entryLoggerReadExecutor != null) {
+                    // the async read threads keep their own reader caches as well
+                    numReadThreads += entryLoggerReadExecutor.getNumThreads();
+                }
 
                 entrylogger = new DirectEntryLogger(ledgerDir, new EntryLogIdsImpl(ldm, slog),
                     new NativeIOImpl(),
@@ -234,9 +246,11 @@ public class DbLedgerStorage implements LedgerStorage {
                     readBufferSize,
                     numReadThreads,
                     maxFdCacheTimeSeconds,
+                    entryLoggerReadExecutor,
                     slog, statsLogger);
             } else {
-                entrylogger = new DefaultEntryLogger(conf, ldm, null, statsLogger, allocator);
+                entrylogger = new DefaultEntryLogger(conf, ldm, null, statsLogger, allocator,
+                        entryLoggerReadExecutor);
             }
             ledgerStorageList.add(newSingleDirectoryDbLedgerStorage(conf, ledgerManager, ldm,
                 idm, entrylogger,
@@ -318,6 +332,9 @@ public class DbLedgerStorage implements LedgerStorage {
         if (entryLoggerFlushExecutor != null) {
             entryLoggerFlushExecutor.shutdown();
         }
+        if (entryLoggerReadExecutor != null) {
+            entryLoggerReadExecutor.close();
+        }
     }
 
     @Override
@@ -361,6 +378,17 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntry(ledgerId, entryId);
     }
 
+    @Override
+    public ReferenceCounted getEntryOrRegion(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryOrRegion(ledgerId, entryId, minRegionSize);
+    }
+
+    @Override
+    public CompletableFuture<ByteBuf> getEntryAsync(long ledgerId, long entryId) {
+        return getLedgerStorage(ledgerId).getEntryAsync(ledgerId, entryId);
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
@@ -597,6 +625,16 @@ public class DbLedgerStorage implements LedgerStorage {
             .map(single -> single.getGarbageCollectionStatus().get(0)).collect(Collectors.toList());
     }
 
+    @Override
+    public void verifyEntryLogs(BlockVerificationListener listener) throws IOException {
+        for (SingleDirectoryDbLedgerStorage ls : ledgerStorageList) {
+            if (listener.isCancelled()) {
+                return;
+            }
+            ls.verifyEntryLogs(listener);
+        }
+    }
+
     static long getLongVariableOrDefault(ServerConfiguration conf, String keyName, long defaultValue) {
         Object obj = conf.getProperty(keyName);
         if (obj instanceof Number) {
@@ -23,7 +23,6 @@ package org.apache.bookkeeper.bookie.storage.ldb;
 import static org.apache.bookkeeper.bookie.storage.ldb.WriteCache.align64;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import java.io.Closeable;
@@ -45,6 +44,14 @@ import org.slf4j.LoggerFactory;
  * ring-buffer fashion. When the read cache is full, the oldest segment
  * is cleared and rotated to make space for new entries to be added to
  * the read cache.
+ *
+ * <p>Entries are returned as read-only retained slices of the segments, without
+ * copy. A segment is only cleared and rotated once all the slices of its entries
+ * have been released. Until then the roll-over skips it for the next segment
+ * whose slices have all been released, so that the entries being sent to the
+ * clients are never overwritten and the memory used stays within the cache
+ * size. New entries are only skipped while the slices of all the other
+ * segments are in use.
  */
 public class ReadCache implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(ReadCache.class);
@@ -59,15 +66,13 @@ public class ReadCache implements Closeable {
 
     private final int segmentSize;
 
-    private ByteBufAllocator allocator;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
-    public ReadCache(ByteBufAllocator allocator, long maxCacheSize) {
-        this(allocator, maxCacheSize, DEFAULT_MAX_SEGMENT_SIZE);
+    public ReadCache(long maxCacheSize) {
+        this(maxCacheSize, DEFAULT_MAX_SEGMENT_SIZE);
     }
 
-    public ReadCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize) {
-        this.allocator = allocator;
+    public ReadCache(long maxCacheSize, int maxSegmentSize) {
         int segmentsCount = Math.max(2, (int) (maxCacheSize / maxSegmentSize));
         segmentSize = (int) (maxCacheSize / segmentsCount);
 
@@ -121,8 +126,16 @@ public class ReadCache implements Closeable {
         try {
             int offset = currentSegmentOffset.getAndAdd(entrySize);
             if (offset + entrySize > segmentSize) {
+                int nextSegmentIdx = nextFreeSegment();
+                if (nextSegmentIdx < 0) {
+                    // The entries of all the other segments are still in use, don't overwrite them and skip the
+                    // entry. The next put tries to roll-over again.
+                    currentSegmentOffset.set(segmentSize);
+                    return;
+                }
+
                 // Rollover to next segment
-                currentSegmentIdx = (currentSegmentIdx + 1) % cacheSegments.size();
+                currentSegmentIdx = nextSegmentIdx;
                 currentSegmentOffset.set(alignedSize);
                 cacheIndexes.get(currentSegmentIdx).clear();
                 offset = 0;
@@ -136,6 +149,34 @@ public class ReadCache implements Closeable {
         }
     }
 
+    /**
+     * Find the segment to roll-over to: the oldest one whose entries are not in use anymore. Segments with
+     * entries still in use are skipped, and cleared on a later roll-over.
+     *
+     * @return the index of the segment, or -1 if the entries of all the other segments are in use
+     */
+    private int nextFreeSegment() {
+        int size = cacheSegments.size();
+        for (int i = 1; i < size; i++) {
+            int segmentIdx = (currentSegmentIdx + i) % size;
+            int slicesInUse = cacheSegments.get(segmentIdx).refCnt() - 1;
+            if (slicesInUse == 0) {
+                return segmentIdx;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Not rolling over to read cache segment {} with {} entries still in use",
+                        segmentIdx, slicesInUse);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get an entry from the read cache.
+     *
+     * @return a read-only retained slice of the cache segment holding the entry, which must be
+     *         released by the caller, or null if the entry is not in the cache
+     */
     public ByteBuf get(long ledgerId, long entryId) {
         lock.readLock().lock();
 
@@ -152,9 +193,7 @@ public class ReadCache implements Closeable {
                     int entryOffset = (int) res.first;
                     int entryLen = (int) res.second;
 
-                    ByteBuf entry = allocator.buffer(entryLen, entryLen);
-                    entry.writeBytes(cacheSegments.get(segmentIdx), entryOffset, entryLen);
-                    return entry;
+                    return cacheSegments.get(segmentIdx).retainedSlice(entryOffset, entryLen).asReadOnly();
                 }
             }
         } finally {
@@ -32,6 +32,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.IOException;
@@ -40,6 +41,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -65,9 +67,11 @@ import org.apache.bookkeeper.bookie.LedgerDirsManager;
 import org.apache.bookkeeper.bookie.LedgerDirsManager.LedgerDirsListener;
 import org.apache.bookkeeper.bookie.LedgerEntryPage;
 import org.apache.bookkeeper.bookie.StateManager;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorageDataFormats.LedgerData;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.Watcher;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
@@ -188,7 +192,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 DEFAULT_MAX_THROTTLE_TIME_MILLIS);
         maxThrottleTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxThrottleTimeMillis);
 
-        readCache = new ReadCache(allocator, readCacheMaxSize);
+        readCache = new ReadCache(readCacheMaxSize);
 
         ledgerIndex = new LedgerMetadataIndex(conf,
                 KeyValueStorageRocksDB.factory, indexBaseDir, ledgerIndexDirStatsLogger);
@@ -568,6 +572,90 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         }
     }
 
+    @Override
+    public CompletableFuture<ByteBuf> getEntryAsync(long ledgerId, long entryId) {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return CompactableLedgerStorage.super.getEntryAsync(ledgerId, entryId);
+        }
+
+        long startTime = MathUtils.nowInNano();
+        long entryLocation;
+        try {
+            ByteBuf entry = getEntryFromCaches(ledgerId, entryId);
+            if (entry != null) {
+                recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+                return CompletableFuture.completedFuture(entry);
+            }
+            entryLocation = getEntryLocation(ledgerId, entryId);
+        } catch (IOException | BookieException e) {
+            recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            return FutureUtils.exception(e);
+        }
+
+        long readEntryStartNano = MathUtils.nowInNano();
+        return entryLogger.readEntryAsync(ledgerId, entryId, entryLocation).whenComplete((entry, cause) -> {
+            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
+                    MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
+            if (cause != null) {
+                recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            }
+        }).thenApply(entry -> {
+            try {
+                readCache.put(ledgerId, entryId, entry);
+
+                // Try to read more entries, this is done on the entry logger read thread
+                long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
+                fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
+            } catch (RuntimeException e) {
+                // the entry never reaches the caller, release it here
+                entry.release();
+                recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+                throw e;
+            }
+            recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            return entry;
+        });
+    }
+
+    @Override
+    public ReferenceCounted getEntryOrRegion(long ledgerId, long entryId, int minRegionSize)
+            throws IOException, BookieException {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED) {
+            return getEntry(ledgerId, entryId);
+        }
+
+        long startTime = MathUtils.nowInNano();
+        try {
+            ByteBuf entry = getEntryFromCaches(ledgerId, entryId);
+            if (entry == null) {
+                long entryLocation = getEntryLocation(ledgerId, entryId);
+                ReferenceCounted entryOrRegion;
+                long readEntryStartNano = MathUtils.nowInNano();
+                try {
+                    entryOrRegion = entryLogger.readEntryOrRegion(ledgerId, entryId, entryLocation, minRegionSize);
+                } finally {
+                    dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
+                            MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
+                }
+                if (!(entryOrRegion instanceof ByteBuf)) {
+                    // Large entry sent from the entry log file, it's neither cached nor read ahead
+                    recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+                    return entryOrRegion;
+                }
+                entry = (ByteBuf) entryOrRegion;
+                readCache.put(ledgerId, entryId, entry);
+
+                long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
+                fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
+            }
+            recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            return entry;
+        } catch (IOException e) {
+            recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            throw e;
+        }
+    }
+
     private ByteBuf doGetEntry(long ledgerId, long entryId) throws IOException, BookieException {
         if (log.isDebugEnabled()) {
             log.debug("Get Entry: {}@{}", ledgerId, entryId);
@@ -577,6 +665,37 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return getLastEntry(ledgerId);
         }
 
+        ByteBuf entry = getEntryFromCaches(ledgerId, entryId);
+        if (entry != null) {
+            return entry;
+        }
+
+        // Read from main storage
+        long entryLocation = getEntryLocation(ledgerId, entryId);
+
+        long readEntryStartNano = MathUtils.nowInNano();
+        try {
+            entry = entryLogger.readEntry(ledgerId, entryId, entryLocation);
+        } finally {
+            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
+                    MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
+        }
+
+        readCache.put(ledgerId, entryId, entry);
+
+        // Try to read more entries
+        long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
+        fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
+
+        return entry;
+    }
+
+    /**
+     * Look up an entry in the write caches and in the read-ahead cache.
+     *
+     * @return the entry, or null if it has to be read from the entry logger
+     */
+    private ByteBuf getEntryFromCaches(long ledgerId, long entryId) {
         // We need to try to read from both write caches, since recent entries could be found in either of the two. The
         // write caches are already thread safe on their own, here we just need to make sure we get references to both
         // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
@@ -618,38 +737,24 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         }
 
         dbLedgerStorageStats.getReadCacheMissCounter().inc();
+        return null;
+    }
 
-        // Read from main storage
-        long entryLocation;
+    private long getEntryLocation(long ledgerId, long entryId) throws IOException, BookieException {
         long locationIndexStartNano = MathUtils.nowInNano();
         try {
-            entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
+            long entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
             if (entryLocation == 0) {
                 // Only a negative result while in limbo equates to unknown
                 throwIfLimbo(ledgerId);
 
                 throw new NoEntryException(ledgerId, entryId);
             }
+            return entryLocation;
         } finally {
             dbLedgerStorageStats.getReadFromLocationIndexTime().addLatency(
                     MathUtils.elapsedNanos(locationIndexStartNano), TimeUnit.NANOSECONDS);
         }
-
-        long readEntryStartNano = MathUtils.nowInNano();
-        try {
-            entry = entryLogger.readEntry(ledgerId, entryId, entryLocation);
-        } finally {
-            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
-                    MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
-        }
-
-        readCache.put(ledgerId, entryId, entry);
-
-        // Try to read more entries
-        long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
-        fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
-
-        return entry;
     }
 
     private void fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation) {
@@ -1127,6 +1232,24 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return Collections.singletonList(gcThread.getGarbageCollectionStatus());
     }
 
+    @Override
+    public void verifyEntryLogs(BlockVerificationListener listener) throws IOException {
+        for (long logId : entryLogger.getFlushedLogIds()) {
+            if (listener.isCancelled()) {
+                return;
+            }
+            try {
+                entryLogger.verifyEntryLog(logId, listener);
+            } catch (IOException e) {
+                if (entryLogger.logExists(logId)) {
+                    throw e;
+                }
+                // The log was garbage collected while being verified
+                log.info("Entry log {} removed during verification", logId);
+            }
+        }
+    }
+
     /**
      * Interface which process ledger logger.
      */
@@ -20,14 +20,10 @@
  */
 package org.apache.bookkeeper.client;
 
-import io.netty.buffer.ByteBuf;
-import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import org.apache.bookkeeper.client.api.LedgerEntry;
-import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
-import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.client.impl.BatchedLedgerEntriesImpl;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookieProtocol;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
@@ -92,7 +88,7 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
             future.completeExceptionally(BKException.create(code));
         } else {
             clientCtx.getClientStats().getReadOpLogger().registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
-            future.complete(LedgerEntriesImpl.create(request.entries));
+            future.complete(request.entries);
         }
     }
 
@@ -143,14 +139,13 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
         final int maxCount;
         final long maxSize;
 
-        final List<LedgerEntry> entries;
+        BatchedLedgerEntriesImpl entries;
 
         BatchedLedgerEntryRequest(List<BookieId> ensemble, long lId, long eId, int maxCount, long maxSize) {
             super(ensemble, eId);
             this.lId = lId;
             this.maxCount = maxCount;
             this.maxSize = maxSize;
-            this.entries = new ArrayList<>(maxCount);
         }
 
         boolean complete(int bookieIndex, BookieId host, final ByteBufList bufList) {
@@ -159,25 +154,25 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
             }
             if (!complete.getAndSet(true)) {
                 for (int i = 0; i < bufList.size(); i++) {
-                    ByteBuf buffer = bufList.getBuffer(i);
-                    ByteBuf content;
                     try {
-                        content = lh.macManager.verifyDigestAndReturnData(eId + i, buffer);
+                        // moves the reader index of the buffer to the payload
+                        lh.macManager.verifyDigestAndReturnData(eId + i, bufList.getBuffer(i));
                     } catch (BKException.BKDigestMatchException e) {
                         clientCtx.getClientStats().getReadOpDmCounter().inc();
                         logErrorAndReattemptRead(bookieIndex, host, "Mac mismatch",
                                 BKException.Code.DigestMatchException);
                         return false;
                     }
-                    rc = BKException.Code.OK;
+                }
+                rc = BKException.Code.OK;
+                // The entries are kept in the received buffers, which are released with the entries
+                entries = BatchedLedgerEntriesImpl.create(lh.ledgerId, startEntryId, bufList);
+                for (int i = 0; i < bufList.size(); i++) {
                     /*
                      * The length is a long and it is the last field of the metadata of an entry.
                      * Consequently, we have to subtract 8 from METADATA_LENGTH to get the length.
                      */
-                    LedgerEntryImpl entryImpl =  LedgerEntryImpl.create(lh.ledgerId, startEntryId + i);
-                    entryImpl.setLength(buffer.getLong(DigestManager.METADATA_LENGTH - 8));
-                    entryImpl.setEntryBuf(content);
-                    entries.add(entryImpl);
+                    entries.setLength(i, bufList.getBuffer(i).getLong(DigestManager.METADATA_LENGTH - 8));
                 }
                 writeSet.recycle();
                 return true;
@@ -32,11 +32,15 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -118,6 +122,8 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     private final StatsLogger statsLogger;
     private final BookKeeperClientStats clientStats;
     private final double bookieQuarantineRatio;
+    private final BookieReadLatencyTracker readLatencyTracker;
+    private final ClientReadCache readCache;
 
     // whether the event loop group is one we created, or is owned by whoever
     // instantiated us
@@ -436,7 +442,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
 
         // initialize stats logger
         this.statsLogger = rootStatsLogger.scope(BookKeeperClientStats.CLIENT_SCOPE);
-        this.clientStats = BookKeeperClientStats.newInstance(this.statsLogger);
+        this.clientStats = BookKeeperClientStats.newInstance(this.statsLogger, conf.getLimitStatsLogging());
+        this.readLatencyTracker = new BookieReadLatencyTracker(conf.getReadLatencyQuantile(),
+                conf.getReadLatencyWindowMs());
 
         // initialize metadata driver
         try {
@@ -481,6 +489,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                     .build();
         }
 
+        if (conf.getClientReadCacheMaxSizeBytes() > 0) {
+            this.readCache = new ClientReadCache(allocator, conf.getClientReadCacheMaxSizeBytes(), clientStats);
+        } else {
+            this.readCache = null;
+        }
 
         if (null == requestTimer) {
             this.requestTimer = new HashedWheelTimer(
@@ -505,7 +518,7 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
 
         this.bookieWatcher = new BookieWatcherImpl(
                 conf, this.placementPolicy, metadataDriver.getRegistrationClient(), bookieAddressResolver,
-                this.statsLogger.scope(WATCHER_SCOPE));
+                this.statsLogger.scope(WATCHER_SCOPE), clientStats);
 
         // initialize bookie client
         this.bookieClient = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator, this.mainWorkerPool,
@@ -549,6 +562,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         internalConf = ClientInternalConf.fromConfig(conf);
         statsLogger = NullStatsLogger.INSTANCE;
         clientStats = BookKeeperClientStats.newInstance(statsLogger);
+        readLatencyTracker = new BookieReadLatencyTracker(conf.getReadLatencyQuantile(),
+                conf.getReadLatencyWindowMs());
+        readCache = null;
         scheduler = null;
         requestTimer = null;
         metadataDriver = null;
@@ -1269,6 +1285,51 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         }
     }
 
+    /**
+     * Open existing ledgers asynchronously for reading, fencing and recovering the ledgers
+     * which are not closed.
+     *
+     * <p>This is equivalent to opening each ledger with {@link #asyncOpenLedger}, but is much
+     * cheaper when opening many ledgers at once, e.g. after the failover of their writer. The
+     * metadata of all the ledgers is read concurrently, and the ledgers to recover are fenced
+     * together: each bookie receives a single request fencing and reading the last entry of up
+     * to {@link ClientConfiguration#getBulkRecoveryMaxLedgersPerRequest()} ledgers.
+     *
+     * @param lIds
+     *          ledger identifiers
+     * @param digestType
+     *          digest type, either MAC or CRC32
+     * @param passwd
+     *          password
+     * @return a future per ledger, completed with the handle of the ledger once opened
+     */
+    public Map<Long, CompletableFuture<LedgerHandle>> asyncOpenLedgers(final Collection<Long> lIds,
+                                                                       final DigestType digestType,
+                                                                       final byte[] passwd) {
+        Set<Long> ledgerIds = new LinkedHashSet<>(lIds);
+        Map<Long, CompletableFuture<LedgerHandle>> futures = new LinkedHashMap<>();
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, mainWorkerPool,
+                internalConf.bulkRecoveryMaxLedgersPerRequest, ledgerIds);
+        closeLock.readLock().lock();
+        try {
+            for (long lId : ledgerIds) {
+                CompletableFuture<LedgerHandle> future = new CompletableFuture<>();
+                futures.put(lId, future);
+                SyncOpenCallback cb = new SyncOpenCallback(future);
+                if (closed) {
+                    cb.openComplete(BKException.Code.ClientClosedException, null, null);
+                    continue;
+                }
+                new LedgerOpenOp(BookKeeper.this, clientStats, lId, digestType, passwd, cb, null)
+                        .setFencingReadBatcher(batcher)
+                        .initiate();
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return futures;
+    }
+
 
     /**
      * Synchronous open ledger call.
@@ -1478,6 +1539,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         if (ownEventLoopGroup) {
             eventLoopGroup.shutdownGracefully();
         }
+        if (readCache != null) {
+            readCache.close();
+        }
         this.metadataDriver.close();
     }
 
@@ -1649,6 +1713,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 return clientStats;
             }
 
+            @Override
+            public BookieReadLatencyTracker getBookieReadLatencyTracker() {
+                return readLatencyTracker;
+            }
+
             @Override
             public boolean isClientClosed() {
                 return BookKeeper.this.isClosed();
@@ -1663,4 +1732,8 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     public ClientContext getClientCtx() {
         return clientCtx;
     }
+
+    ClientReadCache getReadCache() {
+        return readCache;
+    }
 }
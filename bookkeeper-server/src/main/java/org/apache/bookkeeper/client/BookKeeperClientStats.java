@@ -21,7 +21,9 @@
 
 package org.apache.bookkeeper.client;
 
+import java.util.Set;
 import org.apache.bookkeeper.client.impl.BookKeeperClientStatsImpl;
+import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.OpStatsLogger;
@@ -49,6 +51,9 @@ public interface BookKeeperClientStats {
 
     String ADD_OP = "ADD_ENTRY";
     String ADD_OP_UR = "ADD_ENTRY_UR"; // Under Replicated during AddEntry.
+    String ADD_OP_QUEUE = "ADD_ENTRY_QUEUE";
+    String ADD_OP_BOOKIE = "ADD_ENTRY_BOOKIE";
+    String ADD_OP_QUORUM_ACK_SPREAD = "ADD_ENTRY_QUORUM_ACK_SPREAD";
     String FORCE_OP = "FORCE"; // Number of force ledger operations
     String READ_OP = "READ_ENTRY";
     // Corrupted entry (Digest Mismatch/ Under Replication) detected during ReadEntry
@@ -59,12 +64,17 @@ public interface BookKeeperClientStats {
     String READ_LAST_CONFIRMED_AND_ENTRY_RESPONSE = "READ_LAST_CONFIRMED_AND_ENTRY_RESPONSE";
     String PENDING_ADDS = "NUM_PENDING_ADD";
     String ENSEMBLE_CHANGES = "NUM_ENSEMBLE_CHANGE";
+    String SLOW_BOOKIE_ENSEMBLE_CHANGES = "NUM_SLOW_BOOKIE_ENSEMBLE_CHANGE";
     String LAC_UPDATE_HITS = "LAC_UPDATE_HITS";
     String LAC_UPDATE_MISSES = "LAC_UPDATE_MISSES";
     String GET_BOOKIE_INFO_OP = "GET_BOOKIE_INFO";
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
+    String READ_CACHE_HITS = "READ_CACHE_HITS";
+    String READ_CACHE_MISSES = "READ_CACHE_MISSES";
+    String READ_CACHE_DEDUPLICATED_READS = "READ_CACHE_DEDUPLICATED_READS";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String MULTI_READ_ENTRY_OP = "MULTI_READ_ENTRY";
 
     // per channel stats
     String CHANNEL_SCOPE = "per_channel_bookie_client";
@@ -83,6 +93,7 @@ public interface BookKeeperClientStats {
     String CHANNEL_START_TLS_OP = "START_TLS";
     String CHANNEL_TIMEOUT_START_TLS_OP = "TIMEOUT_START_TLS";
     String TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER = "TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String TIMEOUT_MULTI_READ_ENTRY = "TIMEOUT_MULTI_READ_ENTRY";
 
     String NETTY_EXCEPTION_CNT = "NETTY_EXCEPTION_CNT";
     String CLIENT_CHANNEL_WRITE_WAIT = "CLIENT_CHANNEL_WRITE_WAIT";
@@ -94,6 +105,11 @@ public interface BookKeeperClientStats {
     String ACTIVE_TLS_CHANNEL_COUNTER = "ACTIVE_TLS_CHANNEL_COUNTER";
     String FAILED_CONNECTION_COUNTER = "FAILED_CONNECTION_COUNTER";
     String FAILED_TLS_HANDSHAKE_COUNTER = "FAILED_TLS_HANDSHAKE_COUNTER";
+    String CHANNEL_IN_FLIGHT_REQUESTS = "CHANNEL_IN_FLIGHT_REQUESTS";
+    String CHANNEL_PENDING_WRITE_BYTES = "CHANNEL_PENDING_WRITE_BYTES";
+    String NUM_CHANNELS = "NUM_CHANNELS";
+    String CHANNEL_SCALE_UP_COUNTER = "CHANNEL_SCALE_UP";
+    String CHANNEL_SCALE_DOWN_COUNTER = "CHANNEL_SCALE_DOWN";
 
     // placementpolicy stats
     String NUM_WRITABLE_BOOKIES_IN_DEFAULT_RACK = "NUM_WRITABLE_BOOKIES_IN_DEFAULT_RACK";
@@ -104,6 +120,7 @@ public interface BookKeeperClientStats {
     String NUM_WRITABLE_BOOKIES_IN_DEFAULT_FAULTDOMAIN = "NUM_WRITABLE_BOOKIES_IN_DEFAULT_FAULTDOMAIN";
 
     String BOOKIE_LABEL = "bookie";
+    String CHANNEL_LABEL = "channel";
 
     OpStatsLogger getCreateOpLogger();
     OpStatsLogger getOpenOpLogger();
@@ -113,6 +130,10 @@ public interface BookKeeperClientStats {
     OpStatsLogger getReadLacAndEntryOpLogger();
     OpStatsLogger getReadLacAndEntryRespLogger();
     OpStatsLogger getAddOpLogger();
+    OpStatsLogger getAddOpQueueLogger();
+    OpStatsLogger getAddOpBookieLogger(BookieId bookie);
+    void retainAddOpBookieLoggers(Set<BookieId> bookies);
+    OpStatsLogger getAddOpQuorumAckSpreadLogger();
     OpStatsLogger getForceOpLogger();
     OpStatsLogger getWriteLacOpLogger();
     OpStatsLogger getReadLacOpLogger();
@@ -121,8 +142,12 @@ public interface BookKeeperClientStats {
     Counter getReadOpDmCounter();
     Counter getAddOpUrCounter();
     Counter getSpeculativeReadCounter();
+    Counter getReadCacheHitCounter();
+    Counter getReadCacheMissCounter();
+    Counter getReadCacheDeduplicatedReadCounter();
     Counter getEnsembleBookieDistributionCounter(String bookie);
     Counter getEnsembleChangeCounter();
+    Counter getSlowBookieEnsembleChangeCounter();
     Counter getLacUpdateHitsCounter();
     Counter getLacUpdateMissesCounter();
     OpStatsLogger getClientChannelWriteWaitLogger();
@@ -132,7 +157,11 @@ public interface BookKeeperClientStats {
     void registerPendingAddsGauge(Gauge<Integer> gauge);
 
     static BookKeeperClientStats newInstance(StatsLogger stats) {
-        return new BookKeeperClientStatsImpl(stats);
+        return newInstance(stats, false);
+    }
+
+    static BookKeeperClientStats newInstance(StatsLogger stats, boolean limitStatsLogging) {
+        return new BookKeeperClientStatsImpl(stats, limitStatsLogging);
     }
 
 }
@@ -0,0 +1,193 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.net.BookieId;
+
+/**
+ * Tracks the latency of the reads sent to each bookie, to estimate a quantile of the read
+ * latency of every bookie over the last minutes.
+ *
+ * <p>The latencies are recorded in histograms with exponentially sized buckets, the width of a bucket
+ * being at most 25% of its lower bound, so the quantiles are estimated within this precision.
+ */
+public class BookieReadLatencyTracker {
+
+    // buckets are split in 2^SUB_BUCKET_BITS sub buckets between two powers of 2
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int NUM_BUCKETS = Long.SIZE << SUB_BUCKET_BITS;
+
+    // don't estimate a quantile from too few reads
+    static final int MIN_SAMPLES = 20;
+    private static final long QUANTILE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double quantile;
+    private final long windowNanos;
+    private final ConcurrentMap<BookieId, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Create a read latency tracker.
+     *
+     * @param quantile the quantile of the read latency to estimate, between 0 and 1
+     * @param windowMs the latencies are tracked over the last one to two windows
+     */
+    public BookieReadLatencyTracker(double quantile, long windowMs) {
+        if (quantile <= 0 || quantile > 1) {
+            throw new IllegalArgumentException("Invalid read latency quantile " + quantile);
+        }
+        this.quantile = quantile;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    /**
+     * Record the latency of a successful read from a bookie.
+     */
+    public void recordReadLatency(BookieId bookie, long latencyNanos) {
+        histograms.computeIfAbsent(bookie, b -> new LatencyHistogram())
+                .record(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MathUtils.nowInNano());
+    }
+
+    /**
+     * Get the estimated quantile of the read latency of a bookie.
+     *
+     * @return the read latency in nanoseconds, or -1 if not enough reads were sent to the bookie
+     */
+    public long getReadLatencyNanos(BookieId bookie) {
+        LatencyHistogram histogram = histograms.get(bookie);
+        if (histogram == null) {
+            return -1L;
+        }
+        return histogram.getQuantileNanos(MathUtils.nowInNano());
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < (1 << SUB_BUCKET_BITS)) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        int exponent = (index >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = index & ((1 << SUB_BUCKET_BITS) - 1);
+        return (((1L << SUB_BUCKET_BITS) + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Histogram of the latencies of a bookie over two windows: the current window, and the previous one.
+     * The windows are rotated on time when the quantile is read as well, so that the latencies of a bookie
+     * which no longer receives reads expire. Updates racing with the rotation of the windows may be lost,
+     * which doesn't matter for an estimation.
+     */
+    private class LatencyHistogram {
+        private final AtomicLongArray[] windows = {
+            new AtomicLongArray(NUM_BUCKETS), new AtomicLongArray(NUM_BUCKETS)
+        };
+        // the number of latencies of each window, so that the buckets are only scanned with enough of them
+        private final AtomicLong[] windowCounts = { new AtomicLong(), new AtomicLong() };
+        private volatile int currentWindow = 0;
+        private volatile long windowStartNanos = MathUtils.nowInNano();
+
+        private volatile long quantileNanos = -1L;
+        private volatile long quantileComputedNanos = MathUtils.nowInNano() - QUANTILE_REFRESH_NANOS;
+
+        void record(long micros, long nowNanos) {
+            if (nowNanos - windowStartNanos >= windowNanos) {
+                rotate(nowNanos);
+            }
+            int window = currentWindow;
+            windows[window].incrementAndGet(bucketIndex(micros));
+            windowCounts[window].incrementAndGet();
+        }
+
+        private synchronized void rotate(long nowNanos) {
+            if (nowNanos - windowStartNanos < windowNanos) {
+                return;
+            }
+            int nextWindow = 1 - currentWindow;
+            clear(nextWindow);
+            if (nowNanos - windowStartNanos >= 2 * windowNanos) {
+                // the current window is older than the tracked period as well
+                clear(currentWindow);
+            }
+            currentWindow = nextWindow;
+            windowStartNanos = nowNanos;
+            // the latencies which expired must not be used any longer
+            quantileComputedNanos = nowNanos - QUANTILE_REFRESH_NANOS;
+        }
+
+        private void clear(int window) {
+            windowCounts[window].set(0L);
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                windows[window].set(i, 0L);
+            }
+        }
+
+        long getQuantileNanos(long nowNanos) {
+            if (nowNanos - windowStartNanos >= windowNanos) {
+                rotate(nowNanos);
+            }
+            if (nowNanos - quantileComputedNanos >= QUANTILE_REFRESH_NANOS) {
+                long computedNanos = computeQuantileNanos();
+                quantileNanos = computedNanos;
+                if (computedNanos >= 0) {
+                    // until enough reads are recorded, compute it again on the next call
+                    quantileComputedNanos = nowNanos;
+                }
+            }
+            return quantileNanos;
+        }
+
+        private long computeQuantileNanos() {
+            long total = windowCounts[0].get() + windowCounts[1].get();
+            if (total < MIN_SAMPLES) {
+                return -1L;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            int lastNonEmpty = -1;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                long count = windows[0].get(i) + windows[1].get(i);
+                if (count == 0) {
+                    continue;
+                }
+                lastNonEmpty = i;
+                seen += count;
+                if (seen >= rank) {
+                    return TimeUnit.MICROSECONDS.toNanos(bucketUpperBoundMicros(i));
+                }
+            }
+            // the counts raced with a rotation of the windows
+            return lastNonEmpty < 0 ? -1L : TimeUnit.MICROSECONDS.toNanos(bucketUpperBoundMicros(lastNonEmpty));
+        }
+    }
+}
@@ -110,13 +110,16 @@ class BookieWatcherImpl implements BookieWatcher {
     private CompletableFuture<?> initialReadonlyBookiesFuture = null;
 
     private final BookieAddressResolver bookieAddressResolver;
+    private final BookKeeperClientStats clientStats;
 
     public BookieWatcherImpl(ClientConfiguration conf,
                              EnsemblePlacementPolicy placementPolicy,
                              RegistrationClient registrationClient,
                              BookieAddressResolver bookieAddressResolver,
-                             StatsLogger statsLogger)  {
+                             StatsLogger statsLogger,
+                             BookKeeperClientStats clientStats)  {
         this.conf = conf;
+        this.clientStats = clientStats;
         this.bookieAddressResolver = bookieAddressResolver;
         this.placementPolicy = placementPolicy;
         this.registrationClient = registrationClient;
@@ -194,6 +197,7 @@ class BookieWatcherImpl implements BookieWatcher {
         // component is trying to do a blocking ZK operation
         this.writableBookies = newBookieAddrs;
         placementPolicy.onClusterChanged(newBookieAddrs, readOnlyBookies);
+        retainBookieStats();
         // we don't need to close clients here, because:
         // a. the dead bookies will be removed from topology, which will not be used in new ensemble.
         // b. the read sequence will be reordered based on znode availability, so most of the reads
@@ -213,6 +217,16 @@ class BookieWatcherImpl implements BookieWatcher {
     private synchronized void processReadOnlyBookiesChanged(Set<BookieId> readOnlyBookies) {
         this.readOnlyBookies = readOnlyBookies;
         placementPolicy.onClusterChanged(writableBookies, readOnlyBookies);
+        retainBookieStats();
+    }
+
+    /**
+     * Drop the per-bookie client stats of the bookies which left the cluster.
+     */
+    private void retainBookieStats() {
+        Set<BookieId> bookies = new HashSet<>(writableBookies);
+        bookies.addAll(readOnlyBookies);
+        clientStats.retainAddOpBookieLoggers(bookies);
     }
 
     /**
@@ -44,4 +44,14 @@ public interface BookiesHealthInfo {
      */
     long getBookiePendingRequests(BookieId bookieSocketAddress);
 
+    /**
+     * Returns the observed read latency of a bookie, at the quantile tracked by the client.
+     *
+     * @param bookieSocketAddress
+     * @return read latency in nanoseconds, -1 if the read latency of the bookie is not known
+     */
+    default long getBookieReadLatency(BookieId bookieSocketAddress) {
+        return -1L;
+    }
+
 }
@@ -42,5 +42,6 @@ public interface ClientContext {
     OrderedExecutor getMainWorkerPool();
     OrderedScheduler getScheduler();
     BookKeeperClientStats getClientStats();
+    BookieReadLatencyTracker getBookieReadLatencyTracker();
     boolean isClientClosed();
 }
@@ -20,6 +20,9 @@
  */
 package org.apache.bookkeeper.client;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.util.concurrent.RateLimiter;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.conf.ClientConfiguration;
@@ -39,11 +42,19 @@ class ClientInternalConf {
     final long addEntryQuorumTimeoutNanos;
     final boolean enableParallelRecoveryRead;
     final boolean enableReorderReadSequence;
+    final boolean enableLatencyAwareRead;
     final boolean enableStickyReads;
     final int recoveryReadBatchSize;
+    final int bulkRecoveryMaxLedgersPerRequest;
+    final int readStreamMaxOutstandingEntries;
     final int throttleValue;
     final int bookieFailureHistoryExpirationMSec;
     final int maxAllowedEnsembleChanges;
+    final boolean enableSlowBookieEnsembleChange;
+    final double slowBookieAddLatencyRatio;
+    final long slowBookieMinAddLatencyNanos;
+    final int slowBookieMinSlowAdds;
+    final RateLimiter slowBookieEnsembleChangeRateLimiter;
     final long timeoutMonitorIntervalSec;
     final boolean enableBookieFailureTracking;
     final boolean useV2WireProtocol;
@@ -68,8 +79,11 @@ class ClientInternalConf {
                                FeatureProvider featureProvider) {
         this.explicitLacInterval = conf.getExplictLacInterval();
         this.enableReorderReadSequence = conf.isReorderReadSequenceEnabled();
+        this.enableLatencyAwareRead = conf.isLatencyAwareReadEnabled();
         this.enableParallelRecoveryRead = conf.getEnableParallelRecoveryRead();
         this.recoveryReadBatchSize = conf.getRecoveryReadBatchSize();
+        this.bulkRecoveryMaxLedgersPerRequest = Math.max(1, conf.getBulkRecoveryMaxLedgersPerRequest());
+        this.readStreamMaxOutstandingEntries = Math.max(1, conf.getReadStreamMaxOutstandingEntries());
         this.waitForWriteSetMs = conf.getWaitTimeoutOnBackpressureMillis();
         this.addEntryQuorumTimeoutNanos = TimeUnit.SECONDS.toNanos(conf.getAddEntryQuorumTimeout());
         this.throttleValue = conf.getThrottleValue();
@@ -79,13 +93,29 @@ class ClientInternalConf {
         this.disableEnsembleChangeFeature = featureProvider.getFeature(conf.getDisableEnsembleChangeFeatureName());
         this.delayEnsembleChange = conf.getDelayEnsembleChange();
         this.maxAllowedEnsembleChanges = conf.getMaxAllowedEnsembleChanges();
+        this.enableSlowBookieEnsembleChange = conf.isSlowBookieEnsembleChangeEnabled();
+        this.slowBookieAddLatencyRatio = conf.getSlowBookieAddLatencyRatio();
+        // with a ratio of 1 or less, the bookies as fast as the fastest one would be slow
+        checkArgument(!enableSlowBookieEnsembleChange || slowBookieAddLatencyRatio > 1.0,
+                "slowBookieAddLatencyRatio must be greater than 1, got %s", slowBookieAddLatencyRatio);
+        this.slowBookieMinAddLatencyNanos = TimeUnit.MILLISECONDS.toNanos(conf.getSlowBookieMinAddLatencyMs());
+        this.slowBookieMinSlowAdds = Math.max(1, conf.getSlowBookieMinSlowAdds());
+        // Shared by all the ledgers of the client
+        this.slowBookieEnsembleChangeRateLimiter = conf.isSlowBookieEnsembleChangeEnabled()
+                ? RateLimiter.create(conf.getSlowBookieMaxEnsembleChangeRate()) : null;
         this.timeoutMonitorIntervalSec = conf.getTimeoutMonitorIntervalSec();
         this.enableBookieFailureTracking = conf.getEnableBookieFailureTracking();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.enableStickyReads = conf.isStickyReadsEnabled();
         this.enforceMinNumFaultDomainsForWrite = conf.getEnforceMinNumFaultDomainsForWrite();
 
-        if (conf.getFirstSpeculativeReadTimeout() > 0) {
+        if (conf.getFirstSpeculativeReadTimeout() > 0 && conf.isLatencyAwareReadEnabled()) {
+            this.readSpeculativeRequestPolicy =
+                    Optional.of(new LatencyAwareSpeculativeRequestExecutionPolicy(
+                                        conf.getFirstSpeculativeReadTimeout(),
+                                        conf.getMaxSpeculativeReadTimeout(),
+                                        conf.getSpeculativeReadTimeoutBackoffMultiplier()));
+        } else if (conf.getFirstSpeculativeReadTimeout() > 0) {
             this.readSpeculativeRequestPolicy =
                     Optional.of(new DefaultSpeculativeRequestExecutionPolicy(
                                         conf.getFirstSpeculativeReadTimeout(),
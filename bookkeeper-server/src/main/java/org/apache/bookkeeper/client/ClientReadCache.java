@@ -0,0 +1,281 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
+
+/**
+ * Client side cache of the confirmed entries recently read from the bookies.
+ *
+ * <p>Readers tailing the same ledger through the same client read the same entries at about the same time.
+ * The cache keeps the entries off-heap, in segments used as a ring buffer: when the cache is full, the oldest
+ * segment is cleared to make space for the new entries. It also deduplicates the reads in flight: a read of an
+ * entry which is already being read from the bookies waits for that read to complete, instead of sending another
+ * request.
+ *
+ * <p>The entries returned on a hit are copies, so that the entries held by the application neither pin the
+ * segments of the cache nor give access to them. A segment can then always be cleared, unlike the segments of
+ * the read cache of the bookies, which hand out slices of their entries.
+ *
+ * <p>Only confirmed entries are cached, since they can't change anymore.
+ */
+public class ClientReadCache implements AutoCloseable {
+
+    private static final int NUM_SEGMENTS = 8;
+
+    private final ByteBufAllocator allocator;
+    private final ByteBuf[] segments;
+    // the offset and size of the entries of each segment, by ledger and entry id
+    private final ConcurrentLongLongPairHashMap[] segmentIndexes;
+    private final int segmentSize;
+    private int currentSegmentIdx = 0;
+    private int currentSegmentOffset = 0;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<EntryKey, CompletableFuture<Void>> pendingReads = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter deduplicatedReadCounter;
+
+    public ClientReadCache(ByteBufAllocator allocator, long maxSize, BookKeeperClientStats clientStats) {
+        this.allocator = allocator;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(Long.BYTES, maxSize / NUM_SEGMENTS));
+        this.segments = new ByteBuf[NUM_SEGMENTS];
+        this.segmentIndexes = new ConcurrentLongLongPairHashMap[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = Unpooled.directBuffer(segmentSize, segmentSize);
+            segmentIndexes[i] = ConcurrentLongLongPairHashMap.newBuilder()
+                    .expectedItems(4096)
+                    .concurrencyLevel(2 * Runtime.getRuntime().availableProcessors())
+                    .build();
+        }
+        this.hitCounter = clientStats.getReadCacheHitCounter();
+        this.missCounter = clientStats.getReadCacheMissCounter();
+        this.deduplicatedReadCounter = clientStats.getReadCacheDeduplicatedReadCounter();
+    }
+
+    /**
+     * Read a range of confirmed entries of a ledger, from the cache when possible.
+     *
+     * <p>The consecutive entries which are neither cached nor being read are read from the bookies in a single
+     * read, and added to the cache.
+     */
+    CompletableFuture<LedgerEntries> read(LedgerHandle lh, long firstEntry, long lastEntry) {
+        long ledgerId = lh.getId();
+        List<CompletableFuture<List<LedgerEntry>>> parts = new ArrayList<>();
+        long runFirstEntry = -1;
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            LedgerEntry cached = get(ledgerId, entryId);
+            CompletableFuture<Void> pendingRead = null;
+            if (cached == null) {
+                pendingRead = pendingReads.putIfAbsent(new EntryKey(ledgerId, entryId), new CompletableFuture<>());
+                if (pendingRead == null) {
+                    // We are the one reading the entry from the bookies
+                    missCounter.inc();
+                    if (runFirstEntry < 0) {
+                        runFirstEntry = entryId;
+                    }
+                    continue;
+                }
+            }
+
+            if (runFirstEntry >= 0) {
+                parts.add(readFromBookies(lh, runFirstEntry, entryId - 1));
+                runFirstEntry = -1;
+            }
+            if (cached != null) {
+                hitCounter.inc();
+                parts.add(CompletableFuture.completedFuture(Collections.singletonList(cached)));
+            } else {
+                deduplicatedReadCounter.inc();
+                final long dedupEntryId = entryId;
+                parts.add(pendingRead.handle((ignored, cause) -> readAfterPendingRead(lh, dedupEntryId))
+                        .thenCompose(future -> future));
+            }
+        }
+        if (runFirstEntry >= 0) {
+            parts.add(readFromBookies(lh, runFirstEntry, lastEntry));
+        }
+
+        CompletableFuture<LedgerEntries> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).whenComplete((ignored, cause) -> {
+            if (cause != null) {
+                for (CompletableFuture<List<LedgerEntry>> part : parts) {
+                    if (!part.isCompletedExceptionally()) {
+                        part.join().forEach(LedgerEntry::close);
+                    }
+                }
+                result.completeExceptionally(cause instanceof CompletionException ? cause.getCause() : cause);
+                return;
+            }
+            List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            for (CompletableFuture<List<LedgerEntry>> part : parts) {
+                entries.addAll(part.join());
+            }
+            result.complete(LedgerEntriesImpl.create(entries));
+        });
+        return result;
+    }
+
+    private CompletableFuture<List<LedgerEntry>> readFromBookies(LedgerHandle lh, long firstEntry, long lastEntry) {
+        CompletableFuture<List<LedgerEntry>> future = new CompletableFuture<>();
+        lh.readEntriesFromBookiesAsync(firstEntry, lastEntry, false).whenComplete((entries, cause) -> {
+            try {
+                if (cause != null) {
+                    future.completeExceptionally(cause);
+                    return;
+                }
+                List<LedgerEntry> result = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+                try {
+                    for (LedgerEntry entry : entries) {
+                        put(entry);
+                        result.add(LedgerEntryImpl.duplicate(entry));
+                    }
+                } finally {
+                    entries.close();
+                }
+                future.complete(result);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                // Wake up the reads waiting for these entries, they'll find them in the cache
+                for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+                    CompletableFuture<Void> pendingRead = pendingReads.remove(new EntryKey(lh.getId(), entryId));
+                    if (pendingRead != null) {
+                        pendingRead.complete(null);
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<List<LedgerEntry>> readAfterPendingRead(LedgerHandle lh, long entryId) {
+        LedgerEntry cached = get(lh.getId(), entryId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Collections.singletonList(cached));
+        }
+        // The pending read failed, or the entry was too large for the cache: read it on our own
+        return lh.readEntriesFromBookiesAsync(entryId, entryId, false).thenApply(entries -> {
+            try {
+                return Collections.singletonList(LedgerEntryImpl.duplicate(entries.getEntry(entryId)));
+            } finally {
+                entries.close();
+            }
+        });
+    }
+
+    private LedgerEntry get(long ledgerId, long entryId) {
+        lock.readLock().lock();
+        try {
+            // Look for the most recent entries first
+            for (int i = 0; i < NUM_SEGMENTS; i++) {
+                int segmentIdx = (currentSegmentIdx + NUM_SEGMENTS - i) % NUM_SEGMENTS;
+                LongPair res = segmentIndexes[segmentIdx].get(ledgerId, entryId);
+                if (res != null) {
+                    ByteBuf segment = segments[segmentIdx];
+                    int offset = (int) res.first;
+                    int payloadSize = (int) res.second - Long.BYTES;
+                    long length = segment.getLong(offset);
+                    ByteBuf entry = allocator.buffer(payloadSize, payloadSize);
+                    entry.writeBytes(segment, offset + Long.BYTES, payloadSize);
+                    return LedgerEntryImpl.create(ledgerId, entryId, length, entry);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(LedgerEntry entry) {
+        ByteBuf payload = entry.getEntryBuffer();
+        // Entries are stored with their ledger length in front of them
+        int size = Long.BYTES + payload.readableBytes();
+        if (size > segmentSize) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (currentSegmentOffset + size > segmentSize) {
+                // Roll-over to the oldest segment, evicting its entries
+                currentSegmentIdx = (currentSegmentIdx + 1) % NUM_SEGMENTS;
+                currentSegmentOffset = 0;
+                segmentIndexes[currentSegmentIdx].clear();
+            }
+            ByteBuf segment = segments[currentSegmentIdx];
+            int offset = currentSegmentOffset;
+            segment.setLong(offset, entry.getLength());
+            segment.setBytes(offset + Long.BYTES, payload, payload.readerIndex(), payload.readableBytes());
+            segmentIndexes[currentSegmentIdx].put(entry.getLedgerId(), entry.getEntryId(), offset, size);
+            currentSegmentOffset = offset + size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ByteBuf segment : segments) {
+            segment.release();
+        }
+    }
+
+    private static final class EntryKey {
+        private final long ledgerId;
+        private final long entryId;
+
+        EntryKey(long ledgerId, long entryId) {
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey key = (EntryKey) other;
+            return ledgerId == key.ledgerId && entryId == key.entryId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(ledgerId * 31 + entryId);
+        }
+    }
+}
@@ -73,6 +73,18 @@ public class DefaultSpeculativeRequestExecutionPolicy implements SpeculativeRequ
         return scheduleSpeculativeRead(scheduler, requestExecutor, firstSpeculativeRequestTimeout);
     }
 
+    /**
+     * Get the time to wait before issuing the next speculative request.
+     *
+     * @param requestExecutor The executor of the speculative requests
+     * @param speculativeRequestTimeout The backoff timeout for the next speculative request
+     * @return the time to wait in milliseconds
+     */
+    protected long getSpeculativeRequestDelay(SpeculativeRequestExecutor requestExecutor,
+                                              int speculativeRequestTimeout) {
+        return speculativeRequestTimeout;
+    }
+
     private ScheduledFuture<?> scheduleSpeculativeRead(final ScheduledExecutorService scheduler,
                                          final SpeculativeRequestExecutor requestExecutor,
                                          final int speculativeRequestTimeout) {
@@ -104,7 +116,7 @@ public class DefaultSpeculativeRequestExecutionPolicy implements SpeculativeRequ
                         }
                     }, directExecutor());
                 }
-            }, speculativeRequestTimeout, TimeUnit.MILLISECONDS);
+            }, getSpeculativeRequestDelay(requestExecutor, speculativeRequestTimeout), TimeUnit.MILLISECONDS);
         } catch (RejectedExecutionException re) {
             if (!scheduler.isShutdown()) {
                 LOG.warn("Failed to schedule speculative request for {}, speculativeReadTimeout = {} : ",
@@ -334,6 +334,23 @@ public interface EnsemblePlacementPolicy {
             DistributionSchedule.WriteSet writeSet);
 
 
+    /**
+     * Get how many of the first bookies of a read sequence reordered by {@link #reorderReadSequence} are preferred
+     * as much as the first one, such as the available bookies of the local region. The client may read first from
+     * any of them, e.g. the one with the lowest read latency, without going against the order of the policy.
+     *
+     * <p>The default implementation prefers all the bookies of the read sequence equally.
+     *
+     * @param ensemble
+     *          Ensemble to read entries.
+     * @param readSequence
+     *          The read sequence returned by {@link #reorderReadSequence}.
+     * @return the number of bookies at the start of the read sequence which are preferred equally.
+     */
+    default int getNumPreferredReadBookies(List<BookieId> ensemble, DistributionSchedule.WriteSet readSequence) {
+        return readSequence.size();
+    }
+
     /**
      * Reorder the read last add confirmed sequence of a given write quorum <i>writeSet</i>.
      *
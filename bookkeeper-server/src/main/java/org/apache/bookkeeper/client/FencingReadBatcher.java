@@ -0,0 +1,191 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.MultiReadEntries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batches the fencing reads issued by the recovery of many ledgers, sending the reads to the same bookie
+ * in a single multi read request.
+ *
+ * <p>Each ledger of the batch must be marked ready once, after queuing the fencing reads of its recovery, or
+ * when it turns out not to need any. The queued reads are sent when all the ledgers are ready, or as soon as
+ * the reads queued for a bookie fill a request. Once the batch is flushed, the fencing reads are sent right away.
+ *
+ * <p>The reads to bookies which don't support multi reads, and the reads omitted from a multi read response,
+ * fall back to a fencing read per ledger.
+ */
+class FencingReadBatcher {
+    static final Logger LOG = LoggerFactory.getLogger(FencingReadBatcher.class);
+
+    private static class FencingRead {
+        final long ledgerId;
+        final byte[] masterKey;
+        final ReadEntryCallback cb;
+        final Object ctx;
+
+        FencingRead(long ledgerId, byte[] masterKey, ReadEntryCallback cb, Object ctx) {
+            this.ledgerId = ledgerId;
+            this.masterKey = masterKey;
+            this.cb = cb;
+            this.ctx = ctx;
+        }
+    }
+
+    private final BookieClient bookieClient;
+    private final OrderedExecutor executor;
+    private final int maxLedgersPerRequest;
+    private final Set<Long> pendingLedgers;
+    private final Map<BookieId, List<FencingRead>> queuedReads = new HashMap<>();
+    private boolean flushed;
+
+    FencingReadBatcher(BookieClient bookieClient, OrderedExecutor executor, int maxLedgersPerRequest,
+                       Collection<Long> ledgerIds) {
+        this.bookieClient = bookieClient;
+        this.executor = executor;
+        this.maxLedgersPerRequest = maxLedgersPerRequest;
+        this.pendingLedgers = new HashSet<>(ledgerIds);
+        this.flushed = pendingLedgers.isEmpty();
+    }
+
+    /**
+     * Fence a ledger on a bookie and read its last entry, as a {@link BookieProtocol#FLAG_DO_FENCING} read of
+     * {@link BookieProtocol#LAST_ADD_CONFIRMED} does.
+     */
+    void readLastEntryWithFencing(BookieId bookie, long ledgerId, byte[] masterKey,
+                                  ReadEntryCallback cb, Object ctx) {
+        FencingRead read = new FencingRead(ledgerId, masterKey, cb, ctx);
+        List<FencingRead> toSend;
+        synchronized (this) {
+            if (flushed) {
+                toSend = null;
+            } else {
+                List<FencingRead> reads = queuedReads.computeIfAbsent(bookie, k -> new ArrayList<>());
+                reads.add(read);
+                if (reads.size() < maxLedgersPerRequest) {
+                    return;
+                }
+                toSend = queuedReads.remove(bookie);
+            }
+        }
+        if (toSend == null) {
+            readWithFencing(bookie, read);
+        } else {
+            send(bookie, toSend);
+        }
+    }
+
+    /**
+     * Mark a ledger as ready, sending the queued reads if it was the last ledger of the batch to get ready.
+     */
+    void ready(long ledgerId) {
+        Map<BookieId, List<FencingRead>> toSend;
+        synchronized (this) {
+            if (!pendingLedgers.remove(ledgerId) || !pendingLedgers.isEmpty()) {
+                return;
+            }
+            flushed = true;
+            toSend = new HashMap<>(queuedReads);
+            queuedReads.clear();
+        }
+        toSend.forEach(this::send);
+    }
+
+    private void send(BookieId bookie, List<FencingRead> reads) {
+        List<MultiReadEntries.Range> ranges = new ArrayList<>(reads.size());
+        for (FencingRead read : reads) {
+            ranges.add(new MultiReadEntries.Range(read.ledgerId, BookieProtocol.LAST_ADD_CONFIRMED, 1,
+                    read.masterKey));
+        }
+        bookieClient.multiReadEntries(bookie, ranges, 0,
+                (rc, results, ctx) -> sendComplete(bookie, reads, rc, results), null);
+    }
+
+    private void sendComplete(BookieId bookie, List<FencingRead> reads, int rc,
+                              List<MultiReadEntries.Result> results) {
+        if (rc == BKException.Code.ProtocolVersionException) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Bookie {} doesn't support multi reads, fencing {} ledgers one by one",
+                        bookie, reads.size());
+            }
+            for (FencingRead read : reads) {
+                readWithFencing(bookie, read);
+            }
+            return;
+        }
+        for (int i = 0; i < reads.size(); i++) {
+            FencingRead read = reads.get(i);
+            if (rc != BKException.Code.OK) {
+                complete(read, rc, null);
+            } else if (i < results.size()) {
+                complete(read, results.get(i).getRc(), results.get(i));
+            } else {
+                // omitted from the response, past the size budget of the bookie
+                readWithFencing(bookie, read);
+            }
+        }
+    }
+
+    private void complete(FencingRead read, int rc, MultiReadEntries.Result result) {
+        Runnable completion = () -> {
+            try {
+                if (rc == BKException.Code.OK && result.getEntries().size() > 0) {
+                    read.cb.readEntryComplete(rc, read.ledgerId, BookieProtocol.LAST_ADD_CONFIRMED,
+                            result.getEntries().getBuffer(0), read.ctx);
+                } else {
+                    int readRc = rc == BKException.Code.OK ? BKException.Code.NoSuchEntryException : rc;
+                    read.cb.readEntryComplete(readRc, read.ledgerId, BookieProtocol.LAST_ADD_CONFIRMED,
+                            null, read.ctx);
+                }
+            } finally {
+                if (result != null) {
+                    result.release();
+                }
+            }
+        };
+        try {
+            executor.executeOrdered(read.ledgerId, completion);
+        } catch (RejectedExecutionException ree) {
+            completion.run();
+        }
+    }
+
+    private void readWithFencing(BookieId bookie, FencingRead read) {
+        bookieClient.readEntry(bookie, read.ledgerId, BookieProtocol.LAST_ADD_CONFIRMED, read.cb, read.ctx,
+                BookieProtocol.FLAG_DO_FENCING, read.masterKey);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+/**
+ * A {@link SpeculativeRequestExecutionPolicy} issuing speculative requests once the outstanding request
+ * took longer than expected from the observed latency of its target.
+ *
+ * <p>The speculative requests are never issued later than with the backoff timeouts of
+ * {@link DefaultSpeculativeRequestExecutionPolicy}, which are used as is when the expected latency
+ * of a request is not known.
+ */
+public class LatencyAwareSpeculativeRequestExecutionPolicy extends DefaultSpeculativeRequestExecutionPolicy {
+
+    public LatencyAwareSpeculativeRequestExecutionPolicy(int firstSpeculativeRequestTimeout,
+            int maxSpeculativeRequestTimeout, float backoffMultiplier) {
+        super(firstSpeculativeRequestTimeout, maxSpeculativeRequestTimeout, backoffMultiplier);
+    }
+
+    @Override
+    protected long getSpeculativeRequestDelay(SpeculativeRequestExecutor requestExecutor,
+                                              int speculativeRequestTimeout) {
+        long expectedLatency = requestExecutor.getExpectedRequestLatencyMillis();
+        if (expectedLatency < 0) {
+            return speculativeRequestTimeout;
+        }
+        return Math.max(1L, Math.min(expectedLatency, speculativeRequestTimeout));
+    }
+}
@@ -242,6 +242,7 @@ class LedgerCreateOp {
                 } else {
                     lh = new LedgerHandle(bk.getClientCtx(), ledgerId, writtenMetadata, digestType, passwd, writeFlags);
                 }
+                lh.setReadCache(bk.getReadCache());
             } catch (GeneralSecurityException e) {
                 LOG.error("Security exception while creating ledger: " + ledgerId, e);
                 createComplete(BKException.Code.DigestNotInitializedException, null);
@@ -25,7 +25,6 @@ import static com.google.common.base.Preconditions.checkState;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import java.io.InputStream;
-import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 
 /**
@@ -40,7 +39,7 @@ public class LedgerEntry {
     final long length;
     ByteBuf data;
 
-    LedgerEntry(LedgerEntryImpl entry) {
+    LedgerEntry(org.apache.bookkeeper.client.api.LedgerEntry entry) {
         this.ledgerId = entry.getLedgerId();
         this.entryId = entry.getEntryId();
         this.length = entry.getLength();
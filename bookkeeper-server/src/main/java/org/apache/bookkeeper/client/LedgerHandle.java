@@ -36,6 +36,7 @@ import io.netty.buffer.Unpooled;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -52,6 +53,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallbackWithLatency;
 import org.apache.bookkeeper.client.AsyncCallback.CloseCallback;
@@ -67,6 +69,7 @@ import org.apache.bookkeeper.client.SyncCallbackUtils.SyncCloseCallback;
 import org.apache.bookkeeper.client.SyncCallbackUtils.SyncReadCallback;
 import org.apache.bookkeeper.client.SyncCallbackUtils.SyncReadLastConfirmedCallback;
 import org.apache.bookkeeper.client.api.BKException.Code;
+import org.apache.bookkeeper.client.api.EntrySubscriber;
 import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
 import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
@@ -102,7 +105,9 @@ public class LedgerHandle implements WriteHandle {
     private Versioned<LedgerMetadata> versionedMetadata;
     final long ledgerId;
     final ExecutorService executor;
-    long lastAddPushed;
+    // cache of the confirmed entries shared by the handles of the client, if enabled
+    private ClientReadCache readCache;
+    volatile long lastAddPushed;
     boolean notSupportBatch;
 
     private enum HandleState {
@@ -137,7 +142,7 @@ public class LedgerHandle implements WriteHandle {
      */
     private int stickyBookieIndex;
 
-    long length;
+    volatile long length;
     final DigestManager macManager;
     final DistributionSchedule distributionSchedule;
     final RateLimiter throttler;
@@ -169,7 +174,11 @@ public class LedgerHandle implements WriteHandle {
     Queue<PendingAddOp> pendingAddOps;
     ExplicitLacFlushPolicy explicitLacFlushPolicy;
 
+    // Consecutive slow adds of each bookie of the current ensemble, when slow bookies are replaced
+    private final AtomicIntegerArray slowAddsPerBookie;
+
     final Counter ensembleChangeCounter;
+    final Counter slowBookieEnsembleChangeCounter;
     final Counter lacUpdateHitsCounter;
     final Counter lacUpdateMissesCounter;
     private final OpStatsLogger clientChannelWriteWaitStats;
@@ -222,6 +231,8 @@ public class LedgerHandle implements WriteHandle {
                 metadata.getWriteQuorumSize(),
                 metadata.getAckQuorumSize(),
                 metadata.getEnsembleSize());
+        this.slowAddsPerBookie = clientCtx.getConf().enableSlowBookieEnsembleChange
+                ? new AtomicIntegerArray(metadata.getEnsembleSize()) : null;
         this.bookieFailureHistory = CacheBuilder.newBuilder()
             .expireAfterWrite(clientCtx.getConf().bookieFailureHistoryExpirationMSec, TimeUnit.MILLISECONDS)
             .build(new CacheLoader<BookieId, Long>() {
@@ -241,9 +252,15 @@ public class LedgerHandle implements WriteHandle {
             public long getBookiePendingRequests(BookieId bookieSocketAddress) {
                 return clientCtx.getBookieClient().getNumPendingRequests(bookieSocketAddress, ledgerId);
             }
+
+            @Override
+            public long getBookieReadLatency(BookieId bookieSocketAddress) {
+                return clientCtx.getBookieReadLatencyTracker().getReadLatencyNanos(bookieSocketAddress);
+            }
         };
 
         ensembleChangeCounter = clientCtx.getClientStats().getEnsembleChangeCounter();
+        slowBookieEnsembleChangeCounter = clientCtx.getClientStats().getSlowBookieEnsembleChangeCounter();
         lacUpdateHitsCounter = clientCtx.getClientStats().getLacUpdateHitsCounter();
         lacUpdateMissesCounter = clientCtx.getClientStats().getLacUpdateMissesCounter();
         clientChannelWriteWaitStats = clientCtx.getClientStats().getClientChannelWriteWaitLogger();
@@ -262,6 +279,10 @@ public class LedgerHandle implements WriteHandle {
         initializeWriteHandleState();
     }
 
+    void setReadCache(ClientReadCache readCache) {
+        this.readCache = readCache;
+    }
+
     /**
      * Notify the LedgerHandle that a read operation was failed on a particular bookie.
      */
@@ -320,7 +341,7 @@ public class LedgerHandle implements WriteHandle {
      * {@inheritDoc}
      */
     @Override
-    public synchronized long getLastAddConfirmed() {
+    public long getLastAddConfirmed() {
         return lastAddConfirmed;
     }
 
@@ -332,7 +353,7 @@ public class LedgerHandle implements WriteHandle {
      * {@inheritDoc}
      */
     @Override
-    public synchronized long getLastAddPushed() {
+    public long getLastAddPushed() {
         return lastAddPushed;
     }
 
@@ -423,8 +444,9 @@ public class LedgerHandle implements WriteHandle {
      * @return the length of the ledger after the addition
      */
     synchronized long addToLength(long delta) {
-        this.length += delta;
-        return this.length;
+        long newLength = this.length + delta;
+        this.length = newLength;
+        return newLength;
     }
 
     /**
@@ -433,7 +455,7 @@ public class LedgerHandle implements WriteHandle {
      * @return the length of the ledger in bytes
      */
     @Override
-    public synchronized long getLength() {
+    public long getLength() {
         return this.length;
     }
 
@@ -888,6 +910,33 @@ public class LedgerHandle implements WriteHandle {
         return readEntriesInternalAsync(firstEntry, lastEntry, false);
     }
 
+    /**
+     * Read a sequence of entries asynchronously, delivering the entries in order as they are read.
+     *
+     * @param firstEntry
+     *          id of first entry of sequence
+     * @param lastEntry
+     *          id of last entry of sequence
+     * @param subscriber
+     *          the subscriber receiving the entries
+     */
+    @Override
+    public void readStream(long firstEntry, long lastEntry, EntrySubscriber subscriber) {
+        ReadStreamOp op = new ReadStreamOp(this, firstEntry, lastEntry,
+                clientCtx.getConf().readStreamMaxOutstandingEntries, subscriber);
+        // Little sanity check
+        if (firstEntry < 0 || firstEntry > lastEntry) {
+            LOG.error("IncorrectParameterException on ledgerId:{} firstEntry:{} lastEntry:{}",
+                    ledgerId, firstEntry, lastEntry);
+            op.failOnInitiate(new BKIncorrectParameterException());
+        } else if (lastEntry > lastAddConfirmed) {
+            LOG.error("ReadStream exception on ledgerId:{} firstEntry:{} lastEntry:{} lastAddConfirmed:{}",
+                    ledgerId, firstEntry, lastEntry, lastAddConfirmed);
+            op.failOnInitiate(new BKReadException());
+        }
+        op.initiate();
+    }
+
     /**
      * Read a sequence of entries in asynchronously.
      * It sends an RPC to get all entries instead of send multi RPC to get all entries.
@@ -1081,16 +1130,16 @@ public class LedgerHandle implements WriteHandle {
                     .whenCompleteAsync(new FutureEventListener<LedgerEntries>() {
                         @Override
                         public void onSuccess(LedgerEntries entries) {
-                            cb.readComplete(
-                                    Code.OK,
-                                    LedgerHandle.this,
-                                    IteratorUtils.asEnumeration(
-                                            Iterators.transform(entries.iterator(), le -> {
-                                                LedgerEntry entry = new LedgerEntry((LedgerEntryImpl) le);
-                                                le.close();
-                                                return entry;
-                                            })),
-                                    ctx);
+                            // The entries of a batch are views of the batch: convert them before closing it
+                            List<LedgerEntry> legacyEntries = new ArrayList<>();
+                            try {
+                                for (org.apache.bookkeeper.client.api.LedgerEntry le : entries) {
+                                    legacyEntries.add(new LedgerEntry(le));
+                                }
+                            } finally {
+                                entries.close();
+                            }
+                            cb.readComplete(Code.OK, LedgerHandle.this, Collections.enumeration(legacyEntries), ctx);
                         }
 
                         @Override
@@ -1143,6 +1192,17 @@ public class LedgerHandle implements WriteHandle {
     CompletableFuture<LedgerEntries> readEntriesInternalAsync(long firstEntry,
                                                               long lastEntry,
                                                               boolean isRecoveryRead) {
+        if (readCache != null && !isRecoveryRead && lastEntry <= getLastAddConfirmed()
+                && !clientCtx.isClientClosed()) {
+            // Confirmed entries can't change anymore, so they can be shared with the other readers
+            return readCache.read(this, firstEntry, lastEntry);
+        }
+        return readEntriesFromBookiesAsync(firstEntry, lastEntry, isRecoveryRead);
+    }
+
+    CompletableFuture<LedgerEntries> readEntriesFromBookiesAsync(long firstEntry,
+                                                                 long lastEntry,
+                                                                 boolean isRecoveryRead) {
         PendingReadOp op = new PendingReadOp(this, clientCtx,
                                              firstEntry, lastEntry, isRecoveryRead);
         if (!clientCtx.isClientClosed()) {
@@ -1590,7 +1650,8 @@ public class LedgerHandle implements WriteHandle {
             // the ledger isn't closed between checking and
             // updating lastAddPushed
             if (isHandleWritable()) {
-                long entryId = ++lastAddPushed;
+                long entryId = lastAddPushed + 1;
+                lastAddPushed = entryId;
                 long currentLedgerLength = addToLength(op.payload.readableBytes());
                 op.setEntryId(entryId);
                 op.setLedgerLength(currentLedgerLength);
@@ -2130,6 +2191,45 @@ public class LedgerHandle implements WriteHandle {
         }
     }
 
+    /**
+     * Notify the LedgerHandle that a bookie acknowledged an add, so that a bookie persistently slower than the
+     * rest of the write quorum can be replaced.
+     *
+     * <p>The slow bookie is handled as a delayed write failure: it is replaced by the ensemble change triggered
+     * by the next add.
+     *
+     * @param latencyNanos the latency of the add on the bookie
+     * @param fastestLatencyNanos the latency of the fastest bookie of the write quorum for the same add
+     */
+    void recordAddAckLatency(int bookieIndex, BookieId addr, long latencyNanos, long fastestLatencyNanos) {
+        if (slowAddsPerBookie == null || bookieIndex >= slowAddsPerBookie.length()) {
+            return;
+        }
+        ClientInternalConf conf = clientCtx.getConf();
+        boolean slow = latencyNanos >= conf.slowBookieMinAddLatencyNanos
+                && latencyNanos >= conf.slowBookieAddLatencyRatio * fastestLatencyNanos;
+        if (!slow) {
+            if (slowAddsPerBookie.get(bookieIndex) != 0) {
+                slowAddsPerBookie.set(bookieIndex, 0);
+            }
+            return;
+        }
+        if (slowAddsPerBookie.incrementAndGet(bookieIndex) < conf.slowBookieMinSlowAdds
+                || conf.disableEnsembleChangeFeature.isAvailable()
+                || writeFlags.contains(WriteFlag.DEFERRED_SYNC)) {
+            return;
+        }
+        // When rate limited, the bookie is replaced on one of its next slow adds
+        if (!conf.slowBookieEnsembleChangeRateLimiter.tryAcquire()) {
+            return;
+        }
+        slowAddsPerBookie.set(bookieIndex, 0);
+        LOG.warn("Bookie {} at index {} was slow for the last {} adds of ledger {}, replacing it",
+                addr, bookieIndex, conf.slowBookieMinSlowAdds, ledgerId);
+        slowBookieEnsembleChangeCounter.inc();
+        notifyWriteFailed(bookieIndex, addr);
+    }
+
     void maybeHandleDelayedWriteBookieFailure() {
         synchronized (metadataLock) {
             if (delayedWriteFailedBookies.isEmpty()) {
@@ -2272,6 +2372,12 @@ public class LedgerHandle implements WriteHandle {
                                 newEnsemble = getCurrentEnsemble();
                                 replaced = EnsembleUtils.diffEnsemble(origEnsemble, newEnsemble);
                                 LOG.info("New Ensemble: {} for ledger: {}", newEnsemble, ledgerId);
+                                if (slowAddsPerBookie != null) {
+                                    // the slow adds counted so far were the ones of the replaced bookies
+                                    for (int bookieIndex : replaced) {
+                                        slowAddsPerBookie.set(bookieIndex, 0);
+                                    }
+                                }
 
                                 changingEnsemble = false;
                             }
@@ -64,6 +64,9 @@ class LedgerOpenOp {
     final DigestType suggestedDigestType;
     final boolean enableDigestAutodetection;
 
+    // Batcher of the fencing reads of a bulk open, if any
+    FencingReadBatcher fencingReadBatcher = null;
+
     /**
      * Constructor.
      *
@@ -101,6 +104,17 @@ class LedgerOpenOp {
         this.openOpLogger = clientStats.getOpenOpLogger();
     }
 
+    /**
+     * Fence the ledger, if it needs recovery, through a batcher shared with the open of other ledgers.
+     *
+     * @param batcher batcher of the fencing reads, in which the ledger gets ready once opened
+     * @return ledger open operation
+     */
+    LedgerOpenOp setFencingReadBatcher(FencingReadBatcher batcher) {
+        this.fencingReadBatcher = batcher;
+        return this;
+    }
+
     /**
      * Inititates the ledger open operation.
      */
@@ -177,6 +191,7 @@ class LedgerOpenOp {
         try {
             lh = new ReadOnlyLedgerHandle(bk.getClientCtx(), ledgerId, versionedMetadata, digestType,
                                           passwd, !doRecovery);
+            lh.setReadCache(bk.getReadCache());
         } catch (GeneralSecurityException e) {
             LOG.error("Security exception while opening ledger: " + ledgerId, e);
             openComplete(BKException.Code.DigestNotInitializedException, null);
@@ -217,7 +232,7 @@ class LedgerOpenOp {
                 public String toString() {
                     return String.format("Recover(%d)", ledgerId);
                 }
-            });
+            }, fencingReadBatcher);
         } else {
             lh.asyncReadLastConfirmed(new ReadLastConfirmedCallback() {
                 @Override
@@ -248,6 +263,10 @@ class LedgerOpenOp {
     }
 
     void openComplete(int rc, LedgerHandle lh) {
+        if (fencingReadBatcher != null) {
+            // the ledger won't fence anything else, don't hold the fencing of the other ledgers
+            fencingReadBatcher.ready(ledgerId);
+        }
         if (BKException.Code.OK != rc) {
             openOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
         } else {
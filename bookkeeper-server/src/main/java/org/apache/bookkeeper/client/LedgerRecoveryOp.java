@@ -53,6 +53,9 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     @VisibleForTesting
     ReadEntryListener entryListener = null;
 
+    // Batcher of the fencing reads of a bulk open, if any
+    FencingReadBatcher fencingReadBatcher = null;
+
     class RecoveryReadOp extends ListenerBasedPendingReadOp {
 
         RecoveryReadOp(LedgerHandle lh,
@@ -91,6 +94,17 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
         return this;
     }
 
+    /**
+     * Fence the ledger through a batcher shared with the recovery of other ledgers.
+     *
+     * @param batcher batcher of the fencing reads, or null to fence the ledger on its own
+     * @return ledger recovery operation
+     */
+    LedgerRecoveryOp setFencingReadBatcher(FencingReadBatcher batcher) {
+        this.fencingReadBatcher = batcher;
+        return this;
+    }
+
     public CompletableFuture<LedgerHandle> initiate() {
         ReadLastConfirmedOp rlcop = new ReadLastConfirmedOp(clientCtx.getBookieClient(),
                                                             lh.distributionSchedule,
@@ -144,7 +158,11 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
          * server it will fence off the ledger, stopping any subsequent operation
          * from writing to it.
          */
-        rlcop.initiateWithFencing();
+        if (fencingReadBatcher != null) {
+            rlcop.initiateWithFencing(fencingReadBatcher);
+        } else {
+            rlcop.initiateWithFencing();
+        }
 
         return promise;
     }
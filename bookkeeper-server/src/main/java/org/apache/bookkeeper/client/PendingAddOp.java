@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallbackWithLatency;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.net.BookieId;
@@ -54,6 +55,8 @@ import org.slf4j.LoggerFactory;
  */
 class PendingAddOp implements WriteCallback {
     private static final Logger LOG = LoggerFactory.getLogger(PendingAddOp.class);
+    private static final AtomicIntegerFieldUpdater<PendingAddOp> SENT_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PendingAddOp.class, "sent");
 
     ByteBuf payload;
     ReferenceCounted toSend;
@@ -69,6 +72,12 @@ class PendingAddOp implements WriteCallback {
     ClientContext clientCtx;
     boolean isRecoveryAdd = false;
     volatile long requestTimeNanos;
+    long createTimeNanos;
+    long[] sendTimeNanos; // Time at which the write request was sent to each bookie of the ensemble.
+    long firstAckNanos;
+    long firstAckLatencyNanos;
+    // Whether a write request of the entry was written to the channel of a bookie, 1 if so.
+    volatile int sent;
     long qwcLatency; // Quorum Write Completion Latency after response from quorum bookies.
     Set<BookieId> addEntrySuccessBookies;
     long writeDelayedStartTime; // min fault domains completion latency after response from ack quorum bookies
@@ -104,6 +113,13 @@ class PendingAddOp implements WriteCallback {
         op.callbackTriggered = false;
         op.hasRun = false;
         op.requestTimeNanos = Long.MAX_VALUE;
+        op.createTimeNanos = MathUtils.nowInNano();
+        if (op.sendTimeNanos == null || op.sendTimeNanos.length < ensemble.size()) {
+            op.sendTimeNanos = new long[ensemble.size()];
+        }
+        op.firstAckNanos = 0;
+        op.firstAckLatencyNanos = 0;
+        op.sent = 0;
         op.allowFailFast = false;
         op.qwcLatency = 0;
         op.writeFlags = writeFlags;
@@ -147,6 +163,7 @@ class PendingAddOp implements WriteCallback {
     private void sendWriteRequest(List<BookieId> ensemble, int bookieIndex) {
         int flags = isRecoveryAdd ? FLAG_RECOVERY_ADD | FLAG_HIGH_PRIORITY : FLAG_NONE;
 
+        sendTimeNanos[bookieIndex] = MathUtils.nowInNano();
         clientCtx.getBookieClient().addEntry(ensemble.get(bookieIndex),
                                              lh.ledgerId, lh.ledgerKey, entryId, toSend, this, bookieIndex,
                                              flags, allowFailFast, lh.writeFlags);
@@ -259,6 +276,22 @@ class PendingAddOp implements WriteCallback {
         }
     }
 
+    /**
+     * Record the time spent by the add in the client, including the wait for the connection and the writability
+     * of the channels, once its first write request is written to the channel of a bookie.
+     */
+    @Override
+    public void writeSent(long ledgerId, long entryId, BookieId addr, Object ctx) {
+        // called from the event loops of the channels, without taking the lock of the op
+        if (lh == null || lh.ledgerId != ledgerId || this.entryId != entryId
+                || !SENT_UPDATER.compareAndSet(this, 0, 1)) {
+            // already recorded, or a late notification for a recycled op
+            return;
+        }
+        clientCtx.getClientStats().getAddOpQueueLogger()
+                 .registerSuccessfulEvent(MathUtils.elapsedNanos(createTimeNanos), TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public synchronized void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx) {
         int bookieIndex = (Integer) ctx;
@@ -272,6 +305,8 @@ class PendingAddOp implements WriteCallback {
             return;
         }
 
+        recordAckLatency(rc, bookieIndex, addr);
+
         // must record all acks, even if complete (completion can be undone by an ensemble change)
         boolean ackQuorum = false;
         if (BKException.Code.OK == rc) {
@@ -386,6 +421,36 @@ class PendingAddOp implements WriteCallback {
         }
     }
 
+    /**
+     * Record the latency of the bookie, also reported to the ledger handle to detect slow bookies, and once
+     * as many distinct bookies as the write quorum acknowledged the entry, the time between the first and the last
+     * acknowledgement. A bookie acknowledging the entry again, e.g. after an ensemble change, is counted once.
+     */
+    private void recordAckLatency(int rc, int bookieIndex, BookieId addr) {
+        long nowNanos = MathUtils.nowInNano();
+        long latencyNanos = nowNanos - sendTimeNanos[bookieIndex];
+        BookKeeperClientStats clientStats = clientCtx.getClientStats();
+        if (BKException.Code.OK != rc) {
+            clientStats.getAddOpBookieLogger(addr).registerFailedEvent(latencyNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        clientStats.getAddOpBookieLogger(addr).registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+        // the bookies which acknowledged the entry before, this one is added once its ack is processed
+        boolean newBookie = !addEntrySuccessBookies.contains(addr);
+        int numAckedBookies = addEntrySuccessBookies.size() + (newBookie ? 1 : 0);
+        if (newBookie && numAckedBookies == 1) {
+            firstAckNanos = nowNanos;
+            firstAckLatencyNanos = latencyNanos;
+        }
+        if (!isRecoveryAdd) {
+            lh.recordAddAckLatency(bookieIndex, addr, latencyNanos, firstAckLatencyNanos);
+        }
+        if (newBookie && numAckedBookies == lh.distributionSchedule.getWriteQuorumSize()) {
+            clientStats.getAddOpQuorumAckSpreadLogger()
+                       .registerSuccessfulEvent(nowNanos - firstAckNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     void sendAddSuccessCallbacks() {
         lh.sendAddSuccessCallbacks();
     }
@@ -104,6 +104,10 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
 
         heardFromHosts.add(rctx.to);
         heardFromHostsBitSet.set(rctx.bookieIndex, true);
+        if (clientCtx.getConf().enableLatencyAwareRead) {
+            clientCtx.getBookieReadLatencyTracker().recordReadLatency(rctx.to,
+                    MathUtils.elapsedNanos(rctx.sentTimeNanos));
+        }
 
         buffer.retain();
         // if entry has completed don't handle twice
@@ -285,6 +289,7 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
 
         final BitSet sentReplicas;
         final BitSet erroredReplicas;
+        volatile BookieId lastSentTo;
 
         SequenceReadRequest(List<BookieId> ensemble, long lId, long eId) {
             super(ensemble, lId, eId);
@@ -342,6 +347,16 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
             sendNextRead();
         }
 
+        @Override
+        public long getExpectedRequestLatencyMillis() {
+            BookieId to = lastSentTo;
+            if (to == null) {
+                return -1L;
+            }
+            long latencyNanos = lh.getBookiesHealthInfo().getBookieReadLatency(to);
+            return latencyNanos < 0 ? -1L : TimeUnit.NANOSECONDS.toMillis(latencyNanos + 999_999L);
+        }
+
         synchronized BookieId sendNextRead() {
             if (nextReplicaIndexToReadFrom >= getLedgerMetadata().getWriteQuorumSize()) {
                 // we are done, the read has failed from all replicas, just fail the
@@ -361,6 +376,7 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
                 sendReadTo(bookieIndex, to, this);
                 sentToHosts.add(to);
                 sentReplicas.set(replica);
+                lastSentTo = to;
                 return to;
             } catch (InterruptedException ie) {
                 LOG.error("Interrupted reading entry " + this, ie);
@@ -875,6 +875,23 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             ensemble, writeSet, writeSetWithRegion, bookiesHealthInfo, false, "", writeSet.size());
     }
 
+    @Override
+    public int getNumPreferredReadBookies(List<BookieId> ensemble, DistributionSchedule.WriteSet readSequence) {
+        int numPreferred = 0;
+        while (numPreferred < readSequence.size()
+                && isPreferredReadBookie(ensemble.get(readSequence.get(numPreferred)))) {
+            numPreferred++;
+        }
+        return numPreferred;
+    }
+
+    /**
+     * Whether a bookie is among the first ones of the read sequences: the writable bookies which are not slow.
+     */
+    protected boolean isPreferredReadBookie(BookieId bookie) {
+        return knownBookies.containsKey(bookie) && slowBookies.getIfPresent(bookie) == null;
+    }
+
     /**
      * This function orders the read sequence with a given region. For region-unaware policies (e.g.
      * RackAware), we pass in false for regionAware and an empty myRegion. When this happens, any
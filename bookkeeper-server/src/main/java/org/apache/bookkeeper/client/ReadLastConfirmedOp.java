@@ -93,6 +93,16 @@ class ReadLastConfirmedOp implements ReadEntryCallback {
         }
     }
 
+    /**
+     * Fence the ledger through a batcher shared with the recovery of other ledgers.
+     */
+    public void initiateWithFencing(FencingReadBatcher batcher) {
+        for (int i = 0; i < currentEnsemble.size(); i++) {
+            batcher.readLastEntryWithFencing(currentEnsemble.get(i), ledgerId, ledgerKey, this, i);
+        }
+        batcher.ready(ledgerId);
+    }
+
     @Override
     public synchronized void readEntryComplete(final int rc, final long ledgerId, final long entryId,
             final ByteBuf buffer, final Object ctx) {
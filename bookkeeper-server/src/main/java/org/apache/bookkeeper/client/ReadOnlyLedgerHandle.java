@@ -257,6 +257,25 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
     void recover(GenericCallback<Void> finalCb,
                  final @VisibleForTesting ReadEntryListener listener,
                  final boolean forceRecovery) {
+        recover(finalCb, listener, forceRecovery, null);
+    }
+
+    /**
+     * Recover the ledger, fencing it through a batcher shared with the recovery of other ledgers.
+     *
+     * @param finalCb
+     *          callback after recovery is done.
+     * @param fencingReadBatcher
+     *          batcher of the fencing reads, or null to fence the ledger on its own.
+     */
+    void recover(GenericCallback<Void> finalCb, FencingReadBatcher fencingReadBatcher) {
+        recover(finalCb, null, false, fencingReadBatcher);
+    }
+
+    private void recover(GenericCallback<Void> finalCb,
+                         final ReadEntryListener listener,
+                         final boolean forceRecovery,
+                         final FencingReadBatcher fencingReadBatcher) {
         final GenericCallback<Void> cb = new TimedGenericCallback<Void>(
             finalCb,
             BKException.Code.OK,
@@ -282,6 +301,7 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
                     } else {
                         return new LedgerRecoveryOp(ReadOnlyLedgerHandle.this, clientCtx)
                             .setEntryListener(listener)
+                            .setFencingReadBatcher(fencingReadBatcher)
                             .initiate();
                     }
             })
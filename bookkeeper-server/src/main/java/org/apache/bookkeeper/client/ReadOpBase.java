@@ -31,6 +31,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks;
 import org.slf4j.Logger;
@@ -135,6 +136,40 @@ public abstract class ReadOpBase implements Runnable {
             } else {
                 writeSet = lh.getWriteSetForReadOperation(eId);
             }
+            if (clientCtx.getConf().enableLatencyAwareRead && !clientCtx.getConf().enableStickyReads) {
+                moveFastestReplicaFirst();
+            }
+        }
+
+        /**
+         * Read first from the replica with the lowest observed read latency, if the latency of the first
+         * replica to read from is known. Only the replicas which the placement policy prefers as much as the first
+         * one are considered, so that a remote or slow replica isn't read first. Replicas which failed recently are
+         * left where they are.
+         */
+        private void moveFastestReplicaFirst() {
+            BookiesHealthInfo healthInfo = lh.getBookiesHealthInfo();
+            int fastest = 0;
+            long fastestLatency = healthInfo.getBookieReadLatency(ensemble.get(writeSet.get(0)));
+            if (fastestLatency < 0) {
+                return;
+            }
+            int numCandidates = writeSet.size();
+            if (clientCtx.getConf().enableReorderReadSequence) {
+                numCandidates = Math.min(numCandidates,
+                        clientCtx.getPlacementPolicy().getNumPreferredReadBookies(ensemble, writeSet));
+            }
+            for (int i = 1; i < numCandidates; i++) {
+                BookieId bookie = ensemble.get(writeSet.get(i));
+                long latency = healthInfo.getBookieReadLatency(bookie);
+                if (latency >= 0 && latency < fastestLatency && healthInfo.getBookieFailureHistory(bookie) < 0) {
+                    fastest = i;
+                    fastestLatency = latency;
+                }
+            }
+            if (fastest != 0) {
+                writeSet.moveAndShift(fastest, 0);
+            }
         }
 
         public void close() {
@@ -272,12 +307,14 @@ public abstract class ReadOpBase implements Runnable {
         final int bookieIndex;
         final BookieId to;
         final PendingReadOp.LedgerEntryRequest entry;
+        final long sentTimeNanos;
         long lac = LedgerHandle.INVALID_ENTRY_ID;
 
         ReadContext(int bookieIndex, BookieId to, PendingReadOp.LedgerEntryRequest entry) {
             this.bookieIndex = bookieIndex;
             this.to = to;
             this.entry = entry;
+            this.sentTimeNanos = MathUtils.nowInNano();
         }
 
         @Override
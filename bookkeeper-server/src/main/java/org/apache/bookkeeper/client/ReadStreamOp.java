@@ -0,0 +1,262 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.bookkeeper.client.api.EntrySubscriber;
+import org.apache.bookkeeper.client.api.EntrySubscription;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A streaming read of a sequence of entries of a ledger.
+ *
+ * <p>The entries requested by the subscriber are read by a few reads of consecutive entries, so that a slow read
+ * only holds back the entries after it. Entries are delivered in order, as soon as the read of the entry and all
+ * the entries before it have been delivered, and no more entries are read ahead than requested by the subscriber,
+ * up to a configured max.
+ */
+class ReadStreamOp implements EntrySubscription {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadStreamOp.class);
+
+    // the max number of entries outstanding is split into this many reads at least
+    private static final int MIN_READS_PER_WINDOW = 4;
+
+    private final LedgerHandle lh;
+    private final long lastEntry;
+    private final int maxOutstandingEntries;
+    private final int maxEntriesPerRead;
+    private final EntrySubscriber subscriber;
+
+    // reads of the entries not delivered yet, in entry order
+    private final ArrayDeque<PendingRead> pendingReads = new ArrayDeque<>();
+    private int numOutstandingEntries = 0;
+    private long nextEntryToRead;
+    private long requested = 0;
+    private boolean done = false;
+    private boolean cancelled = false;
+    private Throwable streamError = null;
+
+    // only one thread drains the stream at a time, the others flag it to run once more
+    private boolean draining = false;
+    private boolean missed = false;
+
+    /**
+     * A read of consecutive entries, whose entries are delivered one at a time once it completes.
+     */
+    private static class PendingRead {
+        final CompletableFuture<LedgerEntries> future;
+        LedgerEntries entries = null;
+        Iterator<LedgerEntry> undelivered = null;
+
+        PendingRead(CompletableFuture<LedgerEntries> future) {
+            this.future = future;
+        }
+
+        void release() {
+            if (entries != null) {
+                entries.close();
+            } else {
+                // the entries are released once read
+                future.thenAccept(LedgerEntries::close);
+            }
+        }
+    }
+
+    ReadStreamOp(LedgerHandle lh, long firstEntry, long lastEntry, int maxOutstandingEntries,
+                 EntrySubscriber subscriber) {
+        this.lh = lh;
+        this.nextEntryToRead = firstEntry;
+        this.lastEntry = lastEntry;
+        this.maxOutstandingEntries = maxOutstandingEntries;
+        this.maxEntriesPerRead = Math.max(1, maxOutstandingEntries / MIN_READS_PER_WINDOW);
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * Make the stream fail as soon as it is initiated, without reading any entry.
+     */
+    ReadStreamOp failOnInitiate(Throwable cause) {
+        this.streamError = cause;
+        return this;
+    }
+
+    void initiate() {
+        subscriber.onSubscribe(this);
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        synchronized (this) {
+            if (n <= 0) {
+                if (streamError == null) {
+                    streamError = new IllegalArgumentException("Non-positive number of entries requested: " + n);
+                }
+            } else {
+                requested += n;
+                if (requested < 0) {
+                    requested = Long.MAX_VALUE;
+                }
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        drain();
+    }
+
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            long firstEntryToRead;
+            int numEntriesToRead;
+            LedgerEntry nextEntry = null;
+            LedgerEntries deliveredEntries = null;
+            Throwable error = null;
+            boolean complete = false;
+            synchronized (this) {
+                if (done) {
+                    draining = false;
+                    return;
+                }
+                if (cancelled) {
+                    done = true;
+                    draining = false;
+                    releasePendingReads();
+                    return;
+                }
+                firstEntryToRead = nextEntryToRead;
+                numEntriesToRead = (int) Math.max(0, Math.min(lastEntry - nextEntryToRead + 1,
+                        Math.min(requested, maxOutstandingEntries) - numOutstandingEntries));
+                if (numEntriesToRead < maxEntriesPerRead && numOutstandingEntries > 0
+                        && numEntriesToRead <= lastEntry - nextEntryToRead) {
+                    // wait for enough entries to be delivered to fill a read, rather than reading them one by one
+                    numEntriesToRead = 0;
+                }
+                nextEntryToRead += numEntriesToRead;
+                numOutstandingEntries += numEntriesToRead;
+
+                PendingRead head = pendingReads.peek();
+                if (streamError != null) {
+                    error = streamError;
+                } else if (head != null && head.future.isCompletedExceptionally()) {
+                    try {
+                        head.future.join();
+                    } catch (CompletionException ce) {
+                        error = ce.getCause();
+                    } catch (RuntimeException e) {
+                        error = e;
+                    }
+                } else if (head != null && head.future.isDone() && requested > 0) {
+                    if (head.undelivered == null) {
+                        head.entries = head.future.join();
+                        head.undelivered = head.entries.iterator();
+                    }
+                    // duplicated under the lock, as a cancel releases the entries of the pending reads
+                    nextEntry = head.undelivered.next().duplicate();
+                    requested--;
+                    numOutstandingEntries--;
+                    if (!head.undelivered.hasNext()) {
+                        pendingReads.poll();
+                        deliveredEntries = head.entries;
+                    }
+                } else if (numEntriesToRead == 0 && pendingReads.isEmpty() && nextEntryToRead > lastEntry) {
+                    complete = true;
+                }
+                if (error != null || complete) {
+                    done = true;
+                    releasePendingReads();
+                }
+            }
+
+            if (error == null && !complete) {
+                for (int i = 0; i < numEntriesToRead; i += maxEntriesPerRead) {
+                    long first = firstEntryToRead + i;
+                    long last = first + Math.min(maxEntriesPerRead, numEntriesToRead - i) - 1;
+                    PendingRead read = new PendingRead(lh.readEntriesInternalAsync(first, last, false));
+                    synchronized (this) {
+                        pendingReads.add(read);
+                    }
+                    read.future.whenComplete((entries, cause) -> drain());
+                }
+            }
+
+            if (deliveredEntries != null) {
+                deliveredEntries.close();
+            }
+            if (nextEntry != null) {
+                deliver(nextEntry);
+                continue;
+            } else if (error != null) {
+                subscriber.onError(error);
+                continue;
+            } else if (complete) {
+                subscriber.onComplete();
+                continue;
+            } else if (numEntriesToRead > 0) {
+                continue;
+            }
+
+            synchronized (this) {
+                if (!missed) {
+                    draining = false;
+                    return;
+                }
+                missed = false;
+            }
+        }
+    }
+
+    private void deliver(LedgerEntry entry) {
+        try {
+            subscriber.onNext(entry);
+        } catch (RuntimeException e) {
+            LOG.warn("Subscriber of streaming read of ledger {} failed, cancelling the stream", lh.getId(), e);
+            synchronized (this) {
+                cancelled = true;
+            }
+        }
+    }
+
+    private void releasePendingReads() {
+        for (PendingRead read : pendingReads) {
+            read.release();
+        }
+        pendingReads.clear();
+    }
+}
@@ -639,6 +639,13 @@ public class RegionAwareEnsemblePlacementPolicy extends RackawareEnsemblePlaceme
         }
     }
 
+    @Override
+    protected boolean isPreferredReadBookie(BookieId bookie) {
+        // the remote bookies come after the local ones
+        return super.isPreferredReadBookie(bookie)
+                && (UNKNOWN_REGION.equals(myRegion) || myRegion.equals(getRegion(bookie)));
+    }
+
     @Override
     public final DistributionSchedule.WriteSet reorderReadLACSequence(
             List<BookieId> ensemble,
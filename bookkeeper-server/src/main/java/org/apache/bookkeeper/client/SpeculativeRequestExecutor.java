@@ -39,4 +39,14 @@ public interface SpeculativeRequestExecutor {
      * @return whether more speculative requests should be issued
      */
     ListenableFuture<Boolean> issueSpeculativeRequest();
+
+    /**
+     * Returns how long the last issued request is expected to take, from the
+     * observed latency of the target of the request.
+     *
+     * @return the expected latency in milliseconds, or -1 if it is not known
+     */
+    default long getExpectedRequestLatencyMillis() {
+        return -1L;
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.impl.BatchingWriteHandleBuilderImpl;
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+
+/**
+ * Append small records to a ledger, packing the records appended within a short window into a single entry.
+ *
+ * <p>Each entry costs an add operation, a digest and a request to each bookie of the write quorum,
+ * whatever its size. Packing many small records into one entry makes the throughput of small records
+ * bound by their size rather than by their number. The records of an entry are unpacked with
+ * {@link LedgerRecord#unpack(LedgerEntry)}.
+ *
+ * <p>A batch is appended once it holds the max number of records or bytes, once the oldest record of the
+ * batch has waited for the max batch delay, or when the handle is flushed. Batches are appended in order,
+ * so records keep the order they were appended in.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface BatchingWriteHandle extends AutoCloseable {
+
+    /**
+     * Create a builder of a batching write handle appending entries to the given handle.
+     *
+     * @param handle the handle the batches are appended to
+     * @return the builder
+     */
+    static BatchingWriteHandleBuilder newBuilder(WriteHandle handle) {
+        return new BatchingWriteHandleBuilderImpl(handle);
+    }
+
+    /**
+     * Append a record asynchronously.
+     *
+     * @param record the record to append. The handle takes the ownership of the buffer.
+     * @return an handle to the result, in case of success it will return the position of the record
+     */
+    CompletableFuture<RecordPosition> appendAsync(ByteBuf record);
+
+    /**
+     * Append a record asynchronously.
+     *
+     * @param record the record to append, do not reuse the array
+     * @return an handle to the result, in case of success it will return the position of the record
+     */
+    default CompletableFuture<RecordPosition> appendAsync(byte[] record) {
+        return appendAsync(Unpooled.wrappedBuffer(record));
+    }
+
+    /**
+     * Append a record synchronously.
+     *
+     * @param record the record to append. The handle takes the ownership of the buffer.
+     * @return the position of the record
+     */
+    default RecordPosition append(ByteBuf record) throws BKException, InterruptedException {
+        return FutureUtils.<RecordPosition, BKException>result(appendAsync(record), BKException.HANDLER);
+    }
+
+    /**
+     * Append the records waiting in the current batch without waiting for the batch to fill up.
+     */
+    void flush();
+
+    /**
+     * Returns the handle the batches are appended to.
+     *
+     * @return the write handle
+     */
+    WriteHandle getWriteHandle();
+
+    /**
+     * Append the records waiting in the current batch and close the underlying write handle.
+     *
+     * @return an handle to access the result of the operation
+     */
+    CompletableFuture<Void> closeAsync();
+
+    /**
+     * Append the records waiting in the current batch and close the underlying write handle.
+     */
+    @Override
+    default void close() throws BKException, InterruptedException {
+        FutureUtils.<Void, BKException>result(closeAsync(), BKException.HANDLER);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import io.netty.buffer.ByteBufAllocator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * Builder-style interface to create a {@link BatchingWriteHandle}.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface BatchingWriteHandleBuilder {
+
+    /**
+     * Set the max number of records of a batch. The default is 1000.
+     *
+     * @param maxBatchRecords the max number of records of a batch
+     * @return the builder itself
+     */
+    BatchingWriteHandleBuilder withMaxBatchRecords(int maxBatchRecords);
+
+    /**
+     * Set the max size of the records of a batch, in bytes. A record larger than this size is appended
+     * alone in its batch. The default is 64KB.
+     *
+     * @param maxBatchSize the max size of the records of a batch
+     * @return the builder itself
+     */
+    BatchingWriteHandleBuilder withMaxBatchSize(int maxBatchSize);
+
+    /**
+     * Set the max time a record waits for its batch to be appended. The default is 1 millisecond.
+     *
+     * @param maxBatchDelay the max time a record waits for its batch
+     * @param unit the time unit of the delay
+     * @return the builder itself
+     */
+    BatchingWriteHandleBuilder withMaxBatchDelay(long maxBatchDelay, TimeUnit unit);
+
+    /**
+     * Set the scheduler appending the batches whose delay has expired. By default the handle uses a thread
+     * of its own, stopped when the handle is closed.
+     *
+     * @param scheduler the scheduler appending the expired batches
+     * @return the builder itself
+     */
+    BatchingWriteHandleBuilder withScheduler(ScheduledExecutorService scheduler);
+
+    /**
+     * Set the allocator of the entries holding the batches. The default is {@link ByteBufAllocator#DEFAULT}.
+     *
+     * @param allocator the allocator of the entries
+     * @return the builder itself
+     */
+    BatchingWriteHandleBuilder withAllocator(ByteBufAllocator allocator);
+
+    /**
+     * Create the batching write handle.
+     *
+     * @return the batching write handle
+     */
+    BatchingWriteHandle build();
+}
@@ -0,0 +1,65 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * Receives the entries of a {@link ReadHandle#readStream(long, long, EntrySubscriber) streaming read}.
+ *
+ * <p>The methods of a subscriber are never invoked concurrently. {@link #onSubscribe(EntrySubscription)} is
+ * invoked first, then entries are delivered in order, never more than requested through the subscription,
+ * and the stream ends with either {@link #onComplete()} or {@link #onError(Throwable)}, unless it is cancelled.
+ * The methods are invoked by the client threads completing the reads, so they should not block.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface EntrySubscriber {
+
+    /**
+     * Invoked before any other method, with the subscription used to request entries.
+     *
+     * @param subscription the subscription of the stream
+     */
+    void onSubscribe(EntrySubscription subscription);
+
+    /**
+     * Invoked with the next entry of the stream. The subscriber owns the entry and must close it.
+     *
+     * @param entry the next entry
+     */
+    void onNext(LedgerEntry entry);
+
+    /**
+     * Invoked when an entry could not be read. No more entries are delivered after it.
+     *
+     * @param cause the cause of the failure
+     */
+    void onError(Throwable cause);
+
+    /**
+     * Invoked once the last entry of the stream has been delivered.
+     */
+    void onComplete();
+}
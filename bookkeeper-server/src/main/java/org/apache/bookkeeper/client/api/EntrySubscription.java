@@ -0,0 +1,48 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * The subscription of an {@link EntrySubscriber} to a streaming read, used to request entries or to stop
+ * the stream.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface EntrySubscription {
+
+    /**
+     * Request more entries. Entries are read ahead of their delivery only up to the outstanding demand.
+     *
+     * @param n the number of additional entries to deliver, must be positive
+     */
+    void request(long n);
+
+    /**
+     * Stop the stream. Entries already read but not delivered are released, and no more methods of the
+     * subscriber are invoked.
+     */
+    void cancel();
+}
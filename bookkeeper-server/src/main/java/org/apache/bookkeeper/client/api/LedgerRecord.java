@@ -0,0 +1,79 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import io.netty.buffer.ByteBuf;
+import java.util.Iterator;
+import org.apache.bookkeeper.client.impl.RecordBatchCodec;
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * A record appended through a {@link BatchingWriteHandle}, unpacked from the entry holding it.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface LedgerRecord {
+
+    /**
+     * Unpack the records of an entry written by a {@link BatchingWriteHandle}.
+     *
+     * <p>The records share the buffer of the entry, so they can only be accessed while the entry isn't closed.
+     *
+     * @param entry an entry written by a batching write handle
+     * @return an iterator over the records of the entry, in the order they were appended
+     * @throws IllegalArgumentException if the entry is not a batch of records
+     */
+    static Iterator<LedgerRecord> unpack(LedgerEntry entry) {
+        return RecordBatchCodec.unpack(entry);
+    }
+
+    /**
+     * Returns the position of the record.
+     *
+     * @return the position of the record
+     */
+    RecordPosition getPosition();
+
+    /**
+     * Returns the length of the record.
+     *
+     * @return the length of the record, in bytes
+     */
+    int getLength();
+
+    /**
+     * Returns the content of the record as a buffer sharing the content of the entry. The reference count
+     * of the buffer isn't increased.
+     *
+     * @return the content of the record
+     */
+    ByteBuf getRecordBuffer();
+
+    /**
+     * Returns a copy of the content of the record.
+     *
+     * @return the content of the record
+     */
+    byte[] getRecordBytes();
+}
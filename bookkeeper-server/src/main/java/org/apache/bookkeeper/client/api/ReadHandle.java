@@ -62,6 +62,34 @@ public interface ReadHandle extends Handle {
         return future;
     }
 
+    /**
+     * Read a sequence of entries asynchronously, delivering each entry to the subscriber as soon as it and all
+     * the entries before it have been read, rather than once the whole sequence is read.
+     *
+     * <p>Entries are read ahead only up to the number of entries requested by the subscriber, which bounds
+     * the memory held by the stream.
+     *
+     * @param firstEntry
+     *          id of first entry of sequence
+     * @param lastEntry
+     *          id of last entry of sequence, inclusive
+     * @param subscriber
+     *          the subscriber receiving the entries
+     * @since 4.18
+     */
+    default void readStream(long firstEntry, long lastEntry, EntrySubscriber subscriber) {
+        subscriber.onSubscribe(new EntrySubscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new UnsupportedOperationException());
+    }
+
     /**
      * Read a sequence of entries synchronously.
      *
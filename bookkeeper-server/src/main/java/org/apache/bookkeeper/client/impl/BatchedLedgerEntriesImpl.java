@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.Recycler;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.util.ByteBufList;
+
+/**
+ * Ledger entries of a batched read. The entries are kept in the list of buffers received from the bookie, along
+ * with a table of their lengths, instead of one {@link LedgerEntryImpl} per entry.
+ *
+ * <p>The {@link LedgerEntry} instances returned by {@link #getEntry(long)} and {@link #iterator()} are views of
+ * the entries, which are kept along with the tables when the instance is recycled, so that iterating over the
+ * entries doesn't allocate once the instance has been used for as many entries. Like the entries of
+ * {@link LedgerEntriesImpl}, the views are valid until the ledger entries are closed, and closing a view doesn't
+ * release anything.
+ */
+public class BatchedLedgerEntriesImpl implements LedgerEntries {
+
+    private static final Recycler<BatchedLedgerEntriesImpl> RECYCLER = new Recycler<BatchedLedgerEntriesImpl>() {
+        @Override
+        protected BatchedLedgerEntriesImpl newObject(Recycler.Handle<BatchedLedgerEntriesImpl> handle) {
+            return new BatchedLedgerEntriesImpl(handle);
+        }
+    };
+
+    private final Recycler.Handle<BatchedLedgerEntriesImpl> recyclerHandle;
+    private long ledgerId;
+    private long firstEntryId;
+    private int numEntries;
+    private ByteBufList buffers;
+    private long[] lengths = new long[0];
+    private EntryView[] views = new EntryView[0];
+
+    private BatchedLedgerEntriesImpl(Recycler.Handle<BatchedLedgerEntriesImpl> recyclerHandle) {
+        this.recyclerHandle = recyclerHandle;
+    }
+
+    /**
+     * Create the ledger entries of a batched read.
+     *
+     * <p>The lengths of the entries must be set with {@link #setLength(int, long)}.
+     *
+     * @param ledgerId the ledger of the entries
+     * @param firstEntryId the id of the first entry
+     * @param buffers the payloads of the entries, with their reader index at the start of the payload. The
+     *                ledger entries take the ownership of one reference of the list.
+     * @return the BatchedLedgerEntriesImpl
+     */
+    public static BatchedLedgerEntriesImpl create(long ledgerId, long firstEntryId, ByteBufList buffers) {
+        checkArgument(buffers.size() > 0, "entries for create should not be empty.");
+        BatchedLedgerEntriesImpl ledgerEntries = RECYCLER.get();
+        ledgerEntries.ledgerId = ledgerId;
+        ledgerEntries.firstEntryId = firstEntryId;
+        ledgerEntries.numEntries = buffers.size();
+        ledgerEntries.buffers = buffers;
+        if (ledgerEntries.lengths.length < ledgerEntries.numEntries) {
+            ledgerEntries.lengths = new long[ledgerEntries.numEntries];
+            ledgerEntries.views = Arrays.copyOf(ledgerEntries.views, ledgerEntries.numEntries);
+        }
+        return ledgerEntries;
+    }
+
+    /**
+     * Set the length of the ledger at the entry of the given index.
+     */
+    public void setLength(int index, long length) {
+        lengths[index] = length;
+    }
+
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LedgerEntry getEntry(long entryId) {
+        checkNotNull(buffers, "entries has been recycled");
+        long lastEntryId = firstEntryId + numEntries - 1;
+        if (entryId < firstEntryId || entryId > lastEntryId) {
+            throw new IndexOutOfBoundsException("required index: " + entryId
+                + " is out of bounds: [ " + firstEntryId + ", " + lastEntryId + " ].");
+        }
+        return view((int) (entryId - firstEntryId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<LedgerEntry> iterator() {
+        checkNotNull(buffers, "entries has been recycled");
+        return new Iterator<LedgerEntry>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < numEntries;
+            }
+
+            @Override
+            public LedgerEntry next() {
+                if (index >= numEntries) {
+                    throw new NoSuchElementException();
+                }
+                return view(index++);
+            }
+        };
+    }
+
+    private EntryView view(int index) {
+        EntryView view = views[index];
+        if (view == null) {
+            view = new EntryView(index);
+            views[index] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public void close() {
+        if (buffers == null) {
+            // already closed, recycling it again would hand it out twice
+            return;
+        }
+        buffers.release();
+        buffers = null;
+        ledgerId = -1L;
+        firstEntryId = -1L;
+        numEntries = 0;
+        recyclerHandle.recycle(this);
+    }
+
+    /**
+     * An entry of the batch, reading its content from the tables of the ledger entries.
+     */
+    private final class EntryView implements LedgerEntry {
+        private final int index;
+
+        EntryView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        @Override
+        public long getEntryId() {
+            return firstEntryId + index;
+        }
+
+        @Override
+        public long getLength() {
+            return lengths[index];
+        }
+
+        @Override
+        public byte[] getEntryBytes() {
+            ByteBuf entryBuf = getEntryBuffer();
+            return ByteBufUtil.getBytes(entryBuf, entryBuf.readerIndex(), entryBuf.readableBytes(), false);
+        }
+
+        @Override
+        public ByteBuffer getEntryNioBuffer() {
+            return getEntryBuffer().nioBuffer();
+        }
+
+        @Override
+        public ByteBuf getEntryBuffer() {
+            return buffers.getBuffer(index);
+        }
+
+        @Override
+        public LedgerEntry duplicate() {
+            return LedgerEntryImpl.duplicate(this);
+        }
+
+        @Override
+        public void close() {
+            // The content is released when the ledger entries are closed
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import io.netty.buffer.ByteBufAllocator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.BatchingWriteHandle;
+import org.apache.bookkeeper.client.api.BatchingWriteHandleBuilder;
+import org.apache.bookkeeper.client.api.WriteHandle;
+
+/**
+ * Internal builder for {@link BatchingWriteHandle}.
+ *
+ * @since 4.18
+ */
+public class BatchingWriteHandleBuilderImpl implements BatchingWriteHandleBuilder {
+
+    private final WriteHandle handle;
+    private int maxBatchRecords = 1000;
+    private int maxBatchSize = 64 * 1024;
+    private long maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private ScheduledExecutorService scheduler = null;
+    private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+
+    public BatchingWriteHandleBuilderImpl(WriteHandle handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public BatchingWriteHandleBuilder withMaxBatchRecords(int maxBatchRecords) {
+        this.maxBatchRecords = maxBatchRecords;
+        return this;
+    }
+
+    @Override
+    public BatchingWriteHandleBuilder withMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    @Override
+    public BatchingWriteHandleBuilder withMaxBatchDelay(long maxBatchDelay, TimeUnit unit) {
+        this.maxBatchDelayNanos = unit.toNanos(maxBatchDelay);
+        return this;
+    }
+
+    @Override
+    public BatchingWriteHandleBuilder withScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    @Override
+    public BatchingWriteHandleBuilder withAllocator(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    @Override
+    public BatchingWriteHandle build() {
+        checkArgument(handle != null, "A write handle is required");
+        checkArgument(maxBatchRecords > 0, "The max number of records of a batch must be positive");
+        checkArgument(maxBatchSize > 0, "The max size of a batch must be positive");
+        checkArgument(maxBatchDelayNanos >= 0, "The max delay of a batch must not be negative");
+        return new BatchingWriteHandleImpl(handle, maxBatchRecords, maxBatchSize, maxBatchDelayNanos, scheduler,
+                allocator);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException.BKLedgerClosedException;
+import org.apache.bookkeeper.client.api.BatchingWriteHandle;
+import org.apache.bookkeeper.client.api.RecordPosition;
+import org.apache.bookkeeper.client.api.WriteHandle;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+
+/**
+ * Batching write handle packing the records of a batch into one entry with {@link RecordBatchCodec}.
+ */
+class BatchingWriteHandleImpl implements BatchingWriteHandle {
+
+    private final WriteHandle handle;
+    private final int maxBatchRecords;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final ByteBufAllocator allocator;
+
+    // the current batch, appended as a whole
+    private List<ByteBuf> records = new ArrayList<>();
+    private List<CompletableFuture<RecordPosition>> futures = new ArrayList<>();
+    private int batchSize = 0;
+    // sequence number of the current batch, to only append the batch a delayed flush was scheduled for
+    private long batchSequence = 0;
+    // completed once the last batch appended is acknowledged, the handle is only closed after that
+    private CompletableFuture<?> lastAppend = FutureUtils.Void();
+    private boolean closed = false;
+
+    BatchingWriteHandleImpl(WriteHandle handle, int maxBatchRecords, int maxBatchSize, long maxBatchDelayNanos,
+                            ScheduledExecutorService scheduler, ByteBufAllocator allocator) {
+        this.handle = handle;
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = maxBatchDelayNanos;
+        if (scheduler != null) {
+            this.scheduler = scheduler;
+            this.ownScheduler = false;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new DefaultThreadFactory("BatchingWriteHandle", true));
+            this.ownScheduler = true;
+        }
+        this.allocator = allocator;
+    }
+
+    @Override
+    public synchronized CompletableFuture<RecordPosition> appendAsync(ByteBuf record) {
+        if (closed) {
+            ReferenceCountUtil.release(record);
+            return FutureUtils.exception(new BKLedgerClosedException());
+        }
+        int recordSize = record.readableBytes();
+        if (!records.isEmpty() && batchSize + recordSize > maxBatchSize) {
+            appendBatch();
+        }
+
+        CompletableFuture<RecordPosition> future = new CompletableFuture<>();
+        records.add(record);
+        futures.add(future);
+        batchSize += recordSize;
+
+        if (records.size() >= maxBatchRecords || batchSize >= maxBatchSize) {
+            appendBatch();
+        } else if (records.size() == 1) {
+            final long sequence = batchSequence;
+            if (maxBatchDelayNanos > 0) {
+                scheduler.schedule(() -> flush(sequence), maxBatchDelayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                // no delay, the batch holds the records appended until the scheduler runs the flush
+                scheduler.execute(() -> flush(sequence));
+            }
+        }
+        return future;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (!records.isEmpty()) {
+            appendBatch();
+        }
+    }
+
+    private synchronized void flush(long sequence) {
+        if (sequence == batchSequence && !records.isEmpty()) {
+            appendBatch();
+        }
+    }
+
+    private void appendBatch() {
+        final List<ByteBuf> batchRecords = records;
+        final List<CompletableFuture<RecordPosition>> batchFutures = futures;
+        records = new ArrayList<>();
+        futures = new ArrayList<>();
+        batchSize = 0;
+        batchSequence++;
+
+        ByteBuf batch;
+        try {
+            batch = RecordBatchCodec.encode(allocator, batchRecords);
+        } catch (Throwable t) {
+            batchFutures.forEach(future -> future.completeExceptionally(t));
+            return;
+        } finally {
+            batchRecords.forEach(ReferenceCountUtil::release);
+        }
+        // appended while holding the lock, so that the batches are appended in order
+        lastAppend = handle.appendAsync(batch).whenComplete((entryId, cause) -> {
+            for (int i = 0; i < batchFutures.size(); i++) {
+                if (cause != null) {
+                    batchFutures.get(i).completeExceptionally(cause);
+                } else {
+                    batchFutures.get(i).complete(new RecordPosition(entryId, i));
+                }
+            }
+        });
+    }
+
+    @Override
+    public WriteHandle getWriteHandle() {
+        return handle;
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        CompletableFuture<?> appended;
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                flush();
+            }
+            appended = lastAppend;
+        }
+        // closing the handle fails the adds still pending, so wait for the batches in flight, which are
+        // acknowledged in order
+        return appended.handle((result, cause) -> null).thenCompose(ignored -> handle.closeAsync())
+                .whenComplete((result, cause) -> {
+                    if (ownScheduler) {
+                        scheduler.shutdown();
+                    }
+                });
+    }
+}
@@ -22,9 +22,14 @@ package org.apache.bookkeeper.client.impl;
 import static org.apache.bookkeeper.client.BookKeeperClientStats.CATEGORY_CLIENT;
 import static org.apache.bookkeeper.client.BookKeeperClientStats.CLIENT_SCOPE;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.bookkeeper.client.BookKeeperClientStats;
+import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.annotations.StatsDoc;
@@ -84,6 +89,20 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "operation stats of adding entries requests"
     )
     private final OpStatsLogger addOpLogger;
+    @StatsDoc(
+        name = ADD_OP_QUEUE,
+        help = "the time spent by adding entries requests in the client before their first write request is"
+            + " written to the channel of a bookie"
+    )
+    private final OpStatsLogger addOpQueueLogger;
+    @StatsDoc(
+        name = ADD_OP_QUORUM_ACK_SPREAD,
+        help = "the time between the first and the last acknowledgement of the write quorum of an entry"
+    )
+    private final OpStatsLogger addOpQuorumAckSpreadLogger;
+    // the latency of the adds acknowledged by each bookie, labelled by bookie, unless the stats are limited
+    private final ConcurrentMap<BookieId, OpStatsLogger> addOpBookieLoggers = new ConcurrentHashMap<>();
+    private final boolean limitStatsLogging;
     @StatsDoc(
         name = FORCE_OP,
         help = "operation stats of force requests"
@@ -120,6 +139,11 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "The number of ensemble changes"
     )
     private final Counter ensembleChangeCounter;
+    @StatsDoc(
+        name = SLOW_BOOKIE_ENSEMBLE_CHANGES,
+        help = "The number of ensemble changes triggered by bookies slower than the rest of the write quorum"
+    )
+    private final Counter slowBookieEnsembleChangeCounter;
     @StatsDoc(
         name = LAC_UPDATE_HITS,
         help = "The number of successful lac updates on piggybacked responses"
@@ -140,6 +164,21 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "The number of speculative read requests"
     )
     private final Counter speculativeReadCounter;
+    @StatsDoc(
+        name = READ_CACHE_HITS,
+        help = "The number of entries read from the client read cache"
+    )
+    private final Counter readCacheHitCounter;
+    @StatsDoc(
+        name = READ_CACHE_MISSES,
+        help = "The number of entries read from the bookies because they were not in the client read cache"
+    )
+    private final Counter readCacheMissCounter;
+    @StatsDoc(
+        name = READ_CACHE_DEDUPLICATED_READS,
+        help = "The number of entries not in the client read cache, read by joining an ongoing read of the entry"
+    )
+    private final Counter readCacheDeduplicatedReadCounter;
 
     @StatsDoc(
         name = WRITE_DELAYED_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS_LATENCY,
@@ -161,7 +200,12 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
 
 
     public BookKeeperClientStatsImpl(StatsLogger stats) {
+        this(stats, false);
+    }
+
+    public BookKeeperClientStatsImpl(StatsLogger stats, boolean limitStatsLogging) {
         this.stats = stats;
+        this.limitStatsLogging = limitStatsLogging;
         this.createOpLogger = stats.getOpStatsLogger(CREATE_OP);
         this.deleteOpLogger = stats.getOpStatsLogger(DELETE_OP);
         this.openOpLogger = stats.getOpStatsLogger(OPEN_OP);
@@ -171,6 +215,8 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.readLacAndEntryOpLogger = stats.getOpStatsLogger(READ_LAST_CONFIRMED_AND_ENTRY);
         this.readLacAndEntryRespLogger = stats.getOpStatsLogger(READ_LAST_CONFIRMED_AND_ENTRY_RESPONSE);
         this.addOpLogger = stats.getOpStatsLogger(ADD_OP);
+        this.addOpQueueLogger = stats.getOpStatsLogger(ADD_OP_QUEUE);
+        this.addOpQuorumAckSpreadLogger = stats.getOpStatsLogger(ADD_OP_QUORUM_ACK_SPREAD);
         this.forceOpLogger = stats.getOpStatsLogger(FORCE_OP);
         this.addOpUrCounter = stats.getCounter(ADD_OP_UR);
         this.writeLacOpLogger = stats.getOpStatsLogger(WRITE_LAC_OP);
@@ -179,11 +225,15 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.recoverReadEntriesStats = stats.getOpStatsLogger(LEDGER_RECOVER_READ_ENTRIES);
 
         this.ensembleChangeCounter = stats.getCounter(ENSEMBLE_CHANGES);
+        this.slowBookieEnsembleChangeCounter = stats.getCounter(SLOW_BOOKIE_ENSEMBLE_CHANGES);
         this.lacUpdateHitsCounter = stats.getCounter(LAC_UPDATE_HITS);
         this.lacUpdateMissesCounter = stats.getCounter(LAC_UPDATE_MISSES);
         this.clientChannelWriteWaitStats = stats.getOpStatsLogger(CLIENT_CHANNEL_WRITE_WAIT);
 
         speculativeReadCounter = stats.getCounter(SPECULATIVE_READ_COUNT);
+        readCacheHitCounter = stats.getCounter(READ_CACHE_HITS);
+        readCacheMissCounter = stats.getCounter(READ_CACHE_MISSES);
+        readCacheDeduplicatedReadCounter = stats.getCounter(READ_CACHE_DEDUPLICATED_READS);
 
         this.writeDelayedDueToNotEnoughFaultDomainsLatency =
                 stats.getOpStatsLogger(WRITE_DELAYED_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS_LATENCY);
@@ -225,6 +275,30 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return addOpLogger;
     }
     @Override
+    public OpStatsLogger getAddOpQueueLogger() {
+        return addOpQueueLogger;
+    }
+    @Override
+    public OpStatsLogger getAddOpBookieLogger(BookieId bookie) {
+        if (limitStatsLogging) {
+            return NullStatsLogger.INSTANCE.getOpStatsLogger(ADD_OP_BOOKIE);
+        }
+        OpStatsLogger logger = addOpBookieLoggers.get(bookie);
+        if (logger == null) {
+            logger = addOpBookieLoggers.computeIfAbsent(bookie,
+                    b -> stats.scopeLabel(BOOKIE_LABEL, b.toString()).getOpStatsLogger(ADD_OP_BOOKIE));
+        }
+        return logger;
+    }
+    @Override
+    public void retainAddOpBookieLoggers(Set<BookieId> bookies) {
+        addOpBookieLoggers.keySet().retainAll(bookies);
+    }
+    @Override
+    public OpStatsLogger getAddOpQuorumAckSpreadLogger() {
+        return addOpQuorumAckSpreadLogger;
+    }
+    @Override
     public OpStatsLogger getForceOpLogger() {
         return forceOpLogger;
     }
@@ -257,10 +331,26 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return speculativeReadCounter;
     }
     @Override
+    public Counter getReadCacheHitCounter() {
+        return readCacheHitCounter;
+    }
+    @Override
+    public Counter getReadCacheMissCounter() {
+        return readCacheMissCounter;
+    }
+    @Override
+    public Counter getReadCacheDeduplicatedReadCounter() {
+        return readCacheDeduplicatedReadCounter;
+    }
+    @Override
     public Counter getEnsembleChangeCounter() {
         return ensembleChangeCounter;
     }
     @Override
+    public Counter getSlowBookieEnsembleChangeCounter() {
+        return slowBookieEnsembleChangeCounter;
+    }
+    @Override
     public Counter getLacUpdateHitsCounter() {
         return lacUpdateHitsCounter;
     }
@@ -0,0 +1,204 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerRecord;
+import org.apache.bookkeeper.client.api.RecordPosition;
+
+/**
+ * Format of the entries holding a batch of records, written by a
+ * {@link org.apache.bookkeeper.client.api.BatchingWriteHandle}.
+ *
+ * <pre>
+ * | magic (2 bytes) | version (1 byte) | count (varint) | length of each record (varint) ... | records ... |
+ * </pre>
+ *
+ * <p>The lengths of the records come before their contents, so that reading a record doesn't require
+ * reading the records before it.
+ */
+public final class RecordBatchCodec {
+
+    static final short MAGIC = (short) 0xB4BA;
+    static final byte VERSION = 1;
+
+    private RecordBatchCodec() {
+    }
+
+    /**
+     * Encode a batch of records in a buffer. The records are not released.
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, List<ByteBuf> records) {
+        int headerSize = Short.BYTES + Byte.BYTES + varintSize(records.size());
+        int recordsSize = 0;
+        for (ByteBuf record : records) {
+            headerSize += varintSize(record.readableBytes());
+            recordsSize += record.readableBytes();
+        }
+        ByteBuf batch = allocator.buffer(headerSize + recordsSize, headerSize + recordsSize);
+        batch.writeShort(MAGIC);
+        batch.writeByte(VERSION);
+        writeVarint(batch, records.size());
+        for (ByteBuf record : records) {
+            writeVarint(batch, record.readableBytes());
+        }
+        for (ByteBuf record : records) {
+            batch.writeBytes(record, record.readerIndex(), record.readableBytes());
+        }
+        return batch;
+    }
+
+    /**
+     * Unpack the records of an entry.
+     *
+     * @see LedgerRecord#unpack(LedgerEntry)
+     */
+    public static Iterator<LedgerRecord> unpack(LedgerEntry entry) {
+        ByteBuf buffer = entry.getEntryBuffer();
+        int index = buffer.readerIndex();
+        try {
+            if (buffer.getShort(index) != MAGIC || buffer.getByte(index + Short.BYTES) != VERSION) {
+                throw new IllegalArgumentException("Entry " + entry.getEntryId() + " is not a batch of records");
+            }
+            index += Short.BYTES + Byte.BYTES;
+            int count = readVarint(buffer, index);
+            index += varintSize(count);
+            if (count > buffer.writerIndex() - index) {
+                // each record takes at least the byte of its length
+                throw new IllegalArgumentException("Entry " + entry.getEntryId() + " is not a batch of records");
+            }
+            int[] offsets = new int[count + 1];
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                int length = readVarint(buffer, index);
+                index += varintSize(length);
+                offsets[i] = offset;
+                offset += length;
+            }
+            offsets[count] = offset;
+            int recordsIndex = index;
+            if (recordsIndex + offset != buffer.writerIndex()) {
+                throw new IllegalArgumentException("Entry " + entry.getEntryId() + " is not a batch of records");
+            }
+            return new RecordIterator(entry.getEntryId(), buffer, recordsIndex, offsets);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Entry " + entry.getEntryId() + " is not a batch of records", e);
+        }
+    }
+
+    private static final class RecordIterator implements Iterator<LedgerRecord> {
+        private final long entryId;
+        private final ByteBuf buffer;
+        private final int recordsIndex;
+        private final int[] offsets;
+        private int next = 0;
+
+        RecordIterator(long entryId, ByteBuf buffer, int recordsIndex, int[] offsets) {
+            this.entryId = entryId;
+            this.buffer = buffer;
+            this.recordsIndex = recordsIndex;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < offsets.length - 1;
+        }
+
+        @Override
+        public LedgerRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = next++;
+            ByteBuf record = buffer.slice(recordsIndex + offsets[index], offsets[index + 1] - offsets[index]);
+            return new Record(new RecordPosition(entryId, index), record);
+        }
+    }
+
+    private static final class Record implements LedgerRecord {
+        private final RecordPosition position;
+        private final ByteBuf record;
+
+        Record(RecordPosition position, ByteBuf record) {
+            this.position = position;
+            this.record = record;
+        }
+
+        @Override
+        public RecordPosition getPosition() {
+            return position;
+        }
+
+        @Override
+        public int getLength() {
+            return record.readableBytes();
+        }
+
+        @Override
+        public ByteBuf getRecordBuffer() {
+            return record;
+        }
+
+        @Override
+        public byte[] getRecordBytes() {
+            return ByteBufUtil.getBytes(record);
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(ByteBuf buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.writeByte(value);
+    }
+
+    private static int readVarint(ByteBuf buffer, int index) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.getByte(index++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -97,6 +97,9 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String CLIENT_CONNECT_TIMEOUT_MILLIS = "clientConnectTimeoutMillis";
     protected static final String CLIENT_TCP_USER_TIMEOUT_MILLIS = "clientTcpUserTimeoutMillis";
     protected static final String NUM_CHANNELS_PER_BOOKIE = "numChannelsPerBookie";
+    protected static final String MAX_CHANNELS_PER_BOOKIE = "maxChannelsPerBookie";
+    protected static final String CHANNEL_SCALE_UP_PENDING_WRITE_BYTES = "channelScaleUpPendingWriteBytes";
+    protected static final String CHANNEL_SCALE_UP_EVENT_LOOP_PENDING_TASKS = "channelScaleUpEventLoopPendingTasks";
     protected static final String USE_V2_WIRE_PROTOCOL = "useV2WireProtocol";
     protected static final String NETTY_USE_POOLED_BUFFERS = "nettyUsePooledBuffers";
 
@@ -113,13 +116,24 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         "speculativeReadLACTimeoutBackoffMultiplier";
     protected static final String ENABLE_PARALLEL_RECOVERY_READ = "enableParallelRecoveryRead";
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
+    protected static final String BULK_RECOVERY_MAX_LEDGERS_PER_REQUEST = "bulkRecoveryMaxLedgersPerRequest";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
     protected static final String RECOVERY_BATCH_READ_ENABLED = "recoveryBatchReadEnabled";
+    protected static final String READ_STREAM_MAX_OUTSTANDING_ENTRIES = "readStreamMaxOutstandingEntries";
+    protected static final String LATENCY_AWARE_READ_ENABLED = "latencyAwareReadEnabled";
+    protected static final String READ_LATENCY_QUANTILE = "readLatencyQuantile";
+    protected static final String READ_LATENCY_WINDOW_MS = "readLatencyWindowMs";
+    protected static final String CLIENT_READ_CACHE_MAX_SIZE_BYTES = "clientReadCacheMaxSizeBytes";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
     protected static final String MAX_ALLOWED_ENSEMBLE_CHANGES = "maxNumEnsembleChanges";
+    protected static final String SLOW_BOOKIE_ENSEMBLE_CHANGE_ENABLED = "slowBookieEnsembleChangeEnabled";
+    protected static final String SLOW_BOOKIE_ADD_LATENCY_RATIO = "slowBookieAddLatencyRatio";
+    protected static final String SLOW_BOOKIE_MIN_ADD_LATENCY_MS = "slowBookieMinAddLatencyMs";
+    protected static final String SLOW_BOOKIE_MIN_SLOW_ADDS = "slowBookieMinSlowAdds";
+    protected static final String SLOW_BOOKIE_MAX_ENSEMBLE_CHANGE_RATE = "slowBookieMaxEnsembleChangeRate";
     // Timeout Setting
     protected static final String ADD_ENTRY_TIMEOUT_SEC = "addEntryTimeoutSec";
     protected static final String ADD_ENTRY_QUORUM_TIMEOUT_SEC = "addEntryQuorumTimeoutSec";
@@ -581,6 +595,75 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the max number of channels per bookie.
+     *
+     * <p>When greater than {@link #getNumChannelsPerBookie()}, the client opens additional channels to a bookie
+     * while its channels are saturated, and closes them once they are idle. The additional channels only serve
+     * the requests which don't need to be ordered with the other requests of their ledger, such as reads.
+     *
+     * @return max num channels per bookie, or 0 to use a fixed number of channels.
+     */
+    public int getMaxChannelsPerBookie() {
+        return getInt(MAX_CHANNELS_PER_BOOKIE, 0);
+    }
+
+    /**
+     * Set the max number of channels per bookie.
+     *
+     * @param maxChannelsPerBookie
+     *          max num channels per bookie, or 0 to use a fixed number of channels.
+     * @return client configuration.
+     */
+    public ClientConfiguration setMaxChannelsPerBookie(int maxChannelsPerBookie) {
+        setProperty(MAX_CHANNELS_PER_BOOKIE, maxChannelsPerBookie);
+        return this;
+    }
+
+    /**
+     * Get the number of bytes waiting to be written on a channel above which the channel is saturated, and
+     * another channel is opened to the bookie if {@link #getMaxChannelsPerBookie()} allows it.
+     *
+     * @return the pending write bytes of a saturated channel.
+     */
+    public long getChannelScaleUpPendingWriteBytes() {
+        return getLong(CHANNEL_SCALE_UP_PENDING_WRITE_BYTES, 1024 * 1024);
+    }
+
+    /**
+     * Set the number of bytes waiting to be written on a channel above which the channel is saturated.
+     *
+     * @param pendingWriteBytes
+     *          the pending write bytes of a saturated channel.
+     * @return client configuration.
+     */
+    public ClientConfiguration setChannelScaleUpPendingWriteBytes(long pendingWriteBytes) {
+        setProperty(CHANNEL_SCALE_UP_PENDING_WRITE_BYTES, pendingWriteBytes);
+        return this;
+    }
+
+    /**
+     * Get the number of tasks pending on the event loop of a channel above which the channel is saturated, and
+     * another channel is opened to the bookie if {@link #getMaxChannelsPerBookie()} allows it.
+     *
+     * @return the event loop pending tasks of a saturated channel.
+     */
+    public int getChannelScaleUpEventLoopPendingTasks() {
+        return getInt(CHANNEL_SCALE_UP_EVENT_LOOP_PENDING_TASKS, 1000);
+    }
+
+    /**
+     * Set the number of tasks pending on the event loop of a channel above which the channel is saturated.
+     *
+     * @param pendingTasks
+     *          the event loop pending tasks of a saturated channel.
+     * @return client configuration.
+     */
+    public ClientConfiguration setChannelScaleUpEventLoopPendingTasks(int pendingTasks) {
+        setProperty(CHANNEL_SCALE_UP_EVENT_LOOP_PENDING_TASKS, pendingTasks);
+        return this;
+    }
+
     /**
      * Use older Bookkeeper wire protocol (no protobuf).
      *
@@ -1146,6 +1229,52 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the max number of ledgers fenced by a single request to a bookie, when opening ledgers in bulk
+     * with {@link org.apache.bookkeeper.client.BookKeeper#asyncOpenLedgers}.
+     *
+     * @return the max number of ledgers fenced per bookie request.
+     */
+    public int getBulkRecoveryMaxLedgersPerRequest() {
+        return getInt(BULK_RECOVERY_MAX_LEDGERS_PER_REQUEST, 1000);
+    }
+
+    /**
+     * Set the max number of ledgers fenced by a single request to a bookie, when opening ledgers in bulk.
+     *
+     * @param maxLedgers
+     *          the max number of ledgers fenced per bookie request.
+     * @return client configuration.
+     */
+    public ClientConfiguration setBulkRecoveryMaxLedgersPerRequest(int maxLedgers) {
+        setProperty(BULK_RECOVERY_MAX_LEDGERS_PER_REQUEST, maxLedgers);
+        return this;
+    }
+
+    /**
+     * Get the max number of entries a streaming read reads ahead of the entries it has delivered.
+     *
+     * @return max number of outstanding entries of a streaming read.
+     */
+    public int getReadStreamMaxOutstandingEntries() {
+        return getInt(READ_STREAM_MAX_OUTSTANDING_ENTRIES, 64);
+    }
+
+    /**
+     * Set the max number of entries a streaming read reads ahead of the entries it has delivered.
+     *
+     * <p>A streaming read never reads more entries ahead than requested by its subscriber. This setting
+     * bounds the entries read ahead when the subscriber requests many entries at once.
+     *
+     * @param maxOutstandingEntries
+     *          max number of outstanding entries of a streaming read.
+     * @return client configuration.
+     */
+    public ClientConfiguration setReadStreamMaxOutstandingEntries(int maxOutstandingEntries) {
+        setProperty(READ_STREAM_MAX_OUTSTANDING_ENTRIES, maxOutstandingEntries);
+        return this;
+    }
+
     /**
      * If reorder read sequence enabled or not.
      *
@@ -1176,6 +1305,104 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * If latency aware reads are enabled or not.
+     *
+     * @return true if latency aware reads are enabled, otherwise false.
+     */
+    public boolean isLatencyAwareReadEnabled() {
+        return getBoolean(LATENCY_AWARE_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable latency aware reads.
+     *
+     * <p>If this flag is enabled, the client tracks the latency of the reads sent to every bookie. Entries
+     * are first read from the replica with the lowest observed read latency, and speculative reads are
+     * issued once a read took longer than the observed read latency of its bookie, see
+     * {@link #setReadLatencyQuantile(double)}. Speculative reads are still never issued later than
+     * the speculative read timeouts.
+     *
+     * @param enabled the flag to enable/disable latency aware reads.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setLatencyAwareReadEnabled(boolean enabled) {
+        setProperty(LATENCY_AWARE_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the quantile of the read latency of the bookies used by latency aware reads.
+     *
+     * @return the read latency quantile.
+     */
+    public double getReadLatencyQuantile() {
+        return getDouble(READ_LATENCY_QUANTILE, 0.95);
+    }
+
+    /**
+     * Set the quantile of the read latency of the bookies used by latency aware reads.
+     *
+     * <p>A speculative read is issued when a read took longer than this quantile of the read latency
+     * of its bookie.
+     *
+     * @param quantile
+     *          the read latency quantile, between 0 and 1.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setReadLatencyQuantile(double quantile) {
+        setProperty(READ_LATENCY_QUANTILE, quantile);
+        return this;
+    }
+
+    /**
+     * Get the window over which latency aware reads track the read latency of the bookies.
+     *
+     * @return the read latency window in milliseconds.
+     */
+    public long getReadLatencyWindowMs() {
+        return getLong(READ_LATENCY_WINDOW_MS, 60000L);
+    }
+
+    /**
+     * Set the window over which latency aware reads track the read latency of the bookies.
+     *
+     * <p>The read latency of a bookie is estimated from the reads of the last one to two windows.
+     *
+     * @param windowMs
+     *          the read latency window in milliseconds.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setReadLatencyWindowMs(long windowMs) {
+        setProperty(READ_LATENCY_WINDOW_MS, windowMs);
+        return this;
+    }
+
+    /**
+     * Get the max size of the client read cache.
+     *
+     * <p>The client read cache keeps the confirmed entries recently read by the client off-heap, so that
+     * readers tailing the same ledger share the reads from the bookies. The read cache is disabled when
+     * its size is 0.
+     *
+     * @return the max size of the client read cache in bytes.
+     */
+    public long getClientReadCacheMaxSizeBytes() {
+        return getLong(CLIENT_READ_CACHE_MAX_SIZE_BYTES, 0L);
+    }
+
+    /**
+     * Set the max size of the client read cache.
+     *
+     * @param maxSizeBytes
+     *          the max size of the client read cache in bytes, 0 to disable it.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientReadCacheMaxSizeBytes(long maxSizeBytes) {
+        setProperty(CLIENT_READ_CACHE_MAX_SIZE_BYTES, maxSizeBytes);
+        return this;
+    }
+
     /**
      * If read operation should be sticky to a single bookie or not.
      *
@@ -1993,6 +2220,120 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether to replace the bookies which are persistently slower than the other bookies of the write quorum.
+     *
+     * @return true if slow bookies are replaced through an ensemble change, otherwise false.
+     */
+    public boolean isSlowBookieEnsembleChangeEnabled() {
+        return getBoolean(SLOW_BOOKIE_ENSEMBLE_CHANGE_ENABLED, false);
+    }
+
+    /**
+     * Enable/Disable replacing slow bookies.
+     * <p>
+     * If set to true, a bookie which acknowledges {@link #getSlowBookieMinSlowAdds()} consecutive adds of a ledger
+     * at least {@link #getSlowBookieAddLatencyRatio()} times slower than the fastest bookie of the write quorum,
+     * and slower than {@link #getSlowBookieMinAddLatencyMs()}, is replaced in the ensemble of the ledger, as if
+     * its writes had failed.
+     * </p>
+     *
+     * @param enabled
+     *          flag to enable/disable replacing slow bookies.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSlowBookieEnsembleChangeEnabled(boolean enabled) {
+        setProperty(SLOW_BOOKIE_ENSEMBLE_CHANGE_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get how many times slower than the fastest bookie of the write quorum a bookie must be to be slow.
+     *
+     * @return the slow bookie add latency ratio.
+     */
+    public double getSlowBookieAddLatencyRatio() {
+        return getDouble(SLOW_BOOKIE_ADD_LATENCY_RATIO, 5.0);
+    }
+
+    /**
+     * Set how many times slower than the fastest bookie of the write quorum a bookie must be to be slow.
+     *
+     * @param ratio
+     *          the slow bookie add latency ratio, greater than 1.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSlowBookieAddLatencyRatio(double ratio) {
+        setProperty(SLOW_BOOKIE_ADD_LATENCY_RATIO, ratio);
+        return this;
+    }
+
+    /**
+     * Get the add latency under which a bookie is never considered as slow.
+     *
+     * @return the min add latency of a slow bookie in milliseconds.
+     */
+    public long getSlowBookieMinAddLatencyMs() {
+        return getLong(SLOW_BOOKIE_MIN_ADD_LATENCY_MS, 100L);
+    }
+
+    /**
+     * Set the add latency under which a bookie is never considered as slow.
+     *
+     * @param latencyMs
+     *          the min add latency of a slow bookie in milliseconds.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSlowBookieMinAddLatencyMs(long latencyMs) {
+        setProperty(SLOW_BOOKIE_MIN_ADD_LATENCY_MS, latencyMs);
+        return this;
+    }
+
+    /**
+     * Get the number of consecutive slow adds after which a bookie is replaced.
+     *
+     * @return the number of consecutive slow adds.
+     */
+    public int getSlowBookieMinSlowAdds() {
+        return getInt(SLOW_BOOKIE_MIN_SLOW_ADDS, 100);
+    }
+
+    /**
+     * Set the number of consecutive slow adds after which a bookie is replaced.
+     *
+     * @param numAdds
+     *          the number of consecutive slow adds.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSlowBookieMinSlowAdds(int numAdds) {
+        setProperty(SLOW_BOOKIE_MIN_SLOW_ADDS, numAdds);
+        return this;
+    }
+
+    /**
+     * Get the max number of ensemble changes per second triggered by slow bookies, across all the ledgers
+     * written by the client.
+     *
+     * <p>This bounds the metadata updates when a bookie shared by many ledgers gets slow.
+     *
+     * @return the max rate of slow bookie ensemble changes.
+     */
+    public double getSlowBookieMaxEnsembleChangeRate() {
+        return getDouble(SLOW_BOOKIE_MAX_ENSEMBLE_CHANGE_RATE, 10.0);
+    }
+
+    /**
+     * Set the max number of ensemble changes per second triggered by slow bookies.
+     *
+     * @param rate
+     *          the max rate of slow bookie ensemble changes.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSlowBookieMaxEnsembleChangeRate(double rate) {
+        setProperty(SLOW_BOOKIE_MAX_ENSEMBLE_CHANGE_RATE, rate);
+        return this;
+    }
+
     /**
      * Option to use Netty Pooled ByteBufs.
      *
@@ -120,6 +120,10 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     // Scrub Parameters
     protected static final String LOCAL_SCRUB_PERIOD = "localScrubInterval";
     protected static final String LOCAL_SCRUB_RATE_LIMIT = "localScrubRateLimit";
+    protected static final String ENTRY_LOG_SCRUB_PERIOD = "entryLogScrubInterval";
+    protected static final String ENTRY_LOG_SCRUB_MAX_RATE_BYTES = "entryLogScrubMaxRateBytes";
+    protected static final String ENTRY_LOG_SCRUB_MIN_RATE_BYTES = "entryLogScrubMinRateBytes";
+    protected static final String ENTRY_LOG_SCRUB_LATENCY_THRESHOLD = "entryLogScrubLatencyThreshold";
     // Sync Parameters
     protected static final String FLUSH_INTERVAL = "flushInterval";
     protected static final String FLUSH_ENTRYLOG_INTERVAL_BYTES = "flushEntrylogBytes";
@@ -131,6 +135,9 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String PAGE_SIZE = "pageSize";
     protected static final String FILEINFO_CACHE_INITIAL_CAPACITY = "fileInfoCacheInitialCapacity";
     protected static final String FILEINFO_MAX_IDLE_TIME = "fileInfoMaxIdleTime";
+    protected static final String FILEINFO_OPEN_THREADS = "fileInfoOpenThreads";
+    protected static final String FILEINFO_CLOSE_THREADS = "fileInfoCloseThreads";
+    protected static final String FILEINFO_MAX_PENDING_OPERATIONS = "fileInfoMaxPendingOperations";
     protected static final String FILEINFO_FORMAT_VERSION_TO_WRITE = "fileInfoFormatVersionToWrite";
     // Journal Parameters
     protected static final String MAX_JOURNAL_SIZE = "journalMaxSizeMB";
@@ -229,6 +236,16 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
+    protected static final String READ_SCHEDULER_ENABLED = "readSchedulerEnabled";
+    protected static final String READ_SCHEDULER_TAILING_DISTANCE = "readSchedulerTailingDistance";
+    protected static final String READ_SCHEDULER_TAILING_MAX_IN_FLIGHT_READS = "readSchedulerTailingMaxInFlightReads";
+    protected static final String READ_SCHEDULER_BACKLOG_MAX_IN_FLIGHT_READS = "readSchedulerBacklogMaxInFlightReads";
+    protected static final String READ_SCHEDULER_MAX_QUEUED_READS = "readSchedulerMaxQueuedReads";
+    protected static final String CLIENT_ADMISSION_CONTROL_ENABLED = "clientAdmissionControlEnabled";
+    protected static final String CLIENT_ADMISSION_MIN_IN_PROGRESS_PER_CLIENT = "clientAdmissionMinInProgressPerClient";
+    protected static final String CLIENT_ADMISSION_MAX_REQUESTS_PER_SECOND_PER_CLIENT =
+            "clientAdmissionMaxRequestsPerSecondPerClient";
+    protected static final String READ_SENDFILE_MIN_ENTRY_SIZE = "readSendfileMinEntrySize";
 
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
@@ -247,6 +264,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String SKIP_LIST_SIZE_LIMIT = "skipListSizeLimit";
     protected static final String SKIP_LIST_CHUNK_SIZE_ENTRY = "skipListArenaChunkSize";
     protected static final String SKIP_LIST_MAX_ALLOC_ENTRY = "skipListArenaMaxAllocSize";
+    protected static final String SKIP_LIST_OFF_HEAP_ENABLED = "skipListOffHeapEnabled";
 
     // Statistics Parameters
     protected static final String ENABLE_STATISTICS = "enableStatistics";
@@ -294,9 +312,16 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
      * config specifying if the entrylog per ledger is enabled or not.
      */
     protected static final String ENTRY_LOG_PER_LEDGER_ENABLED = "entryLogPerLedgerEnabled";
+    protected static final String ENTRY_LOG_PER_DIRECTORY_ENABLED = "entryLogPerDirectoryEnabled";
     // In the case of multipleentrylogs, multiple threads can be used to flush the memtable parallelly.
     protected static final String NUMBER_OF_MEMTABLE_FLUSH_THREADS = "numOfMemtableFlushThreads";
 
+    // Threads and queue bound used by the entry loggers to serve asynchronous entry reads
+    protected static final String ENTRY_LOG_READ_ASYNC_THREADS = "entryLogReadAsyncThreads";
+    protected static final String ENTRY_LOG_READ_ASYNC_MAX_PENDING_REQUESTS = "entryLogReadAsyncMaxPendingRequests";
+    // Size of the chunks read ahead while scanning entry logs sequentially
+    protected static final String ENTRY_LOG_SCAN_PREFETCH_CHUNK_SIZE = "entryLogScanPrefetchChunkSize";
+
 
     /*
      * config specifying if the entrylog per ledger is enabled, then the amount
@@ -346,6 +371,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
 
     protected static final String MAX_BATCH_READ_SIZE = "maxBatchReadSize";
     protected static final int DEFAULT_MAX_BATCH_READ_SIZE = 5 * 1024 * 1024; // 5MB
+    protected static final String MULTI_READ_FENCE_TIMEOUT_MS = "multiReadFenceTimeoutMs";
+    protected static final long DEFAULT_MULTI_READ_FENCE_TIMEOUT_MS = 1000L;
 
     /**
      * Construct a default configuration object.
@@ -617,6 +644,81 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         this.setProperty(LOCAL_SCRUB_RATE_LIMIT, scrubRateLimit);
     }
 
+    /**
+     * Get whether the background verification of the entry log block checksums is enabled.
+     *
+     * @return Whether entry log scrub is enabled.
+     */
+    public boolean isEntryLogScrubEnabled() {
+        return this.getEntryLogScrubPeriod() > 0;
+    }
+
+    /**
+     * Get the pause between two passes of the entry log scrubber over all the entry logs.
+     *
+     * @return Number of seconds between passes, {@literal <=}0 for disabled.
+     */
+    public long getEntryLogScrubPeriod() {
+        return this.getLong(ENTRY_LOG_SCRUB_PERIOD, 0);
+    }
+
+    /**
+     * Set the pause between two passes of the entry log scrubber in seconds ({@literal <=}0 for disabled).
+     */
+    public ServerConfiguration setEntryLogScrubPeriod(long period) {
+        this.setProperty(ENTRY_LOG_SCRUB_PERIOD, period);
+        return this;
+    }
+
+    /**
+     * Get the maximum rate (bytes/second) at which the entry log scrubber reads, when the ledger
+     * device is idle.
+     */
+    public long getEntryLogScrubMaxRateBytes() {
+        return this.getLong(ENTRY_LOG_SCRUB_MAX_RATE_BYTES, 64 * 1024 * 1024);
+    }
+
+    /**
+     * Set the maximum rate (bytes/second) at which the entry log scrubber reads.
+     */
+    public ServerConfiguration setEntryLogScrubMaxRateBytes(long rate) {
+        this.setProperty(ENTRY_LOG_SCRUB_MAX_RATE_BYTES, rate);
+        return this;
+    }
+
+    /**
+     * Get the minimum rate (bytes/second) at which the entry log scrubber reads, when the ledger
+     * device is loaded.
+     */
+    public long getEntryLogScrubMinRateBytes() {
+        return this.getLong(ENTRY_LOG_SCRUB_MIN_RATE_BYTES, 1024 * 1024);
+    }
+
+    /**
+     * Set the minimum rate (bytes/second) at which the entry log scrubber reads.
+     */
+    public ServerConfiguration setEntryLogScrubMinRateBytes(long rate) {
+        this.setProperty(ENTRY_LOG_SCRUB_MIN_RATE_BYTES, rate);
+        return this;
+    }
+
+    /**
+     * Get the ratio between the current and the lowest observed block read latency above which the
+     * ledger device is considered loaded, and the entry log scrubber slows down.
+     */
+    public double getEntryLogScrubLatencyThreshold() {
+        return this.getDouble(ENTRY_LOG_SCRUB_LATENCY_THRESHOLD, 2.0);
+    }
+
+    /**
+     * Set the ratio between the current and the lowest observed block read latency above which the
+     * entry log scrubber slows down.
+     */
+    public ServerConfiguration setEntryLogScrubLatencyThreshold(double threshold) {
+        this.setProperty(ENTRY_LOG_SCRUB_LATENCY_THRESHOLD, threshold);
+        return this;
+    }
+
     /**
      * Get flush interval. Default value is 10 second. It isn't useful to decrease
      * this value, since ledger storage only checkpoints when an entry logger file
@@ -791,6 +893,81 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get the number of threads used to open the index files of the file infos loaded into
+     * the file info cache. If the value is zero, index files are opened lazily by the thread
+     * which first accesses the file info.
+     *
+     * @return number of file info opener threads.
+     */
+    public int getFileInfoOpenThreads() {
+        return this.getInt(FILEINFO_OPEN_THREADS, 0);
+    }
+
+    /**
+     * Set the number of threads used to open the index files of the file infos loaded into
+     * the file info cache.
+     *
+     * @param numThreads
+     *          Number of file info opener threads.
+     * @see #getFileInfoOpenThreads
+     * @return server configuration object.
+     */
+    public ServerConfiguration setFileInfoOpenThreads(int numThreads) {
+        setProperty(FILEINFO_OPEN_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the number of threads used to flush and close the index files of the file infos
+     * evicted from the file info cache. If the value is zero, index files are closed by the
+     * thread which evicts the file info.
+     *
+     * @return number of file info closer threads.
+     */
+    public int getFileInfoCloseThreads() {
+        return this.getInt(FILEINFO_CLOSE_THREADS, 1);
+    }
+
+    /**
+     * Set the number of threads used to flush and close the index files of the file infos
+     * evicted from the file info cache.
+     *
+     * @param numThreads
+     *          Number of file info closer threads.
+     * @see #getFileInfoCloseThreads
+     * @return server configuration object.
+     */
+    public ServerConfiguration setFileInfoCloseThreads(int numThreads) {
+        setProperty(FILEINFO_CLOSE_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of index file opens, and of index file closes, that can be queued
+     * for the file info opener and closer threads. Once reached, index files are opened or closed
+     * by the calling thread.
+     *
+     * @return max number of pending file info operations.
+     */
+    public int getFileInfoMaxPendingOperations() {
+        return this.getInt(FILEINFO_MAX_PENDING_OPERATIONS, 10000);
+    }
+
+    /**
+     * Set the maximum number of index file opens, and of index file closes, that can be queued
+     * for the file info opener and closer threads.
+     *
+     * @param maxPendingOperations
+     *          Max number of pending file info operations.
+     * @see #getFileInfoMaxPendingOperations
+     * @return server configuration object.
+     */
+    public ServerConfiguration setFileInfoMaxPendingOperations(int maxPendingOperations) {
+        setProperty(FILEINFO_MAX_PENDING_OPERATIONS, maxPendingOperations);
+        return this;
+    }
+
     /**
      * Get fileinfo format version to write.
      *
@@ -2033,6 +2210,196 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getBoolean(READ_WORKER_THREADS_THROTTLING_ENABLED, true);
     }
 
+    /**
+     * Set whether regular read requests are classified as tailing or backlog reads, and scheduled
+     * on the read worker threads with per-class limits.
+     *
+     * @param enabled
+     *          whether to enable the read scheduler
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSchedulerEnabled(boolean enabled) {
+        setProperty(READ_SCHEDULER_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get whether regular read requests are classified as tailing or backlog reads, and scheduled
+     * on the read worker threads with per-class limits (default: false).
+     */
+    public boolean isReadSchedulerEnabled() {
+        return getBoolean(READ_SCHEDULER_ENABLED, false);
+    }
+
+    /**
+     * Set the max distance, in entries, from the last entry added to a ledger on this bookie for a read
+     * to be classified as a tailing read.
+     *
+     * @param distance
+     *          max distance of a tailing read
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSchedulerTailingDistance(long distance) {
+        setProperty(READ_SCHEDULER_TAILING_DISTANCE, distance);
+        return this;
+    }
+
+    /**
+     * Get the max distance, in entries, from the last entry added to a ledger on this bookie for a read
+     * to be classified as a tailing read (default: 1000).
+     */
+    public long getReadSchedulerTailingDistance() {
+        return getLong(READ_SCHEDULER_TAILING_DISTANCE, 1000L);
+    }
+
+    /**
+     * Set the max number of tailing reads in flight in the read worker threads. Once reached, tailing
+     * reads are queued until a tailing read completes. 0 means no limit: tailing reads go straight to the
+     * read worker threads and are only bounded by {@link #getMaxPendingReadRequestPerThread()}, so that the
+     * reads of the consumers keeping up with the writers are never delayed behind the scheduler.
+     *
+     * @param maxInFlightReads
+     *          max number of tailing reads in flight
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSchedulerTailingMaxInFlightReads(int maxInFlightReads) {
+        setProperty(READ_SCHEDULER_TAILING_MAX_IN_FLIGHT_READS, maxInFlightReads);
+        return this;
+    }
+
+    /**
+     * Get the max number of tailing reads in flight in the read worker threads (default: 0, no limit
+     * other than the read worker thread queues).
+     */
+    public int getReadSchedulerTailingMaxInFlightReads() {
+        return getInt(READ_SCHEDULER_TAILING_MAX_IN_FLIGHT_READS, 0);
+    }
+
+    /**
+     * Set the max number of backlog reads in flight in the read worker threads. Once reached, backlog
+     * reads are queued until a backlog read completes. 0 means half the number of read worker threads.
+     *
+     * @param maxInFlightReads
+     *          max number of backlog reads in flight
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSchedulerBacklogMaxInFlightReads(int maxInFlightReads) {
+        setProperty(READ_SCHEDULER_BACKLOG_MAX_IN_FLIGHT_READS, maxInFlightReads);
+        return this;
+    }
+
+    /**
+     * Get the max number of backlog reads in flight in the read worker threads
+     * (default: 0, half the number of read worker threads).
+     */
+    public int getReadSchedulerBacklogMaxInFlightReads() {
+        return getInt(READ_SCHEDULER_BACKLOG_MAX_IN_FLIGHT_READS, 0);
+    }
+
+    /**
+     * Set the max number of reads queued for each read class. After the quota is reached, new requests
+     * of the class will be failed immediately.
+     *
+     * @param maxQueuedReads
+     *          max number of queued reads per class
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSchedulerMaxQueuedReads(int maxQueuedReads) {
+        setProperty(READ_SCHEDULER_MAX_QUEUED_READS, maxQueuedReads);
+        return this;
+    }
+
+    /**
+     * Get the max number of reads queued for each read class (default: 10000).
+     */
+    public int getReadSchedulerMaxQueuedReads() {
+        return getInt(READ_SCHEDULER_MAX_QUEUED_READS, 10000);
+    }
+
+    /**
+     * Set whether requests are admitted per client. A client is identified by its authenticated principal,
+     * or by its host if it is not authenticated. Each client gets a fair share of
+     * {@link #getMaxAddsInProgressLimit()} and {@link #getMaxReadsInProgressLimit()}, and optionally a
+     * request rate limit. The bookie stops reading from the connections of a client over its share.
+     *
+     * @param enabled
+     *          whether to enable the per client admission control
+     * @return server configuration
+     */
+    public ServerConfiguration setClientAdmissionControlEnabled(boolean enabled) {
+        setProperty(CLIENT_ADMISSION_CONTROL_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get whether requests are admitted per client (default: false).
+     */
+    public boolean isClientAdmissionControlEnabled() {
+        return getBoolean(CLIENT_ADMISSION_CONTROL_ENABLED, false);
+    }
+
+    /**
+     * Set the min number of adds, and of reads, a client is allowed to have in progress, whatever the
+     * number of clients sharing the in progress limits.
+     *
+     * @param minInProgress
+     *          min number of requests in progress per client
+     * @return server configuration
+     */
+    public ServerConfiguration setClientAdmissionMinInProgressPerClient(int minInProgress) {
+        setProperty(CLIENT_ADMISSION_MIN_IN_PROGRESS_PER_CLIENT, minInProgress);
+        return this;
+    }
+
+    /**
+     * Get the min number of adds, and of reads, a client is allowed to have in progress (default: 10).
+     */
+    public int getClientAdmissionMinInProgressPerClient() {
+        return getInt(CLIENT_ADMISSION_MIN_IN_PROGRESS_PER_CLIENT, 10);
+    }
+
+    /**
+     * Set the max number of requests per second admitted for each client, with bursts of up to one
+     * second worth of requests. 0 means no limit.
+     *
+     * @param maxRequestsPerSecond
+     *          max number of requests per second per client
+     * @return server configuration
+     */
+    public ServerConfiguration setClientAdmissionMaxRequestsPerSecondPerClient(int maxRequestsPerSecond) {
+        setProperty(CLIENT_ADMISSION_MAX_REQUESTS_PER_SECOND_PER_CLIENT, maxRequestsPerSecond);
+        return this;
+    }
+
+    /**
+     * Get the max number of requests per second admitted for each client (default: 0, no limit).
+     */
+    public int getClientAdmissionMaxRequestsPerSecondPerClient() {
+        return getInt(CLIENT_ADMISSION_MAX_REQUESTS_PER_SECOND_PER_CLIENT, 0);
+    }
+
+    /**
+     * Set the min size of the entries which are sent to the clients directly from the entry log files,
+     * with a zero-copy file transfer (sendfile), instead of being read in memory. This only applies to
+     * entries read from an entry log on plaintext v2 protocol connections. 0 disables it.
+     *
+     * @param minEntrySize
+     *          min size of the entries sent from the entry log files
+     * @return server configuration
+     */
+    public ServerConfiguration setReadSendfileMinEntrySize(int minEntrySize) {
+        setProperty(READ_SENDFILE_MIN_ENTRY_SIZE, minEntrySize);
+        return this;
+    }
+
+    /**
+     * Get the min size of the entries which are sent to the clients directly from the entry log files
+     * (default: 0, disabled).
+     */
+    public int getReadSendfileMinEntrySize() {
+        return getInt(READ_SENDFILE_MIN_ENTRY_SIZE, 0);
+    }
+
 
 
     /**
@@ -2270,6 +2637,27 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether the memtable of the sorted ledger storage keeps the entries out of the java heap.
+     * See org.apache.bookkeeper.bookie.OffHeapEntryMemTable.
+     *
+     * @return true if the off-heap memtable is used (default false)
+     */
+    public boolean isSkipListOffHeapEnabled() {
+        return getBoolean(SKIP_LIST_OFF_HEAP_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable the off-heap memtable of the sorted ledger storage.
+     *
+     * @param enabled whether to keep the memtable entries out of the java heap
+     * @return server configuration object.
+     */
+    public ServerConfiguration setSkipListOffHeapEnabled(boolean enabled) {
+        setProperty(SKIP_LIST_OFF_HEAP_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Should the data be fsynced on journal before acknowledgment.
      *
@@ -3859,6 +4247,25 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /*
+     * specifies if entryLog per ledger directory is enabled. If it is enabled, then
+     * there would be an active entrylog for each ledger directory, ledgers being
+     * spread across them, and the memtable would be flushed to all of them in parallel.
+     * It is ignored if entryLog per ledger is enabled.
+     */
+    public boolean isEntryLogPerDirectoryEnabled() {
+        return this.getBoolean(ENTRY_LOG_PER_DIRECTORY_ENABLED, false);
+    }
+
+    /*
+     * enables/disables entrylog per ledger directory feature.
+     *
+     */
+    public ServerConfiguration setEntryLogPerDirectoryEnabled(boolean entryLogPerDirectoryEnabled) {
+        this.setProperty(ENTRY_LOG_PER_DIRECTORY_ENABLED, Boolean.toString(entryLogPerDirectoryEnabled));
+        return this;
+    }
+
     /*
      * In the case of multipleentrylogs, multiple threads can be used to flush the memtable.
      *
@@ -3877,6 +4284,56 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /*
+     * Gets the number of threads used by the entry logger to serve asynchronous entry reads.
+     * If it is 0, asynchronous reads are performed on the calling thread.
+     */
+    public int getEntryLogReadAsyncThreads() {
+        return this.getInt(ENTRY_LOG_READ_ASYNC_THREADS, 0);
+    }
+
+    /*
+     * Sets the number of threads used by the entry logger to serve asynchronous entry reads.
+     */
+    public ServerConfiguration setEntryLogReadAsyncThreads(int entryLogReadAsyncThreads) {
+        this.setProperty(ENTRY_LOG_READ_ASYNC_THREADS, Integer.toString(entryLogReadAsyncThreads));
+        return this;
+    }
+
+    /*
+     * Gets the maximum number of asynchronous entry reads that can be queued. Once reached, reads
+     * are performed on the calling thread.
+     */
+    public int getEntryLogReadAsyncMaxPendingRequests() {
+        return this.getInt(ENTRY_LOG_READ_ASYNC_MAX_PENDING_REQUESTS, 10000);
+    }
+
+    /*
+     * Sets the maximum number of asynchronous entry reads that can be queued.
+     */
+    public ServerConfiguration setEntryLogReadAsyncMaxPendingRequests(int maxPendingRequests) {
+        this.setProperty(ENTRY_LOG_READ_ASYNC_MAX_PENDING_REQUESTS, Integer.toString(maxPendingRequests));
+        return this;
+    }
+
+    /*
+     * Gets the size of the chunks that entry log scans (compaction, metadata extraction, index
+     * rebuild) read ahead from the log file on a separate thread. If it is 0, the scans read
+     * the log entry by entry.
+     */
+    public int getEntryLogScanPrefetchChunkSize() {
+        int chunkSize = this.getInt(ENTRY_LOG_SCAN_PREFETCH_CHUNK_SIZE, 0);
+        return chunkSize > 0 ? Math.max(chunkSize, 64 * 1024) : 0;
+    }
+
+    /*
+     * Sets the size of the chunks that entry log scans read ahead from the log file.
+     */
+    public ServerConfiguration setEntryLogScanPrefetchChunkSize(int chunkSize) {
+        this.setProperty(ENTRY_LOG_SCAN_PREFETCH_CHUNK_SIZE, Integer.toString(chunkSize));
+        return this;
+    }
+
     /*
      * in entryLogPerLedger feature, this specifies the time, once this duration
      * has elapsed after the entry's last access, that entry should be
@@ -4149,4 +4606,26 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     public long getMaxBatchReadSize() {
         return this.getLong(MAX_BATCH_READ_SIZE, DEFAULT_MAX_BATCH_READ_SIZE);
     }
+
+    /**
+     * Set the max time a multi read request waits for the ledgers it fences to be fenced.
+     *
+     * @param timeoutMs
+     *          the fence timeout, in milliseconds
+     * @return server configuration
+     */
+    public ServerConfiguration setMultiReadFenceTimeoutMs(long timeoutMs) {
+        this.setProperty(MULTI_READ_FENCE_TIMEOUT_MS, timeoutMs);
+        return this;
+    }
+
+    /**
+     * Get the max time a multi read request waits for the ledgers it fences to be fenced. The ranges
+     * of the ledgers not fenced in time are returned with an error.
+     *
+     * @return the fence timeout, in milliseconds
+     */
+    public long getMultiReadFenceTimeoutMs() {
+        return this.getLong(MULTI_READ_FENCE_TIMEOUT_MS, DEFAULT_MULTI_READ_FENCE_TIMEOUT_MS);
+    }
 }
@@ -29,6 +29,7 @@ import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.Queue;
@@ -337,6 +338,9 @@ class AuthHandler {
                     // through
                     break;
                 }
+            } else if (msg instanceof ProtobufV3Codec.ReadEntryResponse) {
+                LOG.warn("dropping received message {} from bookie {}", msg, ctx.channel());
+                ReferenceCountUtil.release(msg);
             }
         }
 
@@ -366,7 +370,8 @@ class AuthHandler {
                     } else {
                         waitingForAuth.add(msg);
                     }
-                } else if (msg instanceof ByteBuf || msg instanceof ByteBufList) {
+                } else if (msg instanceof ByteBuf || msg instanceof ByteBufList
+                        || msg instanceof ProtobufV3Codec.AddEntryRequest) {
                     waitingForAuth.add(msg);
                 } else {
                     LOG.info("[{}] dropping write of message {}", ctx.channel(), msg);
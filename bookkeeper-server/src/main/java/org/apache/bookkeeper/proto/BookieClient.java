@@ -29,6 +29,7 @@ import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -259,6 +260,25 @@ public interface BookieClient {
     void getBookieInfo(BookieId address, long requested,
                        GetBookieInfoCallback cb, Object ctx);
 
+    /**
+     * Read ranges of entries of several ledgers from bookie at address {@code address}, in a single request.
+     *
+     * <p>The ranges are read in order, and the bookie stops reading once the total size of the entries read
+     * reaches {@code maxSize}, so the results may cover fewer ranges, and fewer entries per range, than
+     * requested. The first entry of the first range is always returned if it can be read. The entries are
+     * returned as they are stored on the bookie, the caller is responsible for verifying their digests.
+     * The ranges carrying a master key fence their ledger before being read, so that a recovery can fence
+     * many ledgers in a single request. This operation requires the v3 protocol.
+     *
+     * @param address address of the bookie to read from
+     * @param ranges the ranges of entries to read
+     * @param maxSize the max total size of the entries returned, or 0 to only use the limit of the bookie
+     * @param cb the callback notified when the request completes
+     * @param ctx a context object passed to the callback on completion
+     */
+    void multiReadEntries(BookieId address, List<MultiReadEntries.Range> ranges, long maxSize,
+                          MultiReadEntryCallback cb, Object ctx);
+
     /**
      * Makes async request for getting list of entries of ledger from a bookie
      * and returns Future for the result.
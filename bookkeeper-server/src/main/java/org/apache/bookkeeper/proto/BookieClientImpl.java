@@ -35,6 +35,7 @@ import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -59,6 +60,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
@@ -81,6 +83,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
 
     private final OrderedExecutor executor;
     private final ScheduledExecutorService scheduler;
+    private final boolean checkTimeouts;
     private final ScheduledFuture<?> timeoutFuture;
 
     private final EventLoopGroup eventLoopGroup;
@@ -124,7 +127,9 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         this.bookieErrorThresholdPerInterval = conf.getBookieErrorThresholdPerInterval();
 
         this.scheduler = scheduler;
-        if (conf.getAddEntryTimeout() > 0 || conf.getReadEntryTimeout() > 0) {
+        this.checkTimeouts = conf.getAddEntryTimeout() > 0 || conf.getReadEntryTimeout() > 0;
+        // the monitor also closes the extra channels of the pools once idle
+        if (checkTimeouts || conf.getMaxChannelsPerBookie() > numConnectionsPerBookie) {
             this.timeoutFuture = this.scheduler.scheduleAtFixedRate(
                     () -> monitorPendingOperations(),
                     conf.getTimeoutMonitorIntervalSec(),
@@ -205,7 +210,8 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
                     return null;
                 }
                 PerChannelBookieClientPool newClientPool =
-                    new DefaultPerChannelBookieClientPool(conf, this, addr, numConnectionsPerBookie);
+                    new DefaultPerChannelBookieClientPool(conf, this, addr, numConnectionsPerBookie,
+                            conf.getLimitStatsLogging() ? NullStatsLogger.INSTANCE : statsLogger);
                 PerChannelBookieClientPool oldClientPool = channels.putIfAbsent(addr, newClientPool);
                 if (null == oldClientPool) {
                     clientPool = newClientPool;
@@ -495,7 +501,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
             return;
         }
 
-        client.obtain((rc, pcbc) -> {
+        client.obtainUnordered((rc, pcbc) -> {
             if (rc != BKException.Code.OK) {
                 completeRead(rc, ledgerId, entryId, null, cb, ctx);
             } else {
@@ -515,7 +521,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
             return;
         }
 
-        client.obtain((rc, pcbc) -> {
+        client.obtainUnordered((rc, pcbc) -> {
             if (rc != BKException.Code.OK) {
                 completeBatchRead(rc, ledgerId, startEntryId, null, cb, ctx);
             } else {
@@ -525,6 +531,33 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }, ledgerId);
     }
 
+    @Override
+    public void multiReadEntries(final BookieId address, final List<MultiReadEntries.Range> ranges,
+            final long maxSize, final MultiReadEntryCallback cb, final Object ctx) {
+        if (ranges.isEmpty()) {
+            cb.readEntriesComplete(BKException.Code.OK, Collections.emptyList(), ctx);
+            return;
+        }
+        final long orderingKey = ranges.get(0).getLedgerId();
+        final PerChannelBookieClientPool client = lookupClient(address);
+        if (client == null) {
+            cb.readEntriesComplete(getRc(BKException.Code.BookieHandleNotAvailableException), null, ctx);
+            return;
+        }
+
+        client.obtainUnordered((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                try {
+                    executor.executeOrdered(orderingKey, () -> cb.readEntriesComplete(rc, null, ctx));
+                } catch (RejectedExecutionException ree) {
+                    cb.readEntriesComplete(getRc(BKException.Code.InterruptedException), null, ctx);
+                }
+            } else {
+                pcbc.multiReadEntries(ranges, maxSize, cb, ctx);
+            }
+        }, orderingKey);
+    }
+
     @Override
     public void readEntryWaitForLACUpdate(final BookieId addr,
                                           final long ledgerId,
@@ -576,7 +609,10 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
 
     private void monitorPendingOperations() {
         for (PerChannelBookieClientPool clientPool : channels.values()) {
-            clientPool.checkTimeoutOnPendingOperations();
+            if (checkTimeouts) {
+                clientPool.checkTimeoutOnPendingOperations();
+            }
+            clientPool.scaleDownIdleChannels();
         }
     }
 
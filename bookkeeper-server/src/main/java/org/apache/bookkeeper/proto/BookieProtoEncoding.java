@@ -28,6 +28,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -267,6 +268,20 @@ public class BookieProtoEncoding {
 
         private static final int RESPONSE_HEADERS_SIZE = 24;
 
+        /**
+         * Serialize the frame size and the headers of a read response, whose payload is sent separately.
+         */
+        static ByteBuf serializeReadResponseHeaders(BookieProtocol.Response r, int payloadSize,
+                                                    ByteBufAllocator allocator) {
+            ByteBuf buf = allocator.buffer(4 /* frame size */ + RESPONSE_HEADERS_SIZE);
+            buf.writeInt(RESPONSE_HEADERS_SIZE + payloadSize);
+            buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+            buf.writeInt(r.getErrorCode());
+            buf.writeLong(r.getLedgerId());
+            buf.writeLong(r.getEntryId());
+            return buf;
+        }
+
         @Override
         public Object encode(Object msg, ByteBufAllocator allocator)
                 throws Exception {
@@ -399,7 +414,7 @@ public class BookieProtoEncoding {
                     }
                 }
                 return new BookieProtocol.BatchedReadResponse(version, rc, ledgerId, entryId, requestId, data == null
-                        ? ByteBufList.get() : data.retain());
+                        ? ByteBufList.get() : data);
             case BookieProtocol.AUTH:
                 ByteBufInputStream bufStream = new ByteBufInputStream(buffer);
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
@@ -455,6 +470,10 @@ public class BookieProtoEncoding {
 
         @Override
         public Object decode(ByteBuf packet) throws Exception {
+            Object response = ProtobufV3Codec.ReadEntryResponse.decode(packet);
+            if (response != null) {
+                return response;
+            }
             return BookkeeperProtocol.Response.parseFrom(new ByteBufInputStream(packet),
                                                          extensionRegistry);
         }
@@ -514,6 +533,8 @@ public class BookieProtoEncoding {
             }
             if (msg instanceof ByteBuf || msg instanceof ByteBufList) {
                 ctx.write(msg, promise);
+            } else if (msg instanceof ProtobufV3Codec.AddEntryRequest) {
+                ctx.write(((ProtobufV3Codec.AddEntryRequest) msg).encode(ctx.alloc()), promise);
             } else if (msg instanceof BookkeeperProtocol.Request) {
                 ctx.write(reqV3.encode(msg, ctx.alloc()), promise);
             } else if (msg instanceof BookieProtocol.Request) {
@@ -593,8 +614,18 @@ public class BookieProtoEncoding {
 
             if (msg instanceof ByteBuf) {
                 ctx.write(msg, promise);
+            } else if (msg instanceof ProtobufV3Codec.ReadEntryResponse) {
+                ctx.write(((ProtobufV3Codec.ReadEntryResponse) msg).encode(ctx.alloc()), promise);
             } else if (msg instanceof BookkeeperProtocol.Response) {
                 ctx.write(repV3.encode(msg, ctx.alloc()), promise);
+            } else if (msg instanceof BookieProtocol.ReadFileRegionResponse) {
+                BookieProtocol.ReadFileRegionResponse rr = (BookieProtocol.ReadFileRegionResponse) msg;
+                ctx.write(ResponseEnDeCoderPreV3.serializeReadResponseHeaders(rr, (int) rr.getData().count(),
+                        ctx.alloc()), ctx.voidPromise());
+                // The headers are already written, the connection can't be used after a failed transfer
+                ChannelPromise regionPromise = promise.unvoid();
+                regionPromise.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                ctx.write(rr.getData(), regionPromise);
             } else if (msg instanceof BookieProtocol.Response) {
                 ctx.write(repPreV3.encode(msg, ctx.alloc()), promise);
             } else {
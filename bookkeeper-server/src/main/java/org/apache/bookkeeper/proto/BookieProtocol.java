@@ -22,6 +22,7 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
@@ -552,6 +553,61 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A read response whose entry is sent from the region of the entry log file holding it.
+     */
+    class ReadFileRegionResponse extends Response implements ReferenceCounted {
+        final FileRegion data;
+
+        ReadFileRegionResponse(byte protocolVersion, int errorCode, long ledgerId, long entryId, FileRegion data) {
+            init(protocolVersion, READENTRY, errorCode, ledgerId, entryId);
+            this.data = data;
+        }
+
+        FileRegion getData() {
+            return data;
+        }
+
+        @Override
+        public int refCnt() {
+            return data.refCnt();
+        }
+
+        @Override
+        public ReferenceCounted retain() {
+            data.retain();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted retain(int increment) {
+            data.retain(increment);
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch() {
+            data.touch();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            data.touch(hint);
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            return data.release();
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return data.release(decrement);
+        }
+    }
+
     /**
      * The response for batched read.
      * The ledger_id and entry_id will be used as start_ledger_id and start_entry_id.
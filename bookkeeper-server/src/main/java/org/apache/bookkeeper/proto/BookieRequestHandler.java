@@ -45,6 +45,10 @@ public class BookieRequestHandler extends ChannelInboundHandlerAdapter {
     private ByteBuf pendingSendResponses = null;
     private int maxPendingResponsesSize = DEFAULT_PENDING_RESPONSE_SIZE;
 
+    private volatile ClientAdmissionController.Client admissionClient = null;
+    // number of throttling paths which paused reading from the channel, guarded by this
+    private int readPauses = 0;
+
     BookieRequestHandler(ServerConfiguration conf, RequestProcessor processor, ChannelGroup allChannels) {
         this.requestProcessor = processor;
         this.allChannels = allChannels;
@@ -54,6 +58,31 @@ public class BookieRequestHandler extends ChannelInboundHandlerAdapter {
         return ctx;
     }
 
+    ClientAdmissionController.Client getAdmissionClient() {
+        return admissionClient;
+    }
+
+    void setAdmissionClient(ClientAdmissionController.Client admissionClient) {
+        this.admissionClient = admissionClient;
+    }
+
+    /**
+     * Stop reading from the channel until {@link #resumeReading()} is called as many times. All the
+     * throttling paths go through this to own the autoread flag of the channel together, so that one of
+     * them doesn't re-enable reading from a channel paused by another.
+     */
+    synchronized void pauseReading() {
+        if (readPauses++ == 0) {
+            ctx.channel().config().setAutoRead(false);
+        }
+    }
+
+    synchronized void resumeReading() {
+        if (--readPauses == 0) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         log.info("Channel connected {}", ctx.channel());
@@ -30,7 +30,9 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.Future;
@@ -106,6 +108,11 @@ public class BookieRequestProcessor implements RequestProcessor {
      */
     private final OrderedExecutor highPriorityThreadPool;
 
+    /**
+     * Schedules the regular read requests on the read threadpool, null if disabled.
+     */
+    private final ReadRequestScheduler readScheduler;
+
     /**
      * The Timer used to time out requests for long polling.
      */
@@ -119,6 +126,8 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     final Semaphore addsSemaphore;
     final Semaphore readsSemaphore;
+    private final ClientAdmissionController admissionController;
+    private final int readSendfileMinEntrySize;
 
     final ChannelGroup allChannels;
 
@@ -166,6 +175,11 @@ public class BookieRequestProcessor implements RequestProcessor {
                 this.serverCfg.getNumHighPriorityWorkerThreads(),
                 "BookieHighPriorityThread",
                 OrderedExecutor.NO_TASK_LIMIT, statsLogger);
+        if (serverCfg.isReadSchedulerEnabled() && readThreadPool != null) {
+            this.readScheduler = new ReadRequestScheduler(serverCfg, readThreadPool, statsLogger);
+        } else {
+            this.readScheduler = null;
+        }
         this.shFactory = shFactory;
         if (shFactory != null) {
             shFactory.init(NodeType.Server, serverCfg, allocator);
@@ -204,17 +218,30 @@ public class BookieRequestProcessor implements RequestProcessor {
 
         int maxReads = serverCfg.getMaxReadsInProgressLimit();
         readsSemaphore = maxReads > 0 ? new Semaphore(maxReads, true) : null;
+
+        readSendfileMinEntrySize = serverCfg.getReadSendfileMinEntrySize();
+
+        if (serverCfg.isClientAdmissionControlEnabled()) {
+            admissionController = new ClientAdmissionController(serverCfg, statsLogger);
+        } else {
+            admissionController = null;
+        }
     }
 
-    protected void onAddRequestStart(Channel channel) {
+    protected void onAddRequestStart(BookieRequestHandler requestHandler) {
+        // the client is checked against its share first, so that it doesn't take more of the global limit
+        if (admissionController != null) {
+            admissionController.onAddRequestStart(requestHandler);
+        }
+        Channel channel = requestHandler.ctx().channel();
         if (addsSemaphore != null) {
             if (!addsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                requestHandler.pauseReading();
                 LOG.info("Too many add requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockAddRequest();
                 addsSemaphore.acquireUninterruptibly();
-                channel.config().setAutoRead(true);
+                requestHandler.resumeReading();
                 final long delayNanos = MathUtils.elapsedNanos(throttlingStartTimeNanos);
                 LOG.info("Re-enabled autoread on channel {} after AddRequest delay of {} nanos", channel, delayNanos);
                 requestStats.unblockAddRequest(delayNanos);
@@ -223,22 +250,30 @@ public class BookieRequestProcessor implements RequestProcessor {
         requestStats.trackAddRequest();
     }
 
-    protected void onAddRequestFinish() {
+    protected void onAddRequestFinish(BookieRequestHandler requestHandler) {
         requestStats.untrackAddRequest();
         if (addsSemaphore != null) {
             addsSemaphore.release();
         }
+        if (admissionController != null) {
+            admissionController.onAddRequestFinish(requestHandler);
+        }
     }
 
-    protected void onReadRequestStart(Channel channel) {
+    protected void onReadRequestStart(BookieRequestHandler requestHandler) {
+        // the client is checked against its share first, so that it doesn't take more of the global limit
+        if (admissionController != null) {
+            admissionController.onReadRequestStart(requestHandler);
+        }
+        Channel channel = requestHandler.ctx().channel();
         if (readsSemaphore != null) {
             if (!readsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                requestHandler.pauseReading();
                 LOG.info("Too many read requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockReadRequest();
                 readsSemaphore.acquireUninterruptibly();
-                channel.config().setAutoRead(true);
+                requestHandler.resumeReading();
                 final long delayNanos = MathUtils.elapsedNanos(throttlingStartTimeNanos);
                 LOG.info("Re-enabled autoread on channel {} after ReadRequest delay of {} nanos", channel, delayNanos);
                 requestStats.unblockReadRequest(delayNanos);
@@ -247,11 +282,14 @@ public class BookieRequestProcessor implements RequestProcessor {
         requestStats.trackReadRequest();
     }
 
-    protected void onReadRequestFinish() {
+    protected void onReadRequestFinish(BookieRequestHandler requestHandler) {
         requestStats.untrackReadRequest();
         if (readsSemaphore != null) {
             readsSemaphore.release();
         }
+        if (admissionController != null) {
+            admissionController.onReadRequestFinish(requestHandler);
+        }
     }
 
     @VisibleForTesting
@@ -353,6 +391,9 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case GET_LIST_OF_ENTRIES_OF_LEDGER:
                         processGetListOfEntriesOfLedgerProcessorV3(r, requestHandler);
                         break;
+                    case MULTI_READ_ENTRY:
+                        processMultiReadRequestV3(r, requestHandler);
+                        break;
                     default:
                         LOG.info("Unknown operation type {}", header.getOperation());
                         final BookkeeperProtocol.Response response =
@@ -441,6 +482,9 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     private void processAddRequestV3(final BookkeeperProtocol.Request r, final BookieRequestHandler requestHandler) {
         WriteEntryProcessorV3 write = new WriteEntryProcessorV3(r, requestHandler, this);
+        if (null != readScheduler) {
+            readScheduler.onAddEntry(r.getAddRequest().getLedgerId(), r.getAddRequest().getEntryId());
+        }
 
         final OrderedExecutor threadPool;
         if (RequestUtils.isHighPriority(r)) {
@@ -518,6 +562,7 @@ public class BookieRequestProcessor implements RequestProcessor {
 
         final ReadEntryProcessorV3 read;
         final OrderedExecutor threadPool;
+        boolean scheduled = false;
         if (RequestUtils.isLongPollReadRequest(r.getReadRequest())) {
             ExecutorService lpThread = longPollThreadPool.chooseThread(requestHandler.ctx());
 
@@ -536,6 +581,7 @@ public class BookieRequestProcessor implements RequestProcessor {
                 threadPool = highPriorityThreadPool;
             } else {
                 threadPool = readThreadPool;
+                scheduled = null != readScheduler;
             }
         }
 
@@ -543,28 +589,38 @@ public class BookieRequestProcessor implements RequestProcessor {
             read.run();
         } else {
             try {
-                threadPool.executeOrdered(r.getReadRequest().getLedgerId(), read);
-            } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests",
-                              r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId());
+                if (scheduled) {
+                    readScheduler.executeOrdered(r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId(),
+                            read, () -> rejectReadRequestV3(r, read, requestHandler));
+                } else {
+                    threadPool.executeOrdered(r.getReadRequest().getLedgerId(), read);
                 }
-                getRequestStats().getReadEntryRejectedCounter().inc();
-                BookkeeperProtocol.ReadResponse.Builder readResponse = BookkeeperProtocol.ReadResponse.newBuilder()
-                    .setLedgerId(r.getReadRequest().getLedgerId())
-                    .setEntryId(r.getReadRequest().getEntryId())
-                    .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
-                BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
-                    .setHeader(read.getHeader())
-                    .setStatus(readResponse.getStatus())
-                    .setReadResponse(readResponse);
-                BookkeeperProtocol.Response resp = response.build();
-                read.sendResponse(readResponse.getStatus(), resp, requestStats.getReadRequestStats());
-                onReadRequestFinish();
+            } catch (RejectedExecutionException e) {
+                rejectReadRequestV3(r, read, requestHandler);
             }
         }
     }
 
+    private void rejectReadRequestV3(final BookkeeperProtocol.Request r, final ReadEntryProcessorV3 read,
+                                     final BookieRequestHandler requestHandler) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests",
+                      r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId());
+        }
+        getRequestStats().getReadEntryRejectedCounter().inc();
+        BookkeeperProtocol.ReadResponse.Builder readResponse = BookkeeperProtocol.ReadResponse.newBuilder()
+            .setLedgerId(r.getReadRequest().getLedgerId())
+            .setEntryId(r.getReadRequest().getEntryId())
+            .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+        BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+            .setHeader(read.getHeader())
+            .setStatus(readResponse.getStatus())
+            .setReadResponse(readResponse);
+        BookkeeperProtocol.Response resp = response.build();
+        read.sendResponse(readResponse.getStatus(), resp, requestStats.getReadRequestStats());
+        onReadRequestFinish(requestHandler);
+    }
+
     private void processStartTLSRequestV3(final BookkeeperProtocol.Request r,
                                           final BookieRequestHandler requestHandler) {
         BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder();
@@ -643,7 +699,36 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processMultiReadRequestV3(final BookkeeperProtocol.Request r,
+                                           final BookieRequestHandler requestHandler) {
+        ExecutorService fenceThreadPool =
+                null == highPriorityThreadPool ? null : highPriorityThreadPool.chooseThread(requestHandler.ctx());
+        MultiReadEntryProcessorV3 multiRead = new MultiReadEntryProcessorV3(r, requestHandler, this,
+                serverCfg.getMaxBatchReadSize(), fenceThreadPool, serverCfg.getMultiReadFenceTimeoutMs());
+        if (null == readThreadPool) {
+            multiRead.run();
+        } else {
+            try {
+                readThreadPool.submit(multiRead);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process multi read request. Too many pending requests");
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+                        .setHeader(multiRead.getHeader())
+                        .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+                multiRead.sendResponse(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS, response.build(),
+                        requestStats.getMultiReadEntryRequestStats());
+                onReadRequestFinish(requestHandler);
+            }
+        }
+    }
+
     private void processAddRequest(final BookieProtocol.ParsedAddRequest r, final BookieRequestHandler requestHandler) {
+        if (null != readScheduler) {
+            readScheduler.onAddEntry(r.getLedgerId(), r.getEntryId());
+        }
         WriteEntryProcessor write = WriteEntryProcessor.create(r, requestHandler, this);
 
         // If it's a high priority add (usually as part of recovery process), we want to make sure it gets
@@ -701,23 +786,50 @@ public class BookieRequestProcessor implements RequestProcessor {
             read.run();
         } else {
             try {
-                threadPool.executeOrdered(r.getLedgerId(), read);
-            } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests", r.ledgerId,
-                            r.entryId);
+                if (threadPool == readThreadPool && null != readScheduler) {
+                    readScheduler.executeOrdered(r.getLedgerId(), r.getEntryId(), read,
+                            () -> rejectReadRequest(r, read, requestHandler));
+                } else {
+                    threadPool.executeOrdered(r.getLedgerId(), read);
                 }
-                getRequestStats().getReadEntryRejectedCounter().inc();
-                read.sendResponse(
-                    BookieProtocol.ETOOMANYREQUESTS,
-                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
-                    requestStats.getReadRequestStats());
-                onReadRequestFinish();
-                read.recycle();
+            } catch (RejectedExecutionException e) {
+                rejectReadRequest(r, read, requestHandler);
             }
         }
     }
 
+    private void rejectReadRequest(final BookieProtocol.ReadRequest r, final ReadEntryProcessor read,
+                                   final BookieRequestHandler requestHandler) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests", r.ledgerId,
+                    r.entryId);
+        }
+        getRequestStats().getReadEntryRejectedCounter().inc();
+        read.sendResponse(
+            BookieProtocol.ETOOMANYREQUESTS,
+            ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+            requestStats.getReadRequestStats());
+        onReadRequestFinish(requestHandler);
+        read.recycle();
+    }
+
+    /**
+     * Get the min size of the entries which can be sent from the entry log files on the connection.
+     *
+     * @return the min size, or 0 if entries can't be sent as file regions on the connection
+     */
+    int getReadSendfileMinEntrySize(BookieRequestHandler requestHandler) {
+        if (readSendfileMinEntrySize <= 0) {
+            return 0;
+        }
+        Channel channel = requestHandler.ctx().channel();
+        if (!(channel instanceof EpollSocketChannel || channel instanceof NioSocketChannel)
+                || channel.pipeline().get(SslHandler.class) != null) {
+            return 0;
+        }
+        return readSendfileMinEntrySize;
+    }
+
     public long getWaitTimeoutOnBackpressureMillis() {
         return waitTimeoutOnBackpressureMillis;
     }
@@ -22,6 +22,7 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -77,6 +78,12 @@ public class BookkeeperInternalCallbacks {
      */
     public interface WriteCallback {
         void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx);
+
+        /**
+         * Called once the write request has been written to the channel of the bookie, before its response.
+         */
+        default void writeSent(long ledgerId, long entryId, BookieId addr, Object ctx) {
+        }
     }
 
     /**
@@ -232,6 +239,15 @@ public class BookkeeperInternalCallbacks {
         void readEntriesComplete(int rc, long ledgerId, long startEntryId, ByteBufList bufList, Object ctx);
     }
 
+    /**
+     * Declaration of a callback implementation for calls from BookieClient objects.
+     * Such calls are for replies of multi read operations (operations to read ranges of entries
+     * from several ledgers).
+     */
+    public interface MultiReadEntryCallback {
+        void readEntriesComplete(int rc, List<MultiReadEntries.Result> results, Object ctx);
+    }
+
     /**
      * Listener on entries responded.
      */
@@ -0,0 +1,322 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_ADD_REQUESTS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_ADMISSION_BUSY_CLIENTS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_READ_REQUESTS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_THROTTLED_REQUESTS;
+
+import io.netty.channel.Channel;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.auth.BookKeeperPrincipal;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits the add and read requests per client, so that an aggressive client can't use up the in progress
+ * limits of the bookie for everyone.
+ *
+ * <p>A client is identified by its authenticated principal, or by its host if it is not authenticated, and
+ * may use several connections. Each client with requests in progress gets an equal share of the in progress
+ * limits, but at least {@link ServerConfiguration#getClientAdmissionMinInProgressPerClient()}, and may be
+ * limited to a request rate by a token bucket. A request is never rejected: the requests of a client over
+ * its share wait in the socket buffers of its connections, as the bookie stops reading from them until
+ * enough of its requests complete, or until its token bucket refills.
+ */
+class ClientAdmissionController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientAdmissionController.class);
+
+    private final int maxAddsInProgress;
+    private final int maxReadsInProgress;
+    private final int minInProgressPerClient;
+    private final double requestsPerNano;
+    private final double maxTokens;
+
+    // aggregated over the clients, as per client stats would grow with every client ever seen
+    private final Counter addRequests;
+    private final Counter readRequests;
+    private final Counter throttledRequests;
+
+    private final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger busyClients = new AtomicInteger(0);
+
+    ClientAdmissionController(ServerConfiguration conf, StatsLogger statsLogger) {
+        this.maxAddsInProgress = conf.getMaxAddsInProgressLimit();
+        this.maxReadsInProgress = conf.getMaxReadsInProgressLimit();
+        this.minInProgressPerClient = Math.max(1, conf.getClientAdmissionMinInProgressPerClient());
+        int requestsPerSecond = conf.getClientAdmissionMaxRequestsPerSecondPerClient();
+        this.requestsPerNano = requestsPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+        this.maxTokens = requestsPerSecond;
+        this.addRequests = statsLogger.getCounter(CLIENT_ADD_REQUESTS);
+        this.readRequests = statsLogger.getCounter(CLIENT_READ_REQUESTS);
+        this.throttledRequests = statsLogger.getCounter(CLIENT_THROTTLED_REQUESTS);
+        statsLogger.registerGauge(CLIENT_ADMISSION_BUSY_CLIENTS, new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return busyClients.get();
+            }
+        });
+    }
+
+    void onAddRequestStart(BookieRequestHandler requestHandler) {
+        onRequestStart(requestHandler, true);
+    }
+
+    void onAddRequestFinish(BookieRequestHandler requestHandler) {
+        onRequestFinish(requestHandler, true);
+    }
+
+    void onReadRequestStart(BookieRequestHandler requestHandler) {
+        onRequestStart(requestHandler, false);
+    }
+
+    void onReadRequestFinish(BookieRequestHandler requestHandler) {
+        onRequestFinish(requestHandler, false);
+    }
+
+    private void onRequestStart(BookieRequestHandler requestHandler, boolean add) {
+        Client client = requestHandler.getAdmissionClient();
+        if (null == client) {
+            client = register(requestHandler);
+        }
+        (add ? addRequests : readRequests).inc();
+
+        boolean pause;
+        boolean scheduleResume = false;
+        synchronized (client) {
+            if (client.addsInProgress + client.readsInProgress == 0) {
+                busyClients.incrementAndGet();
+            }
+            if (add) {
+                client.addsInProgress++;
+            } else {
+                client.readsInProgress++;
+            }
+            boolean outOfTokens = requestsPerNano > 0 && client.takeToken() < 0;
+            pause = (outOfTokens || client.isOverShare()) && !client.pausedHandlers.contains(requestHandler);
+            if (pause) {
+                client.pausedHandlers.add(requestHandler);
+                if (outOfTokens && !client.resumeScheduled) {
+                    client.resumeScheduled = true;
+                    scheduleResume = true;
+                }
+            }
+        }
+        if (pause) {
+            Channel channel = requestHandler.ctx().channel();
+            throttledRequests.inc();
+            requestHandler.pauseReading();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Client {} is over its share, disabling autoread on channel {}", client.name, channel);
+            }
+            if (scheduleResume) {
+                scheduleResume(client, channel);
+            }
+        }
+    }
+
+    private void onRequestFinish(BookieRequestHandler requestHandler, boolean add) {
+        Client client = requestHandler.getAdmissionClient();
+        if (null == client) {
+            return;
+        }
+        boolean idle;
+        synchronized (client) {
+            if (add) {
+                client.addsInProgress--;
+            } else {
+                client.readsInProgress--;
+            }
+            idle = client.addsInProgress + client.readsInProgress == 0;
+            if (idle) {
+                busyClients.decrementAndGet();
+            }
+        }
+        maybeResume(client, requestHandler.ctx().channel());
+        if (idle) {
+            unregisterIfIdle(client);
+        }
+    }
+
+    /**
+     * Re-enable reading from the paused connections of a client, once it is back within its share.
+     */
+    private void maybeResume(Client client, Channel anyChannel) {
+        List<BookieRequestHandler> toResume;
+        boolean scheduleResume = false;
+        synchronized (client) {
+            if (client.pausedHandlers.isEmpty() || client.isOverShare()) {
+                return;
+            }
+            if (requestsPerNano > 0 && client.refillTokens() < 0) {
+                if (!client.resumeScheduled) {
+                    client.resumeScheduled = true;
+                    scheduleResume = true;
+                }
+                toResume = null;
+            } else {
+                toResume = new ArrayList<>(client.pausedHandlers);
+                client.pausedHandlers.clear();
+            }
+        }
+        if (scheduleResume) {
+            scheduleResume(client, anyChannel);
+        }
+        if (null != toResume) {
+            for (BookieRequestHandler requestHandler : toResume) {
+                requestHandler.resumeReading();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Client {} is back within its share, re-enabled autoread on channel {}",
+                            client.name, requestHandler.ctx().channel());
+                }
+            }
+        }
+    }
+
+    private void scheduleResume(Client client, Channel channel) {
+        long delayNanos;
+        synchronized (client) {
+            delayNanos = (long) Math.ceil(-client.refillTokens() / requestsPerNano);
+        }
+        channel.eventLoop().schedule(() -> {
+            synchronized (client) {
+                client.resumeScheduled = false;
+            }
+            maybeResume(client, channel);
+        }, Math.max(delayNanos, 1L), TimeUnit.NANOSECONDS);
+    }
+
+    private Client register(BookieRequestHandler requestHandler) {
+        Channel channel = requestHandler.ctx().channel();
+        String name = clientName(requestHandler);
+        Client client = clients.compute(name, (key, existing) -> {
+            Client c = null == existing ? new Client(key) : existing;
+            synchronized (c) {
+                c.connections++;
+            }
+            return c;
+        });
+        requestHandler.setAdmissionClient(client);
+        channel.closeFuture().addListener(future -> {
+            synchronized (client) {
+                client.connections--;
+                client.pausedHandlers.remove(requestHandler);
+            }
+            unregisterIfIdle(client);
+        });
+        return client;
+    }
+
+    private void unregisterIfIdle(Client client) {
+        clients.computeIfPresent(client.name, (key, existing) -> {
+            if (existing != client) {
+                return existing;
+            }
+            synchronized (client) {
+                return client.connections <= 0 && client.addsInProgress + client.readsInProgress == 0
+                        ? null : client;
+            }
+        });
+    }
+
+    private static String clientName(BookieRequestHandler requestHandler) {
+        BookieNettyServer.BookieSideConnectionPeerContextHandler contextHandler = requestHandler.ctx().pipeline()
+                .get(BookieNettyServer.BookieSideConnectionPeerContextHandler.class);
+        if (null != contextHandler) {
+            BookKeeperPrincipal principal = contextHandler.getConnectionPeer().getAuthorizedId();
+            if (null != principal && !BookKeeperPrincipal.ANONYMOUS.equals(principal)) {
+                return principal.getName();
+            }
+        }
+        SocketAddress address = requestHandler.ctx().channel().remoteAddress();
+        if (address instanceof InetSocketAddress) {
+            return ((InetSocketAddress) address).getHostString();
+        }
+        return String.valueOf(address);
+    }
+
+    /**
+     * The requests in progress and the token bucket of a client.
+     */
+    final class Client {
+        final String name;
+
+        // guarded by this
+        int connections = 0;
+        int addsInProgress = 0;
+        int readsInProgress = 0;
+        double tokens = maxTokens;
+        long lastRefillNanos = MathUtils.nowInNano();
+        boolean resumeScheduled = false;
+        final List<BookieRequestHandler> pausedHandlers = new ArrayList<>(1);
+
+        Client(String name) {
+            this.name = name;
+        }
+
+        boolean isOverShare() {
+            return addsInProgress >= fairShare(maxAddsInProgress)
+                    || readsInProgress >= fairShare(maxReadsInProgress);
+        }
+
+        private int fairShare(int maxInProgress) {
+            if (maxInProgress <= 0) {
+                return Integer.MAX_VALUE;
+            }
+            return Math.max(minInProgressPerClient, maxInProgress / Math.max(1, busyClients.get()));
+        }
+
+        double refillTokens() {
+            long now = MathUtils.nowInNano();
+            tokens = Math.min(maxTokens, tokens + (now - lastRefillNanos) * requestsPerNano);
+            lastRefillNanos = now;
+            return tokens;
+        }
+
+        /**
+         * Take a token for an admitted request. The bucket may go negative, the client is then paused
+         * until it refills.
+         */
+        double takeToken() {
+            refillTokens();
+            tokens -= 1;
+            return tokens;
+        }
+    }
+}
@@ -22,11 +22,19 @@ package org.apache.bookkeeper.proto;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.client.BookKeeperClientStats;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.tls.SecurityException;
 import org.apache.bookkeeper.tls.SecurityHandlerFactory;
 import org.apache.bookkeeper.tls.SecurityProviderFactoryFactory;
@@ -37,6 +45,12 @@ import org.slf4j.LoggerFactory;
 /**
  *  Provide a simple round-robin style channel pool. We could improve it later to do more
  *  fantastic things.
+ *
+ * <p>The requests which must be ordered with the other requests of their key, such as the adds of a ledger,
+ * always go to the core channel of their key. The other requests go to the one with the fewest requests in flight
+ * of two channels: the channel of their key, and another one picked at random. When that channel is saturated,
+ * with too many bytes waiting to be written or too many tasks pending on its event loop, the pool opens an extra
+ * channel, up to {@link ClientConfiguration#getMaxChannelsPerBookie()}. The extra channels are closed once idle.
  */
 class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         GenericCallback<PerChannelBookieClient> {
@@ -49,15 +63,39 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
     final PerChannelBookieClient[] clients;
     final PerChannelBookieClient[] clientsV3Enforced;
 
+    // extra channels for the unordered requests, the first numExtraClients ones are in use
+    final PerChannelBookieClient[] extraClients;
+    volatile int numExtraClients = 0;
+    // extra channel being closed, once its requests in flight complete
+    private PerChannelBookieClient retiringClient = null;
+    private boolean lastExtraClientIdle = false;
+    final long scaleUpPendingWriteBytes;
+    final int scaleUpEventLoopPendingTasks;
+
     final ClientConfiguration conf;
     SecurityHandlerFactory shFactory;
 
     final AtomicInteger counter = new AtomicInteger(0);
     final AtomicLong errorCounter = new AtomicLong(0);
 
+    private final StatsLogger statsLogger;
+    private final Counter scaleUpCounter;
+    private final Counter scaleDownCounter;
+    private final List<StatsLogger> channelStatsLoggers = new ArrayList<>();
+    private final List<Gauge<Long>> inFlightGauges = new ArrayList<>();
+    private final List<Gauge<Long>> pendingWriteBytesGauges = new ArrayList<>();
+    private final Gauge<Integer> numChannelsGauge;
+
     DefaultPerChannelBookieClientPool(ClientConfiguration conf, PerChannelBookieClientFactory factory,
                                       BookieId address,
                                       int coreSize) throws SecurityException {
+        this(conf, factory, address, coreSize, NullStatsLogger.INSTANCE);
+    }
+
+    DefaultPerChannelBookieClientPool(ClientConfiguration conf, PerChannelBookieClientFactory factory,
+                                      BookieId address,
+                                      int coreSize,
+                                      StatsLogger statsLogger) throws SecurityException {
         checkArgument(coreSize > 0);
         this.factory = factory;
         this.address = address;
@@ -78,6 +116,75 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         } else {
             this.clientsV3Enforced = this.clients;
         }
+
+        this.extraClients = new PerChannelBookieClient[Math.max(0, conf.getMaxChannelsPerBookie() - coreSize)];
+        this.scaleUpPendingWriteBytes = conf.getChannelScaleUpPendingWriteBytes();
+        this.scaleUpEventLoopPendingTasks = conf.getChannelScaleUpEventLoopPendingTasks();
+
+        this.statsLogger = statsLogger.scope(BookKeeperClientStats.CHANNEL_SCOPE)
+                .scopeLabel(BookKeeperClientStats.BOOKIE_LABEL, address.toString());
+        this.scaleUpCounter = this.statsLogger.getCounter(BookKeeperClientStats.CHANNEL_SCALE_UP_COUNTER);
+        this.scaleDownCounter = this.statsLogger.getCounter(BookKeeperClientStats.CHANNEL_SCALE_DOWN_COUNTER);
+        this.numChannelsGauge = new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return clients.length + numExtraClients;
+            }
+        };
+        this.statsLogger.registerGauge(BookKeeperClientStats.NUM_CHANNELS, numChannelsGauge);
+        for (int i = 0; i < clients.length + extraClients.length; i++) {
+            registerChannelGauges(i);
+        }
+    }
+
+    private void registerChannelGauges(int channelIdx) {
+        StatsLogger channelStatsLogger = statsLogger.scopeLabel(BookKeeperClientStats.CHANNEL_LABEL,
+                String.valueOf(channelIdx));
+        Gauge<Long> inFlightGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                PerChannelBookieClient pcbc = getChannel(channelIdx);
+                return pcbc == null ? 0L : pcbc.getNumInFlightRequests();
+            }
+        };
+        Gauge<Long> pendingWriteBytesGauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                PerChannelBookieClient pcbc = getChannel(channelIdx);
+                return pcbc == null ? 0L : pcbc.getPendingWriteBytes();
+            }
+        };
+        channelStatsLogger.registerGauge(BookKeeperClientStats.CHANNEL_IN_FLIGHT_REQUESTS, inFlightGauge);
+        channelStatsLogger.registerGauge(BookKeeperClientStats.CHANNEL_PENDING_WRITE_BYTES, pendingWriteBytesGauge);
+        channelStatsLoggers.add(channelStatsLogger);
+        inFlightGauges.add(inFlightGauge);
+        pendingWriteBytesGauges.add(pendingWriteBytesGauge);
+    }
+
+    /**
+     * @return the core channel, or the extra channel in use, at the given index of the pool
+     */
+    private PerChannelBookieClient getChannel(int channelIdx) {
+        if (channelIdx < clients.length) {
+            return clients[channelIdx];
+        }
+        int extraIdx = channelIdx - clients.length;
+        return extraIdx < numExtraClients ? extraClients[extraIdx] : null;
     }
 
     @Override
@@ -120,6 +227,99 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         getClient(key, forceUseV3).connectIfNeededAndDoOp(callback);
     }
 
+    @Override
+    public void obtainUnordered(GenericCallback<PerChannelBookieClient> callback, long key) {
+        int numExtra = numExtraClients;
+        if (clients.length == 1 && numExtra == 0 && extraClients.length == 0) {
+            clients[0].connectIfNeededAndDoOp(callback);
+            return;
+        }
+        PerChannelBookieClient leastLoaded;
+        int numChannels = clients.length + numExtra;
+        if (numChannels == 1) {
+            leastLoaded = clients[0];
+        } else {
+            // power of two choices, which spreads the requests as well as scanning all the channels
+            int keyIdx = MathUtils.signSafeMod(key, numChannels);
+            int otherIdx = (keyIdx + 1 + ThreadLocalRandom.current().nextInt(numChannels - 1)) % numChannels;
+            PerChannelBookieClient keyClient = getChannel(keyIdx);
+            PerChannelBookieClient otherClient = getChannel(otherIdx);
+            leastLoaded = otherClient.getNumInFlightRequests() < keyClient.getNumInFlightRequests()
+                    ? otherClient : keyClient;
+        }
+        if (numExtra < extraClients.length && isSaturated(leastLoaded)) {
+            PerChannelBookieClient extraClient = scaleUp(numExtra);
+            if (extraClient != null) {
+                leastLoaded = extraClient;
+            }
+        }
+        leastLoaded.connectIfNeededAndDoOp(callback);
+    }
+
+    private boolean isSaturated(PerChannelBookieClient pcbc) {
+        return !pcbc.isWritable()
+                || pcbc.getPendingWriteBytes() >= scaleUpPendingWriteBytes
+                || pcbc.getEventLoopPendingTasks() >= scaleUpEventLoopPendingTasks;
+    }
+
+    /**
+     * Open an extra channel, unless another one was opened since the caller saw numExtra extra channels.
+     *
+     * @return the new extra channel, or null if none was opened
+     */
+    private synchronized PerChannelBookieClient scaleUp(int numExtra) {
+        if (numExtraClients != numExtra || numExtra >= extraClients.length) {
+            return null;
+        }
+        PerChannelBookieClient pcbc = retiringClient;
+        retiringClient = null;
+        if (pcbc == null) {
+            try {
+                pcbc = factory.create(address, this, shFactory, false);
+            } catch (SecurityException e) {
+                LOG.error("Security Exception in creating an extra channel to bookie {}", address, e);
+                return null;
+            }
+        }
+        extraClients[numExtra] = pcbc;
+        numExtraClients = numExtra + 1;
+        lastExtraClientIdle = false;
+        scaleUpCounter.inc();
+        LOG.info("Channels to bookie {} are saturated, scaled up to {} channels", address,
+                clients.length + numExtra + 1);
+        return pcbc;
+    }
+
+    /**
+     * Close the last extra channel once it stayed idle between two consecutive checks.
+     */
+    private synchronized void scaleDown() {
+        if (retiringClient != null) {
+            if (retiringClient.getNumInFlightRequests() > 0) {
+                return;
+            }
+            retiringClient.close(false);
+            retiringClient = null;
+        }
+        int numExtra = numExtraClients;
+        if (numExtra == 0) {
+            return;
+        }
+        PerChannelBookieClient lastExtraClient = extraClients[numExtra - 1];
+        boolean idle = lastExtraClient.getNumInFlightRequests() == 0;
+        if (idle && lastExtraClientIdle) {
+            // the slot is left as is, as concurrent requests may still be picking channels among the extra ones
+            numExtraClients = numExtra - 1;
+            retiringClient = lastExtraClient;
+            lastExtraClientIdle = false;
+            scaleDownCounter.inc();
+            LOG.info("Channels to bookie {} are idle, scaled down to {} channels", address,
+                    clients.length + numExtra - 1);
+        } else {
+            lastExtraClientIdle = idle;
+        }
+    }
+
     @Override
     public boolean isWritable(long key) {
         return getClient(key).isWritable();
@@ -133,6 +333,27 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
                 clientsV3Enforced[i].checkTimeoutOnPendingOperations();
             }
         }
+        for (PerChannelBookieClient pcbc : extraClientsAndRetiring()) {
+            pcbc.checkTimeoutOnPendingOperations();
+        }
+    }
+
+    @Override
+    public void scaleDownIdleChannels() {
+        if (extraClients.length > 0) {
+            scaleDown();
+        }
+    }
+
+    private synchronized List<PerChannelBookieClient> extraClientsAndRetiring() {
+        List<PerChannelBookieClient> pcbcs = new ArrayList<>(numExtraClients + 1);
+        for (int i = 0; i < numExtraClients; i++) {
+            pcbcs.add(extraClients[i]);
+        }
+        if (retiringClient != null) {
+            pcbcs.add(retiringClient);
+        }
+        return pcbcs;
     }
 
     @Override
@@ -148,6 +369,9 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
                 clientsV3Enforced[i].disconnect();
             }
         }
+        for (PerChannelBookieClient pcbc : extraClientsAndRetiring()) {
+            pcbc.disconnect();
+        }
     }
 
     @Override
@@ -158,6 +382,16 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
                 clientsV3Enforced[i].close(wait);
             }
         }
+        for (PerChannelBookieClient pcbc : extraClientsAndRetiring()) {
+            pcbc.close(wait);
+        }
+        statsLogger.unregisterGauge(BookKeeperClientStats.NUM_CHANNELS, numChannelsGauge);
+        for (int i = 0; i < channelStatsLoggers.size(); i++) {
+            channelStatsLoggers.get(i).unregisterGauge(BookKeeperClientStats.CHANNEL_IN_FLIGHT_REQUESTS,
+                    inFlightGauges.get(i));
+            channelStatsLoggers.get(i).unregisterGauge(BookKeeperClientStats.CHANNEL_PENDING_WRITE_BYTES,
+                    pendingWriteBytesGauges.get(i));
+        }
     }
 
     @Override
@@ -171,6 +405,10 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
                 numPending += pcbc.getNumPendingCompletionRequests();
             }
         }
+        int numExtra = numExtraClients;
+        for (int i = 0; i < numExtra; i++) {
+            numPending += extraClients[i].getNumPendingCompletionRequests();
+        }
         return numPending;
     }
 }
@@ -0,0 +1,127 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.util.ReferenceCountUtil;
+import org.apache.bookkeeper.util.ByteBufList;
+
+/**
+ * Ranges of entries requested by, and returned from, a multi read request.
+ *
+ * @see BookieClient#multiReadEntries
+ */
+public final class MultiReadEntries {
+
+    private MultiReadEntries() {}
+
+    /**
+     * A range of entries of a ledger, to be read in a multi read request.
+     */
+    public static class Range {
+        private final long ledgerId;
+        private final long startEntryId;
+        private final int maxCount;
+        private final byte[] masterKey;
+
+        public Range(long ledgerId, long startEntryId, int maxCount) {
+            this(ledgerId, startEntryId, maxCount, null);
+        }
+
+        /**
+         * @param masterKey if not null, the bookie fences the ledger with this master key before reading the range
+         */
+        public Range(long ledgerId, long startEntryId, int maxCount, byte[] masterKey) {
+            this.ledgerId = ledgerId;
+            this.startEntryId = startEntryId;
+            this.maxCount = maxCount;
+            this.masterKey = masterKey;
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getStartEntryId() {
+            return startEntryId;
+        }
+
+        public int getMaxCount() {
+            return maxCount;
+        }
+
+        public byte[] getMasterKey() {
+            return masterKey;
+        }
+
+        public boolean isFencing() {
+            return masterKey != null;
+        }
+
+        @Override
+        public String toString() {
+            return "Range(" + ledgerId + ", " + startEntryId + ", " + maxCount + (isFencing() ? ", fencing)" : ")");
+        }
+    }
+
+    /**
+     * The entries returned for a requested range, starting at the first entry of the range.
+     * The entries are owned by the receiver of the result, and must be released by calling {@link #release()}.
+     */
+    public static class Result {
+        private final int rc;
+        private final long ledgerId;
+        private final long startEntryId;
+        private final ByteBufList entries;
+
+        public Result(int rc, long ledgerId, long startEntryId, ByteBufList entries) {
+            this.rc = rc;
+            this.ledgerId = ledgerId;
+            this.startEntryId = startEntryId;
+            this.entries = entries;
+        }
+
+        /**
+         * @return the result code of the range, OK if at least one entry of the range was read
+         */
+        public int getRc() {
+            return rc;
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getStartEntryId() {
+            return startEntryId;
+        }
+
+        /**
+         * @return the entries read, or null if the range couldn't be read
+         */
+        public ByteBufList getEntries() {
+            return entries;
+        }
+
+        public void release() {
+            ReferenceCountUtil.release(entries);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntriesResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntryRange;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A processor class for v3 multi read packets, reading ranges of entries of several ledgers in one request.
+ *
+ * <p>Ranges are read in request order. The first entry of the request is always returned, the following
+ * entries are returned as long as the total size of the entries stays within the size budget of the request.
+ * The ranges which are not reached within the budget are omitted from the response.
+ *
+ * <p>The ranges carrying a master key fence their ledger before being read. All the ledgers of the request
+ * are fenced first, and the fencing results are awaited together, so fencing many ledgers costs about as much
+ * as fencing one. A range whose ledger couldn't be fenced within the fence timeout is returned with an error
+ * and no entries. If a fence thread is given, the ranges are read on it once the ledgers are fenced, so the
+ * read thread isn't held while waiting for the fencing results.
+ */
+public class MultiReadEntryProcessorV3 extends PacketProcessorBaseV3 implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MultiReadEntryProcessorV3.class);
+    protected final MultiReadRequest multiReadRequest;
+    private final long maxBatchReadSize;
+    private final ExecutorService fenceThreadPool;
+    private final long fenceTimeoutMs;
+
+    // the fencing result and status of each range, null if no range requires fencing
+    private CompletableFuture<Boolean>[] fenceResults = null;
+    private StatusCode[] fenceStatus = null;
+
+    /**
+     * @param fenceThreadPool the thread reading the ranges once their ledgers are fenced, or null to wait
+     *                        for the fencing results on the calling thread
+     * @param fenceTimeoutMs the max time to wait for the ledgers to be fenced
+     */
+    public MultiReadEntryProcessorV3(Request request, BookieRequestHandler requestHandler,
+            BookieRequestProcessor requestProcessor, long maxBatchReadSize,
+            ExecutorService fenceThreadPool, long fenceTimeoutMs) {
+        super(request, requestHandler, requestProcessor);
+        this.multiReadRequest = request.getMultiReadRequest();
+        this.maxBatchReadSize = maxBatchReadSize;
+        this.fenceThreadPool = fenceThreadPool;
+        this.fenceTimeoutMs = fenceTimeoutMs;
+        requestProcessor.onReadRequestStart(requestHandler);
+    }
+
+    private MultiReadResponse getMultiReadResponse(long startTimeNanos) {
+        MultiReadResponse.Builder multiReadResponse = MultiReadResponse.newBuilder();
+
+        if (!isVersionCompatible()) {
+            requestProcessor.getRequestStats().getMultiReadEntryStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            return null;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received new multi read request: {}", request);
+        }
+        long maxSize = maxBatchReadSize;
+        if (multiReadRequest.hasMaxSize() && multiReadRequest.getMaxSize() > 0) {
+            maxSize = Math.min(maxSize, multiReadRequest.getMaxSize());
+        }
+        long totalSize = 0;
+        int totalEntries = 0;
+        boolean budgetExhausted = false;
+        for (int rangeIdx = 0; rangeIdx < multiReadRequest.getRangesCount(); rangeIdx++) {
+            if (budgetExhausted) {
+                break;
+            }
+            LedgerEntryRange range = multiReadRequest.getRanges(rangeIdx);
+            LedgerEntriesResponse.Builder ledgerEntries = LedgerEntriesResponse.newBuilder()
+                    .setLedgerId(range.getLedgerId())
+                    .setStartEntryId(range.getStartEntryId());
+            if (fenceStatus != null && fenceStatus[rangeIdx] != StatusCode.EOK) {
+                multiReadResponse.addLedgerEntries(ledgerEntries.setStatus(fenceStatus[rangeIdx]));
+                continue;
+            }
+            StatusCode status = StatusCode.EOK;
+            int maxCount = range.getMaxCount() > 0 ? range.getMaxCount() : Integer.MAX_VALUE;
+            for (int i = 0; i < maxCount; i++) {
+                long entryId = range.getStartEntryId() + i;
+                ByteBuf entry;
+                try {
+                    entry = requestProcessor.getBookie().readEntry(range.getLedgerId(), entryId);
+                } catch (Bookie.NoLedgerException e) {
+                    status = StatusCode.ENOLEDGER;
+                    break;
+                } catch (Bookie.NoEntryException e) {
+                    status = StatusCode.ENOENTRY;
+                    break;
+                } catch (IOException e) {
+                    LOG.error("IOException while reading entry: {} from ledger {} ", entryId, range.getLedgerId(), e);
+                    status = StatusCode.EIO;
+                    break;
+                } catch (BookieException.DataUnknownException e) {
+                    status = StatusCode.EUNKNOWNLEDGERSTATE;
+                    break;
+                } catch (BookieException e) {
+                    status = StatusCode.EUA;
+                    break;
+                }
+                try {
+                    totalSize += entry.readableBytes();
+                    if (totalSize > maxSize && totalEntries > 0) {
+                        budgetExhausted = true;
+                        break;
+                    }
+                    ledgerEntries.addEntries(ByteString.copyFrom(entry.nioBuffer()));
+                    totalEntries++;
+                } finally {
+                    ReferenceCountUtil.release(entry);
+                }
+            }
+            if (ledgerEntries.getEntriesCount() > 0) {
+                // entries past the first one failing to be read are simply not returned
+                status = StatusCode.EOK;
+            } else if (budgetExhausted) {
+                break;
+            }
+            multiReadResponse.addLedgerEntries(ledgerEntries.setStatus(status));
+        }
+
+        requestProcessor.getRequestStats().getMultiReadEntryStats()
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        return multiReadResponse.build();
+    }
+
+    /**
+     * Fence the ledgers of the ranges carrying a master key.
+     *
+     * @return a future completed once all the ledgers are fenced, or null if no range requires fencing
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Void> fenceLedgers() {
+        int numFencedLedgers = 0;
+        for (int i = 0; i < multiReadRequest.getRangesCount(); i++) {
+            LedgerEntryRange range = multiReadRequest.getRanges(i);
+            if (!range.hasMasterKey()) {
+                continue;
+            }
+            if (fenceStatus == null) {
+                fenceStatus = new StatusCode[multiReadRequest.getRangesCount()];
+                Arrays.fill(fenceStatus, StatusCode.EOK);
+                fenceResults = new CompletableFuture[multiReadRequest.getRangesCount()];
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Ledger fence request received for ledger: {} from address: {}", range.getLedgerId(),
+                        requestHandler.ctx().channel().remoteAddress());
+            }
+            numFencedLedgers++;
+            try {
+                fenceResults[i] = requestProcessor.getBookie().fenceLedger(range.getLedgerId(),
+                        range.getMasterKey().toByteArray());
+            } catch (IOException e) {
+                LOG.error("IOException while fencing ledger {}", range.getLedgerId(), e);
+                fenceStatus[i] = StatusCode.EIO;
+            } catch (BookieException e) {
+                LOG.error("Unauthorized fence request for ledger {}", range.getLedgerId(), e);
+                fenceStatus[i] = StatusCode.EUA;
+            }
+        }
+        if (fenceResults == null) {
+            return null;
+        }
+        LOG.info("Fence request received for {} ledgers from address: {}", numFencedLedgers,
+                requestHandler.ctx().channel().remoteAddress());
+        return CompletableFuture.allOf(Arrays.stream(fenceResults).filter(Objects::nonNull)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Set the fencing status of the ranges whose ledger wasn't fenced, once the fencing results are
+     * available or the fence timeout has elapsed.
+     */
+    private void checkFenceResults() {
+        for (int i = 0; i < fenceResults.length; i++) {
+            if (fenceResults[i] == null) {
+                continue;
+            }
+            long ledgerId = multiReadRequest.getRanges(i).getLedgerId();
+            boolean fenced = false;
+            if (!fenceResults[i].isDone()) {
+                LOG.error("Timed out after {} ms fencing ledger {}", fenceTimeoutMs, ledgerId);
+            } else {
+                try {
+                    fenced = fenceResults[i].getNow(false);
+                } catch (CompletionException | CancellationException e) {
+                    LOG.error("Fence request for ledger {} encountered exception", ledgerId, e);
+                }
+            }
+            if (!fenced) {
+                fenceStatus[i] = StatusCode.EIO;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long startTimeNanos = MathUtils.nowInNano();
+        CompletableFuture<Void> fenced = isVersionCompatible() ? fenceLedgers() : null;
+        if (fenced == null) {
+            readAndSendResponse(startTimeNanos);
+        } else if (fenceThreadPool == null) {
+            try {
+                fenced.get(fenceTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                LOG.error("Interrupted while fencing ledgers");
+            } catch (ExecutionException | TimeoutException e) {
+                // reported for each ledger
+            }
+            checkFenceResults();
+            readAndSendResponse(startTimeNanos);
+        } else {
+            ScheduledFuture<?> timeout = requestHandler.ctx().executor().schedule(
+                    () -> fenced.complete(null), fenceTimeoutMs, TimeUnit.MILLISECONDS);
+            fenced.whenComplete((ignored, cause) -> {
+                timeout.cancel(false);
+                Runnable read = () -> {
+                    checkFenceResults();
+                    readAndSendResponse(startTimeNanos);
+                };
+                try {
+                    fenceThreadPool.execute(read);
+                } catch (RejectedExecutionException ree) {
+                    read.run();
+                }
+            });
+        }
+    }
+
+    private void readAndSendResponse(long startTimeNanos) {
+        try {
+            MultiReadResponse multiReadResponse = getMultiReadResponse(startTimeNanos);
+            StatusCode status = multiReadResponse == null ? StatusCode.EBADVERSION : StatusCode.EOK;
+            Response.Builder response = Response.newBuilder().setHeader(getHeader())
+                    .setStatus(status);
+            if (multiReadResponse != null) {
+                response.setMultiReadResponse(multiReadResponse);
+            }
+            sendResponse(status, response.build(),
+                    requestProcessor.getRequestStats().getMultiReadEntryRequestStats());
+        } finally {
+            requestProcessor.onReadRequestFinish(requestHandler);
+        }
+    }
+}
@@ -68,7 +68,7 @@ abstract class PacketProcessorBase<T extends Request> implements Runnable {
 
     protected void sendWriteReqResponse(int rc, Object response, OpStatsLogger statsLogger) {
         sendResponse(rc, response, statsLogger);
-        requestProcessor.onAddRequestFinish();
+        requestProcessor.onAddRequestFinish(requestHandler);
     }
 
     protected void sendReadReqResponse(int rc, Object response, OpStatsLogger statsLogger, boolean throttle) {
@@ -77,7 +77,7 @@ abstract class PacketProcessorBase<T extends Request> implements Runnable {
         } else {
             sendResponse(rc, response, statsLogger);
         }
-        requestProcessor.onReadRequestFinish();
+        requestProcessor.onReadRequestFinish(requestHandler);
     }
 
     protected void sendResponse(int rc, Object response, OpStatsLogger statsLogger) {
@@ -190,12 +190,12 @@ abstract class PacketProcessorBase<T extends Request> implements Runnable {
                          ResponseBuilder.buildErrorResponse(BookieProtocol.EBADVERSION, request),
                          requestProcessor.getRequestStats().getReadRequestStats());
             if (request instanceof BookieProtocol.ReadRequest) {
-                requestProcessor.onReadRequestFinish();
+                requestProcessor.onReadRequestFinish(requestHandler);
             }
             if (request instanceof BookieProtocol.ParsedAddRequest) {
                 ((BookieProtocol.ParsedAddRequest) request).release();
                 request.recycle();
-                requestProcessor.onAddRequestFinish();
+                requestProcessor.onAddRequestFinish(requestHandler);
             }
             return;
         }
@@ -38,6 +38,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultEventLoopGroup;
@@ -65,6 +66,7 @@ import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -79,15 +81,14 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.BiPredicate;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import lombok.SneakyThrows;
@@ -107,6 +108,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetListOfEntriesOfLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallbackCtx;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
@@ -122,6 +124,10 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntriesResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntryRange;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadLacRequest;
@@ -145,8 +151,8 @@ import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.StringUtils;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongIntHashMultiMap;
 import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
-import org.apache.bookkeeper.util.collections.SynchronizedHashMultiMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -174,6 +180,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                         BKException.Code.DuplicateEntryIdException,
                         BKException.Code.WriteOnReadOnlyBookieException));
     private static final int DEFAULT_HIGH_PRIORITY_VALUE = 100; // We may add finer grained priority later.
+    private static final int TIMEOUT_QUEUE_SECTIONS = 16; // a power of 2
+    private static final long HASH_MIXER = 0xc6a4a7935bd1e995L;
     private static final AtomicLong txnIdGenerator = new AtomicLong(0);
 
     final BookieId bookieId;
@@ -187,13 +195,25 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     final long getBookieInfoTimeoutNanos;
     final int startTLSTimeout;
 
+    // the requests in the timeout queue, which are the ones in the completion objects
+    private final LongAdder numInFlightRequests = new LongAdder();
     private final ConcurrentOpenHashMap<CompletionKey, CompletionValue> completionObjects =
             ConcurrentOpenHashMap.<CompletionKey, CompletionValue>newBuilder().autoShrink(true).build();
 
-    // Map that hold duplicated read requests. The idea is to only use this map (synchronized) when there is a duplicate
-    // read request for the same ledgerId/entryId
-    private final SynchronizedHashMultiMap<CompletionKey, CompletionValue> completionObjectsV2Conflicts =
-        new SynchronizedHashMultiMap<>();
+    // Map that hold the v2 requests, which are keyed by the ledgerId/entryId of their completion and their operation,
+    // without any key object. Duplicated read requests for the same ledgerId/entryId are stored side by side.
+    private final ConcurrentLongLongIntHashMultiMap<CompletionValue> completionObjectsV2 =
+            ConcurrentLongLongIntHashMultiMap.<CompletionValue>newBuilder().autoShrink(true).build();
+
+    // The keys of the v2 requests, which only carry the operation
+    private final CompletionKey v2AddEntryKey = new EntryCompletionKey(OperationType.ADD_ENTRY);
+    private final CompletionKey v2ReadEntryKey = new EntryCompletionKey(OperationType.READ_ENTRY);
+    private final CompletionKey v2ReadLacKey = new EntryCompletionKey(OperationType.READ_LAC);
+
+    // Requests in flight in deadline order, per timeout
+    private final TimeoutQueue readTimeouts = new TimeoutQueue();
+    private final TimeoutQueue addTimeouts = new TimeoutQueue();
+    private final TimeoutQueue getBookieInfoTimeouts = new TimeoutQueue();
 
     private final StatsLogger statsLogger;
     @StatsDoc(
@@ -273,6 +293,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final OpStatsLogger connectTimer;
     private final OpStatsLogger getListOfEntriesOfLedgerCompletionOpLogger;
     private final OpStatsLogger getListOfEntriesOfLedgerCompletionTimeoutOpLogger;
+    private final OpStatsLogger multiReadEntryOpLogger;
+    private final OpStatsLogger multiReadEntryTimeoutOpLogger;
     @StatsDoc(
         name = BookKeeperClientStats.NETTY_EXCEPTION_CNT,
         help = "the number of exceptions received from this channel"
@@ -433,6 +455,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         startTLSTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_START_TLS_OP);
         getListOfEntriesOfLedgerCompletionTimeoutOpLogger = statsLogger
                 .getOpStatsLogger(BookKeeperClientStats.TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER);
+        multiReadEntryOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.MULTI_READ_ENTRY_OP);
+        multiReadEntryTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.TIMEOUT_MULTI_READ_ENTRY);
         exceptionCounter = statsLogger.getCounter(BookKeeperClientStats.NETTY_EXCEPTION_CNT);
         connectTimer = statsLogger.getOpStatsLogger(BookKeeperClientStats.CLIENT_CONNECT_TIMER);
         addEntryOutstanding = statsLogger.getCounter(BookKeeperClientStats.ADD_OP_OUTSTANDING);
@@ -527,7 +551,38 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     }
 
     protected long getNumPendingCompletionRequests() {
-        return completionObjects.size();
+        return completionObjects.size() + completionObjectsV2.size();
+    }
+
+    /**
+     * @return the number of requests in flight on the channel, which is cheaper to get than
+     *         {@link #getNumPendingCompletionRequests()} as it doesn't lock the sections of the completion objects
+     */
+    long getNumInFlightRequests() {
+        return numInFlightRequests.sum();
+    }
+
+    /**
+     * @return the number of bytes written to the channel and not yet flushed to the socket
+     */
+    long getPendingWriteBytes() {
+        Channel c = channel;
+        if (c == null) {
+            return 0;
+        }
+        ChannelOutboundBuffer outboundBuffer = c.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
+    }
+
+    /**
+     * @return the number of tasks waiting to run on the event loop of the channel
+     */
+    int getEventLoopPendingTasks() {
+        Channel c = channel;
+        if (c == null || !(c.eventLoop() instanceof SingleThreadEventExecutor)) {
+            return 0;
+        }
+        return ((SingleThreadEventExecutor) c.eventLoop()).pendingTasks();
     }
 
     protected ChannelFuture connect() {
@@ -691,9 +746,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         final CompletionKey completionKey = new TxnCompletionKey(txnId,
                                                                 OperationType.WRITE_LAC);
         // writeLac is mostly like addEntry hence uses addEntryTimeout
-        completionObjects.put(completionKey,
-                              new WriteLacCompletion(completionKey, cb,
-                                                     ctx, ledgerId));
+        final CompletionValue completion = new WriteLacCompletion(completionKey, cb, ctx, ledgerId);
+        putCompletionKeyValue(completionKey, completion);
 
         // Build the request
         BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
@@ -718,7 +772,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 .setHeader(headerBuilder)
                 .setWriteLacRequest(writeLacBuilder)
                 .build();
-        writeAndFlush(channel, completionKey, writeLacRequest);
+        writeAndFlush(channel, completionKey, completion, writeLacRequest);
     }
 
     void forceLedger(final long ledgerId, ForceLedgerCallback cb, Object ctx) {
@@ -733,9 +787,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         final CompletionKey completionKey = new TxnCompletionKey(txnId,
                                                                 OperationType.FORCE_LEDGER);
         // force is mostly like addEntry hence uses addEntryTimeout
-        completionObjects.put(completionKey,
-                              new ForceLedgerCompletion(completionKey, cb,
-                                                     ctx, ledgerId));
+        final CompletionValue completion = new ForceLedgerCompletion(completionKey, cb, ctx, ledgerId);
+        putCompletionKeyValue(completionKey, completion);
 
         // Build the request
         BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
@@ -749,7 +802,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 .setHeader(headerBuilder)
                 .setForceLedgerRequest(writeLacBuilder)
                 .build();
-        writeAndFlush(channel, completionKey, forceLedgerRequest);
+        writeAndFlush(channel, completionKey, completion, forceLedgerRequest);
     }
 
     /**
@@ -783,13 +836,27 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 cb.writeComplete(BKException.Code.IllegalOpException, ledgerId, entryId, bookieId, ctx);
                 return;
             }
-            completionKey = acquireV2Key(ledgerId, entryId, OperationType.ADD_ENTRY);
+            completionKey = v2AddEntryKey;
 
             if (toSend instanceof ByteBuf) {
                 request = ((ByteBuf) toSend).retainedDuplicate();
             } else {
                 request = ByteBufList.clone((ByteBufList) toSend);
             }
+        } else if (!preserveMdcForTaskExecution) {
+            final long txnId = getTxnId();
+            completionKey = new TxnCompletionKey(txnId, OperationType.ADD_ENTRY);
+
+            // There is no request context to pass, so the request can be encoded without copying the body
+            int priority = 0;
+            if (((short) options & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
+                priority = DEFAULT_HIGH_PRIORITY_VALUE;
+            }
+            boolean recoveryAdd =
+                    ((short) options & BookieProtocol.FLAG_RECOVERY_ADD) == BookieProtocol.FLAG_RECOVERY_ADD;
+            request = ProtobufV3Codec.AddEntryRequest.create(txnId, priority, ledgerId, entryId, masterKey,
+                    recoveryAdd, writeFlags.isEmpty() ? 0 : WriteFlag.getWriteFlagsValue(writeFlags),
+                    ByteBufList.clone((ByteBufList) toSend));
         } else {
             final long txnId = getTxnId();
             completionKey = new TxnCompletionKey(txnId, OperationType.ADD_ENTRY);
@@ -837,19 +904,19 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
-        putCompletionKeyValue(completionKey,
-                              acquireAddCompletion(completionKey,
-                                                   cb, ctx, ledgerId, entryId));
+        final CompletionValue completion = acquireAddCompletion(completionKey, cb, ctx, ledgerId, entryId);
+        putCompletionKeyValue(completionKey, completion);
         final Channel c = channel;
         if (c == null) {
             // usually checked in writeAndFlush, but we have extra check
             // because we need to release toSend.
-            errorOut(completionKey);
+            errorOut(completionKey, completion);
+            ReferenceCountUtil.release(request);
             ReferenceCountUtil.release(toSend);
             return;
         } else {
             // addEntry times out on backpressure
-            writeAndFlush(c, completionKey, request, allowFastFail);
+            writeAndFlush(c, completionKey, completion, request, allowFastFail);
         }
     }
 
@@ -859,7 +926,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         if (useV2WireProtocol) {
             request = BookieProtocol.ReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION,
                                                      ledgerId, 0, (short) 0, null);
-            completionKey = acquireV2Key(ledgerId, 0, OperationType.READ_LAC);
+            completionKey = v2ReadLacKey;
         } else {
             final long txnId = getTxnId();
             completionKey = new TxnCompletionKey(txnId, OperationType.READ_LAC);
@@ -876,16 +943,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .setReadLacRequest(readLacBuilder)
                     .build();
         }
-        putCompletionKeyValue(completionKey,
-                              new ReadLacCompletion(completionKey, cb,
-                                                    ctx, ledgerId));
-        writeAndFlush(channel, completionKey, request);
+        final CompletionValue completion = new ReadLacCompletion(completionKey, cb, ctx, ledgerId);
+        putCompletionKeyValue(completionKey, completion);
+        writeAndFlush(channel, completionKey, completion, request);
     }
 
     public void getListOfEntriesOfLedger(final long ledgerId, GetListOfEntriesOfLedgerCallback cb) {
         final long txnId = getTxnId();
         final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER);
-        completionObjects.put(completionKey, new GetListOfEntriesOfLedgerCompletion(completionKey, cb, ledgerId));
+        final CompletionValue completion = new GetListOfEntriesOfLedgerCompletion(completionKey, cb, ledgerId);
+        putCompletionKeyValue(completionKey, completion);
 
         // Build the request.
         BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder().setVersion(ProtocolVersion.VERSION_THREE)
@@ -897,7 +964,54 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         final Request getListOfEntriesOfLedgerRequest = Request.newBuilder().setHeader(headerBuilder)
                 .setGetListOfEntriesOfLedgerRequest(getListOfEntriesOfLedgerRequestBuilder).build();
 
-        writeAndFlush(channel, completionKey, getListOfEntriesOfLedgerRequest);
+        writeAndFlush(channel, completionKey, completion, getListOfEntriesOfLedgerRequest);
+    }
+
+    /**
+     * Read ranges of entries of several ledgers in a single request.
+     * The multi read is only available on the v3 protocol.
+     *
+     * @param ranges the ranges of entries to read
+     * @param maxSize the max total size of the entries in the response, or 0 to use the bookie limit
+     */
+    public void multiReadEntries(final List<MultiReadEntries.Range> ranges,
+                                 final long maxSize,
+                                 MultiReadEntryCallback cb,
+                                 Object ctx) {
+        if (useV2WireProtocol) {
+            cb.readEntriesComplete(BKException.Code.ProtocolVersionException, null, ctx);
+            return;
+        }
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.MULTI_READ_ENTRY);
+        final CompletionValue completion = new MultiReadCompletion(completionKey, cb, ctx);
+        putCompletionKeyValue(completionKey, completion);
+
+        // Build the request.
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder().setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.MULTI_READ_ENTRY).setTxnId(txnId);
+
+        MultiReadRequest.Builder multiReadBuilder = MultiReadRequest.newBuilder();
+        for (MultiReadEntries.Range range : ranges) {
+            LedgerEntryRange.Builder rangeBuilder = LedgerEntryRange.newBuilder()
+                    .setLedgerId(range.getLedgerId())
+                    .setStartEntryId(range.getStartEntryId())
+                    .setMaxCount(range.getMaxCount());
+            if (range.isFencing()) {
+                rangeBuilder.setMasterKey(UnsafeByteOperations.unsafeWrap(range.getMasterKey()));
+            }
+            multiReadBuilder.addRanges(rangeBuilder);
+        }
+        if (maxSize > 0) {
+            multiReadBuilder.setMaxSize(maxSize);
+        }
+
+        final Request multiReadRequest = withRequestContext(Request.newBuilder())
+                .setHeader(headerBuilder)
+                .setMultiReadRequest(multiReadBuilder)
+                .build();
+
+        writeAndFlush(channel, completionKey, completion, multiReadRequest);
     }
 
     /**
@@ -943,7 +1057,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         if (useV2WireProtocol) {
             request = BookieProtocol.ReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION,
                     ledgerId, entryId, (short) flags, masterKey);
-            completionKey = acquireV2Key(ledgerId, entryId, OperationType.READ_ENTRY);
+            completionKey = v2ReadEntryKey;
         } else {
             final long txnId = getTxnId();
             completionKey = new TxnCompletionKey(txnId, OperationType.READ_ENTRY);
@@ -1005,7 +1119,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
         putCompletionKeyValue(completionKey, readCompletion);
 
-        writeAndFlush(channel, completionKey, request, allowFastFail);
+        writeAndFlush(channel, completionKey, readCompletion, request, allowFastFail);
     }
 
     public void batchReadEntries(final long ledgerId,
@@ -1048,15 +1162,14 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 completionKey, cb, ctx, ledgerId, startEntryId);
         putCompletionKeyValue(completionKey, readCompletion);
 
-        writeAndFlush(channel, completionKey, request, allowFastFail);
+        writeAndFlush(channel, completionKey, readCompletion, request, allowFastFail);
     }
 
     public void getBookieInfo(final long requested, GetBookieInfoCallback cb, Object ctx) {
         final long txnId = getTxnId();
         final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.GET_BOOKIE_INFO);
-        completionObjects.put(completionKey,
-                              new GetBookieInfoCompletion(
-                                      completionKey, cb, ctx));
+        final CompletionValue completion = new GetBookieInfoCompletion(completionKey, cb, ctx);
+        putCompletionKeyValue(completionKey, completion);
 
         // Build the request and calculate the total size to be included in the packet.
         BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
@@ -1072,18 +1185,20 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 .setGetBookieInfoRequest(getBookieInfoBuilder)
                 .build();
 
-        writeAndFlush(channel, completionKey, getBookieInfoRequest);
+        writeAndFlush(channel, completionKey, completion, getBookieInfoRequest);
     }
 
-    private static final BiPredicate<CompletionKey, CompletionValue> timeoutCheck = (key, value) -> {
-        return value.maybeTimeout();
-    };
-
     public void checkTimeoutOnPendingOperations() {
-        int timedOutOperations = completionObjects.removeIf(timeoutCheck);
-
-        timedOutOperations += completionObjectsV2Conflicts.removeIf(timeoutCheck);
+        long nowNanos = MathUtils.nowInNano();
+        List<CompletionValue> timedOut = new ArrayList<>();
+        readTimeouts.expire(nowNanos, timedOut);
+        addTimeouts.expire(nowNanos, timedOut);
+        getBookieInfoTimeouts.expire(nowNanos, timedOut);
+        for (CompletionValue completion : timedOut) {
+            completion.timeout();
+        }
 
+        int timedOutOperations = timedOut.size();
         if (timedOutOperations > 0) {
             LOG.info("Timed-out {} operations to channel {} for {}",
                      timedOutOperations, channel, bookieId);
@@ -1169,17 +1284,20 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
     private void writeAndFlush(final Channel channel,
                                final CompletionKey key,
+                               final CompletionValue completion,
                                final Object request) {
-        writeAndFlush(channel, key, request, false);
+        writeAndFlush(channel, key, completion, request, false);
     }
 
     private void writeAndFlush(final Channel channel,
                            final CompletionKey key,
+                           final CompletionValue completion,
                            final Object request,
                            final boolean allowFastFail) {
         if (channel == null) {
             LOG.warn("Operation {} failed: channel == null", StringUtils.requestToString(request));
-            errorOut(key);
+            errorOut(key, completion);
+            ReferenceCountUtil.release(request);
             return;
         }
 
@@ -1193,7 +1311,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             LOG.warn("Operation {} failed: TooManyRequestsException",
                     StringUtils.requestToString(request));
 
-            errorOut(key, BKException.Code.TooManyRequestsException);
+            errorOut(key, completion, BKException.Code.TooManyRequestsException);
+            ReferenceCountUtil.release(request);
             return;
         }
 
@@ -1203,8 +1322,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             ChannelPromise promise = channel.newPromise().addListener(future -> {
                 if (future.isSuccess()) {
                     nettyOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
-                    CompletionValue completion = completionObjects.get(key);
-                    if (completion != null) {
+                    if (containsCompletionValue(key, completion)) {
                         completion.setOutstanding();
                     }
                 } else {
@@ -1214,33 +1332,25 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             channel.writeAndFlush(request, promise);
         } catch (Throwable e) {
             LOG.warn("Operation {} failed", StringUtils.requestToString(request), e);
-            errorOut(key);
+            errorOut(key, completion);
         }
     }
 
-    void errorOut(final CompletionKey key) {
+    void errorOut(final CompletionKey key, final CompletionValue completion) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Removing completion key: {}", key);
         }
-        CompletionValue completion = completionObjects.remove(key);
-        if (completion != null) {
+        if (removeCompletionValue(key, completion)) {
             completion.errorOut();
-        } else {
-            // If there's no completion object here, try in the multimap
-            completionObjectsV2Conflicts.removeAny(key).ifPresent(c -> c.errorOut());
         }
     }
 
-    void errorOut(final CompletionKey key, final int rc) {
+    void errorOut(final CompletionKey key, final CompletionValue completion, final int rc) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Removing completion key: {}", key);
         }
-        CompletionValue completion = completionObjects.remove(key);
-        if (completion != null) {
+        if (removeCompletionValue(key, completion)) {
             completion.errorOut(rc);
-        } else {
-            // If there's no completion object here, try in the multimap
-            completionObjectsV2Conflicts.removeAny(key).ifPresent(c -> c.errorOut(rc));
         }
     }
 
@@ -1269,13 +1379,17 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
      */
 
     void errorOutOutstandingEntries(int rc) {
-        Optional<CompletionKey> multikey = completionObjectsV2Conflicts.getAnyKey();
-        while (multikey.isPresent()) {
-            multikey.ifPresent(k -> errorOut(k, rc));
-            multikey = completionObjectsV2Conflicts.getAnyKey();
-        }
+        List<CompletionValue> outstanding = new ArrayList<>();
+        completionObjectsV2.removeIf((ledgerId, entryId, operation, completion) -> outstanding.add(completion));
         for (CompletionKey key : completionObjects.keys()) {
-            errorOut(key, rc);
+            CompletionValue completion = completionObjects.remove(key);
+            if (completion != null) {
+                outstanding.add(completion);
+            }
+        }
+        for (CompletionValue completion : outstanding) {
+            completion.getTimeoutQueue().remove(completion);
+            completion.errorOut(rc);
         }
     }
 
@@ -1390,6 +1504,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         } else if (msg instanceof Response) {
             Response response = (Response) msg;
             readV3Response(response);
+        } else if (msg instanceof ProtobufV3Codec.ReadEntryResponse) {
+            readV3ReadEntryResponse((ProtobufV3Codec.ReadEntryResponse) msg);
         } else {
             ctx.fireChannelRead(msg);
         }
@@ -1399,14 +1515,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         OperationType operationType = getOperationType(response.getOpCode());
         StatusCode status = getStatusCodeFromErrorCode(response.errorCode);
 
-        CompletionKey key;
+        CompletionValue completionValue;
         if (OperationType.BATCH_READ_ENTRY == operationType) {
-            key = new TxnCompletionKey(((BookieProtocol.BatchedReadResponse) response).getRequestId(), operationType);
+            completionValue = removeCompletionValue(new TxnCompletionKey(
+                    ((BookieProtocol.BatchedReadResponse) response).getRequestId(), operationType));
         } else {
-            key = acquireV2Key(response.ledgerId, response.entryId, operationType);
+            completionValue = removeCompletionValue(response.ledgerId, response.entryId, operationType);
         }
-        CompletionValue completionValue = getCompletionValue(key);
-        key.release();
 
         if (null == completionValue) {
             // Unexpected response, so log it. The txnId should have been present.
@@ -1524,7 +1639,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         final BKPacketHeader header = response.getHeader();
 
         final CompletionKey key = newCompletionKey(header.getTxnId(), header.getOperation());
-        final CompletionValue completionValue = completionObjects.get(key);
+        final CompletionValue completionValue = removeCompletionValue(key);
 
         if (null == completionValue) {
             // Unexpected response, so log it. The txnId should have been present.
@@ -1549,8 +1664,41 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 }
             });
         }
+    }
+
+    private void readV3ReadEntryResponse(final ProtobufV3Codec.ReadEntryResponse response) {
+        final long txnId = response.getTxnId();
+        final CompletionKey key = newCompletionKey(txnId, OperationType.READ_ENTRY);
+        final CompletionValue completionValue = removeCompletionValue(key);
+
+        if (null == completionValue) {
+            // Unexpected response, so log it. The txnId should have been present.
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unexpected response received from bookie : " + bookieId + " for type : "
+                        + OperationType.READ_ENTRY + " and txnId : " + txnId);
+            }
+            response.release();
+        } else {
+            long orderingKey = completionValue.ledgerId;
+            executor.executeOrdered(orderingKey, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        completionValue.restoreMdcContext();
+                        completionValue.handleV3ReadEntryResponse(response);
+                    } finally {
+                        response.release();
+                    }
+                }
 
-        completionObjects.remove(key);
+                @Override
+                public String toString() {
+                    return String.format("HandleResponse(Txn=%d, Type=%s, Entry=(%d, %d))",
+                                         txnId, OperationType.READ_ENTRY,
+                                         completionValue.ledgerId, completionValue.entryId);
+                }
+            });
+        }
     }
 
     void initTLSHandshake() {
@@ -1654,6 +1802,11 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         protected long ledgerId;
         protected long entryId;
         protected long startTime;
+        // links of the timeout queue of the completion, guarded by the section of the queue
+        private volatile TimeoutQueueSection timeoutSection;
+        private CompletionKey timeoutKey;
+        private CompletionValue timeoutPrev;
+        private CompletionValue timeoutNext;
 
         public CompletionValue(String operationName,
                                Object ctx,
@@ -1687,13 +1840,12 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             }
         }
 
-        boolean maybeTimeout() {
-            if (MathUtils.elapsedNanos(startTime) >= readEntryTimeoutNanos) {
-                timeout();
-                return true;
-            } else {
-                return false;
-            }
+        long getTimeoutNanos() {
+            return readEntryTimeoutNanos;
+        }
+
+        TimeoutQueue getTimeoutQueue() {
+            return readTimeouts;
         }
 
         void timeout() {
@@ -1755,6 +1907,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
         public abstract void handleV3Response(
                 BookkeeperProtocol.Response response);
+
+        public void handleV3ReadEntryResponse(ProtobufV3Codec.ReadEntryResponse response) {
+            LOG.warn("Unhandled V3 read response {}", response);
+        }
     }
 
     // visible for testing
@@ -1996,6 +2152,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     buffer); // meaningless using unpooled, but client may expect to hold the last reference
         }
 
+        @Override
+        public void handleV3ReadEntryResponse(ProtobufV3Codec.ReadEntryResponse response) {
+            readEntryOutstanding.dec();
+            ByteBuf buffer = response.getBody() != null ? response.getBody() : Unpooled.EMPTY_BUFFER;
+            long maxLAC = response.hasMaxLAC() ? response.getMaxLAC() : INVALID_ENTRY_ID;
+            long lacUpdateTimestamp = response.hasLacUpdateTimestamp() ? response.getLacUpdateTimestamp() : -1L;
+            handleReadResponse(response.getLedgerId(), response.getEntryId(), response.getStatus(),
+                               buffer, maxLAC, lacUpdateTimestamp);
+        }
+
         private void handleReadResponse(long ledgerId,
                                         long entryId,
                                         StatusCode status,
@@ -2168,13 +2334,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
 
         @Override
-        boolean maybeTimeout() {
-            if (MathUtils.elapsedNanos(startTime) >= getBookieInfoTimeoutNanos) {
-                timeout();
-                return true;
-            } else {
-                return false;
-            }
+        long getTimeoutNanos() {
+            return getBookieInfoTimeoutNanos;
+        }
+
+        @Override
+        TimeoutQueue getTimeoutQueue() {
+            return getBookieInfoTimeouts;
         }
 
         @Override
@@ -2263,6 +2429,62 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    class MultiReadCompletion extends CompletionValue {
+        final MultiReadEntryCallback cb;
+
+        public MultiReadCompletion(final CompletionKey key,
+                                   final MultiReadEntryCallback origCallback,
+                                   final Object origCtx) {
+            super("MultiRead", origCtx, -1L, -1L, multiReadEntryOpLogger, multiReadEntryTimeoutOpLogger);
+            this.cb = new MultiReadEntryCallback() {
+                @Override
+                public void readEntriesComplete(int rc, List<MultiReadEntries.Result> results, Object ctx) {
+                    logOpResult(rc);
+                    origCallback.readEntriesComplete(rc, results, ctx);
+                    key.release();
+                }
+            };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(() -> cb.readEntriesComplete(rc, null, ctx));
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            StatusCode status = response.getStatus();
+            if (LOG.isDebugEnabled()) {
+                logResponse(status);
+            }
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            if (rc != BKException.Code.OK) {
+                cb.readEntriesComplete(rc, null, ctx);
+                return;
+            }
+            MultiReadResponse multiReadResponse = response.getMultiReadResponse();
+            List<MultiReadEntries.Result> results = new ArrayList<>(multiReadResponse.getLedgerEntriesCount());
+            for (LedgerEntriesResponse ledgerEntries : multiReadResponse.getLedgerEntriesList()) {
+                int entriesRc = convertStatus(ledgerEntries.getStatus(), BKException.Code.ReadException);
+                ByteBufList entries = null;
+                if (entriesRc == BKException.Code.OK) {
+                    entries = ByteBufList.get();
+                    for (ByteString entry : ledgerEntries.getEntriesList()) {
+                        entries.add(Unpooled.wrappedBuffer(entry.asReadOnlyByteBuffer()));
+                    }
+                }
+                results.add(new MultiReadEntries.Result(entriesRc, ledgerEntries.getLedgerId(),
+                        ledgerEntries.getStartEntryId(), entries));
+            }
+            cb.readEntriesComplete(rc, results, ctx);
+        }
+    }
+
     private final Recycler<AddCompletion> addCompletionRecycler = new Recycler<AddCompletion>() {
             @Override
             protected AddCompletion newObject(Recycler.Handle<AddCompletion> handle) {
@@ -2314,13 +2536,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
 
         @Override
-        boolean maybeTimeout() {
-            if (MathUtils.elapsedNanos(startTime) >= addEntryTimeoutNanos) {
-                timeout();
-                return true;
-            } else {
-                return false;
-            }
+        long getTimeoutNanos() {
+            return addEntryTimeoutNanos;
+        }
+
+        @Override
+        TimeoutQueue getTimeoutQueue() {
+            return addTimeouts;
         }
 
         @Override
@@ -2337,6 +2559,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         @Override
         public void setOutstanding() {
             addEntryOutstanding.inc();
+            originalCallback.writeSent(ledgerId, entryId, bookieId, ctx);
         }
 
         @Override
@@ -2446,82 +2669,167 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
-    private void putCompletionKeyValue(CompletionKey key, CompletionValue value) {
-        CompletionValue existingValue = completionObjects.putIfAbsent(key, value);
-        if (existingValue != null) { // will only happen for V2 keys, as V3 have unique txnid
-            // There's a pending read request on same ledger/entry. Use the multimap to track all of them
-            completionObjectsV2Conflicts.put(key, value);
+    // visible for testing
+    void putCompletionKeyValue(CompletionKey key, CompletionValue value) {
+        // queued before being put in the map, see TimeoutQueueSection#expire
+        value.getTimeoutQueue().add(key, value);
+        if (key instanceof EntryCompletionKey) {
+            // There may be pending requests on the same ledger/entry, the multimap keeps all of them
+            completionObjectsV2.put(value.ledgerId, value.entryId, key.operationType.getNumber(), value);
+        } else {
+            completionObjects.put(key, value);
         }
     }
 
-    private CompletionValue getCompletionValue(CompletionKey key) {
+    // visible for testing
+    CompletionValue removeCompletionValue(CompletionKey key) {
         CompletionValue completionValue = completionObjects.remove(key);
-        if (completionValue == null) {
-            // If there's no completion object here, try in the multimap
-            completionValue = completionObjectsV2Conflicts.removeAny(key).orElse(null);
+        if (completionValue != null) {
+            completionValue.getTimeoutQueue().remove(completionValue);
         }
         return completionValue;
     }
 
-    private long getTxnId() {
-        return txnIdGenerator.incrementAndGet();
+    private CompletionValue removeCompletionValue(long ledgerId, long entryId, OperationType operationType) {
+        CompletionValue completionValue = completionObjectsV2.remove(ledgerId, entryId, operationType.getNumber());
+        if (completionValue != null) {
+            completionValue.getTimeoutQueue().remove(completionValue);
+        }
+        return completionValue;
     }
 
-    private final Recycler<EntryCompletionKey> v2KeyRecycler = new Recycler<EntryCompletionKey>() {
-            @Override
-            protected EntryCompletionKey newObject(
-                    Recycler.Handle<EntryCompletionKey> handle) {
-                return new EntryCompletionKey(handle);
-            }
-        };
+    private boolean removeCompletionValue(CompletionKey key, CompletionValue value) {
+        if (removeCompletionKeyValue(key, value)) {
+            value.getTimeoutQueue().remove(value);
+            return true;
+        }
+        return false;
+    }
 
-    EntryCompletionKey acquireV2Key(long ledgerId, long entryId,
-                             OperationType operationType) {
-        EntryCompletionKey key = v2KeyRecycler.get();
-        key.reset(ledgerId, entryId, operationType);
-        return key;
+    private boolean removeCompletionKeyValue(CompletionKey key, CompletionValue value) {
+        if (key instanceof EntryCompletionKey) {
+            return completionObjectsV2.remove(value.ledgerId, value.entryId, key.operationType.getNumber(), value);
+        } else {
+            return completionObjects.remove(key, value);
+        }
     }
 
-    private class EntryCompletionKey extends CompletionKey {
-        private final Handle<EntryCompletionKey> recyclerHandle;
-        long ledgerId;
-        long entryId;
+    private boolean containsCompletionValue(CompletionKey key, CompletionValue value) {
+        if (key instanceof EntryCompletionKey) {
+            return completionObjectsV2.containsValue(value.ledgerId, value.entryId, key.operationType.getNumber(),
+                    value);
+        } else {
+            return completionObjects.get(key) == value;
+        }
+    }
+
+    /**
+     * The requests in flight sharing the same timeout, linked in the order they were sent, which is also the order
+     * of their deadlines. Timing out requests only visits the expired ones, rather than all the requests in flight.
+     * A request leaves the queue when it is removed from the completion objects.
+     *
+     * <p>Like the completion objects, the queue is split in sections by ledger and entry, each with its own lock,
+     * so that the threads sending requests and the one handling the responses rarely contend.
+     */
+    private final class TimeoutQueue {
+        private final TimeoutQueueSection[] sections = new TimeoutQueueSection[TIMEOUT_QUEUE_SECTIONS];
 
-        private EntryCompletionKey(Handle<EntryCompletionKey> handle) {
-            super(null);
-            this.recyclerHandle = handle;
+        TimeoutQueue() {
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = new TimeoutQueueSection();
+            }
         }
 
-        void reset(long ledgerId, long entryId, OperationType operationType) {
-            this.ledgerId = ledgerId;
-            this.entryId = entryId;
-            this.operationType = operationType;
+        void add(CompletionKey key, CompletionValue value) {
+            if (value.timeoutSection != null) {
+                // recycled completion which was never removed from the completion objects
+                remove(value);
+            }
+            long hash = (value.ledgerId * HASH_MIXER + value.entryId) * HASH_MIXER;
+            sections[(int) (hash >>> 32) & (sections.length - 1)].add(key, value);
         }
 
-        @Override
-        public boolean equals(Object object) {
-            if (!(object instanceof EntryCompletionKey)) {
-                return  false;
+        void remove(CompletionValue value) {
+            TimeoutQueueSection section = value.timeoutSection;
+            if (section != null) {
+                section.remove(value);
             }
-            EntryCompletionKey that = (EntryCompletionKey) object;
-            return this.entryId == that.entryId
-                && this.ledgerId == that.ledgerId
-                && this.operationType == that.operationType;
         }
 
-        @Override
-        public int hashCode() {
-            return Long.hashCode(ledgerId) * 31 + Long.hashCode(entryId);
+        void expire(long nowNanos, List<CompletionValue> timedOut) {
+            for (TimeoutQueueSection section : sections) {
+                section.expire(nowNanos, timedOut);
+            }
         }
+    }
 
-        @Override
-        public String toString() {
-            return String.format("%d:%d %s", ledgerId, entryId, operationType);
+    private final class TimeoutQueueSection {
+        private CompletionValue head;
+        private CompletionValue tail;
+
+        synchronized void add(CompletionKey key, CompletionValue value) {
+            value.timeoutKey = key;
+            value.timeoutPrev = tail;
+            if (tail == null) {
+                head = value;
+            } else {
+                tail.timeoutNext = value;
+            }
+            tail = value;
+            value.timeoutSection = this;
+            numInFlightRequests.increment();
+        }
+
+        synchronized void remove(CompletionValue value) {
+            if (value.timeoutSection != this) {
+                return;
+            }
+            if (value.timeoutPrev == null) {
+                head = value.timeoutNext;
+            } else {
+                value.timeoutPrev.timeoutNext = value.timeoutNext;
+            }
+            if (value.timeoutNext == null) {
+                tail = value.timeoutPrev;
+            } else {
+                value.timeoutNext.timeoutPrev = value.timeoutPrev;
+            }
+            value.timeoutSection = null;
+            value.timeoutKey = null;
+            value.timeoutPrev = null;
+            value.timeoutNext = null;
+            numInFlightRequests.decrement();
+        }
+
+        /**
+         * Remove the expired requests from the completion objects.
+         * The section stays locked until they are removed, so that they can't be recycled and sent again meanwhile.
+         */
+        synchronized void expire(long nowNanos, List<CompletionValue> timedOut) {
+            while (head != null && nowNanos - head.startTime >= head.getTimeoutNanos()) {
+                CompletionValue value = head;
+                CompletionKey key = value.timeoutKey;
+                remove(value);
+                if (removeCompletionKeyValue(key, value)) {
+                    timedOut.add(value);
+                }
+            }
+        }
+    }
+
+    private long getTxnId() {
+        return txnIdGenerator.incrementAndGet();
+    }
+
+    private class EntryCompletionKey extends CompletionKey {
+
+        private EntryCompletionKey(OperationType operationType) {
+            super(operationType);
         }
 
         @Override
-        public void release() {
-            recyclerHandle.recycle(this);
+        public String toString() {
+            return String.format("Entry %s", operationType);
         }
     }
 
@@ -2692,8 +3000,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         assert state == ConnectionState.CONNECTING;
         final long txnId = getTxnId();
         final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.START_TLS);
-        completionObjects.put(completionKey,
-                              new StartTLSCompletion(completionKey));
+        final CompletionValue completion = new StartTLSCompletion(completionKey);
+        putCompletionKeyValue(completionKey, completion);
         BookkeeperProtocol.Request.Builder h = withRequestContext(BookkeeperProtocol.Request.newBuilder());
         BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
                 .setVersion(ProtocolVersion.VERSION_THREE)
@@ -2702,7 +3010,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         h.setHeader(headerBuilder.build());
         h.setStartTLSRequest(BookkeeperProtocol.StartTLSRequest.newBuilder().build());
         state = ConnectionState.START_TLS;
-        writeAndFlush(channel, completionKey, h.build());
+        writeAndFlush(channel, completionKey, completion, h.build());
     }
 
     private void failTLS(int rc) {
@@ -40,6 +40,17 @@ public interface PerChannelBookieClientPool {
      */
     void obtain(GenericCallback<PerChannelBookieClient> callback, long key);
 
+    /**
+     * Obtain a channel from channel pool to execute an operation which doesn't need to be ordered
+     * with the other operations of the same key, such as a read.
+     *
+     * @param callback
+     *          callback to return channel from channel pool.
+     */
+    default void obtainUnordered(GenericCallback<PerChannelBookieClient> callback, long key) {
+        obtain(callback, key);
+    }
+
     /**
      * Obtain a channel from channel pool by version to execute operations.
      *
@@ -72,6 +83,13 @@ public interface PerChannelBookieClientPool {
      */
     void checkTimeoutOnPendingOperations();
 
+    /**
+     * Close the channels opened on top of the core ones once they are idle.
+     * This is called periodically, whether the operations time out or not.
+     */
+    default void scaleDownIdleChannels() {
+    }
+
     /**
      * Disconnect the connections in the pool.
      *
@@ -0,0 +1,559 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.CodedOutputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.ByteBufList;
+
+/**
+ * Hand written codec for the hot messages of the protocol version 3: the add requests sent by the clients and
+ * the read responses sent by the bookies.
+ *
+ * <p>The messages are encoded in the protobuf wire format of {@link BookkeeperProtocol}, so they can be exchanged
+ * with peers using the generated protobuf code. Unlike the generated code, the codec doesn't build intermediate
+ * protobuf objects and doesn't copy the entry payloads: the fields preceding the payload are written in a small
+ * buffer, and the payload buffers are written to (or sliced from) the channel as is.
+ */
+public final class ProtobufV3Codec {
+
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    private ProtobufV3Codec() {}
+
+    /**
+     * An add request of the protocol version 3, encoded without building the protobuf {@link Request}.
+     * The request owns its payload, which is released once the request is written on the channel.
+     */
+    public static final class AddEntryRequest extends AbstractReferenceCounted {
+        private long txnId;
+        private int priority;
+        private long ledgerId;
+        private long entryId;
+        private byte[] masterKey;
+        private boolean recoveryAdd;
+        private int writeFlags;
+        private ByteBufList body;
+
+        private final Handle<AddEntryRequest> recyclerHandle;
+
+        private AddEntryRequest(Handle<AddEntryRequest> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        private static final Recycler<AddEntryRequest> RECYCLER = new Recycler<AddEntryRequest>() {
+            @Override
+            protected AddEntryRequest newObject(Handle<AddEntryRequest> handle) {
+                return new AddEntryRequest(handle);
+            }
+        };
+
+        /**
+         * Create an add request, taking the ownership of the body.
+         *
+         * @param priority the priority of the request header, or 0 for the default priority
+         * @param writeFlags the write flags of the request, or 0 to leave them unset
+         */
+        public static AddEntryRequest create(long txnId, int priority, long ledgerId, long entryId,
+                                             byte[] masterKey, boolean recoveryAdd, int writeFlags,
+                                             ByteBufList body) {
+            AddEntryRequest request = RECYCLER.get();
+            request.setRefCnt(1);
+            request.txnId = txnId;
+            request.priority = priority;
+            request.ledgerId = ledgerId;
+            request.entryId = entryId;
+            request.masterKey = masterKey;
+            request.recoveryAdd = recoveryAdd;
+            request.writeFlags = writeFlags;
+            request.body = body;
+            return request;
+        }
+
+        public long getTxnId() {
+            return txnId;
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getEntryId() {
+            return entryId;
+        }
+
+        /**
+         * Encode the request in a frame, prefixed by its size, and release it.
+         *
+         * @return the frame, made of a buffer holding all the fields but the body, followed by the body buffers
+         */
+        ByteBufList encode(ByteBufAllocator allocator) {
+            try {
+                int bodySize = body.readableBytes();
+                int headerSize = packetHeaderSize(OperationType.ADD_ENTRY, txnId, priority);
+                int addSize = varintFieldSize(AddRequest.LEDGERID_FIELD_NUMBER, ledgerId)
+                        + varintFieldSize(AddRequest.ENTRYID_FIELD_NUMBER, entryId)
+                        + lengthDelimitedFieldSize(AddRequest.MASTERKEY_FIELD_NUMBER, masterKey.length)
+                        + lengthDelimitedFieldSize(AddRequest.BODY_FIELD_NUMBER, bodySize);
+                if (writeFlags != 0) {
+                    addSize += int32FieldSize(AddRequest.WRITEFLAGS_FIELD_NUMBER, writeFlags);
+                }
+                if (recoveryAdd) {
+                    addSize += int32FieldSize(AddRequest.FLAG_FIELD_NUMBER, AddRequest.Flag.RECOVERY_ADD_VALUE);
+                }
+                int requestSize = lengthDelimitedFieldSize(Request.HEADER_FIELD_NUMBER, headerSize)
+                        + lengthDelimitedFieldSize(Request.ADDREQUEST_FIELD_NUMBER, addSize);
+
+                int prefixSize = Integer.BYTES + requestSize - bodySize;
+                ByteBuf prefix = allocator.directBuffer(prefixSize, prefixSize);
+                prefix.writeInt(requestSize);
+                writeLengthDelimitedTag(prefix, Request.HEADER_FIELD_NUMBER, headerSize);
+                writePacketHeader(prefix, OperationType.ADD_ENTRY, txnId, priority);
+                writeLengthDelimitedTag(prefix, Request.ADDREQUEST_FIELD_NUMBER, addSize);
+                writeVarintField(prefix, AddRequest.LEDGERID_FIELD_NUMBER, ledgerId);
+                writeVarintField(prefix, AddRequest.ENTRYID_FIELD_NUMBER, entryId);
+                writeLengthDelimitedTag(prefix, AddRequest.MASTERKEY_FIELD_NUMBER, masterKey.length);
+                prefix.writeBytes(masterKey);
+                if (writeFlags != 0) {
+                    writeVarintField(prefix, AddRequest.WRITEFLAGS_FIELD_NUMBER, writeFlags);
+                }
+                if (recoveryAdd) {
+                    writeVarintField(prefix, AddRequest.FLAG_FIELD_NUMBER, AddRequest.Flag.RECOVERY_ADD_VALUE);
+                }
+                // the body is the last field, so it can be sent as is after the other fields
+                writeLengthDelimitedTag(prefix, AddRequest.BODY_FIELD_NUMBER, bodySize);
+
+                ByteBufList frame = body;
+                body = null;
+                frame.prepend(prefix);
+                return frame;
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        protected void deallocate() {
+            ReferenceCountUtil.release(body);
+            body = null;
+            masterKey = null;
+            recyclerHandle.recycle(this);
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Req(txnId=%d,op=%s,version=%s)", txnId, OperationType.ADD_ENTRY,
+                    ProtocolVersion.VERSION_THREE);
+        }
+    }
+
+    /**
+     * A read response of the protocol version 3, encoded and decoded without building the protobuf
+     * {@link Response}. The response owns its entry body, if any.
+     */
+    public static final class ReadEntryResponse extends AbstractReferenceCounted {
+        private long txnId;
+        private StatusCode status;
+        private long ledgerId;
+        private long entryId;
+        private ByteBuf body;
+        private boolean hasMaxLAC;
+        private long maxLAC;
+        private boolean hasLacUpdateTimestamp;
+        private long lacUpdateTimestamp;
+
+        private final Handle<ReadEntryResponse> recyclerHandle;
+
+        private ReadEntryResponse(Handle<ReadEntryResponse> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        private static final Recycler<ReadEntryResponse> RECYCLER = new Recycler<ReadEntryResponse>() {
+            @Override
+            protected ReadEntryResponse newObject(Handle<ReadEntryResponse> handle) {
+                return new ReadEntryResponse(handle);
+            }
+        };
+
+        private static ReadEntryResponse get() {
+            ReadEntryResponse response = RECYCLER.get();
+            response.setRefCnt(1);
+            response.txnId = 0;
+            response.status = StatusCode.EOK;
+            response.ledgerId = 0;
+            response.entryId = 0;
+            response.body = null;
+            response.hasMaxLAC = false;
+            response.hasLacUpdateTimestamp = false;
+            return response;
+        }
+
+        /**
+         * Create a read response from the fields of a read response without body, taking the ownership of
+         * the body.
+         */
+        public static ReadEntryResponse create(long txnId, ReadResponse readResponse, ByteBuf body) {
+            ReadEntryResponse response = get();
+            response.txnId = txnId;
+            response.status = readResponse.getStatus();
+            response.ledgerId = readResponse.getLedgerId();
+            response.entryId = readResponse.getEntryId();
+            response.body = body;
+            response.hasMaxLAC = readResponse.hasMaxLAC();
+            response.maxLAC = readResponse.getMaxLAC();
+            response.hasLacUpdateTimestamp = readResponse.hasLacUpdateTimestamp();
+            response.lacUpdateTimestamp = readResponse.getLacUpdateTimestamp();
+            return response;
+        }
+
+        public long getTxnId() {
+            return txnId;
+        }
+
+        public StatusCode getStatus() {
+            return status;
+        }
+
+        public long getLedgerId() {
+            return ledgerId;
+        }
+
+        public long getEntryId() {
+            return entryId;
+        }
+
+        /**
+         * @return the entry body, owned by the response, or null if the response has no body
+         */
+        public ByteBuf getBody() {
+            return body;
+        }
+
+        public boolean hasMaxLAC() {
+            return hasMaxLAC;
+        }
+
+        public long getMaxLAC() {
+            return maxLAC;
+        }
+
+        public boolean hasLacUpdateTimestamp() {
+            return hasLacUpdateTimestamp;
+        }
+
+        public long getLacUpdateTimestamp() {
+            return lacUpdateTimestamp;
+        }
+
+        private int readResponseSize(int bodySize) {
+            int size = int32FieldSize(ReadResponse.STATUS_FIELD_NUMBER, status.getNumber())
+                    + varintFieldSize(ReadResponse.LEDGERID_FIELD_NUMBER, ledgerId)
+                    + varintFieldSize(ReadResponse.ENTRYID_FIELD_NUMBER, entryId);
+            if (hasMaxLAC) {
+                size += varintFieldSize(ReadResponse.MAXLAC_FIELD_NUMBER, maxLAC);
+            }
+            if (hasLacUpdateTimestamp) {
+                size += varintFieldSize(ReadResponse.LACUPDATETIMESTAMP_FIELD_NUMBER, lacUpdateTimestamp);
+            }
+            if (body != null) {
+                size += lengthDelimitedFieldSize(ReadResponse.BODY_FIELD_NUMBER, bodySize);
+            }
+            return size;
+        }
+
+        /**
+         * Encode the response in a frame, prefixed by its size, and release it.
+         *
+         * @return the frame, either a buffer, or a buffer holding all the fields but the body followed by the body
+         */
+        Object encode(ByteBufAllocator allocator) {
+            try {
+                int bodySize = body != null ? body.readableBytes() : 0;
+                int headerSize = packetHeaderSize(OperationType.READ_ENTRY, txnId, 0);
+                int readSize = readResponseSize(bodySize);
+                int responseSize = lengthDelimitedFieldSize(Response.HEADER_FIELD_NUMBER, headerSize)
+                        + int32FieldSize(Response.STATUS_FIELD_NUMBER, status.getNumber())
+                        + lengthDelimitedFieldSize(Response.READRESPONSE_FIELD_NUMBER, readSize);
+
+                int prefixSize = Integer.BYTES + responseSize - bodySize;
+                ByteBuf prefix = allocator.directBuffer(prefixSize, prefixSize);
+                prefix.writeInt(responseSize);
+                writeLengthDelimitedTag(prefix, Response.HEADER_FIELD_NUMBER, headerSize);
+                writePacketHeader(prefix, OperationType.READ_ENTRY, txnId, 0);
+                writeVarintField(prefix, Response.STATUS_FIELD_NUMBER, status.getNumber());
+                writeLengthDelimitedTag(prefix, Response.READRESPONSE_FIELD_NUMBER, readSize);
+                writeVarintField(prefix, ReadResponse.STATUS_FIELD_NUMBER, status.getNumber());
+                writeVarintField(prefix, ReadResponse.LEDGERID_FIELD_NUMBER, ledgerId);
+                writeVarintField(prefix, ReadResponse.ENTRYID_FIELD_NUMBER, entryId);
+                if (hasMaxLAC) {
+                    writeVarintField(prefix, ReadResponse.MAXLAC_FIELD_NUMBER, maxLAC);
+                }
+                if (hasLacUpdateTimestamp) {
+                    writeVarintField(prefix, ReadResponse.LACUPDATETIMESTAMP_FIELD_NUMBER, lacUpdateTimestamp);
+                }
+                if (body == null) {
+                    return prefix;
+                }
+                // the body is the last field, so it can be sent as is after the other fields
+                writeLengthDelimitedTag(prefix, ReadResponse.BODY_FIELD_NUMBER, bodySize);
+                ByteBufList frame = ByteBufList.get(prefix, body);
+                body = null;
+                return frame;
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Decode a read response, the body being a retained slice of the packet.
+         *
+         * @return the read response, or null if the packet isn't a read response this codec can decode, in which
+         *         case the reader index of the packet is left unchanged
+         */
+        static ReadEntryResponse decode(ByteBuf packet) {
+            int readerIndex = packet.readerIndex();
+            ReadEntryResponse response = get();
+            try {
+                if (response.decodeResponse(packet)) {
+                    return response;
+                }
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                // malformed message, leave it to the protobuf parser
+            }
+            response.release();
+            packet.readerIndex(readerIndex);
+            return null;
+        }
+
+        private boolean decodeResponse(ByteBuf packet) {
+            boolean hasHeader = false;
+            boolean hasReadResponse = false;
+            StatusCode responseStatus = StatusCode.EOK;
+            while (packet.isReadable()) {
+                long tag = readVarint(packet);
+                switch ((int) tag) {
+                    case (Response.HEADER_FIELD_NUMBER << 3) | WIRETYPE_LENGTH_DELIMITED:
+                        if (!decodeHeader(packet, readLength(packet))) {
+                            return false;
+                        }
+                        hasHeader = true;
+                        break;
+                    case (Response.STATUS_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        responseStatus = StatusCode.forNumber((int) readVarint(packet));
+                        if (responseStatus == null) {
+                            return false;
+                        }
+                        break;
+                    case (Response.READRESPONSE_FIELD_NUMBER << 3) | WIRETYPE_LENGTH_DELIMITED:
+                        if (hasReadResponse || !decodeReadResponse(packet, readLength(packet))) {
+                            return false;
+                        }
+                        hasReadResponse = true;
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            if (responseStatus != StatusCode.EOK) {
+                // an error status of the response takes precedence over the status of the read response
+                status = responseStatus;
+            }
+            return hasHeader && hasReadResponse;
+        }
+
+        private boolean decodeHeader(ByteBuf packet, int length) {
+            int endIndex = packet.readerIndex() + length;
+            boolean isReadEntry = false;
+            while (packet.readerIndex() < endIndex) {
+                long tag = readVarint(packet);
+                switch ((int) tag) {
+                    case (BKPacketHeader.VERSION_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        readVarint(packet);
+                        break;
+                    case (BKPacketHeader.OPERATION_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        isReadEntry = readVarint(packet) == OperationType.READ_ENTRY_VALUE;
+                        break;
+                    case (BKPacketHeader.TXNID_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        txnId = readVarint(packet);
+                        break;
+                    case (BKPacketHeader.PRIORITY_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        readVarint(packet);
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            return isReadEntry && packet.readerIndex() == endIndex;
+        }
+
+        private boolean decodeReadResponse(ByteBuf packet, int length) {
+            int endIndex = packet.readerIndex() + length;
+            while (packet.readerIndex() < endIndex) {
+                long tag = readVarint(packet);
+                switch ((int) tag) {
+                    case (ReadResponse.STATUS_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        status = StatusCode.forNumber((int) readVarint(packet));
+                        if (status == null) {
+                            return false;
+                        }
+                        break;
+                    case (ReadResponse.LEDGERID_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        ledgerId = readVarint(packet);
+                        break;
+                    case (ReadResponse.ENTRYID_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        entryId = readVarint(packet);
+                        break;
+                    case (ReadResponse.BODY_FIELD_NUMBER << 3) | WIRETYPE_LENGTH_DELIMITED:
+                        int bodySize = readLength(packet);
+                        if (body != null) {
+                            return false;
+                        }
+                        body = packet.retainedSlice(packet.readerIndex(), bodySize);
+                        packet.skipBytes(bodySize);
+                        break;
+                    case (ReadResponse.MAXLAC_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        hasMaxLAC = true;
+                        maxLAC = readVarint(packet);
+                        break;
+                    case (ReadResponse.LACUPDATETIMESTAMP_FIELD_NUMBER << 3) | WIRETYPE_VARINT:
+                        hasLacUpdateTimestamp = true;
+                        lacUpdateTimestamp = readVarint(packet);
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            return packet.readerIndex() == endIndex;
+        }
+
+        @Override
+        protected void deallocate() {
+            ReferenceCountUtil.release(body);
+            body = null;
+            recyclerHandle.recycle(this);
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ReadResponse(txnId=%d,status=%s,ledgerId=%d,entryId=%d)", txnId, status,
+                    ledgerId, entryId);
+        }
+    }
+
+    private static int packetHeaderSize(OperationType operation, long txnId, int priority) {
+        int size = int32FieldSize(BKPacketHeader.VERSION_FIELD_NUMBER, ProtocolVersion.VERSION_THREE_VALUE)
+                + int32FieldSize(BKPacketHeader.OPERATION_FIELD_NUMBER, operation.getNumber())
+                + varintFieldSize(BKPacketHeader.TXNID_FIELD_NUMBER, txnId);
+        if (priority != 0) {
+            // the priority is an uint32, which isn't sign extended
+            size += varintFieldSize(BKPacketHeader.PRIORITY_FIELD_NUMBER, Integer.toUnsignedLong(priority));
+        }
+        return size;
+    }
+
+    private static void writePacketHeader(ByteBuf buf, OperationType operation, long txnId, int priority) {
+        writeVarintField(buf, BKPacketHeader.VERSION_FIELD_NUMBER, ProtocolVersion.VERSION_THREE_VALUE);
+        writeVarintField(buf, BKPacketHeader.OPERATION_FIELD_NUMBER, operation.getNumber());
+        writeVarintField(buf, BKPacketHeader.TXNID_FIELD_NUMBER, txnId);
+        if (priority != 0) {
+            writeVarintField(buf, BKPacketHeader.PRIORITY_FIELD_NUMBER, Integer.toUnsignedLong(priority));
+        }
+    }
+
+    private static int varintFieldSize(int fieldNumber, long value) {
+        return CodedOutputStream.computeUInt64Size(fieldNumber, value);
+    }
+
+    private static int int32FieldSize(int fieldNumber, int value) {
+        return CodedOutputStream.computeInt32Size(fieldNumber, value);
+    }
+
+    private static int lengthDelimitedFieldSize(int fieldNumber, int length) {
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeUInt32SizeNoTag(length)
+                + length;
+    }
+
+    private static void writeVarintField(ByteBuf buf, int fieldNumber, long value) {
+        writeVarint(buf, (fieldNumber << 3) | WIRETYPE_VARINT);
+        writeVarint(buf, value);
+    }
+
+    private static void writeLengthDelimitedTag(ByteBuf buf, int fieldNumber, int length) {
+        writeVarint(buf, (fieldNumber << 3) | WIRETYPE_LENGTH_DELIMITED);
+        writeVarint(buf, length);
+    }
+
+    /**
+     * Write a varint, negative int32 values being sign extended to 64 bits as protobuf does.
+     */
+    private static void writeVarint(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarint(ByteBuf buf) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int readLength(ByteBuf buf) {
+        long length = readVarint(buf);
+        if (length < 0 || length > buf.readableBytes()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+}
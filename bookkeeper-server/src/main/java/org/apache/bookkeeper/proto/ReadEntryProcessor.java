@@ -18,6 +18,7 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
 import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
@@ -52,7 +53,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         rep.init(request, requestHandler, requestProcessor);
         rep.fenceThreadPool = fenceThreadPool;
         rep.throttleReadResponses = throttleReadResponses;
-        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+        requestProcessor.onReadRequestStart(requestHandler);
         return rep;
     }
 
@@ -65,7 +66,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Dropping read request for closed channel: {}", requestHandler.ctx().channel());
             }
-            requestProcessor.onReadRequestFinish();
+            requestProcessor.onReadRequestFinish(requestHandler);
             recycle();
             return;
         }
@@ -128,6 +129,11 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
     }
 
     protected ReferenceCounted readData() throws Exception {
+        int minRegionSize = requestProcessor.getReadSendfileMinEntrySize(requestHandler);
+        if (minRegionSize > 0) {
+            return requestProcessor.getBookie().readEntryOrRegion(request.getLedgerId(), request.getEntryId(),
+                    minRegionSize);
+        }
         return requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
     }
 
@@ -151,6 +157,9 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
     }
 
     protected BookieProtocol.Response buildReadResponse(ReferenceCounted data) {
+        if (data instanceof FileRegion) {
+            return ResponseBuilder.buildReadResponse((FileRegion) data, request);
+        }
         return ResponseBuilder.buildReadResponse((ByteBuf) data, request);
     }
 
@@ -24,6 +24,7 @@ import io.netty.channel.Channel;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
@@ -47,6 +48,8 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
     private final ExecutorService fenceThreadPool;
 
     private CompletableFuture<Boolean> fenceResult = null;
+    // body of the entry read, sent without being copied in the read response
+    private ByteBuf responseBody = null;
 
     protected final ReadRequest readRequest;
     protected final long ledgerId;
@@ -61,7 +64,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                                 BookieRequestProcessor requestProcessor,
                                 ExecutorService fenceThreadPool) {
         super(request, requestHandler, requestProcessor);
-        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+        requestProcessor.onReadRequestStart(requestHandler);
 
         this.readRequest = request.getReadRequest();
         this.ledgerId = readRequest.getLedgerId();
@@ -175,23 +178,64 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
             handleReadResultForFenceRead(entryBody, readResponseBuilder, entryId, startTimeSw);
             return null;
         } else {
-            try {
-                readResponseBuilder.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
-                if (readLACPiggyBack) {
-                    readResponseBuilder.setEntryId(entryId);
-                } else {
-                    long knownLAC = requestProcessor.getBookie().readLastAddConfirmed(ledgerId);
-                    readResponseBuilder.setMaxLAC(knownLAC);
-                }
-                registerSuccessfulEvent(readStats, startTimeSw);
-                readResponseBuilder.setStatus(StatusCode.EOK);
-                return readResponseBuilder.build();
-            } finally {
-                ReferenceCountUtil.release(entryBody);
+            return buildReadResponse(readResponseBuilder, entryBody, entryId, readLACPiggyBack, startTimeSw);
+        }
+    }
+
+    /**
+     * Build the response of a successful read. The entry body is released if the response can't be built.
+     */
+    private ReadResponse buildReadResponse(ReadResponse.Builder readResponseBuilder,
+                                           ByteBuf entryBody,
+                                           long entryId,
+                                           boolean readLACPiggyBack,
+                                           Stopwatch startTimeSw)
+        throws IOException, BookieException {
+        try {
+            if (readLACPiggyBack) {
+                readResponseBuilder.setEntryId(entryId);
+            } else {
+                long knownLAC = requestProcessor.getBookie().readLastAddConfirmed(ledgerId);
+                readResponseBuilder.setMaxLAC(knownLAC);
             }
+            registerSuccessfulEvent(readStats, startTimeSw);
+            readResponseBuilder.setStatus(StatusCode.EOK);
+            // the body is added to the response when it is encoded
+            responseBody = entryBody;
+            entryBody = null;
+            return readResponseBuilder.build();
+        } finally {
+            ReferenceCountUtil.release(entryBody);
         }
     }
 
+    /**
+     * Read the entry without blocking the read thread while it is read from the entry log. The response
+     * is sent by the thread completing the read.
+     */
+    private void readEntryAsync() {
+        final Stopwatch startTimeSw = Stopwatch.createStarted();
+        final ReadResponse.Builder readResponseBuilder = ReadResponse.newBuilder()
+            .setLedgerId(ledgerId)
+            .setEntryId(entryId);
+        requestProcessor.getBookie().readEntryAsync(ledgerId, entryId).whenComplete((entryBody, cause) -> {
+            ReadResponse readResponse;
+            if (null != cause) {
+                if (cause instanceof CompletionException && null != cause.getCause()) {
+                    cause = cause.getCause();
+                }
+                readResponse = buildErrorResponse(readResponseBuilder, cause, startTimeSw);
+            } else {
+                try {
+                    readResponse = buildReadResponse(readResponseBuilder, entryBody, entryId, false, startTimeSw);
+                } catch (IOException | BookieException e) {
+                    readResponse = buildErrorResponse(readResponseBuilder, e, startTimeSw);
+                }
+            }
+            sendResponse(readResponse);
+        });
+    }
+
     protected ReadResponse getReadResponse() {
         final Stopwatch startTimeSw = Stopwatch.createStarted();
         final Channel channel = requestHandler.ctx().channel();
@@ -215,7 +259,13 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                 }
             }
             return readEntry(readResponse, entryId, startTimeSw);
-        } catch (Bookie.NoLedgerException e) {
+        } catch (IOException | BookieException e) {
+            return buildErrorResponse(readResponse, e, startTimeSw);
+        }
+    }
+
+    private ReadResponse buildErrorResponse(ReadResponse.Builder readResponse, Throwable e, Stopwatch startTimeSw) {
+        if (e instanceof Bookie.NoLedgerException) {
             if (RequestUtils.isFenceRequest(readRequest)) {
                 LOG.info("No ledger found reading entry {} when fencing ledger {}", entryId, ledgerId);
             } else if (entryId != BookieProtocol.LAST_ADD_CONFIRMED) {
@@ -225,24 +275,27 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                 LOG.debug("No ledger found while reading entry: {} from ledger: {}", entryId, ledgerId);
             }
             return buildResponse(readResponse, StatusCode.ENOLEDGER, startTimeSw);
-        } catch (Bookie.NoEntryException e) {
+        } else if (e instanceof Bookie.NoEntryException) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("No entry found while reading entry: {} from ledger: {}", entryId, ledgerId);
             }
             return buildResponse(readResponse, StatusCode.ENOENTRY, startTimeSw);
-        } catch (IOException e) {
+        } else if (e instanceof IOException) {
             LOG.error("IOException while reading entry: {} from ledger {} ", entryId, ledgerId, e);
             return buildResponse(readResponse, StatusCode.EIO, startTimeSw);
-        } catch (BookieException.DataUnknownException e) {
+        } else if (e instanceof BookieException.DataUnknownException) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Ledger has unknown state for entry: {} from ledger {}", entryId, ledgerId);
             }
             return buildResponse(readResponse, StatusCode.EUNKNOWNLEDGERSTATE, startTimeSw);
-        } catch (BookieException e) {
+        } else if (e instanceof BookieException) {
             LOG.error(
                 "Unauthorized access to ledger:{} while reading entry:{} in request from address: {}",
-                    ledgerId, entryId, channel.remoteAddress());
+                    ledgerId, entryId, requestHandler.ctx().channel().remoteAddress());
             return buildResponse(readResponse, StatusCode.EUA, startTimeSw);
+        } else {
+            LOG.error("Unexpected exception while reading entry: {} from ledger {} ", entryId, ledgerId, e);
+            return buildResponse(readResponse, StatusCode.EIO, startTimeSw);
         }
     }
 
@@ -254,7 +307,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Dropping read request for closed channel: {}", requestHandler.ctx().channel());
             }
-            requestProcessor.onReadRequestFinish();
+            requestProcessor.onReadRequestFinish(requestHandler);
             return;
         }
 
@@ -272,6 +325,10 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
     }
 
     protected void executeOp() {
+        if (!RequestUtils.isFenceRequest(readRequest)) {
+            readEntryAsync();
+            return;
+        }
         ReadResponse readResponse = getReadResponse();
         if (null != readResponse) {
             sendResponse(readResponse);
@@ -320,6 +377,15 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
     }
 
     protected void sendResponse(ReadResponse readResponse) {
+        if (null != responseBody) {
+            ByteBuf body = responseBody;
+            responseBody = null;
+            sendResponse(readResponse.getStatus(),
+                         ProtobufV3Codec.ReadEntryResponse.create(request.getHeader().getTxnId(), readResponse, body),
+                         reqStats);
+            requestProcessor.onReadRequestFinish(requestHandler);
+            return;
+        }
         Response.Builder response = Response.newBuilder()
                 .setHeader(getHeader())
                 .setStatus(readResponse.getStatus())
@@ -327,7 +393,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
         sendResponse(response.getStatus(),
                      response.build(),
                      reqStats);
-        requestProcessor.onReadRequestFinish();
+        requestProcessor.onReadRequestFinish(requestHandler);
     }
 
     //
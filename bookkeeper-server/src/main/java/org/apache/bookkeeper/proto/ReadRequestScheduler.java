@@ -0,0 +1,220 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_SCHEDULER_QUEUED;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_SCHEDULER_QUEUE_TIME;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Schedules the regular (neither fencing, recovery nor long poll) read requests on the read thread pool.
+ *
+ * <p>Reads are classified as tailing reads, close to the last entry added to the ledger on this bookie,
+ * or as backlog reads, which catch up from further behind. Each class has its own limit on the number
+ * of reads in flight in the read thread pool, and reads above that limit wait in the queue of their
+ * class. Limiting the backlog reads keeps the read thread queues short for the tailing reads, while
+ * the backlog reads can still keep the disks busy.
+ *
+ * <p>The last entry added to each ledger is tracked in a fixed size table indexed by ledger id, updated
+ * without synchronization. A collision or a race only leads to a misclassified read.
+ */
+class ReadRequestScheduler {
+
+    enum ReadClass {
+        TAILING,
+        BACKLOG
+    }
+
+    private static final int NUM_TRACKED_LEDGERS = 1 << 16;
+
+    private final long[] trackedLedgers = new long[NUM_TRACKED_LEDGERS];
+    private final long[] lastAddedEntries = new long[NUM_TRACKED_LEDGERS];
+
+    private final OrderedExecutor readThreadPool;
+    private final long tailingDistance;
+    private final ClassQueue tailingQueue;
+    private final ClassQueue backlogQueue;
+
+    ReadRequestScheduler(ServerConfiguration conf, OrderedExecutor readThreadPool, StatsLogger statsLogger) {
+        this.readThreadPool = readThreadPool;
+        this.tailingDistance = conf.getReadSchedulerTailingDistance();
+        int backlogMaxInFlight = conf.getReadSchedulerBacklogMaxInFlightReads();
+        if (backlogMaxInFlight <= 0) {
+            backlogMaxInFlight = Math.max(1, conf.getNumReadWorkerThreads() / 2);
+        }
+        this.tailingQueue = new ClassQueue(ReadClass.TAILING, conf.getReadSchedulerTailingMaxInFlightReads(),
+                conf.getReadSchedulerMaxQueuedReads(), statsLogger);
+        this.backlogQueue = new ClassQueue(ReadClass.BACKLOG, backlogMaxInFlight,
+                conf.getReadSchedulerMaxQueuedReads(), statsLogger);
+        Arrays.fill(trackedLedgers, -1L);
+    }
+
+    private static int slot(long ledgerId) {
+        return (int) (ledgerId ^ (ledgerId >>> 32)) & (NUM_TRACKED_LEDGERS - 1);
+    }
+
+    /**
+     * Record an entry added to a ledger.
+     */
+    void onAddEntry(long ledgerId, long entryId) {
+        int slot = slot(ledgerId);
+        if (trackedLedgers[slot] != ledgerId) {
+            trackedLedgers[slot] = ledgerId;
+            lastAddedEntries[slot] = entryId;
+        } else if (lastAddedEntries[slot] < entryId) {
+            lastAddedEntries[slot] = entryId;
+        }
+    }
+
+    ReadClass classify(long ledgerId, long entryId) {
+        int slot = slot(ledgerId);
+        if (trackedLedgers[slot] == ledgerId && entryId >= lastAddedEntries[slot] - tailingDistance) {
+            return ReadClass.TAILING;
+        }
+        return ReadClass.BACKLOG;
+    }
+
+    /**
+     * Execute a read on the read thread pool, or queue it if its class has too many reads in flight.
+     *
+     * @param reject
+     *          run instead of the read if it was queued and the read thread pool rejects it once dequeued
+     * @throws RejectedExecutionException if the queue of the class, or the read thread pool, is full
+     */
+    void executeOrdered(long ledgerId, long entryId, Runnable read, Runnable reject) {
+        ClassQueue queue = classify(ledgerId, entryId) == ReadClass.TAILING ? tailingQueue : backlogQueue;
+        queue.submit(new ScheduledRead(queue, ledgerId, read, reject));
+    }
+
+    private final class ScheduledRead implements Runnable {
+        final ClassQueue queue;
+        final long ledgerId;
+        final Runnable read;
+        final Runnable reject;
+        final long enqueueTimeNanos;
+
+        ScheduledRead(ClassQueue queue, long ledgerId, Runnable read, Runnable reject) {
+            this.queue = queue;
+            this.ledgerId = ledgerId;
+            this.read = read;
+            this.reject = reject;
+            this.enqueueTimeNanos = MathUtils.nowInNano();
+        }
+
+        @Override
+        public void run() {
+            queue.queueTimeStats.registerSuccessfulEvent(MathUtils.elapsedNanos(enqueueTimeNanos),
+                    TimeUnit.NANOSECONDS);
+            try {
+                read.run();
+            } finally {
+                queue.onReadDone();
+            }
+        }
+    }
+
+    private final class ClassQueue {
+        final int maxInFlight;
+        final int maxQueued;
+        final OpStatsLogger queueTimeStats;
+        // guarded by this
+        final ArrayDeque<ScheduledRead> queued = new ArrayDeque<>();
+        int inFlight = 0;
+
+        ClassQueue(ReadClass readClass, int maxInFlight, int maxQueued, StatsLogger statsLogger) {
+            this.maxInFlight = maxInFlight;
+            this.maxQueued = maxQueued;
+            StatsLogger classStatsLogger = statsLogger.scopeLabel("readClass", readClass.name().toLowerCase());
+            this.queueTimeStats = classStatsLogger.getOpStatsLogger(READ_SCHEDULER_QUEUE_TIME);
+            classStatsLogger.registerGauge(READ_SCHEDULER_QUEUED, new Gauge<Integer>() {
+                @Override
+                public Integer getDefaultValue() {
+                    return 0;
+                }
+
+                @Override
+                public Integer getSample() {
+                    synchronized (ClassQueue.this) {
+                        return queued.size();
+                    }
+                }
+            });
+        }
+
+        void submit(ScheduledRead read) {
+            synchronized (this) {
+                if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                    if (queued.size() >= maxQueued) {
+                        throw new RejectedExecutionException("Too many queued reads");
+                    }
+                    queued.add(read);
+                    return;
+                }
+                inFlight++;
+            }
+            dispatch(read);
+        }
+
+        /**
+         * Release the slot of a completed read, or hand it over to the next queued read. Queued reads
+         * rejected by the read thread pool are failed, rather than run on the thread of another ledger.
+         */
+        void onReadDone() {
+            while (true) {
+                ScheduledRead next;
+                synchronized (this) {
+                    next = queued.poll();
+                    if (null == next) {
+                        inFlight--;
+                        return;
+                    }
+                }
+                try {
+                    readThreadPool.executeOrdered(next.ledgerId, next);
+                    return;
+                } catch (RejectedExecutionException ree) {
+                    next.reject.run();
+                }
+            }
+        }
+
+        private void dispatch(ScheduledRead read) {
+            try {
+                readThreadPool.executeOrdered(read.ledgerId, read);
+            } catch (RejectedExecutionException ree) {
+                synchronized (this) {
+                    inFlight--;
+                }
+                throw ree;
+            }
+        }
+    }
+}
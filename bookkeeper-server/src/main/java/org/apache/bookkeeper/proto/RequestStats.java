@@ -33,6 +33,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MULTI_READ_ENTRY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.MULTI_READ_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED_WAIT;
@@ -246,6 +248,17 @@ public class RequestStats {
             parent = GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST
     )
     final OpStatsLogger getListOfEntriesOfLedgerStats;
+    @StatsDoc(
+            name = MULTI_READ_ENTRY_REQUEST,
+            help = "request stats of MultiReadEntry on a bookie"
+    )
+    final OpStatsLogger multiReadEntryRequestStats;
+    @StatsDoc(
+            name = MULTI_READ_ENTRY,
+            help = "operation stats of MultiReadEntry on a bookie",
+            parent = MULTI_READ_ENTRY_REQUEST
+    )
+    final OpStatsLogger multiReadEntryStats;
 
     public RequestStats(StatsLogger statsLogger) {
         this.addEntryStats = statsLogger.getThreadScopedOpStatsLogger(ADD_ENTRY);
@@ -280,6 +293,8 @@ public class RequestStats {
         this.getListOfEntriesOfLedgerStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER);
         this.getListOfEntriesOfLedgerRequestStats =
                 statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST);
+        this.multiReadEntryStats = statsLogger.getOpStatsLogger(MULTI_READ_ENTRY);
+        this.multiReadEntryRequestStats = statsLogger.getOpStatsLogger(MULTI_READ_ENTRY_REQUEST);
 
         statsLogger.registerGauge(ADD_ENTRY_IN_PROGRESS, new Gauge<Number>() {
             @Override
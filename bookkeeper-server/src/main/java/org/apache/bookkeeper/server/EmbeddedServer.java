@@ -81,6 +81,7 @@ import org.apache.bookkeeper.server.conf.BookieConfiguration;
 import org.apache.bookkeeper.server.http.BKHttpServiceProvider;
 import org.apache.bookkeeper.server.service.AutoRecoveryService;
 import org.apache.bookkeeper.server.service.BookieService;
+import org.apache.bookkeeper.server.service.EntryLogScrubberService;
 import org.apache.bookkeeper.server.service.HttpService;
 import org.apache.bookkeeper.server.service.ScrubberService;
 import org.apache.bookkeeper.server.service.StatsProviderService;
@@ -441,6 +442,14 @@ public class EmbeddedServer {
                                 conf, bookieService.getServer().getBookie().getLedgerStorage()));
             }
 
+            if (conf.getServerConf().isEntryLogScrubEnabled()) {
+                serverBuilder.addComponent(
+                        new EntryLogScrubberService(
+                                rootStatsLogger.scope(ScrubberStats.SCOPE),
+                                conf, bookieService.getServer().getBookie().getLedgerStorage(),
+                                ledgerManagerFactory, BookieImpl.getBookieId(conf.getServerConf())));
+            }
+
             // 6. build auto recovery
             AutoRecoveryService autoRecoveryService = null;
             if (conf.getServerConf().isAutoRecoveryDaemonEnabled()) {
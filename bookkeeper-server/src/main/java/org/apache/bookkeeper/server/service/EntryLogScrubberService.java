@@ -0,0 +1,266 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.server.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.bookkeeper.bookie.ScrubberStats.ENTRY_LOG_CORRUPTED_BLOCKS;
+import static org.apache.bookkeeper.bookie.ScrubberStats.ENTRY_LOG_SCRUB_RATE;
+import static org.apache.bookkeeper.bookie.ScrubberStats.ENTRY_LOG_SCRUB_RUN_DURATION;
+import static org.apache.bookkeeper.bookie.ScrubberStats.ENTRY_LOG_VERIFIED_BLOCKS;
+import static org.apache.bookkeeper.bookie.ScrubberStats.ENTRY_LOG_VERIFIED_BYTES;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.bookie.LedgerStorage;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManagerFactory;
+import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.server.component.ServerLifecycleComponent;
+import org.apache.bookkeeper.server.conf.BookieConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link org.apache.bookkeeper.common.component.LifecycleComponent} that continuously verifies the entry logs
+ * against their block checksums.
+ *
+ * <p>The read rate adapts to the load of the ledger device: the latency of each block read is compared to the
+ * lowest latency observed, and the rate is halved while the device looks loaded, and increased again once it is
+ * idle. The ledgers with entries in corrupted blocks are marked as under-replicated, so that the replication
+ * workers copy them back from the other bookies of their ensembles.
+ */
+public class EntryLogScrubberService extends ServerLifecycleComponent {
+    private static final Logger LOG = LoggerFactory.getLogger(EntryLogScrubberService.class);
+
+    private static final String NAME = "entry-log-scrubber";
+
+    private final ScheduledExecutorService executor;
+    private final long scrubPeriod;
+    private final AtomicBoolean stop = new AtomicBoolean(false);
+    private final LedgerStorage ledgerStorage;
+    private final LedgerManagerFactory ledgerManagerFactory;
+    private final BookieId bookieId;
+    private final AdaptiveThrottle throttle;
+    private LedgerUnderreplicationManager underreplicationManager;
+
+    private final OpStatsLogger scrubRunStats;
+    private final Counter verifiedBlocksCounter;
+    private final Counter verifiedBytesCounter;
+    private final Counter corruptedBlocksCounter;
+
+    public EntryLogScrubberService(
+            StatsLogger logger,
+            BookieConfiguration conf,
+            LedgerStorage ledgerStorage,
+            LedgerManagerFactory ledgerManagerFactory,
+            BookieId bookieId) {
+        super(NAME, conf, logger);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("EntryLogScrubThread"));
+
+        ServerConfiguration serverConf = conf.getServerConf();
+        this.scrubPeriod = serverConf.getEntryLogScrubPeriod();
+        checkArgument(
+                scrubPeriod > 0,
+                "entryLogScrubInterval must be > 0 for EntryLogScrubberService to be used");
+        this.throttle = new AdaptiveThrottle(serverConf.getEntryLogScrubMinRateBytes(),
+                serverConf.getEntryLogScrubMaxRateBytes(),
+                serverConf.getEntryLogScrubLatencyThreshold());
+
+        this.ledgerStorage = ledgerStorage;
+        this.ledgerManagerFactory = ledgerManagerFactory;
+        this.bookieId = bookieId;
+
+        this.scrubRunStats = logger.getOpStatsLogger(ENTRY_LOG_SCRUB_RUN_DURATION);
+        this.verifiedBlocksCounter = logger.getCounter(ENTRY_LOG_VERIFIED_BLOCKS);
+        this.verifiedBytesCounter = logger.getCounter(ENTRY_LOG_VERIFIED_BYTES);
+        this.corruptedBlocksCounter = logger.getCounter(ENTRY_LOG_CORRUPTED_BLOCKS);
+        logger.registerGauge(ENTRY_LOG_SCRUB_RATE, new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return (long) throttle.getRate();
+            }
+        });
+    }
+
+    private void doSchedule() {
+        executor.schedule(this::run, scrubPeriod, TimeUnit.SECONDS);
+    }
+
+    private void run() {
+        long start = MathUtils.nowInNano();
+        try {
+            ledgerStorage.verifyEntryLogs(new Listener());
+            scrubRunStats.registerSuccessfulEvent(MathUtils.elapsedNanos(start), TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            scrubRunStats.registerFailedEvent(MathUtils.elapsedNanos(start), TimeUnit.NANOSECONDS);
+            LOG.error("Failed to verify the entry logs", e);
+        } finally {
+            // a failed run must not stop the next ones
+            if (!stop.get()) {
+                doSchedule();
+            }
+        }
+    }
+
+    private void reportCorruptedLedgers(Set<Long> ledgers) {
+        try {
+            if (underreplicationManager == null) {
+                underreplicationManager = ledgerManagerFactory.newLedgerUnderreplicationManager();
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to report corrupted ledgers {} to the replication service", ledgers, e);
+            return;
+        }
+        for (long ledgerId : ledgers) {
+            underreplicationManager.markLedgerUnderreplicatedAsync(
+                    ledgerId, Collections.singleton(bookieId.toString()))
+                .whenComplete((res, cause) -> {
+                    if (cause != null) {
+                        LOG.error("Failed to mark ledger {} as under-replicated", ledgerId, cause);
+                    } else {
+                        LOG.info("Marked ledger {} with corrupted entries as under-replicated", ledgerId);
+                    }
+                });
+        }
+    }
+
+    private class Listener implements BlockVerificationListener {
+        @Override
+        public void beforeBlock(int blockSize) {
+            throttle.acquire(blockSize);
+        }
+
+        @Override
+        public void onBlockVerified(long logId, long startOffset, long endOffset, long readNanos) {
+            verifiedBlocksCounter.inc();
+            verifiedBytesCounter.addCount(endOffset - startOffset);
+            throttle.onBlockRead(endOffset - startOffset, readNanos);
+        }
+
+        @Override
+        public void onBlockCorrupted(long logId, long startOffset, long endOffset, Set<Long> ledgers) {
+            corruptedBlocksCounter.inc();
+            LOG.error("Corrupted block in entry log {} at [{}, {}), affected ledgers: {}",
+                    Long.toHexString(logId), startOffset, endOffset, ledgers);
+            reportCorruptedLedgers(ledgers);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return stop.get();
+        }
+    }
+
+    /**
+     * Rate limiter whose rate is decreased multiplicatively while the block read latency is above the threshold,
+     * and increased additively otherwise.
+     */
+    private static class AdaptiveThrottle {
+        private static final double EWMA_ALPHA = 0.2;
+        // Let the baseline drift upward slowly, so that it adapts to a permanent change of the device
+        private static final double BASELINE_DRIFT = 1.001;
+
+        private final double minRate;
+        private final double maxRate;
+        private final double latencyThreshold;
+        private final RateLimiter rateLimiter;
+
+        private double avgNanosPerByte = -1;
+        private double baselineNanosPerByte = -1;
+
+        AdaptiveThrottle(double minRate, double maxRate, double latencyThreshold) {
+            checkArgument(minRate > 0 && maxRate >= minRate, "Invalid entry log scrub rates");
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+            this.latencyThreshold = latencyThreshold;
+            this.rateLimiter = RateLimiter.create(maxRate);
+        }
+
+        void acquire(int bytes) {
+            rateLimiter.acquire(Math.max(bytes, 1));
+        }
+
+        double getRate() {
+            return rateLimiter.getRate();
+        }
+
+        void onBlockRead(long bytes, long readNanos) {
+            if (bytes <= 0) {
+                return;
+            }
+            double nanosPerByte = (double) readNanos / bytes;
+            avgNanosPerByte = avgNanosPerByte < 0
+                    ? nanosPerByte : EWMA_ALPHA * nanosPerByte + (1 - EWMA_ALPHA) * avgNanosPerByte;
+            baselineNanosPerByte = baselineNanosPerByte < 0
+                    ? avgNanosPerByte : Math.min(baselineNanosPerByte * BASELINE_DRIFT, avgNanosPerByte);
+
+            double rate = rateLimiter.getRate();
+            if (avgNanosPerByte > baselineNanosPerByte * latencyThreshold) {
+                rate = Math.max(minRate, rate / 2);
+            } else {
+                rate = Math.min(maxRate, rate + maxRate / 10);
+            }
+            rateLimiter.setRate(rate);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        doSchedule();
+    }
+
+    @Override
+    protected void doStop() {
+        stop.set(true);
+        executor.shutdown();
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        if (underreplicationManager != null) {
+            try {
+                underreplicationManager.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close the under-replication manager", e);
+            }
+        }
+    }
+}
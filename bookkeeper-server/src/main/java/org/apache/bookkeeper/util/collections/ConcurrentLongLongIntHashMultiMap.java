@@ -0,0 +1,668 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util.collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Multimap from a (long, long, int) tuple to Objects.
+ *
+ * <p>(long,long,int) --&gt; V, V, ...
+ *
+ * <p>Provides a subset of the methods of a concurrent multimap but since it's an open hash map with linear probing,
+ * no node allocations are required to store the keys and values, and no key object is needed to look them up.
+ * Every value put is stored in its own bucket, so the same key can be mapped to several values, or even several
+ * times to the same value. Which of the values of a key is removed by {@link #remove(long, long, int)} is unspecified.
+ *
+ * <p>Implementation is aimed at storing the PerChannelBookieClient completions of the v2 protocol, which are keyed
+ * by (ledgerId, entryId, operation) and where duplicates happen when the same entry is read twice at the same time.
+ *
+ * <br>
+ * <b>WARN: method forEach do not guarantee thread safety, nor does the values method.</b>
+ * <br>
+ * The results of these methods reflect transient states when there are concurrent updates from other threads,
+ * that may be suitable for monitoring or estimation purposes, but not for program control.
+ * @param <V>
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentLongLongIntHashMultiMap<V> {
+
+    private static final Object EmptyValue = null;
+    private static final Object DeletedValue = new Object();
+
+    private static final int DefaultExpectedItems = 256;
+    private static final int DefaultConcurrencyLevel = 16;
+
+    private static final float DefaultMapFillFactor = 0.66f;
+    private static final float DefaultMapIdleFactor = 0.15f;
+
+    private static final float DefaultExpandFactor = 2;
+    private static final float DefaultShrinkFactor = 2;
+
+    private static final boolean DefaultAutoShrink = false;
+
+    public static <V> Builder<V> newBuilder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Builder of ConcurrentLongLongIntHashMultiMap.
+     */
+    public static class Builder<T> {
+        int expectedItems = DefaultExpectedItems;
+        int concurrencyLevel = DefaultConcurrencyLevel;
+        float mapFillFactor = DefaultMapFillFactor;
+        float mapIdleFactor = DefaultMapIdleFactor;
+        float expandFactor = DefaultExpandFactor;
+        float shrinkFactor = DefaultShrinkFactor;
+        boolean autoShrink = DefaultAutoShrink;
+
+        public Builder<T> expectedItems(int expectedItems) {
+            this.expectedItems = expectedItems;
+            return this;
+        }
+
+        public Builder<T> concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public Builder<T> mapFillFactor(float mapFillFactor) {
+            this.mapFillFactor = mapFillFactor;
+            return this;
+        }
+
+        public Builder<T> mapIdleFactor(float mapIdleFactor) {
+            this.mapIdleFactor = mapIdleFactor;
+            return this;
+        }
+
+        public Builder<T> expandFactor(float expandFactor) {
+            this.expandFactor = expandFactor;
+            return this;
+        }
+
+        public Builder<T> shrinkFactor(float shrinkFactor) {
+            this.shrinkFactor = shrinkFactor;
+            return this;
+        }
+
+        public Builder<T> autoShrink(boolean autoShrink) {
+            this.autoShrink = autoShrink;
+            return this;
+        }
+
+        public ConcurrentLongLongIntHashMultiMap<T> build() {
+            return new ConcurrentLongLongIntHashMultiMap<>(expectedItems, concurrencyLevel,
+                    mapFillFactor, mapIdleFactor, autoShrink, expandFactor, shrinkFactor);
+        }
+    }
+
+    /**
+     * An entry processor.
+     */
+    public interface EntryProcessor<V> {
+        void accept(long key1, long key2, int key3, V value);
+    }
+
+    /**
+     * Predicate specialization for (long, long, int, V) types.
+     *
+     * @param <V>
+     */
+    public interface LongLongIntObjectPredicate<V> {
+        boolean test(long key1, long key2, int key3, V value);
+    }
+
+    private final Section<V>[] sections;
+
+    private ConcurrentLongLongIntHashMultiMap(int expectedItems, int concurrencyLevel,
+                                              float mapFillFactor, float mapIdleFactor,
+                                              boolean autoShrink, float expandFactor, float shrinkFactor) {
+        checkArgument(expectedItems > 0);
+        checkArgument(concurrencyLevel > 0);
+        checkArgument(expectedItems >= concurrencyLevel);
+        checkArgument(mapFillFactor > 0 && mapFillFactor < 1);
+        checkArgument(mapIdleFactor > 0 && mapIdleFactor < 1);
+        checkArgument(mapFillFactor > mapIdleFactor);
+        checkArgument(expandFactor > 1);
+        checkArgument(shrinkFactor > 1);
+
+        int numSections = concurrencyLevel;
+        int perSectionExpectedItems = expectedItems / numSections;
+        int perSectionCapacity = (int) (perSectionExpectedItems / mapFillFactor);
+        this.sections = (Section<V>[]) new Section[numSections];
+
+        for (int i = 0; i < numSections; i++) {
+            sections[i] = new Section<>(perSectionCapacity, mapFillFactor, mapIdleFactor,
+                    autoShrink, expandFactor, shrinkFactor);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Section<V> s : sections) {
+            size += s.size;
+        }
+        return size;
+    }
+
+    long getUsedBucketCount() {
+        long usedBucketCount = 0;
+        for (Section<V> s : sections) {
+            usedBucketCount += s.usedBuckets;
+        }
+        return usedBucketCount;
+    }
+
+    public long capacity() {
+        long capacity = 0;
+        for (Section<V> s : sections) {
+            capacity += s.capacity;
+        }
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        for (Section<V> s : sections) {
+            if (s.size != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return whether the value instance is one of the values of the key
+     */
+    public boolean containsValue(long key1, long key2, int key3, Object value) {
+        checkNotNull(value);
+        long h = hash(key1, key2, key3);
+        return getSection(h).contains(key1, key2, key3, value, (int) h);
+    }
+
+    /**
+     * Add a value to the values of the key, even if the key is already mapped to it.
+     */
+    public void put(long key1, long key2, int key3, V value) {
+        checkNotNull(value);
+        long h = hash(key1, key2, key3);
+        getSection(h).put(key1, key2, key3, value, (int) h);
+    }
+
+    /**
+     * Remove one of the values of the key.
+     *
+     * @return the value removed or null if the key was not present
+     */
+    public V remove(long key1, long key2, int key3) {
+        long h = hash(key1, key2, key3);
+        return getSection(h).remove(key1, key2, key3, null, (int) h);
+    }
+
+    /**
+     * Remove the value instance from the values of the key, once. Values are compared by identity.
+     *
+     * @return whether the value was removed
+     */
+    public boolean remove(long key1, long key2, int key3, Object value) {
+        checkNotNull(value);
+        long h = hash(key1, key2, key3);
+        return getSection(h).remove(key1, key2, key3, value, (int) h) != null;
+    }
+
+    public int removeIf(LongLongIntObjectPredicate<V> predicate) {
+        checkNotNull(predicate);
+
+        int removedCount = 0;
+        for (Section<V> s : sections) {
+            removedCount += s.removeIf(predicate);
+        }
+
+        return removedCount;
+    }
+
+    private Section<V> getSection(long hash) {
+        // Use 32 msb out of long to get the section
+        final int sectionIdx = (int) (hash >>> 32) & (sections.length - 1);
+        return sections[sectionIdx];
+    }
+
+    public void clear() {
+        for (Section<V> s : sections) {
+            s.clear();
+        }
+    }
+
+    /**
+     * Iterate over all the entries in the map and apply the processor function to each of them.
+     * <p>
+     * <b>Warning: Do Not Guarantee Thread-Safety.</b>
+     * @param processor the processor to apply to each entry
+     */
+    public void forEach(EntryProcessor<V> processor) {
+        for (Section<V> s : sections) {
+            s.forEach(processor);
+        }
+    }
+
+    /**
+     * @return a new list of all values (makes a copy)
+     */
+    public List<V> values() {
+        List<V> values = Lists.newArrayListWithExpectedSize((int) size());
+        forEach((key1, key2, key3, value) -> values.add(value));
+        return values;
+    }
+
+    // A section is a portion of the hash map that is covered by a single
+    @SuppressWarnings("serial")
+    private static final class Section<V> extends StampedLock {
+        // The 3 parts of the key of a bucket are stored next to each other in the keys array
+        private volatile long[] keys;
+        private volatile V[] values;
+
+        private volatile int capacity;
+        private final int initCapacity;
+        private volatile int size;
+        private int usedBuckets;
+        private int resizeThresholdUp;
+        private int resizeThresholdBelow;
+        private final float mapFillFactor;
+        private final float mapIdleFactor;
+        private final float expandFactor;
+        private final float shrinkFactor;
+        private final boolean autoShrink;
+
+        Section(int capacity, float mapFillFactor, float mapIdleFactor, boolean autoShrink,
+                float expandFactor, float shrinkFactor) {
+            this.capacity = alignToPowerOfTwo(capacity);
+            this.initCapacity = this.capacity;
+            this.keys = new long[3 * this.capacity];
+            this.values = (V[]) new Object[this.capacity];
+            this.size = 0;
+            this.usedBuckets = 0;
+            this.autoShrink = autoShrink;
+            this.mapFillFactor = mapFillFactor;
+            this.mapIdleFactor = mapIdleFactor;
+            this.expandFactor = expandFactor;
+            this.shrinkFactor = shrinkFactor;
+            this.resizeThresholdUp = (int) (this.capacity * mapFillFactor);
+            this.resizeThresholdBelow = (int) (this.capacity * mapIdleFactor);
+        }
+
+        /**
+         * Find the bucket of the key, with the given value instance if not null.
+         *
+         * @return the bucket or -1 if not found
+         */
+        private static <V> int find(long[] keys, V[] values,
+                                    long key1, long key2, int key3, Object value, int keyHash) {
+            int capacity = values.length;
+            int bucket = keyHash;
+            // bounded, as the arrays may be read while being updated
+            for (int i = 0; i < capacity; i++) {
+                bucket = signSafeMod(bucket, capacity);
+
+                V storedValue = values[bucket];
+                if (storedValue == EmptyValue) {
+                    // Not found
+                    return -1;
+                } else if (storedValue != DeletedValue
+                        && keys[3 * bucket] == key1 && keys[3 * bucket + 1] == key2 && keys[3 * bucket + 2] == key3
+                        && (value == null || value == storedValue)) {
+                    return bucket;
+                }
+
+                ++bucket;
+            }
+            return -1;
+        }
+
+        boolean contains(long key1, long key2, int key3, Object value, int keyHash) {
+            // First try optimistic locking
+            long stamp = tryOptimisticRead();
+            long[] keys = this.keys;
+            V[] values = this.values;
+            if (keys.length == 3 * values.length) {
+                boolean found = find(keys, values, key1, key2, key3, value, keyHash) >= 0;
+                if (validate(stamp)) {
+                    // The values we have read are consistent
+                    return found;
+                }
+            }
+
+            // Fallback to acquiring read lock
+            stamp = readLock();
+            try {
+                return find(this.keys, this.values, key1, key2, key3, value, keyHash) >= 0;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        void put(long key1, long key2, int key3, V value, int keyHash) {
+            int bucket = keyHash;
+
+            long stamp = writeLock();
+            int capacity = this.capacity;
+
+            try {
+                while (true) {
+                    bucket = signSafeMod(bucket, capacity);
+
+                    V storedValue = values[bucket];
+                    if (storedValue == EmptyValue || storedValue == DeletedValue) {
+                        // Any free bucket will do, the other values of the key are kept
+                        if (storedValue == EmptyValue) {
+                            ++usedBuckets;
+                        }
+
+                        keys[3 * bucket] = key1;
+                        keys[3 * bucket + 1] = key2;
+                        keys[3 * bucket + 2] = key3;
+                        values[bucket] = value;
+                        ++size;
+                        return;
+                    }
+
+                    ++bucket;
+                }
+            } finally {
+                if (usedBuckets > resizeThresholdUp) {
+                    try {
+                        int newCapacity = alignToPowerOfTwo((int) (capacity * expandFactor));
+                        rehash(newCapacity);
+                    } finally {
+                        unlockWrite(stamp);
+                    }
+                } else {
+                    unlockWrite(stamp);
+                }
+            }
+        }
+
+        private void cleanDeletedStatus(int startBucket) {
+            // Cleanup all the buckets that were in `DeletedValue` state,
+            // so that we can reduce unnecessary expansions
+            int lastBucket = signSafeMod(startBucket - 1, capacity);
+            while (values[lastBucket] == DeletedValue) {
+                values[lastBucket] = (V) EmptyValue;
+                --usedBuckets;
+
+                lastBucket = signSafeMod(--lastBucket, capacity);
+            }
+        }
+
+        private V remove(long key1, long key2, int key3, Object value, int keyHash) {
+            long stamp = writeLock();
+
+            try {
+                int bucket = find(keys, values, key1, key2, key3, value, keyHash);
+                if (bucket < 0) {
+                    // Key wasn't found
+                    return null;
+                }
+
+                V storedValue = values[bucket];
+                --size;
+                V nextValueInArray = values[signSafeMod(bucket + 1, capacity)];
+                if (nextValueInArray == EmptyValue) {
+                    values[bucket] = (V) EmptyValue;
+                    --usedBuckets;
+
+                    cleanDeletedStatus(bucket);
+                } else {
+                    values[bucket] = (V) DeletedValue;
+                }
+
+                return storedValue;
+            } finally {
+                if (autoShrink && size < resizeThresholdBelow) {
+                    try {
+                        // Shrinking must at least ensure initCapacity,
+                        // so as to avoid frequent shrinking and expansion near initCapacity,
+                        // frequent shrinking and expansion,
+                        // additionally opened arrays will consume more memory and affect GC
+                        int newCapacity = Math.max(alignToPowerOfTwo((int) (capacity / shrinkFactor)), initCapacity);
+                        int newResizeThresholdUp = (int) (newCapacity * mapFillFactor);
+                        if (newCapacity < capacity && newResizeThresholdUp > size) {
+                            // shrink the hashmap
+                            rehash(newCapacity);
+                        }
+                    } finally {
+                        unlockWrite(stamp);
+                    }
+                } else {
+                    unlockWrite(stamp);
+                }
+            }
+        }
+
+        int removeIf(LongLongIntObjectPredicate<V> filter) {
+            long stamp = writeLock();
+
+            int removedCount = 0;
+            try {
+                // Go through all the buckets for this section
+                int capacity = this.capacity;
+                for (int bucket = 0; size > 0 && bucket < capacity; bucket++) {
+                    V storedValue = values[bucket];
+
+                    if (storedValue != EmptyValue && storedValue != DeletedValue) {
+                        if (filter.test(keys[3 * bucket], keys[3 * bucket + 1], (int) keys[3 * bucket + 2],
+                                storedValue)) {
+                            // Removing item
+                            --size;
+                            ++removedCount;
+
+                            V nextValueInArray = values[signSafeMod(bucket + 1, capacity)];
+                            if (nextValueInArray == EmptyValue) {
+                                values[bucket] = (V) EmptyValue;
+                                --usedBuckets;
+
+                                cleanDeletedStatus(bucket);
+                            } else {
+                                values[bucket] = (V) DeletedValue;
+                            }
+                        }
+                    }
+                }
+
+                return removedCount;
+            } finally {
+                if (autoShrink && size < resizeThresholdBelow) {
+                    try {
+                        // Shrinking must at least ensure initCapacity,
+                        // so as to avoid frequent shrinking and expansion near initCapacity,
+                        // frequent shrinking and expansion,
+                        // additionally opened arrays will consume more memory and affect GC
+                        int newCapacity = Math.max(alignToPowerOfTwo((int) (capacity / shrinkFactor)), initCapacity);
+                        int newResizeThresholdUp = (int) (newCapacity * mapFillFactor);
+                        if (newCapacity < capacity && newResizeThresholdUp > size) {
+                            // shrink the hashmap
+                            rehash(newCapacity);
+                        }
+                    } finally {
+                        unlockWrite(stamp);
+                    }
+                } else {
+                    unlockWrite(stamp);
+                }
+            }
+        }
+
+        void clear() {
+            long stamp = writeLock();
+
+            try {
+                if (autoShrink && capacity > initCapacity) {
+                    shrinkToInitCapacity();
+                } else {
+                    Arrays.fill(keys, 0);
+                    Arrays.fill(values, EmptyValue);
+                    this.size = 0;
+                    this.usedBuckets = 0;
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        public void forEach(EntryProcessor<V> processor) {
+            long stamp = tryOptimisticRead();
+
+            long[] keys = this.keys;
+            V[] values = this.values;
+
+            boolean acquiredReadLock = false;
+
+            try {
+
+                // Validate no rehashing
+                if (!validate(stamp) || keys.length != 3 * values.length) {
+                    // Fallback to read lock
+                    stamp = readLock();
+                    acquiredReadLock = true;
+
+                    keys = this.keys;
+                    values = this.values;
+                }
+
+                // Go through all the buckets for this section
+                for (int bucket = 0; bucket < values.length; bucket++) {
+                    long storedKey1 = keys[3 * bucket];
+                    long storedKey2 = keys[3 * bucket + 1];
+                    int storedKey3 = (int) keys[3 * bucket + 2];
+                    V storedValue = values[bucket];
+
+                    if (!acquiredReadLock && !validate(stamp)) {
+                        // Fallback to acquiring read lock
+                        stamp = readLock();
+                        acquiredReadLock = true;
+
+                        storedKey1 = keys[3 * bucket];
+                        storedKey2 = keys[3 * bucket + 1];
+                        storedKey3 = (int) keys[3 * bucket + 2];
+                        storedValue = values[bucket];
+                    }
+
+                    if (storedValue != DeletedValue && storedValue != EmptyValue) {
+                        processor.accept(storedKey1, storedKey2, storedKey3, storedValue);
+                    }
+                }
+            } finally {
+                if (acquiredReadLock) {
+                    unlockRead(stamp);
+                }
+            }
+        }
+
+        private void rehash(int newCapacity) {
+            // Expand the hashmap
+            long[] newKeys = new long[3 * newCapacity];
+            V[] newValues = (V[]) new Object[newCapacity];
+
+            // Re-hash table
+            for (int i = 0; i < values.length; i++) {
+                V storedValue = values[i];
+                if (storedValue != EmptyValue && storedValue != DeletedValue) {
+                    insertKeyValueNoLock(newKeys, newValues, keys[3 * i], keys[3 * i + 1], (int) keys[3 * i + 2],
+                            storedValue);
+                }
+            }
+
+            keys = newKeys;
+            values = newValues;
+            usedBuckets = size;
+            // Capacity needs to be updated after the values, so that we won't see
+            // a capacity value bigger than the actual array size
+            capacity = newCapacity;
+            resizeThresholdUp = (int) (capacity * mapFillFactor);
+            resizeThresholdBelow = (int) (capacity * mapIdleFactor);
+        }
+
+        private void shrinkToInitCapacity() {
+            long[] newKeys = new long[3 * initCapacity];
+            V[] newValues = (V[]) new Object[initCapacity];
+
+            keys = newKeys;
+            values = newValues;
+            size = 0;
+            usedBuckets = 0;
+            // Capacity needs to be updated after the values, so that we won't see
+            // a capacity value bigger than the actual array size
+            capacity = initCapacity;
+            resizeThresholdUp = (int) (capacity * mapFillFactor);
+            resizeThresholdBelow = (int) (capacity * mapIdleFactor);
+        }
+
+        private static <V> void insertKeyValueNoLock(long[] keys, V[] values, long key1, long key2, int key3,
+                                                     V value) {
+            int bucket = (int) hash(key1, key2, key3);
+
+            while (true) {
+                bucket = signSafeMod(bucket, values.length);
+
+                V storedValue = values[bucket];
+
+                if (storedValue == EmptyValue) {
+                    // The bucket is empty, so we can use it
+                    keys[3 * bucket] = key1;
+                    keys[3 * bucket + 1] = key2;
+                    keys[3 * bucket + 2] = key3;
+                    values[bucket] = value;
+                    return;
+                }
+
+                ++bucket;
+            }
+        }
+    }
+
+    private static final long HashMixer = 0xc6a4a7935bd1e995L;
+    private static final int R = 47;
+
+    static final long hash(long key1, long key2, int key3) {
+        long hash = key1 * HashMixer;
+        hash ^= hash >>> R;
+        hash *= HashMixer;
+        hash += 31 + ((key2 * 31 + key3) * HashMixer);
+        hash ^= hash >>> R;
+        hash *= HashMixer;
+        return hash;
+    }
+
+    static final int signSafeMod(long n, int max) {
+        return (int) n & (max - 1);
+    }
+
+    private static int alignToPowerOfTwo(int n) {
+        return (int) Math.pow(2, 32 - Integer.numberOfLeadingZeros(n - 1));
+    }
+}
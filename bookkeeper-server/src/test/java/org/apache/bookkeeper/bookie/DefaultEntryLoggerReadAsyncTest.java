@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.storage.EntryLogReadExecutor;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link DefaultEntryLogger#readEntryAsync} served by an {@link EntryLogReadExecutor}.
+ */
+public class DefaultEntryLoggerReadAsyncTest {
+
+    private static final long LEDGER_ID = 1L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private EntryLogReadExecutor readExecutor;
+    private DefaultEntryLogger entryLogger;
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempFolder.newFolder("ledgers");
+        BookieImpl.getCurrentDirectory(ledgerDir).mkdirs();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        readExecutor = new EntryLogReadExecutor("test-entry-log-read", 2, 16);
+        entryLogger = new DefaultEntryLogger(conf, ledgerDirsManager, null, NullStatsLogger.INSTANCE,
+                ByteBufAllocator.DEFAULT, readExecutor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        entryLogger.close();
+        readExecutor.close();
+    }
+
+    private static ByteBuf newEntry(long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(16 + size);
+        entry.writeLong(LEDGER_ID).writeLong(entryId);
+        for (int i = 0; i < size; i++) {
+            entry.writeByte((int) (entryId + i));
+        }
+        return entry;
+    }
+
+    @Test
+    public void testReadEntriesAsync() throws Exception {
+        int numEntries = 10;
+        long[] locations = new long[numEntries];
+        for (int i = 0; i < numEntries; i++) {
+            locations[i] = entryLogger.addEntry(LEDGER_ID, newEntry(i, 100 + i));
+        }
+        entryLogger.flush();
+
+        for (int i = numEntries - 1; i >= 0; i--) {
+            ByteBuf entry = entryLogger.readEntryAsync(LEDGER_ID, i, locations[i]).get(10, TimeUnit.SECONDS);
+            try {
+                ByteBuf expected = newEntry(i, 100 + i);
+                assertEquals(expected, entry);
+            } finally {
+                entry.release();
+            }
+        }
+    }
+
+    @Test
+    public void testReadAsyncOfWrongEntryFails() throws Exception {
+        long location = entryLogger.addEntry(LEDGER_ID, newEntry(0, 100));
+        entryLogger.flush();
+        try {
+            entryLogger.readEntryAsync(LEDGER_ID, 1, location).get(10, TimeUnit.SECONDS);
+            fail("The entry at the location is not the one read");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof IOException);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the entry log regions returned by {@link DefaultEntryLogger#readEntryOrRegion}, and the reference counting
+ * of the entry log channels they are sent from.
+ */
+public class EntryLogFileRegionTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final int MIN_REGION_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private DefaultEntryLogger entryLogger;
+
+    @Before
+    public void setUp() throws Exception {
+        File ledgerDir = tempFolder.newFolder("ledgers");
+        BookieImpl.getCurrentDirectory(ledgerDir).mkdirs();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { ledgerDir.getAbsolutePath() });
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = new DefaultEntryLogger(conf, ledgerDirsManager, null, NullStatsLogger.INSTANCE,
+                ByteBufAllocator.DEFAULT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        entryLogger.close();
+    }
+
+    private static ByteBuf newEntry(long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(16 + size);
+        entry.writeLong(LEDGER_ID).writeLong(entryId);
+        for (int i = 0; i < size; i++) {
+            entry.writeByte((int) (entryId + i));
+        }
+        return entry;
+    }
+
+    private static ByteBuf transfer(EntryLogFileRegion region) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        while (region.transferred() < region.count()) {
+            region.transferTo(target, region.transferred());
+        }
+        return Unpooled.wrappedBuffer(out.toByteArray());
+    }
+
+    @Test
+    public void testReadEntryOrRegion() throws Exception {
+        long smallLocation = entryLogger.addEntry(LEDGER_ID, newEntry(0, 100));
+        long largeLocation = entryLogger.addEntry(LEDGER_ID, newEntry(1, 2 * MIN_REGION_SIZE));
+
+        // the entry isn't in the entry log file until it is flushed
+        ReferenceCounted unflushed = entryLogger.readEntryOrRegion(LEDGER_ID, 1, largeLocation, MIN_REGION_SIZE);
+        try {
+            assertTrue(unflushed instanceof ByteBuf);
+            assertEquals(newEntry(1, 2 * MIN_REGION_SIZE), unflushed);
+        } finally {
+            unflushed.release();
+        }
+
+        entryLogger.flush();
+        ReferenceCounted small = entryLogger.readEntryOrRegion(LEDGER_ID, 0, smallLocation, MIN_REGION_SIZE);
+        try {
+            assertTrue(small instanceof ByteBuf);
+            assertEquals(newEntry(0, 100), small);
+        } finally {
+            small.release();
+        }
+
+        ReferenceCounted large = entryLogger.readEntryOrRegion(LEDGER_ID, 1, largeLocation, MIN_REGION_SIZE);
+        try {
+            assertTrue(large instanceof EntryLogFileRegion);
+            assertEquals(newEntry(1, 2 * MIN_REGION_SIZE), transfer((EntryLogFileRegion) large));
+        } finally {
+            large.release();
+        }
+    }
+
+    @Test
+    public void testRegionRetainsLogChannel() throws Exception {
+        long location = entryLogger.addEntry(LEDGER_ID, newEntry(0, 2 * MIN_REGION_SIZE));
+        entryLogger.flush();
+
+        EntryLogFileRegion first = (EntryLogFileRegion) entryLogger.readEntryOrRegion(LEDGER_ID, 0, location,
+                MIN_REGION_SIZE);
+        EntryLogFileRegion second = (EntryLogFileRegion) entryLogger.readEntryOrRegion(LEDGER_ID, 0, location,
+                MIN_REGION_SIZE);
+        DefaultEntryLogger.LogFileChannel logFileChannel = first.getLogFileChannel();
+        assertSame(logFileChannel, second.getLogFileChannel());
+        // one reference for the entry logger and one for each region
+        assertEquals(3, logFileChannel.refCnt());
+
+        first.release();
+        assertEquals(2, logFileChannel.refCnt());
+        second.release();
+        assertEquals(1, logFileChannel.refCnt());
+        assertTrue(logFileChannel.getFileChannel().isOpen());
+    }
+
+    @Test
+    public void testLogRemovedWhileRegionIsSent() throws Exception {
+        long location = entryLogger.addEntry(LEDGER_ID, newEntry(0, 2 * MIN_REGION_SIZE));
+        entryLogger.flush();
+        long logId = DefaultEntryLogger.logIdForOffset(location);
+
+        EntryLogFileRegion region = (EntryLogFileRegion) entryLogger.readEntryOrRegion(LEDGER_ID, 0, location,
+                MIN_REGION_SIZE);
+        DefaultEntryLogger.LogFileChannel logFileChannel = region.getLogFileChannel();
+
+        // garbage collection removes the log before the region is transferred
+        assertTrue(entryLogger.removeEntryLog(logId));
+        assertEquals(1, logFileChannel.refCnt());
+        assertTrue(logFileChannel.getFileChannel().isOpen());
+        assertEquals(newEntry(0, 2 * MIN_REGION_SIZE), transfer(region));
+
+        // the channel is closed by the last transfer
+        region.release();
+        assertEquals(0, logFileChannel.refCnt());
+        assertFalse(logFileChannel.getFileChannel().isOpen());
+    }
+}
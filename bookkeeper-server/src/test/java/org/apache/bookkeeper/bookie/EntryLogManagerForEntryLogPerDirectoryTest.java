@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of {@link EntryLogManagerForEntryLogPerDirectory}.
+ */
+public class EntryLogManagerForEntryLogPerDirectoryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final File[] currentDirs = new File[2];
+    private LedgerDirsManager ledgerDirsManager;
+    private DefaultEntryLogger entryLogger;
+    private EntryLogManagerForEntryLogPerDirectory entryLogManager;
+
+    @Before
+    public void setUp() throws Exception {
+        String[] ledgerDirNames = new String[currentDirs.length];
+        for (int i = 0; i < currentDirs.length; i++) {
+            File ledgerDir = tempFolder.newFolder("ledgers" + i);
+            currentDirs[i] = BookieImpl.getCurrentDirectory(ledgerDir);
+            currentDirs[i].mkdirs();
+            ledgerDirNames[i] = ledgerDir.getAbsolutePath();
+        }
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(ledgerDirNames);
+        conf.setEntryLogPerDirectoryEnabled(true);
+        ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        entryLogger = new DefaultEntryLogger(conf, ledgerDirsManager);
+        entryLogManager = (EntryLogManagerForEntryLogPerDirectory) entryLogger.getEntryLogManager();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        entryLogger.close();
+    }
+
+    private static ByteBuf newEntry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(64);
+        entry.writeLong(ledgerId).writeLong(entryId);
+        entry.writerIndex(entry.capacity());
+        return entry;
+    }
+
+    private File dirOfLedger(long ledgerId) {
+        return entryLogManager.getCurrentLogForLedger(ledgerId).getLogFile().getParentFile();
+    }
+
+    private long logIdOfLedger(long ledgerId) {
+        return entryLogManager.getCurrentLogForLedger(ledgerId).getLogId();
+    }
+
+    @Test
+    public void testLedgersSpreadAcrossDirectories() throws Exception {
+        long[] locations = new long[4];
+        for (long ledgerId = 0; ledgerId < 4; ledgerId++) {
+            locations[(int) ledgerId] = entryLogger.addEntry(ledgerId, newEntry(ledgerId, 0L));
+        }
+        // a log per directory, shared by the ledgers of its slot
+        assertEquals(currentDirs[0], dirOfLedger(0L));
+        assertEquals(currentDirs[1], dirOfLedger(1L));
+        assertEquals(logIdOfLedger(0L), logIdOfLedger(2L));
+        assertEquals(logIdOfLedger(1L), logIdOfLedger(3L));
+        assertNotEquals(logIdOfLedger(0L), logIdOfLedger(1L));
+        assertEquals(logIdOfLedger(0L), locations[2] >>> 32);
+
+        entryLogger.flush();
+        for (long ledgerId = 0; ledgerId < 4; ledgerId++) {
+            ByteBuf entry = entryLogger.readEntry(ledgerId, 0L, locations[(int) ledgerId]);
+            try {
+                assertEquals(newEntry(ledgerId, 0L), entry);
+            } finally {
+                entry.release();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushOrderingKeyPerSlot() {
+        assertEquals(entryLogManager.getFlushOrderingKey(0L), entryLogManager.getFlushOrderingKey(2L));
+        assertEquals(entryLogManager.getFlushOrderingKey(1L), entryLogManager.getFlushOrderingKey(3L));
+        // the ordered executor ignores the lowest bit of the key
+        assertNotEquals(entryLogManager.getFlushOrderingKey(0L) >>> 1, entryLogManager.getFlushOrderingKey(1L) >>> 1);
+    }
+
+    @Test
+    public void testAllLogsRolledWhenFlushSpansRotation() throws Exception {
+        entryLogger.addEntry(0L, newEntry(0L, 0L));
+        entryLogger.addEntry(1L, newEntry(1L, 0L));
+        long logId0 = logIdOfLedger(0L);
+        long logId1 = logIdOfLedger(1L);
+
+        entryLogManager.prepareEntryMemTableFlush();
+        assertFalse(entryLogManager.commitEntryMemTableFlush());
+        assertEquals(logId0, logIdOfLedger(0L));
+
+        entryLogManager.prepareEntryMemTableFlush();
+        entryLogManager.createNewLog(0L, "for test");
+        long rotatedLogId0 = logIdOfLedger(0L);
+        assertTrue(entryLogManager.commitEntryMemTableFlush());
+        // the log of the other slot is rolled as well, so that the checkpoint syncs it
+        assertNotEquals(rotatedLogId0, logIdOfLedger(0L));
+        assertNotEquals(logId1, logIdOfLedger(1L));
+        assertEquals(3, entryLogManager.getRotatedLogChannels().size());
+
+        entryLogManager.checkpoint();
+        assertTrue(entryLogManager.getRotatedLogChannels().isEmpty());
+        assertTrue(entryLogger.getLeastUnflushedLogId() > Math.max(rotatedLogId0, logId1));
+    }
+
+    @Test
+    public void testCheckpointRollsLogsOnlyAfterWrites() throws Exception {
+        entryLogger.addEntry(0L, newEntry(0L, 0L));
+        long logId0 = logIdOfLedger(0L);
+        entryLogManager.prepareSortedLedgerStorageCheckpoint(0L);
+        assertEquals(logId0, logIdOfLedger(0L));
+        entryLogManager.prepareSortedLedgerStorageCheckpoint(64L);
+        assertNotEquals(logId0, logIdOfLedger(0L));
+    }
+
+    @Test
+    public void testSlotOfFullDirectoryWritesToAnotherDirectory() throws Exception {
+        entryLogger.addEntry(0L, newEntry(0L, 0L));
+        entryLogger.addEntry(1L, newEntry(1L, 0L));
+        long logId0 = logIdOfLedger(0L);
+
+        ledgerDirsManager.addToFilledDirs(currentDirs[0]);
+        long location = entryLogger.addEntry(0L, newEntry(0L, 1L));
+        assertNotEquals(logId0, location >>> 32);
+        assertEquals(currentDirs[1], dirOfLedger(0L));
+        // the other slot keeps its log
+        assertEquals(currentDirs[1], dirOfLedger(1L));
+    }
+}
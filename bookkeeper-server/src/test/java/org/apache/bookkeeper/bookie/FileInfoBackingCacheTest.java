@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.FileInfoBackingCache.CachedFileInfo;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the close of the file infos evicted from {@link FileInfoBackingCache} on the closer threads, while the
+ * ledger is loaded again.
+ */
+public class FileInfoBackingCacheTest {
+
+    private static final long LEDGER_ID = 1L;
+    private static final byte[] MASTER_KEY = new byte[0];
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private File indexFile;
+    private FileInfoBackingCache cache;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        File dir = tmpDir.newFolder();
+        indexFile = new File(dir, LEDGER_ID + ".idx");
+        cache = new FileInfoBackingCache((ledgerId, createIfMissing) -> new File(dir, ledgerId + ".idx"),
+                FileInfo.CURRENT_HEADER_VERSION, 0, 2, 16, NullStatsLogger.INSTANCE);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        cache.shutdown();
+    }
+
+    /**
+     * Load the ledger while the close of its evicted file info, with a dirty header, is held by the monitor of the
+     * evicted file info.
+     */
+    private CachedFileInfo evictFencedAndLoadAgain(CachedFileInfo evicted) throws Exception {
+        evicted.setFenced();
+        evicted.release();
+        CachedFileInfo loaded = cache.loadFileInfo(LEDGER_ID, MASTER_KEY);
+        assertNotSame(evicted, loaded);
+        return loaded;
+    }
+
+    @Test
+    public void testLoadedFileInfoReadsHeaderFlushedOnClose() throws Exception {
+        CachedFileInfo first = cache.loadFileInfo(LEDGER_ID, MASTER_KEY);
+        CachedFileInfo second;
+        Future<Boolean> fenced;
+        synchronized (first) {
+            second = evictFencedAndLoadAgain(first);
+            // the new file info doesn't read the header until the evicted one has flushed it
+            fenced = executor.submit(() -> second.isFenced());
+            Thread.sleep(200);
+            assertFalse(fenced.isDone());
+            assertFalse(first.closed.isDone());
+        }
+        assertTrue(fenced.get(10, TimeUnit.SECONDS));
+        second.release();
+    }
+
+    @Test
+    public void testClosesOfEvictedFileInfosKeepTheirOrder() throws Exception {
+        CachedFileInfo first = cache.loadFileInfo(LEDGER_ID, MASTER_KEY);
+        CachedFileInfo second;
+        synchronized (first) {
+            second = evictFencedAndLoadAgain(first);
+            // evicted in turn, its close waits for the one of the first file info
+            second.release();
+            Thread.sleep(200);
+            assertFalse(second.closed.isDone());
+        }
+        second.closed.get(10, TimeUnit.SECONDS);
+        assertTrue(first.closed.isDone());
+
+        CachedFileInfo third = cache.loadFileInfo(LEDGER_ID, MASTER_KEY);
+        try {
+            assertTrue(third.isFenced());
+        } finally {
+            third.release();
+        }
+    }
+
+    @Test
+    public void testDeleteWhileEvictedFileInfoIsClosing() throws Exception {
+        CachedFileInfo first = cache.loadFileInfo(LEDGER_ID, MASTER_KEY);
+        CachedFileInfo second;
+        synchronized (first) {
+            second = evictFencedAndLoadAgain(first);
+            // the ledger is deleted before the evicted file info flushed its header
+            second.delete();
+            second.release();
+        }
+        first.closed.get(10, TimeUnit.SECONDS);
+        second.closed.get(10, TimeUnit.SECONDS);
+        assertFalse(indexFile.exists());
+    }
+}
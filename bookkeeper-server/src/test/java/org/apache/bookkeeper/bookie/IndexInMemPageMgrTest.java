@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.apache.bookkeeper.util.SnapshotMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test the eviction of the index pages of {@link IndexInMemPageMgr} with a page limit smaller than the
+ * working set.
+ */
+public class IndexInMemPageMgrTest {
+
+    private static final int PAGE_LIMIT = 4;
+    private static final byte[] MASTER_KEY = new byte[0];
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private LedgerCacheImpl ledgerCache;
+    private int entriesPerPage;
+
+    @Before
+    public void setUp() throws Exception {
+        File dir = tmpDir.newFolder();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { dir.getAbsolutePath() });
+        conf.setPageLimit(PAGE_LIMIT);
+        LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        ledgerCache = new LedgerCacheImpl(conf, new SnapshotMap<>(), ledgerDirsManager);
+        entriesPerPage = ledgerCache.getIndexPageManager().entriesPerPage;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ledgerCache.close();
+    }
+
+    private static long offset(long ledgerId, long entryId) {
+        return (ledgerId << 20) + entryId + 1;
+    }
+
+    @Test
+    public void testEvictedPagesAreReloaded() throws Exception {
+        int numLedgers = 8 * PAGE_LIMIT;
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            ledgerCache.setMasterKey(ledgerId, MASTER_KEY);
+            // two pages per ledger
+            ledgerCache.putEntryOffset(ledgerId, 0, offset(ledgerId, 0));
+            ledgerCache.putEntryOffset(ledgerId, entriesPerPage, offset(ledgerId, entriesPerPage));
+        }
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            assertEquals(offset(ledgerId, 0), ledgerCache.getEntryOffset(ledgerId, 0));
+            assertEquals(offset(ledgerId, entriesPerPage), ledgerCache.getEntryOffset(ledgerId, entriesPerPage));
+        }
+    }
+
+    @Test
+    public void testConcurrentPutAndGet() throws Exception {
+        int numThreads = 4;
+        int ledgersPerThread = 4 * PAGE_LIMIT;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                long firstLedger = (long) t * ledgersPerThread;
+                futures.add(executor.submit(() -> {
+                    for (long ledgerId = firstLedger; ledgerId < firstLedger + ledgersPerThread; ledgerId++) {
+                        ledgerCache.setMasterKey(ledgerId, MASTER_KEY);
+                    }
+                    for (long entryId = 0; entryId < 3 * entriesPerPage; entryId += entriesPerPage / 2) {
+                        for (long ledgerId = firstLedger; ledgerId < firstLedger + ledgersPerThread; ledgerId++) {
+                            ledgerCache.putEntryOffset(ledgerId, entryId, offset(ledgerId, entryId));
+                        }
+                    }
+                    for (long entryId = 0; entryId < 3 * entriesPerPage; entryId += entriesPerPage / 2) {
+                        for (long ledgerId = firstLedger; ledgerId < firstLedger + ledgersPerThread; ledgerId++) {
+                            assertEquals(offset(ledgerId, entryId), ledgerCache.getEntryOffset(ledgerId, entryId));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testGrabPageGivesUpWhenAllPagesAreInUse() throws Exception {
+        IndexInMemPageMgr pageMgr = ledgerCache.getIndexPageManager();
+        List<LedgerEntryPage> inUse = new ArrayList<>();
+        for (long ledgerId = 0; ledgerId < PAGE_LIMIT; ledgerId++) {
+            ledgerCache.setMasterKey(ledgerId, MASTER_KEY);
+            inUse.add(pageMgr.getLedgerEntryPage(ledgerId, 0));
+        }
+        ledgerCache.setMasterKey(PAGE_LIMIT, MASTER_KEY);
+        try {
+            pageMgr.getLedgerEntryPage(PAGE_LIMIT, 0);
+            fail("Should not get a page while all of them are in use");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // once a page is released, it can be evicted for another ledger
+        inUse.remove(0).releasePage();
+        LedgerEntryPage lep = pageMgr.getLedgerEntryPage(PAGE_LIMIT, 0);
+        assertEquals(PAGE_LIMIT, lep.getLedger());
+        lep.releasePage();
+        for (LedgerEntryPage page : inUse) {
+            page.releasePage();
+        }
+    }
+}
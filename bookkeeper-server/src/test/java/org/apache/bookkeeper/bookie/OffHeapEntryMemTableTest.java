@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link OffHeapEntryMemTable}.
+ */
+public class OffHeapEntryMemTableTest {
+
+    private final CounterCheckpointSource checkpointSource = new CounterCheckpointSource();
+    private OffHeapEntryMemTable memTable;
+
+    /**
+     * Checkpoints which are newer as they are requested later.
+     */
+    private static class CounterCheckpointSource implements CheckpointSource {
+        private final AtomicLong counter = new AtomicLong();
+
+        @Override
+        public Checkpoint newCheckpoint() {
+            return new CounterCheckpoint(counter.incrementAndGet());
+        }
+
+        @Override
+        public void checkpointComplete(Checkpoint checkpoint, boolean compact) {
+        }
+    }
+
+    private static class CounterCheckpoint implements Checkpoint {
+        final long value;
+
+        CounterCheckpoint(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Checkpoint other) {
+            if (other == Checkpoint.MAX) {
+                return -1;
+            } else if (other == Checkpoint.MIN) {
+                return 1;
+            }
+            return Long.compare(value, ((CounterCheckpoint) other).value);
+        }
+    }
+
+    /**
+     * Records the flushed entries, optionally failing the ones of a ledger as deleted.
+     */
+    private static class RecordingFlusher implements SkipListFlusher {
+        final List<long[]> flushed = Collections.synchronizedList(new ArrayList<>());
+        final Map<Long, List<Long>> flushedPerLedger = new ConcurrentHashMap<>();
+        long deletedLedgerId = -1L;
+
+        @Override
+        public void process(long ledgerId, long entryId, ByteBuf entry) throws IOException {
+            if (ledgerId == deletedLedgerId) {
+                throw new Bookie.NoLedgerException(ledgerId);
+            }
+            assertArrayEquals(content(ledgerId, entryId), ByteBufUtil.getBytes(entry));
+            flushed.add(new long[] { ledgerId, entryId });
+            flushedPerLedger.computeIfAbsent(ledgerId, l -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(entryId);
+        }
+    }
+
+    private static byte[] content(long ledgerId, long entryId) {
+        byte[] content = new byte[16 + (int) (entryId % 7) * 10];
+        ByteBuffer.wrap(content).putLong(ledgerId).putLong(entryId);
+        return content;
+    }
+
+    private static ServerConfiguration newConf() {
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        // small chunks, so that the entries span several of them
+        conf.setSkipListArenaChunkSize(256);
+        conf.setSkipListArenaMaxAllocSize(128);
+        return conf;
+    }
+
+    @Before
+    public void setUp() {
+        memTable = new OffHeapEntryMemTable(newConf(), checkpointSource, NullStatsLogger.INSTANCE,
+                ByteBufAllocator.DEFAULT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        memTable.close();
+    }
+
+    private long add(OffHeapEntryMemTable table, long ledgerId, long entryId) throws IOException {
+        return table.addEntry(ledgerId, entryId, ByteBuffer.wrap(content(ledgerId, entryId)), cp -> {
+        });
+    }
+
+    @Test
+    public void testFlushInLedgerAndEntryOrder() throws Exception {
+        for (long entryId = 9; entryId >= 0; entryId--) {
+            for (long ledgerId : new long[] { 3L, 1L, 2L }) {
+                add(memTable, ledgerId, entryId);
+            }
+        }
+        assertNotNull(memTable.snapshot());
+        RecordingFlusher flusher = new RecordingFlusher();
+        memTable.flush(flusher);
+
+        assertEquals(30, flusher.flushed.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(1 + i / 10, flusher.flushed.get(i)[0]);
+            assertEquals(i % 10, flusher.flushed.get(i)[1]);
+        }
+        assertTrue(memTable.isEmpty());
+        assertNull(memTable.getEntry(1L, 0L));
+    }
+
+    @Test
+    public void testEntriesAddedAfterSnapshotNotFlushed() throws Exception {
+        add(memTable, 1L, 0L);
+        assertNotNull(memTable.snapshot());
+        add(memTable, 1L, 1L);
+
+        // both the snapshot and the current table are read
+        assertArrayEquals(content(1L, 0L), memTable.getEntry(1L, 0L).getBuffer());
+        assertArrayEquals(content(1L, 1L), memTable.getEntry(1L, 1L).getBuffer());
+        assertEquals(1L, memTable.getLastEntry(1L).getEntryId());
+
+        RecordingFlusher flusher = new RecordingFlusher();
+        memTable.flush(flusher);
+        assertEquals(1, flusher.flushed.size());
+        assertEquals(0L, flusher.flushed.get(0)[1]);
+        assertFalse(memTable.isEmpty());
+        assertNull(memTable.getEntry(1L, 0L));
+        assertArrayEquals(content(1L, 1L), memTable.getEntry(1L, 1L).getBuffer());
+    }
+
+    @Test
+    public void testNoSnapshotWhileSnapshotNotFlushed() throws Exception {
+        add(memTable, 1L, 0L);
+        assertNotNull(memTable.snapshot());
+        add(memTable, 1L, 1L);
+        assertNull(memTable.snapshot());
+
+        RecordingFlusher flusher = new RecordingFlusher();
+        memTable.flush(flusher);
+        assertNotNull(memTable.snapshot());
+        memTable.flush(flusher);
+        assertEquals(2, flusher.flushed.size());
+        assertTrue(memTable.isEmpty());
+    }
+
+    @Test
+    public void testFlushUpToCheckpoint() throws Exception {
+        Checkpoint before = checkpointSource.newCheckpoint();
+        OffHeapEntryMemTable newerMemTable = new OffHeapEntryMemTable(newConf(), checkpointSource,
+                NullStatsLogger.INSTANCE, ByteBufAllocator.DEFAULT);
+        try {
+            add(newerMemTable, 1L, 0L);
+            RecordingFlusher flusher = new RecordingFlusher();
+            // the entries were added after the checkpoint
+            assertEquals(0L, newerMemTable.flush(flusher, before));
+            assertTrue(flusher.flushed.isEmpty());
+
+            Checkpoint after = checkpointSource.newCheckpoint();
+            assertTrue(newerMemTable.flush(flusher, after) > 0);
+            assertEquals(1, flusher.flushed.size());
+            assertTrue(newerMemTable.isEmpty());
+        } finally {
+            newerMemTable.close();
+        }
+    }
+
+    @Test
+    public void testDuplicateEntryNotAdded() throws Exception {
+        assertTrue(add(memTable, 1L, 0L) > 0);
+        assertEquals(0L, add(memTable, 1L, 0L));
+        memTable.snapshot();
+        RecordingFlusher flusher = new RecordingFlusher();
+        memTable.flush(flusher);
+        assertEquals(1, flusher.flushed.size());
+    }
+
+    @Test
+    public void testDeletedLedgerSkipped() throws Exception {
+        for (long ledgerId = 1; ledgerId <= 3; ledgerId++) {
+            for (long entryId = 0; entryId < 3; entryId++) {
+                add(memTable, ledgerId, entryId);
+            }
+        }
+        memTable.snapshot();
+        RecordingFlusher flusher = new RecordingFlusher();
+        flusher.deletedLedgerId = 2L;
+        memTable.flush(flusher);
+        assertEquals(6, flusher.flushed.size());
+        assertFalse(flusher.flushedPerLedger.containsKey(2L));
+        assertTrue(memTable.isEmpty());
+    }
+
+    @Test
+    public void testListOfEntriesOfLedger() throws Exception {
+        add(memTable, 1L, 5L);
+        add(memTable, 1L, 2L);
+        memTable.snapshot();
+        add(memTable, 1L, 3L);
+        add(memTable, 2L, 4L);
+        PrimitiveIterator.OfLong entries = memTable.getListOfEntriesOfLedger(1L);
+        List<Long> entryIds = new ArrayList<>();
+        entries.forEachRemaining((long entryId) -> entryIds.add(entryId));
+        assertEquals(Arrays.asList(2L, 3L, 5L), entryIds);
+    }
+
+    @Test
+    public void testParallelFlushKeepsEntryOrderPerLedger() throws Exception {
+        ServerConfiguration conf = newConf();
+        conf.setEntryLogPerLedgerEnabled(true);
+        conf.setNumOfMemtableFlushThreads(4);
+        OffHeapEntryMemTable parallelMemTable = new OffHeapEntryMemTable(conf, checkpointSource,
+                NullStatsLogger.INSTANCE, ByteBufAllocator.DEFAULT);
+        try {
+            for (long entryId = 49; entryId >= 0; entryId--) {
+                for (long ledgerId = 1; ledgerId <= 8; ledgerId++) {
+                    add(parallelMemTable, ledgerId, entryId);
+                }
+            }
+            parallelMemTable.snapshot();
+            RecordingFlusher flusher = new RecordingFlusher();
+            parallelMemTable.flush(flusher);
+            assertEquals(8 * 50, flusher.flushed.size());
+            for (long ledgerId = 1; ledgerId <= 8; ledgerId++) {
+                List<Long> entryIds = flusher.flushedPerLedger.get(ledgerId);
+                assertEquals(50, entryIds.size());
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(i, entryIds.get(i).longValue());
+                }
+            }
+            assertTrue(parallelMemTable.isEmpty());
+        } finally {
+            parallelMemTable.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests of {@link PrefetchingEntryLogScan}.
+ */
+public class PrefetchingEntryLogScanTest {
+
+    private static final int CHUNK_SIZE = 256;
+    // ledgers which the scanner doesn't accept
+    private static final long SKIPPED_LEDGER_ID = 13L;
+    private static final int START_POS = 16;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ExecutorService prefetchExecutor;
+    private File logFile;
+    private final List<Entry> expected = new ArrayList<>();
+
+    private static class Entry {
+        final long ledgerId;
+        final long offset;
+        final byte[] content;
+
+        Entry(long ledgerId, long offset, byte[] content) {
+            this.ledgerId = ledgerId;
+            this.offset = offset;
+            this.content = content;
+        }
+    }
+
+    private static class RecordingScanner implements EntryLogScanner {
+        final List<Entry> entries = new ArrayList<>();
+
+        @Override
+        public boolean accept(long ledgerId) {
+            return ledgerId != SKIPPED_LEDGER_ID;
+        }
+
+        @Override
+        public void process(long ledgerId, long offset, ByteBuf entry) {
+            entries.add(new Entry(ledgerId, offset, ByteBufUtil.getBytes(entry)));
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        prefetchExecutor = Executors.newSingleThreadExecutor();
+        logFile = tempFolder.newFile("0.log");
+    }
+
+    @After
+    public void tearDown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Write entries of the given sizes to the log, every fifth one to the ledger which is not scanned.
+     */
+    private void writeLog(int... entrySizes) throws IOException {
+        Random random = new Random(entrySizes.length);
+        try (FileChannel fc = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+            long pos = START_POS;
+            for (int i = 0; i < entrySizes.length; i++) {
+                long ledgerId = i % 5 == 4 ? SKIPPED_LEDGER_ID : i % 3;
+                byte[] content = new byte[entrySizes[i]];
+                random.nextBytes(content);
+                ByteBuffer.wrap(content).putLong(ledgerId);
+                ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + content.length);
+                record.putInt(content.length).put(content).flip();
+                while (record.hasRemaining()) {
+                    pos += fc.write(record, pos);
+                }
+                if (ledgerId != SKIPPED_LEDGER_ID) {
+                    expected.add(new Entry(ledgerId, pos - record.limit(), content));
+                }
+            }
+        }
+    }
+
+    private List<Entry> scan() throws IOException {
+        RecordingScanner scanner = new RecordingScanner();
+        try (FileChannel fc = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            new PrefetchingEntryLogScan(0L, fc, CHUNK_SIZE, prefetchExecutor, ByteBufAllocator.DEFAULT)
+                    .scan(START_POS, scanner);
+        }
+        return scanner.entries;
+    }
+
+    private void assertScanned(List<Entry> scanned) {
+        assertEquals(expected.size(), scanned.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).ledgerId, scanned.get(i).ledgerId);
+            assertEquals(expected.get(i).offset, scanned.get(i).offset);
+            assertArrayEquals(expected.get(i).content, scanned.get(i).content);
+        }
+    }
+
+    @Test
+    public void testEntriesStraddlingChunks() throws Exception {
+        // entries of 100 bytes are split by every chunk boundary
+        int[] entrySizes = new int[20];
+        for (int i = 0; i < entrySizes.length; i++) {
+            entrySizes[i] = 100;
+        }
+        writeLog(entrySizes);
+        assertScanned(scan());
+    }
+
+    @Test
+    public void testHeaderStraddlingChunk() throws Exception {
+        // the header of the third entry starts 6 bytes before the end of the first chunk
+        writeLog(100, 126, 50, 50);
+        assertScanned(scan());
+    }
+
+    @Test
+    public void testEntriesLargerThanChunk() throws Exception {
+        writeLog(20, CHUNK_SIZE + 1, 3 * CHUNK_SIZE, 30, CHUNK_SIZE - 4, CHUNK_SIZE, 2 * CHUNK_SIZE, 12);
+        assertScanned(scan());
+    }
+
+    @Test
+    public void testRandomEntrySizes() throws Exception {
+        Random random = new Random(42);
+        int[] entrySizes = new int[500];
+        for (int i = 0; i < entrySizes.length; i++) {
+            entrySizes[i] = 12 + random.nextInt(random.nextInt(10) == 0 ? 3 * CHUNK_SIZE : CHUNK_SIZE / 2);
+        }
+        writeLog(entrySizes);
+        assertScanned(scan());
+    }
+
+    @Test
+    public void testTruncatedLastEntry() throws Exception {
+        writeLog(100, 100, 100);
+        Entry last = expected.remove(expected.size() - 1);
+        try (FileChannel fc = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+            fc.truncate(last.offset + Integer.BYTES + last.content.length - 1);
+        }
+        assertScanned(scan());
+    }
+
+    @Test
+    public void testZeroPaddingAtEnd() throws Exception {
+        writeLog(100, 200, 300);
+        try (FileChannel fc = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+            fc.write(ByteBuffer.allocate(CHUNK_SIZE + 10), fc.size());
+        }
+        assertScanned(scan());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link EntryLogReadExecutor}.
+ */
+public class EntryLogReadExecutorTest {
+
+    private static final String NAME = "test-entry-log-read";
+
+    private EntryLogReadExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new EntryLogReadExecutor(NAME, 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void testReadOnPoolThread() throws Exception {
+        ByteBuf entry = Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 });
+        AtomicReference<Thread> readThread = new AtomicReference<>();
+        CompletableFuture<ByteBuf> future = executor.submit(() -> {
+            readThread.set(Thread.currentThread());
+            return entry;
+        });
+        assertSame(entry, future.get(10, TimeUnit.SECONDS));
+        assertTrue(readThread.get().getName().startsWith(NAME));
+        assertEquals(1, executor.getNumThreads());
+    }
+
+    @Test
+    public void testReadFailure() throws Exception {
+        IOException cause = new IOException("injected");
+        CompletableFuture<ByteBuf> future = executor.submit(() -> {
+            throw cause;
+        });
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The read should have failed");
+        } catch (ExecutionException ee) {
+            assertSame(cause, ee.getCause());
+        }
+    }
+
+    @Test
+    public void testReadOnCallerWhenQueueFull() throws Exception {
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch blockRead = new CountDownLatch(1);
+        CompletableFuture<ByteBuf> blocked = executor.submit(() -> {
+            readStarted.countDown();
+            try {
+                blockRead.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ie);
+            }
+            return Unpooled.EMPTY_BUFFER;
+        });
+        assertTrue(readStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<ByteBuf> queued = executor.submit(() -> Unpooled.EMPTY_BUFFER);
+        assertEquals(1, executor.getPendingReads());
+
+        AtomicReference<Thread> readThread = new AtomicReference<>();
+        CompletableFuture<ByteBuf> inline = executor.submit(() -> {
+            readThread.set(Thread.currentThread());
+            return Unpooled.EMPTY_BUFFER;
+        });
+        // the read is done by the caller before submit returns
+        assertTrue(inline.isDone());
+        assertSame(Thread.currentThread(), readThread.get());
+        assertFalse(blocked.isDone());
+
+        blockRead.countDown();
+        blocked.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReadOnCallerAfterClose() throws Exception {
+        executor.close();
+        AtomicReference<Thread> readThread = new AtomicReference<>();
+        CompletableFuture<ByteBuf> future = executor.submit(() -> {
+            readThread.set(Thread.currentThread());
+            return Unpooled.EMPTY_BUFFER;
+        });
+        assertTrue(future.isDone());
+        assertSame(Thread.currentThread(), readThread.get());
+    }
+}
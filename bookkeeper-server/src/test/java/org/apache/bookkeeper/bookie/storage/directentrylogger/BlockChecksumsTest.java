@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie.storage.directentrylogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.bookie.TestBKConfiguration;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
+import org.apache.bookkeeper.common.util.nativeio.NativeIOImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.slogger.Slogger;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the block checksums recorded in the entry logs of {@link DirectEntryLogger}.
+ */
+public class BlockChecksumsTest {
+
+    private static final long LEDGER_ID = 5L;
+    private static final int ENTRY_SIZE = 64 * 1024;
+    // enough entries for 3 blocks
+    private static final int NUM_ENTRIES = 40;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File ledgerDir;
+    private LedgerDirsManager ledgerDirsManager;
+    private ExecutorService writeExecutor;
+    private ExecutorService flushExecutor;
+
+    private static class RecordingListener implements BlockVerificationListener {
+        final List<long[]> verifiedBlocks = new ArrayList<>();
+        final List<long[]> corruptedBlocks = new ArrayList<>();
+        final Set<Long> corruptedLedgers = new HashSet<>();
+        long bytesToRead = 0;
+
+        @Override
+        public void beforeBlock(int blockSize) {
+            bytesToRead += blockSize;
+        }
+
+        @Override
+        public void onBlockVerified(long logId, long startOffset, long endOffset, long readNanos) {
+            verifiedBlocks.add(new long[] { startOffset, endOffset });
+        }
+
+        @Override
+        public void onBlockCorrupted(long logId, long startOffset, long endOffset, Set<Long> ledgers) {
+            corruptedBlocks.add(new long[] { startOffset, endOffset });
+            corruptedLedgers.addAll(ledgers);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        File dir = tempFolder.newFolder("ledgers");
+        ledgerDir = BookieImpl.getCurrentDirectory(dir);
+        ledgerDir.mkdirs();
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerDirNames(new String[] { dir.getAbsolutePath() });
+        ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+        writeExecutor = Executors.newSingleThreadExecutor();
+        flushExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        writeExecutor.shutdownNow();
+        flushExecutor.shutdownNow();
+    }
+
+    private DirectEntryLogger newEntryLogger() throws IOException {
+        return new DirectEntryLogger(ledgerDir, new EntryLogIdsImpl(ledgerDirsManager, Slogger.NULL),
+                new NativeIOImpl(), ByteBufAllocator.DEFAULT, writeExecutor, flushExecutor,
+                64 * 1024 * 1024, 2 * ENTRY_SIZE, 4 * 1024 * 1024, 4 * 1024 * 1024, 64 * 1024, 1, 300,
+                Slogger.NULL, NullStatsLogger.INSTANCE);
+    }
+
+    private static ByteBuf newEntry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(ENTRY_SIZE);
+        entry.writeLong(LEDGER_ID).writeLong(entryId);
+        while (entry.isWritable()) {
+            entry.writeByte((int) (entryId + entry.writerIndex()));
+        }
+        return entry;
+    }
+
+    /**
+     * Write the entries to a log, and finalize it.
+     * @return the locations of the entries
+     */
+    private long[] writeLog() throws IOException {
+        long[] locations = new long[NUM_ENTRIES];
+        try (DirectEntryLogger entryLogger = newEntryLogger()) {
+            for (int i = 0; i < NUM_ENTRIES; i++) {
+                locations[i] = entryLogger.addEntry(LEDGER_ID, newEntry(i));
+            }
+            entryLogger.flush();
+        }
+        return locations;
+    }
+
+    @Test
+    public void testVerifyIntactLog() throws Exception {
+        long[] locations = writeLog();
+        long logId = locations[0] >>> 32;
+
+        RecordingListener listener = new RecordingListener();
+        try (DirectEntryLogger entryLogger = newEntryLogger()) {
+            assertTrue(entryLogger.verifyEntryLog(logId, listener));
+        }
+        assertEquals(3, listener.verifiedBlocks.size());
+        assertTrue(listener.corruptedBlocks.isEmpty());
+        // the blocks are consecutive, and cover all the entries
+        for (int i = 1; i < listener.verifiedBlocks.size(); i++) {
+            assertEquals(listener.verifiedBlocks.get(i - 1)[1], listener.verifiedBlocks.get(i)[0]);
+        }
+        long lastEntryOffset = locations[NUM_ENTRIES - 1] & 0xFFFFFFFFL;
+        assertTrue(listener.verifiedBlocks.get(0)[0] <= (locations[0] & 0xFFFFFFFFL));
+        assertEquals(lastEntryOffset + ENTRY_SIZE, listener.verifiedBlocks.get(2)[1]);
+        assertTrue(listener.bytesToRead >= (long) NUM_ENTRIES * ENTRY_SIZE);
+    }
+
+    @Test
+    public void testDetectCorruptedBlock() throws Exception {
+        long[] locations = writeLog();
+        long logId = locations[0] >>> 32;
+        long corruptedOffset = (locations[NUM_ENTRIES / 2] & 0xFFFFFFFFL) + 1000;
+        try (RandomAccessFile file = new RandomAccessFile(DirectEntryLogger.logFile(ledgerDir, (int) logId), "rw")) {
+            file.seek(corruptedOffset);
+            int b = file.read();
+            file.seek(corruptedOffset);
+            file.write(~b);
+        }
+
+        RecordingListener listener = new RecordingListener();
+        try (DirectEntryLogger entryLogger = newEntryLogger()) {
+            assertTrue(entryLogger.verifyEntryLog(logId, listener));
+        }
+        assertEquals(2, listener.verifiedBlocks.size());
+        assertEquals(1, listener.corruptedBlocks.size());
+        long[] corrupted = listener.corruptedBlocks.get(0);
+        assertTrue(corrupted[0] <= corruptedOffset && corruptedOffset < corrupted[1]);
+        assertEquals(1, listener.corruptedLedgers.size());
+        assertTrue(listener.corruptedLedgers.contains(LEDGER_ID));
+    }
+
+    @Test
+    public void testCancelVerification() throws Exception {
+        long[] locations = writeLog();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public boolean isCancelled() {
+                return !verifiedBlocks.isEmpty();
+            }
+        };
+        try (DirectEntryLogger entryLogger = newEntryLogger()) {
+            assertTrue(entryLogger.verifyEntryLog(locations[0] >>> 32, listener));
+        }
+        assertEquals(1, listener.verifiedBlocks.size());
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.ReadOnlyBufferException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the roll-over of the segments of {@link ReadCache}, and the slices returned by {@link ReadCache#get}.
+ */
+public class ReadCacheTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int ENTRY_SIZE = 256;
+    private static final int ENTRIES_PER_SEGMENT = SEGMENT_SIZE / ENTRY_SIZE;
+
+    private ReadCache cache;
+
+    @Before
+    public void setup() {
+        cache = new ReadCache(3 * SEGMENT_SIZE, SEGMENT_SIZE);
+    }
+
+    @After
+    public void teardown() {
+        cache.close();
+    }
+
+    private static ByteBuf entry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(ENTRY_SIZE);
+        entry.writerIndex(ENTRY_SIZE);
+        for (int i = 0; i < ENTRY_SIZE; i++) {
+            entry.setByte(i, (int) entryId);
+        }
+        return entry;
+    }
+
+    private void put(long entryId) {
+        ByteBuf entry = entry(entryId);
+        cache.put(1L, entryId, entry);
+        entry.release();
+    }
+
+    private static void assertContent(long entryId, ByteBuf entry) {
+        assertEquals(ENTRY_SIZE, entry.readableBytes());
+        for (int i = 0; i < ENTRY_SIZE; i++) {
+            assertEquals((byte) entryId, entry.getByte(entry.readerIndex() + i));
+        }
+    }
+
+    private void assertCached(long entryId) {
+        ByteBuf entry = cache.get(1L, entryId);
+        assertNotNull("entry " + entryId + " not cached", entry);
+        try {
+            assertContent(entryId, entry);
+        } finally {
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testGetReturnsRetainedReadOnlySlice() {
+        assertNull(cache.get(1L, 0L));
+        put(0L);
+        put(1L);
+
+        ByteBuf entry = cache.get(1L, 0L);
+        ByteBuf other = cache.get(1L, 1L);
+        assertContent(0L, entry);
+        assertContent(1L, other);
+        assertTrue(entry.isReadOnly());
+        try {
+            entry.setByte(0, 42);
+            fail("the slice of the cache segment must be read-only");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+        // the slices share the reference count of the segment, which the cache holds one reference of
+        assertEquals(3, entry.refCnt());
+        assertFalse(entry.release());
+        assertEquals(2, other.refCnt());
+        assertFalse(other.release());
+        assertEquals(1, other.refCnt());
+        assertEquals(2, cache.count());
+    }
+
+    @Test
+    public void testRolloverSkipsSegmentInUse() {
+        // fill the first segment, and hold an entry of it
+        for (long entryId = 0; entryId < ENTRIES_PER_SEGMENT; entryId++) {
+            put(entryId);
+        }
+        ByteBuf held = cache.get(1L, 0L);
+
+        // fill the second and third segments, then roll-over past the first one, still in use
+        long entryId = ENTRIES_PER_SEGMENT;
+        for (; entryId < 3 * ENTRIES_PER_SEGMENT; entryId++) {
+            put(entryId);
+        }
+        put(entryId);
+        assertCached(entryId);
+        // the roll-over cleared the second segment, the oldest one not in use
+        assertFalse(cache.hasEntry(1L, ENTRIES_PER_SEGMENT));
+        assertTrue(cache.hasEntry(1L, 2 * ENTRIES_PER_SEGMENT));
+        // the held entry and the others of its segment are not overwritten
+        assertContent(0L, held);
+        for (long id = 0; id < ENTRIES_PER_SEGMENT; id++) {
+            assertCached(id);
+        }
+
+        // the entries keep being cached
+        for (long id = entryId + 1; id < entryId + ENTRIES_PER_SEGMENT; id++) {
+            put(id);
+            assertCached(id);
+        }
+        assertContent(0L, held);
+
+        // once released, the first segment is rolled-over to again, after the third one
+        held.release();
+        for (long id = 100; id < 100 + ENTRIES_PER_SEGMENT; id++) {
+            put(id);
+        }
+        assertCached(100L);
+        assertFalse(cache.hasEntry(1L, 2 * ENTRIES_PER_SEGMENT));
+        assertCached(0L);
+        put(200L);
+        assertCached(200L);
+        assertFalse(cache.hasEntry(1L, 0L));
+    }
+
+    @Test
+    public void testPutSkippedWhileAllOtherSegmentsInUse() {
+        for (long entryId = 0; entryId < 3 * ENTRIES_PER_SEGMENT; entryId++) {
+            put(entryId);
+        }
+        ByteBuf held0 = cache.get(1L, 0L);
+        ByteBuf held1 = cache.get(1L, ENTRIES_PER_SEGMENT);
+
+        // no segment to roll-over to, the entries are not cached
+        put(100L);
+        put(101L);
+        assertFalse(cache.hasEntry(1L, 100L));
+        assertFalse(cache.hasEntry(1L, 101L));
+        assertEquals(3 * ENTRIES_PER_SEGMENT, cache.count());
+        assertContent(0L, held0);
+        assertContent(ENTRIES_PER_SEGMENT, held1);
+
+        // releasing any of the segments lets the next put roll-over to it
+        held1.release();
+        put(102L);
+        assertCached(102L);
+        assertFalse(cache.hasEntry(1L, ENTRIES_PER_SEGMENT));
+        assertCached(0L);
+        assertContent(0L, held0);
+        held0.release();
+    }
+}
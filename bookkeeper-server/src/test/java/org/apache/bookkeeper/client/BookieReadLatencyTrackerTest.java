@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BookieReadLatencyTracker}.
+ */
+public class BookieReadLatencyTrackerTest {
+
+    private static final BookieId BOOKIE = BookieId.parse("bookie-1:3181");
+
+    @Test
+    public void testBucketBounds() {
+        for (long micros = 0; micros < 4; micros++) {
+            int index = BookieReadLatencyTracker.bucketIndex(micros);
+            assertEquals(micros, BookieReadLatencyTracker.bucketUpperBoundMicros(index));
+        }
+        int lastIndex = -1;
+        for (long micros = 0; micros < 100000; micros++) {
+            int index = BookieReadLatencyTracker.bucketIndex(micros);
+            assertTrue(index == lastIndex || index == lastIndex + 1);
+            lastIndex = index;
+        }
+        for (long micros = 1; micros > 0 && micros < Long.MAX_VALUE / 2; micros = micros * 5 / 4 + 1) {
+            for (long value : new long[] { micros - 1, micros, micros + 1 }) {
+                int index = BookieReadLatencyTracker.bucketIndex(value);
+                long upperBound = BookieReadLatencyTracker.bucketUpperBoundMicros(index);
+                assertTrue("upper bound " + upperBound + " below " + value, upperBound >= value);
+                if (index > 0) {
+                    long lowerBound = BookieReadLatencyTracker.bucketUpperBoundMicros(index - 1) + 1;
+                    assertTrue("lower bound " + lowerBound + " above " + value, lowerBound <= value);
+                    assertTrue("bucket of " + value + " too wide", upperBound - lowerBound + 1 <= lowerBound / 4
+                            || lowerBound < 4);
+                }
+            }
+        }
+        assertEquals(0, BookieReadLatencyTracker.bucketIndex(-1));
+    }
+
+    @Test
+    public void testNoQuantileBelowMinSamples() {
+        BookieReadLatencyTracker tracker = new BookieReadLatencyTracker(0.99, 60000);
+        assertEquals(-1L, tracker.getReadLatencyNanos(BOOKIE));
+        for (int i = 0; i < BookieReadLatencyTracker.MIN_SAMPLES - 1; i++) {
+            tracker.recordReadLatency(BOOKIE, TimeUnit.MILLISECONDS.toNanos(1));
+            assertEquals(-1L, tracker.getReadLatencyNanos(BOOKIE));
+        }
+        tracker.recordReadLatency(BOOKIE, TimeUnit.MILLISECONDS.toNanos(1));
+        long latency = tracker.getReadLatencyNanos(BOOKIE);
+        assertTrue(latency >= TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(latency <= TimeUnit.MILLISECONDS.toNanos(1) * 5 / 4);
+    }
+
+    @Test
+    public void testQuantileEstimate() {
+        BookieReadLatencyTracker tracker = new BookieReadLatencyTracker(0.9, 60000);
+        // 1 to 100 ms, so the 90th percentile is 90 ms
+        for (int i = 1; i <= 100; i++) {
+            tracker.recordReadLatency(BOOKIE, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        long latency = tracker.getReadLatencyNanos(BOOKIE);
+        assertTrue("estimate " + latency + " too low", latency >= TimeUnit.MILLISECONDS.toNanos(90));
+        assertTrue("estimate " + latency + " too high", latency <= TimeUnit.MILLISECONDS.toNanos(90) * 5 / 4);
+        // the other bookies have their own latencies
+        assertEquals(-1L, tracker.getReadLatencyNanos(BookieId.parse("bookie-2:3181")));
+    }
+
+    @Test
+    public void testLatenciesExpire() throws Exception {
+        BookieReadLatencyTracker tracker = new BookieReadLatencyTracker(0.5, 50);
+        for (int i = 0; i < BookieReadLatencyTracker.MIN_SAMPLES; i++) {
+            tracker.recordReadLatency(BOOKIE, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertTrue(tracker.getReadLatencyNanos(BOOKIE) > 0);
+        // the latencies are tracked over the last two windows at most
+        Thread.sleep(150);
+        assertEquals(-1L, tracker.getReadLatencyNanos(BOOKIE));
+    }
+}
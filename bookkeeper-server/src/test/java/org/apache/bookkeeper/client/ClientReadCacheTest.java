@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.stats.Counter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the caching, eviction and deduplication of the reads of {@link ClientReadCache}.
+ */
+public class ClientReadCacheTest {
+
+    private static final long LEDGER_ID = 1234L;
+    private static final int ENTRY_SIZE = 56;
+    // two entries, with their ledger length, per segment
+    private static final long CACHE_SIZE = 8 * 2 * (Long.BYTES + ENTRY_SIZE);
+
+    private final Counter hitCounter = mock(Counter.class);
+    private final Counter missCounter = mock(Counter.class);
+    private final Counter deduplicatedReadCounter = mock(Counter.class);
+    private LedgerHandle lh;
+    // the reads from the bookies, by first entry, completed on demand
+    private final Map<Long, CompletableFuture<LedgerEntries>> bookieReads = new HashMap<>();
+    private boolean completeBookieReads = true;
+    private ClientReadCache cache;
+
+    @Before
+    public void setup() {
+        BookKeeperClientStats clientStats = mock(BookKeeperClientStats.class);
+        when(clientStats.getReadCacheHitCounter()).thenReturn(hitCounter);
+        when(clientStats.getReadCacheMissCounter()).thenReturn(missCounter);
+        when(clientStats.getReadCacheDeduplicatedReadCounter()).thenReturn(deduplicatedReadCounter);
+        cache = new ClientReadCache(ByteBufAllocator.DEFAULT, CACHE_SIZE, clientStats);
+
+        lh = mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.readEntriesFromBookiesAsync(anyLong(), anyLong(), anyBoolean())).thenAnswer(invocation -> {
+            long firstEntry = invocation.getArgument(0);
+            long lastEntry = invocation.getArgument(1);
+            CompletableFuture<LedgerEntries> future = new CompletableFuture<>();
+            bookieReads.put(firstEntry, future);
+            if (completeBookieReads) {
+                future.complete(entries(firstEntry, lastEntry));
+            }
+            return future;
+        });
+    }
+
+    @After
+    public void teardown() {
+        cache.close();
+    }
+
+    private static String content(long entryId) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < ENTRY_SIZE) {
+            sb.append(entryId).append('-');
+        }
+        return sb.substring(0, ENTRY_SIZE);
+    }
+
+    private static LedgerEntries entries(long firstEntry, long lastEntry) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            entries.add(LedgerEntryImpl.create(LEDGER_ID, entryId, 1000 + entryId,
+                    Unpooled.copiedBuffer(content(entryId), StandardCharsets.UTF_8)));
+        }
+        return LedgerEntriesImpl.create(entries);
+    }
+
+    private void assertRead(long firstEntry, long lastEntry, CompletableFuture<LedgerEntries> read) throws Exception {
+        try (LedgerEntries entries = read.get()) {
+            long entryId = firstEntry;
+            for (LedgerEntry entry : entries) {
+                assertEquals(LEDGER_ID, entry.getLedgerId());
+                assertEquals(entryId, entry.getEntryId());
+                assertEquals(1000 + entryId, entry.getLength());
+                assertEquals(content(entryId), entry.getEntryBuffer().toString(StandardCharsets.UTF_8));
+                entryId++;
+            }
+            assertEquals(lastEntry + 1, entryId);
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        assertRead(0, 3, cache.read(lh, 0, 3));
+        verify(lh, times(1)).readEntriesFromBookiesAsync(0, 3, false);
+        verify(missCounter, times(4)).inc();
+        verify(hitCounter, never()).inc();
+
+        // the cached entries are not read again, and the others are read in a single read
+        assertRead(2, 5, cache.read(lh, 2, 5));
+        verify(lh, times(1)).readEntriesFromBookiesAsync(4, 5, false);
+        verify(missCounter, times(6)).inc();
+        verify(hitCounter, times(2)).inc();
+
+        assertRead(0, 5, cache.read(lh, 0, 5));
+        verify(hitCounter, times(8)).inc();
+        verify(lh, times(2)).readEntriesFromBookiesAsync(anyLong(), anyLong(), anyBoolean());
+        verify(deduplicatedReadCounter, never()).inc();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        // fill the 8 segments, then one more
+        assertRead(0, 17, cache.read(lh, 0, 17));
+        verify(lh, times(1)).readEntriesFromBookiesAsync(0, 17, false);
+
+        // the entries of the oldest segment were evicted
+        assertRead(2, 17, cache.read(lh, 2, 17));
+        verify(lh, times(1)).readEntriesFromBookiesAsync(anyLong(), anyLong(), anyBoolean());
+        assertRead(0, 1, cache.read(lh, 0, 1));
+        verify(lh, times(1)).readEntriesFromBookiesAsync(0, 1, false);
+        verify(missCounter, times(20)).inc();
+        verify(hitCounter, times(16)).inc();
+    }
+
+    @Test
+    public void testEntriesLargerThanSegmentNotCached() throws Exception {
+        ClientReadCache smallCache = new ClientReadCache(ByteBufAllocator.DEFAULT, 8 * ENTRY_SIZE,
+                mock(BookKeeperClientStats.class, invocation -> mock(Counter.class)));
+        try {
+            assertRead(0, 0, smallCache.read(lh, 0, 0));
+            assertRead(0, 0, smallCache.read(lh, 0, 0));
+            verify(lh, times(2)).readEntriesFromBookiesAsync(0, 0, false);
+        } finally {
+            smallCache.close();
+        }
+    }
+
+    @Test
+    public void testReadsInFlightDeduplicated() throws Exception {
+        completeBookieReads = false;
+        CompletableFuture<LedgerEntries> first = cache.read(lh, 0, 3);
+        CompletableFuture<LedgerEntries> second = cache.read(lh, 2, 5);
+        // the second read only reads the entries not being read by the first one
+        verify(lh, times(1)).readEntriesFromBookiesAsync(0, 3, false);
+        verify(lh, times(1)).readEntriesFromBookiesAsync(4, 5, false);
+        verify(deduplicatedReadCounter, times(2)).inc();
+        verify(missCounter, times(6)).inc();
+
+        bookieReads.get(4L).complete(entries(4, 5));
+        assertFalse(second.isDone());
+        bookieReads.get(0L).complete(entries(0, 3));
+        assertRead(0, 3, first);
+        assertRead(2, 5, second);
+        verify(lh, times(2)).readEntriesFromBookiesAsync(anyLong(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void testFailedReadInFlight() throws Exception {
+        completeBookieReads = false;
+        CompletableFuture<LedgerEntries> first = cache.read(lh, 0, 1);
+        CompletableFuture<LedgerEntries> second = cache.read(lh, 1, 1);
+        verify(deduplicatedReadCounter, times(1)).inc();
+
+        // the waiting read reads the entry on its own
+        completeBookieReads = true;
+        bookieReads.get(0L).completeExceptionally(new BKException.BKReadException());
+        try {
+            first.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BKException.BKReadException);
+        }
+        assertTrue(first.isCompletedExceptionally());
+        assertRead(1, 1, second);
+        verify(lh, times(1)).readEntriesFromBookiesAsync(1, 1, false);
+
+        // and nothing is left in flight
+        completeBookieReads = false;
+        CompletableFuture<LedgerEntries> third = cache.read(lh, 0, 0);
+        verify(lh, times(1)).readEntriesFromBookiesAsync(0, 0, false);
+        bookieReads.get(0L).complete(entries(0, 0));
+        assertRead(0, 0, third);
+        verify(deduplicatedReadCounter, times(1)).inc();
+    }
+}
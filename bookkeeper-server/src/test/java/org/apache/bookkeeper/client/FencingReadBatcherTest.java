@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.MultiReadEntries;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Test the batching of the fencing reads of the recovery of many ledgers, as done by the bulk open of ledgers.
+ */
+public class FencingReadBatcherTest {
+
+    private static final BookieId BOOKIE1 = BookieId.parse("bookie1:3181");
+    private static final BookieId BOOKIE2 = BookieId.parse("bookie2:3181");
+    private static final byte[] MASTER_KEY = "masterKey".getBytes(StandardCharsets.UTF_8);
+
+    private BookieClient bookieClient;
+    private OrderedExecutor executor;
+    // (ledgerId, bookie) -> result code of the fencing read, and last entry if read
+    private Map<String, CompletableFuture<String>> reads;
+
+    @Before
+    public void setUp() {
+        bookieClient = mock(BookieClient.class);
+        executor = OrderedExecutor.newBuilder().numThreads(1).name("fencing-read-batcher-test").build();
+        reads = new ConcurrentHashMap<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<String> read(long ledgerId, BookieId bookie) {
+        return reads.computeIfAbsent(ledgerId + "@" + bookie, k -> new CompletableFuture<>());
+    }
+
+    private void readLastEntryWithFencing(FencingReadBatcher batcher, BookieId bookie, long ledgerId) {
+        ReadEntryCallback cb = (rc, lid, entryId, buffer, ctx) -> {
+            assertEquals(BookieProtocol.LAST_ADD_CONFIRMED, entryId);
+            read(lid, (BookieId) ctx).complete(rc + (buffer != null ? ":" + buffer.toString(StandardCharsets.UTF_8)
+                    : ""));
+        };
+        batcher.readLastEntryWithFencing(bookie, ledgerId, MASTER_KEY, cb, bookie);
+    }
+
+    private String awaitRead(long ledgerId, BookieId bookie) throws Exception {
+        return read(ledgerId, bookie).get(10, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MultiReadEntries.Range> verifyMultiRead(BookieId bookie, ArgumentCaptor<MultiReadEntryCallback> cb) {
+        ArgumentCaptor<List<MultiReadEntries.Range>> ranges = ArgumentCaptor.forClass(List.class);
+        verify(bookieClient).multiReadEntries(eq(bookie), ranges.capture(), eq(0L), cb.capture(), any());
+        for (MultiReadEntries.Range range : ranges.getValue()) {
+            assertEquals(BookieProtocol.LAST_ADD_CONFIRMED, range.getStartEntryId());
+            assertEquals(1, range.getMaxCount());
+            assertArrayEquals(MASTER_KEY, range.getMasterKey());
+        }
+        return ranges.getValue();
+    }
+
+    private void verifyFencingRead(BookieId bookie, long ledgerId) {
+        verify(bookieClient).readEntry(eq(bookie), eq(ledgerId), eq(BookieProtocol.LAST_ADD_CONFIRMED), any(),
+                eq(bookie), eq((int) BookieProtocol.FLAG_DO_FENCING), eq(MASTER_KEY));
+    }
+
+    private static List<Long> ledgerIds(List<MultiReadEntries.Range> ranges) {
+        List<Long> ledgerIds = new ArrayList<>();
+        for (MultiReadEntries.Range range : ranges) {
+            ledgerIds.add(range.getLedgerId());
+        }
+        return ledgerIds;
+    }
+
+    private static MultiReadEntries.Result entry(long ledgerId, String entry) {
+        ByteBuf buffer = Unpooled.copiedBuffer(entry, StandardCharsets.UTF_8);
+        return new MultiReadEntries.Result(BKException.Code.OK, ledgerId, BookieProtocol.LAST_ADD_CONFIRMED,
+                ByteBufList.get(buffer));
+    }
+
+    private static MultiReadEntries.Result error(int rc, long ledgerId) {
+        return new MultiReadEntries.Result(rc, ledgerId, BookieProtocol.LAST_ADD_CONFIRMED, null);
+    }
+
+    @Test
+    public void testReadsSentOnceAllLedgersAreReady() throws Exception {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 100, Arrays.asList(1L, 2L, 3L));
+        for (long ledgerId : new long[] { 1L, 2L }) {
+            readLastEntryWithFencing(batcher, BOOKIE1, ledgerId);
+            readLastEntryWithFencing(batcher, BOOKIE2, ledgerId);
+            batcher.ready(ledgerId);
+        }
+        verify(bookieClient, never()).multiReadEntries(any(), anyList(), anyLong(), any(), any());
+
+        // ledger 3 doesn't need any recovery
+        batcher.ready(3L);
+        ArgumentCaptor<MultiReadEntryCallback> cb1 = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        ArgumentCaptor<MultiReadEntryCallback> cb2 = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        assertEquals(Arrays.asList(1L, 2L), ledgerIds(verifyMultiRead(BOOKIE1, cb1)));
+        assertEquals(Arrays.asList(1L, 2L), ledgerIds(verifyMultiRead(BOOKIE2, cb2)));
+
+        cb1.getValue().readEntriesComplete(BKException.Code.OK,
+                Arrays.asList(entry(1L, "last-1"), error(BKException.Code.NoSuchLedgerExistsException, 2L)), null);
+        cb2.getValue().readEntriesComplete(BKException.Code.OK,
+                Arrays.asList(error(BKException.Code.UnauthorizedAccessException, 1L), entry(2L, "last-2")), null);
+        assertEquals(BKException.Code.OK + ":last-1", awaitRead(1L, BOOKIE1));
+        assertEquals(String.valueOf(BKException.Code.NoSuchLedgerExistsException), awaitRead(2L, BOOKIE1));
+        assertEquals(String.valueOf(BKException.Code.UnauthorizedAccessException), awaitRead(1L, BOOKIE2));
+        assertEquals(BKException.Code.OK + ":last-2", awaitRead(2L, BOOKIE2));
+        verify(bookieClient, never()).readEntry(any(), anyLong(), anyLong(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    public void testFullRequestSentRightAway() throws Exception {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 2, Arrays.asList(1L, 2L, 3L));
+        readLastEntryWithFencing(batcher, BOOKIE1, 1L);
+        readLastEntryWithFencing(batcher, BOOKIE1, 2L);
+        ArgumentCaptor<MultiReadEntryCallback> cb = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        assertEquals(Arrays.asList(1L, 2L), ledgerIds(verifyMultiRead(BOOKIE1, cb)));
+
+        // an empty range means the ledger has no entry on the bookie
+        cb.getValue().readEntriesComplete(BKException.Code.OK, Arrays.asList(entry(1L, "last-1"),
+                new MultiReadEntries.Result(BKException.Code.OK, 2L, BookieProtocol.LAST_ADD_CONFIRMED,
+                        ByteBufList.get())), null);
+        assertEquals(BKException.Code.OK + ":last-1", awaitRead(1L, BOOKIE1));
+        assertEquals(String.valueOf(BKException.Code.NoSuchEntryException), awaitRead(2L, BOOKIE1));
+    }
+
+    @Test
+    public void testFallbackToSingleFencingReads() throws Exception {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 100, Arrays.asList(1L, 2L, 3L));
+        for (long ledgerId : new long[] { 1L, 2L, 3L }) {
+            readLastEntryWithFencing(batcher, BOOKIE1, ledgerId);
+            readLastEntryWithFencing(batcher, BOOKIE2, ledgerId);
+            batcher.ready(ledgerId);
+        }
+        ArgumentCaptor<MultiReadEntryCallback> cb1 = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        ArgumentCaptor<MultiReadEntryCallback> cb2 = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        verifyMultiRead(BOOKIE1, cb1);
+        verifyMultiRead(BOOKIE2, cb2);
+
+        // bookie1 doesn't support multi reads, every ledger is fenced on its own
+        cb1.getValue().readEntriesComplete(BKException.Code.ProtocolVersionException, null, null);
+        for (long ledgerId : new long[] { 1L, 2L, 3L }) {
+            verifyFencingRead(BOOKIE1, ledgerId);
+        }
+        // the response of bookie2 omits the ranges past its size budget, which are fenced on their own
+        cb2.getValue().readEntriesComplete(BKException.Code.OK, Collections.singletonList(entry(1L, "last-1")),
+                null);
+        assertEquals(BKException.Code.OK + ":last-1", awaitRead(1L, BOOKIE2));
+        verify(bookieClient, never()).readEntry(eq(BOOKIE2), eq(1L), anyLong(), any(), any(), anyInt(), any());
+        for (long ledgerId : new long[] { 2L, 3L }) {
+            verifyFencingRead(BOOKIE2, ledgerId);
+        }
+    }
+
+    @Test
+    public void testMultiReadFailure() throws Exception {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 100, Arrays.asList(1L, 2L));
+        for (long ledgerId : new long[] { 1L, 2L }) {
+            readLastEntryWithFencing(batcher, BOOKIE1, ledgerId);
+            batcher.ready(ledgerId);
+        }
+        ArgumentCaptor<MultiReadEntryCallback> cb = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        verifyMultiRead(BOOKIE1, cb);
+        cb.getValue().readEntriesComplete(BKException.Code.BookieHandleNotAvailableException, null, null);
+        for (long ledgerId : new long[] { 1L, 2L }) {
+            assertEquals(String.valueOf(BKException.Code.BookieHandleNotAvailableException),
+                    awaitRead(ledgerId, BOOKIE1));
+        }
+    }
+
+    @Test
+    public void testReadsAfterFlushAreNotBatched() throws Exception {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 100, Arrays.asList(1L, 2L));
+        batcher.ready(1L);
+        batcher.ready(2L);
+        // a ledger fenced again, e.g. after an ensemble change of its recovery
+        readLastEntryWithFencing(batcher, BOOKIE1, 1L);
+        verifyFencingRead(BOOKIE1, 1L);
+        verify(bookieClient, never()).multiReadEntries(any(), anyList(), anyLong(), any(), any());
+    }
+
+    @Test
+    public void testReadyIsIdempotent() {
+        FencingReadBatcher batcher = new FencingReadBatcher(bookieClient, executor, 100, Arrays.asList(1L, 2L));
+        readLastEntryWithFencing(batcher, BOOKIE1, 1L);
+        batcher.ready(1L);
+        // the open of ledger 1 completing marks it ready again
+        batcher.ready(1L);
+        verify(bookieClient, never()).multiReadEntries(any(), anyList(), anyLong(), any(), any());
+        batcher.ready(2L);
+        ArgumentCaptor<MultiReadEntryCallback> cb = ArgumentCaptor.forClass(MultiReadEntryCallback.class);
+        assertEquals(Collections.singletonList(1L), ledgerIds(verifyMultiRead(BOOKIE1, cb)));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the sequencing of the adds of a {@link LedgerHandle}, and their ordering with its close.
+ */
+public class LedgerHandleAddTest {
+
+    private static final long LEDGER_ID = 1234L;
+
+    private MockClientContext clientCtx;
+    private LedgerHandle lh;
+
+    @Before
+    public void setup() throws Exception {
+        clientCtx = new MockClientContext(new ClientConfiguration().setThrottleValue(0));
+        List<BookieId> ensemble = Arrays.asList(
+                BookieId.parse("bookie-1:3181"), BookieId.parse("bookie-2:3181"), BookieId.parse("bookie-3:3181"));
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withPassword(new byte[0]).withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, ensemble)
+                .build();
+        lh = new LedgerHandle(clientCtx, LEDGER_ID, new Versioned<>(metadata, new LongVersion(0L)),
+                BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+    }
+
+    @After
+    public void teardown() {
+        clientCtx.shutdown();
+    }
+
+    @Test
+    public void testConcurrentAddsThenClose() throws Exception {
+        int numThreads = 4;
+        int numAddsPerThread = 500;
+        int numAdds = numThreads * numAddsPerThread;
+        CountDownLatch completed = new CountDownLatch(numAdds);
+        ConcurrentHashMap<Long, Integer> results = new ConcurrentHashMap<>();
+        AtomicInteger failures = new AtomicInteger();
+        AsyncCallback.AddCallback cb = (rc, handle, entryId, ctx) -> {
+            if (rc != BKException.Code.OK || results.putIfAbsent(entryId, rc) != null) {
+                failures.incrementAndGet();
+            }
+            completed.countDown();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                writers.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int i = 0; i < numAddsPerThread; i++) {
+                        lh.asyncAddEntry(new byte[] { (byte) i }, cb, null);
+                        // the add is sequenced when asyncAddEntry returns
+                        assertTrue(lh.getLastAddPushed() >= i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(numAdds - 1, lh.getLastAddPushed());
+
+        // closing right after the adds returned doesn't fail any of them
+        lh.close();
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertEquals(numAdds, results.size());
+        assertTrue(lh.getLedgerMetadata().isClosed());
+        assertEquals(numAdds - 1, lh.getLedgerMetadata().getLastEntryId());
+        assertEquals(numAdds - 1, lh.getLastAddConfirmed());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the replacement of the bookies persistently slower than the rest of the write quorum.
+ */
+public class LedgerHandleSlowBookieTest {
+
+    private static final long LEDGER_ID = 1234L;
+    private static final int MIN_SLOW_ADDS = 3;
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final List<BookieId> ensemble = Arrays.asList(
+            BookieId.parse("bookie-1:3181"), BookieId.parse("bookie-2:3181"), BookieId.parse("bookie-3:3181"));
+    private final BookieId newBookie = BookieId.parse("bookie-4:3181");
+    private MockClientContext clientCtx;
+    private LedgerHandle lh;
+
+    @Before
+    public void setup() throws Exception {
+        ClientConfiguration conf = new ClientConfiguration()
+                .setSlowBookieEnsembleChangeEnabled(true)
+                .setSlowBookieAddLatencyRatio(5.0)
+                .setSlowBookieMinAddLatencyMs(10)
+                .setSlowBookieMinSlowAdds(MIN_SLOW_ADDS)
+                .setSlowBookieMaxEnsembleChangeRate(1.0);
+        clientCtx = new MockClientContext(conf);
+        when(clientCtx.getBookieWatcher().replaceBookie(anyInt(), anyInt(), anyInt(), any(), any(), eq(1), any()))
+                .thenReturn(newBookie);
+        LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withPassword(new byte[0]).withDigestType(DigestType.CRC32C)
+                .newEnsembleEntry(0L, ensemble)
+                .build();
+        lh = new LedgerHandle(clientCtx, LEDGER_ID, new Versioned<>(metadata, new LongVersion(0L)),
+                BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+    }
+
+    @After
+    public void teardown() {
+        clientCtx.shutdown();
+    }
+
+    private void slowAdd(int bookieIndex, BookieId addr) {
+        lh.recordAddAckLatency(bookieIndex, addr, SLOW_NANOS, FAST_NANOS);
+    }
+
+    private void assertNoSlowBookie() {
+        synchronized (lh.metadataLock) {
+            assertTrue(lh.delayedWriteFailedBookies.isEmpty());
+        }
+    }
+
+    private void assertSlowBookie(int bookieIndex, BookieId addr) {
+        synchronized (lh.metadataLock) {
+            assertEquals(Collections.singletonMap(bookieIndex, addr), lh.delayedWriteFailedBookies);
+            lh.delayedWriteFailedBookies.clear();
+        }
+    }
+
+    @Test
+    public void testSlowBookieDetection() {
+        BookieId bookie = ensemble.get(1);
+        // not slow enough compared to the fastest bookie, or under the min latency
+        for (int i = 0; i < 2 * MIN_SLOW_ADDS; i++) {
+            lh.recordAddAckLatency(1, bookie, 4 * FAST_NANOS + SLOW_NANOS, FAST_NANOS + SLOW_NANOS / 4);
+            lh.recordAddAckLatency(1, bookie, TimeUnit.MILLISECONDS.toNanos(9), FAST_NANOS);
+        }
+        assertNoSlowBookie();
+
+        // an add as fast as the others resets the count of consecutive slow adds
+        for (int i = 0; i < MIN_SLOW_ADDS - 1; i++) {
+            slowAdd(1, bookie);
+        }
+        lh.recordAddAckLatency(1, bookie, FAST_NANOS, FAST_NANOS);
+        for (int i = 0; i < MIN_SLOW_ADDS - 1; i++) {
+            slowAdd(1, bookie);
+        }
+        assertNoSlowBookie();
+
+        // the slow bookie is replaced as a delayed write failure
+        slowAdd(1, bookie);
+        assertSlowBookie(1, bookie);
+    }
+
+    @Test
+    public void testSlowBookieReplacementRateLimited() throws Exception {
+        for (int i = 0; i < MIN_SLOW_ADDS; i++) {
+            slowAdd(1, ensemble.get(1));
+        }
+        assertSlowBookie(1, ensemble.get(1));
+
+        // one replacement per second at most, for all the ledgers of the client
+        for (int i = 0; i < 2 * MIN_SLOW_ADDS; i++) {
+            slowAdd(2, ensemble.get(2));
+        }
+        assertNoSlowBookie();
+
+        // still slow, the bookie is replaced on one of its next slow adds
+        Thread.sleep(1100);
+        slowAdd(2, ensemble.get(2));
+        assertSlowBookie(2, ensemble.get(2));
+    }
+
+    @Test
+    public void testSlowAddsResetOnEnsembleChange() throws Exception {
+        for (int i = 0; i < MIN_SLOW_ADDS - 1; i++) {
+            slowAdd(1, ensemble.get(1));
+        }
+        lh.handleBookieFailure(Collections.singletonMap(1, ensemble.get(1)));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            synchronized (lh.metadataLock) {
+                if (!lh.changingEnsemble) {
+                    break;
+                }
+            }
+            assertTrue("ensemble change not completed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(newBookie, lh.getCurrentEnsemble().get(1));
+
+        // the slow adds of the replaced bookie don't count for the new one
+        slowAdd(1, newBookie);
+        assertNoSlowBookie();
+        for (int i = 1; i < MIN_SLOW_ADDS; i++) {
+            slowAdd(1, newBookie);
+        }
+        assertSlowBookie(1, newBookie);
+    }
+
+    @Test
+    public void testLatencyRatioValidated() {
+        ClientConfiguration conf = new ClientConfiguration()
+                .setSlowBookieEnsembleChangeEnabled(true)
+                .setSlowBookieAddLatencyRatio(1.0);
+        try {
+            ClientInternalConf.fromConfig(conf);
+            fail("a ratio of 1 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // not used when the slow bookies are not replaced
+        ClientInternalConf.fromConfig(conf.setSlowBookieEnsembleChangeEnabled(false));
+    }
+}
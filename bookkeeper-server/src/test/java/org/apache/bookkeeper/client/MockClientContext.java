@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBufAllocator;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+
+/**
+ * A {@link ClientContext} with mocked metadata and bookies, to test the client operations without a cluster.
+ *
+ * <p>The ledger manager accepts every metadata update, and unless another bookie client is set, the bookies
+ * acknowledge every add on the ordered executor of the ledger, as the real client does.
+ */
+class MockClientContext implements ClientContext {
+
+    private final ClientInternalConf conf;
+    private BookieClient bookieClient;
+    private final LedgerManager ledgerManager;
+    private final BookieWatcher bookieWatcher;
+    private final EnsemblePlacementPolicy placementPolicy;
+    private final OrderedExecutor mainWorkerPool;
+    private final OrderedScheduler scheduler;
+    private final BookKeeperClientStats clientStats;
+    private final BookieReadLatencyTracker readLatencyTracker;
+
+    MockClientContext(ClientConfiguration conf) {
+        this(conf, NullStatsLogger.INSTANCE);
+    }
+
+    MockClientContext(ClientConfiguration conf, StatsLogger statsLogger) {
+        this.conf = ClientInternalConf.fromConfig(conf);
+        this.ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.writeLedgerMetadata(anyLong(), any(), any())).thenAnswer(invocation -> {
+            LedgerMetadata metadata = invocation.getArgument(1);
+            LongVersion version = (LongVersion) invocation.getArgument(2);
+            return CompletableFuture.completedFuture(
+                    new Versioned<>(metadata, new LongVersion(version.getLongVersion() + 1)));
+        });
+        this.bookieWatcher = mock(BookieWatcher.class);
+        this.placementPolicy = mock(EnsemblePlacementPolicy.class);
+        this.mainWorkerPool = OrderedExecutor.newBuilder().name("test-main-worker").numThreads(1).build();
+        this.scheduler = OrderedScheduler.newSchedulerBuilder().name("test-scheduler").numThreads(1).build();
+        this.clientStats = BookKeeperClientStats.newInstance(statsLogger);
+        this.readLatencyTracker = new BookieReadLatencyTracker(conf.getReadLatencyQuantile(),
+                conf.getReadLatencyWindowMs());
+        this.bookieClient = newAckingBookieClient(mainWorkerPool);
+    }
+
+    MockClientContext setBookieClient(BookieClient bookieClient) {
+        this.bookieClient = bookieClient;
+        return this;
+    }
+
+    private static BookieClient newAckingBookieClient(OrderedExecutor executor) {
+        return (BookieClient) Proxy.newProxyInstance(BookieClient.class.getClassLoader(),
+                new Class<?>[] { BookieClient.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "addEntry":
+                        BookieId addr = (BookieId) args[0];
+                        long ledgerId = (Long) args[1];
+                        long entryId = (Long) args[3];
+                        WriteCallback cb = (WriteCallback) args[5];
+                        Object ctx = args[6];
+                        executor.executeOrdered(ledgerId,
+                                () -> cb.writeComplete(BKException.Code.OK, ledgerId, entryId, addr, ctx));
+                        return null;
+                    case "isWritable":
+                        return true;
+                    case "getNumPendingRequests":
+                        return 0L;
+                    case "isClosed":
+                        return false;
+                    default:
+                        return null;
+                    }
+                });
+    }
+
+    void shutdown() {
+        mainWorkerPool.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Override
+    public ClientInternalConf getConf() {
+        return conf;
+    }
+
+    @Override
+    public LedgerManager getLedgerManager() {
+        return ledgerManager;
+    }
+
+    @Override
+    public BookieWatcher getBookieWatcher() {
+        return bookieWatcher;
+    }
+
+    @Override
+    public EnsemblePlacementPolicy getPlacementPolicy() {
+        return placementPolicy;
+    }
+
+    @Override
+    public BookieClient getBookieClient() {
+        return bookieClient;
+    }
+
+    @Override
+    public ByteBufAllocator getByteBufAllocator() {
+        return ByteBufAllocator.DEFAULT;
+    }
+
+    @Override
+    public OrderedExecutor getMainWorkerPool() {
+        return mainWorkerPool;
+    }
+
+    @Override
+    public OrderedScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public BookKeeperClientStats getClientStats() {
+        return clientStats;
+    }
+
+    @Override
+    public BookieReadLatencyTracker getBookieReadLatencyTracker() {
+        return readLatencyTracker;
+    }
+
+    @Override
+    public boolean isClientClosed() {
+        return false;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.EntrySubscriber;
+import org.apache.bookkeeper.client.api.EntrySubscription;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ReadStreamOp}.
+ */
+public class ReadStreamOpTest {
+
+    private static final long LEDGER_ID = 1234L;
+    // split into reads of 2 entries at most
+    private static final int MAX_OUTSTANDING_ENTRIES = 8;
+
+    private LedgerHandle lh;
+    private final List<Read> reads = new ArrayList<>();
+    private final List<ByteBuf> buffers = new ArrayList<>();
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    private static class Read {
+        final long firstEntry;
+        final long lastEntry;
+        final CompletableFuture<LedgerEntries> future = new CompletableFuture<>();
+
+        Read(long firstEntry, long lastEntry) {
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+    }
+
+    private static class RecordingSubscriber implements EntrySubscriber {
+        EntrySubscription subscription;
+        final List<Long> entryIds = new ArrayList<>();
+        Throwable error = null;
+        int numCompleted = 0;
+        boolean requestOnNext = false;
+        boolean cancelOnNext = false;
+
+        @Override
+        public void onSubscribe(EntrySubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LedgerEntry entry) {
+            entryIds.add(entry.getEntryId());
+            entry.close();
+            if (requestOnNext) {
+                subscription.request(1);
+            }
+            if (cancelOnNext) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            error = cause;
+        }
+
+        @Override
+        public void onComplete() {
+            numCompleted++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        lh = mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.readEntriesInternalAsync(anyLong(), anyLong(), anyBoolean())).thenAnswer(invocation -> {
+            Read read = new Read(invocation.getArgument(0), invocation.getArgument(1));
+            reads.add(read);
+            return read.future;
+        });
+    }
+
+    private void startStream(long firstEntry, long lastEntry) {
+        new ReadStreamOp(lh, firstEntry, lastEntry, MAX_OUTSTANDING_ENTRIES, subscriber).initiate();
+    }
+
+    private void complete(Read read) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (long entryId = read.firstEntry; entryId <= read.lastEntry; entryId++) {
+            ByteBuf buf = Unpooled.buffer(8).writeLong(entryId);
+            buffers.add(buf);
+            entries.add(LedgerEntryImpl.create(LEDGER_ID, entryId, buf.readableBytes(), buf));
+        }
+        read.future.complete(LedgerEntriesImpl.create(entries));
+    }
+
+    private void assertRead(Read read, long firstEntry, long lastEntry) {
+        assertEquals(firstEntry, read.firstEntry);
+        assertEquals(lastEntry, read.lastEntry);
+    }
+
+    private static List<Long> entryIds(long firstEntry, long lastEntry) {
+        List<Long> entryIds = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            entryIds.add(entryId);
+        }
+        return entryIds;
+    }
+
+    private void assertBuffersReleased() {
+        for (ByteBuf buf : buffers) {
+            assertEquals(0, buf.refCnt());
+        }
+    }
+
+    @Test
+    public void testReadsOnlyRequestedEntries() {
+        startStream(0, 19);
+        assertTrue(reads.isEmpty());
+
+        subscriber.subscription.request(3);
+        assertEquals(2, reads.size());
+        assertRead(reads.get(0), 0, 1);
+        assertRead(reads.get(1), 2, 2);
+        complete(reads.get(0));
+        complete(reads.get(1));
+        assertEquals(entryIds(0, 2), subscriber.entryIds);
+
+        // no more than the max outstanding entries are read ahead
+        subscriber.subscription.request(100);
+        assertEquals(6, reads.size());
+        assertRead(reads.get(2), 3, 4);
+        assertRead(reads.get(3), 5, 6);
+        assertRead(reads.get(4), 7, 8);
+        assertRead(reads.get(5), 9, 10);
+
+        // the window is filled again as the entries are delivered
+        complete(reads.get(2));
+        assertEquals(entryIds(0, 4), subscriber.entryIds);
+        assertEquals(7, reads.size());
+        assertRead(reads.get(6), 11, 12);
+        assertEquals(0, subscriber.numCompleted);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testDeliversInOrderAsPrefixCompletes() {
+        startStream(0, 5);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, reads.size());
+
+        complete(reads.get(2));
+        assertTrue(subscriber.entryIds.isEmpty());
+        complete(reads.get(0));
+        assertEquals(entryIds(0, 1), subscriber.entryIds);
+        assertEquals(0, subscriber.numCompleted);
+
+        complete(reads.get(1));
+        assertEquals(entryIds(0, 5), subscriber.entryIds);
+        assertEquals(1, subscriber.numCompleted);
+        assertNull(subscriber.error);
+        assertBuffersReleased();
+    }
+
+    @Test
+    public void testRequestFromOnNext() {
+        subscriber.requestOnNext = true;
+        startStream(0, 2);
+        subscriber.subscription.request(1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, reads.size());
+            assertRead(reads.get(i), i, i);
+            complete(reads.get(i));
+        }
+        assertEquals(entryIds(0, 2), subscriber.entryIds);
+        assertEquals(1, subscriber.numCompleted);
+        assertBuffersReleased();
+    }
+
+    @Test
+    public void testCancelReleasesPendingEntries() {
+        startStream(0, 9);
+        subscriber.subscription.request(6);
+        assertEquals(3, reads.size());
+        complete(reads.get(1));
+        complete(reads.get(0));
+        assertEquals(entryIds(0, 3), subscriber.entryIds);
+
+        subscriber.subscription.cancel();
+        complete(reads.get(2));
+        subscriber.subscription.request(10);
+        assertEquals(3, reads.size());
+        assertEquals(entryIds(0, 3), subscriber.entryIds);
+        assertEquals(0, subscriber.numCompleted);
+        assertNull(subscriber.error);
+        assertBuffersReleased();
+    }
+
+    @Test
+    public void testCancelFromOnNext() {
+        subscriber.cancelOnNext = true;
+        startStream(0, 9);
+        subscriber.subscription.request(4);
+        assertEquals(2, reads.size());
+        complete(reads.get(0));
+        complete(reads.get(1));
+        assertEquals(entryIds(0, 0), subscriber.entryIds);
+        assertEquals(0, subscriber.numCompleted);
+        assertBuffersReleased();
+    }
+
+    @Test
+    public void testErrorAfterPreviousEntriesDelivered() {
+        startStream(0, 5);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, reads.size());
+
+        BKException cause = new BKException.BKReadException();
+        reads.get(1).future.completeExceptionally(cause);
+        complete(reads.get(2));
+        assertTrue(subscriber.entryIds.isEmpty());
+        assertNull(subscriber.error);
+
+        complete(reads.get(0));
+        assertEquals(entryIds(0, 1), subscriber.entryIds);
+        assertSame(cause, subscriber.error);
+        assertEquals(0, subscriber.numCompleted);
+        assertBuffersReleased();
+    }
+
+    @Test
+    public void testErrorWithoutDemand() {
+        startStream(0, 5);
+        subscriber.subscription.request(1);
+        BKException cause = new BKException.BKReadException();
+        reads.get(0).future.completeExceptionally(cause);
+        assertSame(cause, subscriber.error);
+        subscriber.subscription.request(1);
+        assertEquals(1, reads.size());
+    }
+
+    @Test
+    public void testNonPositiveRequest() {
+        startStream(0, 5);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(reads.isEmpty());
+    }
+
+    @Test
+    public void testFailOnInitiate() {
+        BKException cause = new BKException.BKIncorrectParameterException();
+        new ReadStreamOp(lh, 5, 0, MAX_OUTSTANDING_ENTRIES, subscriber).failOnInitiate(cause).initiate();
+        assertSame(cause, subscriber.error);
+        assertFalse(subscriber.numCompleted > 0);
+        assertTrue(reads.isEmpty());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.Assert.assertEquals;
+
+import io.netty.util.HashedWheelTimer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the bookies which {@link RegionAwareEnsemblePlacementPolicy} prefers to read from.
+ */
+public class RegionAwareEnsemblePlacementPolicyReadTest {
+
+    private static final BookieId LOCAL_1 = BookieId.parse("10.0.1.1:3181");
+    private static final BookieId LOCAL_2 = BookieId.parse("10.0.1.2:3181");
+    private static final BookieId LOCAL_READ_ONLY = BookieId.parse("10.0.1.3:3181");
+    private static final BookieId REMOTE = BookieId.parse("10.0.2.1:3181");
+
+    private HashedWheelTimer timer;
+    private RegionAwareEnsemblePlacementPolicy policy;
+
+    /**
+     * Resolves the 10.0.2.x hosts to a remote region, and the others, including this host, to the local region.
+     */
+    private static class TwoRegionsMapping implements DNSToSwitchMapping {
+        @Override
+        public List<String> resolve(List<String> names) {
+            List<String> racks = new ArrayList<>(names.size());
+            for (String name : names) {
+                racks.add(name.startsWith("10.0.2.") ? "/remote/rack1" : "/local/rack1");
+            }
+            return racks;
+        }
+
+        @Override
+        public void reloadCachedMappings() {
+        }
+
+        @Override
+        public boolean useHostName() {
+            return false;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer();
+        policy = new RegionAwareEnsemblePlacementPolicy();
+        policy.initialize(new ClientConfiguration(), Optional.of(new TwoRegionsMapping()), timer,
+                SettableFeatureProvider.DISABLE_ALL, NullStatsLogger.INSTANCE,
+                BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        policy.onClusterChanged(new HashSet<>(Arrays.asList(LOCAL_1, LOCAL_2, REMOTE)),
+                Collections.singleton(LOCAL_READ_ONLY));
+    }
+
+    @After
+    public void tearDown() {
+        policy.uninitalize();
+        timer.stop();
+    }
+
+    private int numPreferredReadBookies(List<BookieId> ensemble) {
+        DistributionSchedule.WriteSet writeSet = new RoundRobinDistributionSchedule(
+                ensemble.size(), ensemble.size(), ensemble.size()).getWriteSet(0L);
+        DistributionSchedule.WriteSet readSequence = policy.reorderReadSequence(ensemble,
+                new BookiesHealthInfo() {
+                    @Override
+                    public long getBookieFailureHistory(BookieId bookieSocketAddress) {
+                        return -1L;
+                    }
+
+                    @Override
+                    public long getBookiePendingRequests(BookieId bookieSocketAddress) {
+                        return 0L;
+                    }
+                }, writeSet);
+        return policy.getNumPreferredReadBookies(ensemble, readSequence);
+    }
+
+    @Test
+    public void testRemoteBookieNotPreferred() {
+        assertEquals(2, numPreferredReadBookies(Arrays.asList(REMOTE, LOCAL_1, LOCAL_2)));
+        assertEquals(2, numPreferredReadBookies(Arrays.asList(LOCAL_1, REMOTE, LOCAL_2)));
+    }
+
+    @Test
+    public void testReadOnlyBookieNotPreferred() {
+        assertEquals(1, numPreferredReadBookies(Arrays.asList(LOCAL_READ_ONLY, LOCAL_1, REMOTE)));
+    }
+
+    @Test
+    public void testAllLocalBookiesPreferred() {
+        assertEquals(2, numPreferredReadBookies(Arrays.asList(LOCAL_1, LOCAL_2)));
+    }
+}
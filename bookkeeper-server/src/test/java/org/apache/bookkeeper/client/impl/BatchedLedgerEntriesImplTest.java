@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.Test;
+
+/**
+ * Test the closing of {@link BatchedLedgerEntriesImpl}.
+ */
+public class BatchedLedgerEntriesImplTest {
+
+    private static ByteBuf entry(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    private static BatchedLedgerEntriesImpl create(long ledgerId, ByteBuf... entries) {
+        ByteBufList buffers = ByteBufList.get();
+        for (ByteBuf entry : entries) {
+            buffers.add(entry);
+        }
+        BatchedLedgerEntriesImpl ledgerEntries = BatchedLedgerEntriesImpl.create(ledgerId, 0L, buffers);
+        for (int i = 0; i < entries.length; i++) {
+            ledgerEntries.setLength(i, entries[i].readableBytes());
+        }
+        return ledgerEntries;
+    }
+
+    @Test
+    public void testCloseTwice() {
+        ByteBuf entry0 = entry("entry-0");
+        ByteBuf entry1 = entry("entry-1");
+        BatchedLedgerEntriesImpl ledgerEntries = create(1L, entry0, entry1);
+        ledgerEntries.close();
+        assertEquals(0, entry0.refCnt());
+        assertEquals(0, entry1.refCnt());
+        ledgerEntries.close();
+    }
+
+    @Test
+    public void testCloseTwiceDoesNotReleaseTheNextUse() {
+        create(1L, entry("entry-0")).close();
+        BatchedLedgerEntriesImpl ledgerEntries = create(1L, entry("entry-0"));
+        ledgerEntries.close();
+        ledgerEntries.close();
+
+        // both instances are handed out by the recycler, and none of them is shared
+        ByteBuf entry2 = entry("entry-2");
+        ByteBuf entry3 = entry("entry-3");
+        BatchedLedgerEntriesImpl first = create(2L, entry2);
+        BatchedLedgerEntriesImpl second = create(3L, entry3);
+        LedgerEntry firstEntry = first.getEntry(0L);
+        assertEquals(2L, firstEntry.getLedgerId());
+        assertEquals("entry-2", firstEntry.getEntryBuffer().toString(StandardCharsets.UTF_8));
+        LedgerEntry secondEntry = second.getEntry(0L);
+        assertEquals(3L, secondEntry.getLedgerId());
+        assertEquals("entry-3", secondEntry.getEntryBuffer().toString(StandardCharsets.UTF_8));
+        first.close();
+        assertEquals(0, entry2.refCnt());
+        assertEquals(1, entry3.refCnt());
+        second.close();
+        assertEquals(0, entry3.refCnt());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.BKException.BKLedgerClosedException;
+import org.apache.bookkeeper.client.api.BatchingWriteHandle;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerRecord;
+import org.apache.bookkeeper.client.api.RecordPosition;
+import org.apache.bookkeeper.client.api.WriteHandle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the packing of the records in batches by {@link BatchingWriteHandleImpl}.
+ */
+public class BatchingWriteHandleImplTest {
+
+    private WriteHandle handle;
+    private ScheduledExecutorService scheduler;
+    private final List<ByteBuf> batches = new ArrayList<>();
+    private final List<CompletableFuture<Long>> appends = new ArrayList<>();
+    private final CompletableFuture<Void> handleClose = new CompletableFuture<>();
+
+    @Before
+    public void setup() {
+        handle = mock(WriteHandle.class);
+        when(handle.appendAsync(any(ByteBuf.class))).thenAnswer(invocation -> {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            synchronized (batches) {
+                batches.add(invocation.getArgument(0));
+                appends.add(future);
+            }
+            return future;
+        });
+        when(handle.closeAsync()).thenReturn(handleClose);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void teardown() {
+        scheduler.shutdownNow();
+        batches.forEach(ByteBuf::release);
+    }
+
+    private BatchingWriteHandle newHandle(int maxBatchRecords, int maxBatchSize, long maxBatchDelayMillis) {
+        return BatchingWriteHandle.newBuilder(handle)
+                .withMaxBatchRecords(maxBatchRecords)
+                .withMaxBatchSize(maxBatchSize)
+                .withMaxBatchDelay(maxBatchDelayMillis, TimeUnit.MILLISECONDS)
+                .withScheduler(scheduler)
+                .build();
+    }
+
+    private static ByteBuf record(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    private List<String> unpack(int batch) {
+        List<String> records = new ArrayList<>();
+        ByteBuf buffer = batches.get(batch).retainedDuplicate();
+        try (LedgerEntry entry = LedgerEntryImpl.create(1L, batch, buffer.readableBytes(), buffer)) {
+            Iterator<LedgerRecord> iterator = RecordBatchCodec.unpack(entry);
+            while (iterator.hasNext()) {
+                records.add(new String(iterator.next().getRecordBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void testBatchAppendedAtMaxRecords() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(3, 1024, TimeUnit.HOURS.toMillis(1));
+        List<CompletableFuture<RecordPosition>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batchingHandle.appendAsync(record("record-" + i)));
+        }
+        assertEquals(1, batches.size());
+        assertEquals(3, unpack(0).size());
+        assertEquals("record-2", unpack(0).get(2));
+
+        appends.get(0).complete(5L);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new RecordPosition(5L, i), futures.get(i).get());
+        }
+        assertFalse(futures.get(3).isDone());
+
+        batchingHandle.flush();
+        assertEquals(2, batches.size());
+        appends.get(1).complete(6L);
+        assertEquals(new RecordPosition(6L, 0), futures.get(3).get());
+    }
+
+    @Test
+    public void testBatchAppendedAtMaxSize() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(100, 25, TimeUnit.HOURS.toMillis(1));
+        batchingHandle.appendAsync(record("0123456789"));
+        batchingHandle.appendAsync(record("0123456789"));
+        assertTrue(batches.isEmpty());
+
+        // the record would take the batch over its max size, the batch is appended without it
+        batchingHandle.appendAsync(record("abcdefghij"));
+        assertEquals(1, batches.size());
+        assertEquals(2, unpack(0).size());
+
+        // a record as large as the max size is appended on its own
+        batchingHandle.appendAsync(record("0123456789012345678901234"));
+        assertEquals(3, batches.size());
+        assertArrayEquals(new String[] { "abcdefghij" }, unpack(1).toArray());
+    }
+
+    @Test
+    public void testBatchAppendedAfterMaxDelay() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(100, 1024, 10);
+        CompletableFuture<RecordPosition> future = batchingHandle.appendAsync(record("record"));
+        verify(handle, timeout(10000)).appendAsync(any(ByteBuf.class));
+        synchronized (batches) {
+            appends.get(0).complete(0L);
+        }
+        assertEquals(new RecordPosition(0L, 0), future.get());
+    }
+
+    @Test
+    public void testAppendFailure() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(2, 1024, TimeUnit.HOURS.toMillis(1));
+        CompletableFuture<RecordPosition> first = batchingHandle.appendAsync(record("record-0"));
+        CompletableFuture<RecordPosition> second = batchingHandle.appendAsync(record("record-1"));
+        BKException cause = new BKException.BKNotEnoughBookiesException();
+        appends.get(0).completeExceptionally(cause);
+        for (CompletableFuture<RecordPosition> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                fail("The records of a failed batch should fail");
+            } catch (ExecutionException ee) {
+                assertSame(cause, ee.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void testAppendAfterClose() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(100, 1024, TimeUnit.HOURS.toMillis(1));
+        batchingHandle.closeAsync();
+        ByteBuf record = record("record");
+        try {
+            batchingHandle.appendAsync(record).get();
+            fail("Should not append to a closed handle");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof BKLedgerClosedException);
+        }
+        assertEquals(0, record.refCnt());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testCloseAfterLastBatchAppended() throws Exception {
+        BatchingWriteHandle batchingHandle = newHandle(2, 1024, TimeUnit.HOURS.toMillis(1));
+        CompletableFuture<RecordPosition> first = batchingHandle.appendAsync(record("record-0"));
+        batchingHandle.appendAsync(record("record-1"));
+        CompletableFuture<RecordPosition> last = batchingHandle.appendAsync(record("record-2"));
+
+        // the last batch is flushed by the close, which waits for it before closing the handle, as closing
+        // the handle would fail the adds still pending
+        CompletableFuture<Void> close = batchingHandle.closeAsync();
+        assertEquals(2, batches.size());
+        verify(handle, never()).closeAsync();
+
+        appends.get(0).complete(0L);
+        verify(handle, never()).closeAsync();
+        appends.get(1).complete(1L);
+        verify(handle).closeAsync();
+        assertEquals(new RecordPosition(0L, 0), first.get());
+        assertEquals(new RecordPosition(1L, 0), last.get());
+
+        assertFalse(close.isDone());
+        handleClose.complete(null);
+        close.get();
+    }
+}
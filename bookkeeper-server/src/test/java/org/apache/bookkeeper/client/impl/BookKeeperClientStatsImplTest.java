@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client.impl;
+
+import static org.apache.bookkeeper.client.BookKeeperClientStats.BOOKIE_LABEL;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the per-bookie loggers of {@link BookKeeperClientStatsImpl}.
+ */
+public class BookKeeperClientStatsImplTest {
+
+    private final BookieId bookie1 = BookieId.parse("bookie-1:3181");
+    private final BookieId bookie2 = BookieId.parse("bookie-2:3181");
+    private StatsLogger stats;
+
+    @Before
+    public void setup() {
+        stats = mock(StatsLogger.class);
+        when(stats.scopeLabel(eq(BOOKIE_LABEL), anyString())).thenAnswer(invocation -> {
+            StatsLogger bookieStats = mock(StatsLogger.class);
+            when(bookieStats.getOpStatsLogger(anyString())).thenAnswer(i -> mock(OpStatsLogger.class));
+            return bookieStats;
+        });
+    }
+
+    @Test
+    public void testAddOpBookieLoggers() {
+        BookKeeperClientStatsImpl clientStats = new BookKeeperClientStatsImpl(stats, false);
+        OpStatsLogger logger1 = clientStats.getAddOpBookieLogger(bookie1);
+        OpStatsLogger logger2 = clientStats.getAddOpBookieLogger(bookie2);
+        assertNotSame(logger1, logger2);
+        assertSame(logger1, clientStats.getAddOpBookieLogger(bookie1));
+        verify(stats, times(1)).scopeLabel(BOOKIE_LABEL, bookie1.toString());
+
+        // the logger of a bookie which left the cluster is dropped, and created again if it comes back
+        clientStats.retainAddOpBookieLoggers(Collections.singleton(bookie1));
+        assertSame(logger1, clientStats.getAddOpBookieLogger(bookie1));
+        assertNotSame(logger2, clientStats.getAddOpBookieLogger(bookie2));
+        verify(stats, times(2)).scopeLabel(BOOKIE_LABEL, bookie2.toString());
+    }
+
+    @Test
+    public void testAddOpBookieLoggersLimited() {
+        BookKeeperClientStatsImpl clientStats = new BookKeeperClientStatsImpl(stats, true);
+        assertSame(clientStats.getAddOpBookieLogger(bookie1), clientStats.getAddOpBookieLogger(bookie2));
+        verify(stats, never()).scopeLabel(eq(BOOKIE_LABEL), anyString());
+    }
+}
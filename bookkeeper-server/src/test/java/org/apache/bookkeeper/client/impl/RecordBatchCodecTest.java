@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerRecord;
+import org.apache.bookkeeper.client.api.RecordPosition;
+import org.junit.Test;
+
+/**
+ * Test the encoding and the unpacking of the batches of records by {@link RecordBatchCodec}.
+ */
+public class RecordBatchCodecTest {
+
+    private static byte[] record(int size, int seed) {
+        byte[] record = new byte[size];
+        for (int i = 0; i < size; i++) {
+            record[i] = (byte) (seed + i);
+        }
+        return record;
+    }
+
+    private static LedgerEntry entry(long entryId, ByteBuf buffer) {
+        return LedgerEntryImpl.create(1L, entryId, buffer.readableBytes(), buffer);
+    }
+
+    @Test
+    public void testEncodeAndUnpack() {
+        // sizes around the one and two bytes varints
+        int[] sizes = { 0, 1, 127, 128, 300, 20000 };
+        List<ByteBuf> records = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            records.add(Unpooled.wrappedBuffer(record(sizes[i], i)));
+        }
+        ByteBuf batch = RecordBatchCodec.encode(ByteBufAllocator.DEFAULT, records);
+        for (ByteBuf record : records) {
+            assertEquals(1, record.refCnt());
+        }
+
+        try (LedgerEntry entry = entry(7L, batch)) {
+            Iterator<LedgerRecord> iterator = RecordBatchCodec.unpack(entry);
+            for (int i = 0; i < sizes.length; i++) {
+                assertTrue(iterator.hasNext());
+                LedgerRecord record = iterator.next();
+                assertEquals(new RecordPosition(7L, i), record.getPosition());
+                assertEquals(sizes[i], record.getLength());
+                assertArrayEquals(record(sizes[i], i), record.getRecordBytes());
+            }
+            assertFalse(iterator.hasNext());
+            try {
+                iterator.next();
+                fail("Should have no more records");
+            } catch (NoSuchElementException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeFromReaderIndex() {
+        ByteBuf record = Unpooled.wrappedBuffer(record(10, 0));
+        record.skipBytes(4);
+        ByteBuf batch = RecordBatchCodec.encode(ByteBufAllocator.DEFAULT, Collections.singletonList(record));
+        try (LedgerEntry entry = entry(0L, batch)) {
+            LedgerRecord unpacked = RecordBatchCodec.unpack(entry).next();
+            assertEquals(6, unpacked.getLength());
+            assertEquals(record, unpacked.getRecordBuffer());
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        ByteBuf batch = RecordBatchCodec.encode(ByteBufAllocator.DEFAULT, new ArrayList<>());
+        try (LedgerEntry entry = entry(0L, batch)) {
+            assertFalse(RecordBatchCodec.unpack(entry).hasNext());
+        }
+    }
+
+    private static void assertNotABatch(ByteBuf buffer) {
+        try (LedgerEntry entry = entry(0L, buffer)) {
+            RecordBatchCodec.unpack(entry);
+            fail("Should not unpack an entry which is not a batch");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnpackInvalidEntries() {
+        assertNotABatch(Unpooled.wrappedBuffer("not a batch".getBytes(StandardCharsets.UTF_8)));
+        assertNotABatch(Unpooled.buffer(0));
+
+        List<ByteBuf> records = new ArrayList<>();
+        records.add(Unpooled.wrappedBuffer(record(100, 0)));
+        records.add(Unpooled.wrappedBuffer(record(200, 1)));
+        ByteBuf batch = RecordBatchCodec.encode(ByteBufAllocator.DEFAULT, records);
+
+        // truncated records
+        assertNotABatch(batch.retainedSlice(0, batch.readableBytes() - 1));
+        // truncated lengths
+        assertNotABatch(batch.retainedSlice(0, 5));
+        // trailing bytes
+        assertNotABatch(Unpooled.wrappedBuffer(batch.retain(), Unpooled.wrappedBuffer(new byte[1])));
+        // a record count larger than the entry
+        ByteBuf count = Unpooled.buffer();
+        count.writeShort(RecordBatchCodec.MAGIC).writeByte(RecordBatchCodec.VERSION).writeByte(0x7F);
+        assertNotABatch(count);
+        batch.release();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_ADMISSION_BUSY_CLIENTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.bookie.TestBKConfiguration;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.processor.RequestProcessor;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the per client admission of the requests by {@link ClientAdmissionController}.
+ */
+public class ClientAdmissionControllerTest {
+
+    private ServerConfiguration conf;
+    private StatsLogger statsLogger;
+    private Gauge<Integer> busyClients;
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+
+    /**
+     * An embedded channel connected from a given host.
+     */
+    private static class ClientChannel extends EmbeddedChannel {
+        private final InetSocketAddress remoteAddress;
+
+        ClientChannel(String host, BookieRequestHandler handler) throws Exception {
+            super(false, false);
+            this.remoteAddress = new InetSocketAddress(host, 3181);
+            pipeline().addLast(handler);
+            register();
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return remoteAddress;
+        }
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        conf = TestBKConfiguration.newServerConfiguration()
+                .setClientAdmissionControlEnabled(true)
+                .setClientAdmissionMinInProgressPerClient(1)
+                .setClientAdmissionMaxRequestsPerSecondPerClient(0);
+        conf.setMaxAddsInProgressLimit(4);
+        conf.setMaxReadsInProgressLimit(0);
+
+        statsLogger = mock(StatsLogger.class);
+        when(statsLogger.getCounter(anyString())).thenAnswer(invocation -> mock(Counter.class));
+        doAnswer(invocation -> {
+            busyClients = invocation.getArgument(1);
+            return null;
+        }).when(statsLogger).registerGauge(eq(CLIENT_ADMISSION_BUSY_CLIENTS), any(Gauge.class));
+    }
+
+    @After
+    public void teardown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private BookieRequestHandler connect(String host) throws Exception {
+        BookieRequestHandler handler = new BookieRequestHandler(conf, mock(RequestProcessor.class),
+                mock(ChannelGroup.class));
+        ClientChannel channel = new ClientChannel(host, handler);
+        channels.add(channel);
+        return handler;
+    }
+
+    private static boolean isReading(BookieRequestHandler handler) {
+        return handler.ctx().channel().config().isAutoRead();
+    }
+
+    @Test
+    public void testPauseOverShareAndResume() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler handler = connect("10.0.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            controller.onAddRequestStart(handler);
+            assertTrue(isReading(handler));
+        }
+        controller.onAddRequestStart(handler);
+        assertFalse(isReading(handler));
+        assertEquals(1, (int) busyClients.getSample());
+
+        controller.onAddRequestFinish(handler);
+        assertTrue(isReading(handler));
+        for (int i = 0; i < 3; i++) {
+            controller.onAddRequestFinish(handler);
+        }
+        assertTrue(isReading(handler));
+        assertEquals(0, (int) busyClients.getSample());
+    }
+
+    @Test
+    public void testFairShareAmongBusyClients() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler first = connect("10.0.0.1");
+        BookieRequestHandler second = connect("10.0.0.2");
+
+        controller.onAddRequestStart(first);
+        controller.onAddRequestStart(second);
+        assertEquals(2, (int) busyClients.getSample());
+        assertTrue(isReading(second));
+
+        // two busy clients share the limit of 4 adds in progress
+        controller.onAddRequestStart(second);
+        assertFalse(isReading(second));
+        assertTrue(isReading(first));
+
+        // once the first client is idle, the second one gets the whole limit
+        controller.onAddRequestFinish(first);
+        assertEquals(1, (int) busyClients.getSample());
+        controller.onAddRequestFinish(second);
+        assertTrue(isReading(second));
+    }
+
+    @Test
+    public void testConnectionsOfAClientShareItsShare() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler first = connect("10.0.0.1");
+        BookieRequestHandler second = connect("10.0.0.1");
+
+        controller.onAddRequestStart(first);
+        controller.onAddRequestStart(second);
+        controller.onAddRequestStart(first);
+        assertEquals(1, (int) busyClients.getSample());
+        assertTrue(isReading(first));
+        assertTrue(isReading(second));
+
+        controller.onAddRequestStart(second);
+        assertFalse(isReading(second));
+        controller.onAddRequestStart(first);
+        assertFalse(isReading(first));
+
+        // both connections of the client are resumed once it is back within its share
+        controller.onAddRequestFinish(first);
+        controller.onAddRequestFinish(first);
+        assertTrue(isReading(first));
+        assertTrue(isReading(second));
+    }
+
+    @Test
+    public void testRequestsOnPausedConnectionPauseItOnce() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler handler = connect("10.0.0.1");
+
+        // requests already read from the socket still arrive after the connection is paused
+        for (int i = 0; i < 6; i++) {
+            controller.onAddRequestStart(handler);
+        }
+        assertFalse(isReading(handler));
+        controller.onAddRequestFinish(handler);
+        controller.onAddRequestFinish(handler);
+        controller.onAddRequestFinish(handler);
+        assertTrue(isReading(handler));
+    }
+
+    @Test
+    public void testGlobalThrottlingDoesNotResumePausedClient() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler handler = connect("10.0.0.1");
+
+        for (int i = 0; i < 4; i++) {
+            controller.onAddRequestStart(handler);
+        }
+        assertFalse(isReading(handler));
+
+        // the global in progress limit pauses and resumes the same connection
+        handler.pauseReading();
+        handler.resumeReading();
+        assertFalse(isReading(handler));
+
+        controller.onAddRequestFinish(handler);
+        assertTrue(isReading(handler));
+
+        // and the controller resuming the connection doesn't resume it under the global limit either
+        controller.onAddRequestStart(handler);
+        assertFalse(isReading(handler));
+        handler.pauseReading();
+        controller.onAddRequestFinish(handler);
+        assertFalse(isReading(handler));
+        handler.resumeReading();
+        assertTrue(isReading(handler));
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        conf.setClientAdmissionMaxRequestsPerSecondPerClient(10);
+        conf.setMaxAddsInProgressLimit(0);
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler handler = connect("10.0.0.1");
+        EmbeddedChannel channel = channels.get(0);
+
+        for (int i = 0; i < 10; i++) {
+            controller.onAddRequestStart(handler);
+            controller.onAddRequestFinish(handler);
+        }
+        assertTrue(isReading(handler));
+        controller.onAddRequestStart(handler);
+        controller.onAddRequestFinish(handler);
+        assertFalse(isReading(handler));
+
+        // the connection is resumed once the token bucket refills
+        Thread.sleep(200);
+        channel.runScheduledPendingTasks();
+        assertTrue(isReading(handler));
+    }
+
+    @Test
+    public void testClosedConnectionIsForgotten() throws Exception {
+        ClientAdmissionController controller = new ClientAdmissionController(conf, statsLogger);
+        BookieRequestHandler first = connect("10.0.0.1");
+        for (int i = 0; i < 4; i++) {
+            controller.onAddRequestStart(first);
+        }
+        assertFalse(isReading(first));
+
+        // the paused connection closes with its requests still in progress
+        channels.get(0).close();
+        for (int i = 0; i < 4; i++) {
+            controller.onAddRequestFinish(first);
+        }
+        assertEquals(0, (int) busyClients.getSample());
+
+        // a new connection of the client starts afresh
+        BookieRequestHandler second = connect("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            controller.onAddRequestStart(second);
+        }
+        assertTrue(isReading(second));
+    }
+}
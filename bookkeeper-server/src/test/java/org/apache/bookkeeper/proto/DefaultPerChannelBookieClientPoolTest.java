@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the choice of the channels of the unordered requests by {@link DefaultPerChannelBookieClientPool}, and the
+ * scaling of its extra channels.
+ */
+public class DefaultPerChannelBookieClientPoolTest {
+
+    private final BookieId address = BookieId.parse("bookie-1:3181");
+    private final List<PerChannelBookieClient> created = new ArrayList<>();
+    private PerChannelBookieClientFactory factory;
+    private final GenericCallback<PerChannelBookieClient> callback = (rc, pcbc) -> { };
+
+    @Before
+    public void setup() throws Exception {
+        factory = mock(PerChannelBookieClientFactory.class);
+        when(factory.create(eq(address), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            PerChannelBookieClient pcbc = mock(PerChannelBookieClient.class);
+            when(pcbc.isWritable()).thenReturn(true);
+            created.add(pcbc);
+            return pcbc;
+        });
+    }
+
+    private DefaultPerChannelBookieClientPool newPool(int coreSize, int maxChannels) throws Exception {
+        ClientConfiguration conf = new ClientConfiguration().setMaxChannelsPerBookie(maxChannels);
+        return new DefaultPerChannelBookieClientPool(conf, factory, address, coreSize);
+    }
+
+    private static void setInFlight(PerChannelBookieClient pcbc, long inFlight) {
+        when(pcbc.getNumInFlightRequests()).thenReturn(inFlight);
+    }
+
+    @Test
+    public void testUnorderedRequestsGoToTheLeastLoadedChannel() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(2, 0);
+        PerChannelBookieClient first = pool.clients[0];
+        PerChannelBookieClient second = pool.clients[1];
+
+        // ties go to the channel of the key
+        pool.obtainUnordered(callback, 0L);
+        verify(first, times(1)).connectIfNeededAndDoOp(callback);
+        pool.obtainUnordered(callback, 1L);
+        verify(second, times(1)).connectIfNeededAndDoOp(callback);
+
+        // otherwise to the channel with fewer requests in flight
+        setInFlight(first, 5);
+        pool.obtainUnordered(callback, 0L);
+        pool.obtainUnordered(callback, 1L);
+        verify(first, times(1)).connectIfNeededAndDoOp(callback);
+        verify(second, times(3)).connectIfNeededAndDoOp(callback);
+    }
+
+    @Test
+    public void testUnorderedRequestsSpreadOverTheChannels() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(4, 0);
+        for (long key = 0; key < 4; key++) {
+            pool.obtainUnordered(callback, key);
+        }
+        for (PerChannelBookieClient pcbc : pool.clients) {
+            verify(pcbc, times(1)).connectIfNeededAndDoOp(callback);
+        }
+    }
+
+    @Test
+    public void testScaleUpWhenSaturated() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(1, 3);
+        PerChannelBookieClient core = pool.clients[0];
+
+        pool.obtainUnordered(callback, 0L);
+        verify(core, times(1)).connectIfNeededAndDoOp(callback);
+        assertEquals(0, pool.numExtraClients);
+
+        // a saturated channel opens an extra one, which gets the request
+        when(core.isWritable()).thenReturn(false);
+        setInFlight(core, 10);
+        pool.obtainUnordered(callback, 0L);
+        assertEquals(1, pool.numExtraClients);
+        PerChannelBookieClient extra1 = created.get(1);
+        assertSame(extra1, pool.extraClients[0]);
+        verify(extra1, times(1)).connectIfNeededAndDoOp(callback);
+        verify(core, times(1)).connectIfNeededAndDoOp(callback);
+
+        // up to the max number of channels
+        when(extra1.isWritable()).thenReturn(false);
+        setInFlight(extra1, 10);
+        pool.obtainUnordered(callback, 0L);
+        assertEquals(2, pool.numExtraClients);
+        PerChannelBookieClient extra2 = created.get(2);
+        when(extra2.isWritable()).thenReturn(false);
+        setInFlight(extra2, 10);
+        pool.obtainUnordered(callback, 0L);
+        assertEquals(2, pool.numExtraClients);
+        assertEquals(3, created.size());
+        // all saturated, the tie goes to the channel of the key
+        verify(core, times(2)).connectIfNeededAndDoOp(callback);
+
+        // the ordered requests stay on the core channel
+        pool.obtain(callback, 1L);
+        verify(core, times(3)).connectIfNeededAndDoOp(callback);
+    }
+
+    @Test
+    public void testScaleDownAndRetirement() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(1, 2);
+        PerChannelBookieClient core = pool.clients[0];
+        when(core.isWritable()).thenReturn(false);
+        pool.obtainUnordered(callback, 0L);
+        PerChannelBookieClient extra = pool.extraClients[0];
+        when(core.isWritable()).thenReturn(true);
+
+        // busy, the extra channel is kept
+        setInFlight(extra, 3);
+        pool.scaleDownIdleChannels();
+        pool.scaleDownIdleChannels();
+        assertEquals(1, pool.numExtraClients);
+
+        // idle on two consecutive checks, it is retired
+        setInFlight(extra, 0);
+        pool.scaleDownIdleChannels();
+        assertEquals(1, pool.numExtraClients);
+        pool.scaleDownIdleChannels();
+        assertEquals(0, pool.numExtraClients);
+
+        // and closed once the requests which picked it before complete
+        setInFlight(extra, 1);
+        pool.scaleDownIdleChannels();
+        verify(extra, never()).close(anyBoolean());
+        setInFlight(extra, 0);
+        pool.scaleDownIdleChannels();
+        verify(extra, times(1)).close(false);
+        verify(core, never()).close(anyBoolean());
+    }
+
+    @Test
+    public void testScaleUpReusesRetiringChannel() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(1, 2);
+        PerChannelBookieClient core = pool.clients[0];
+        when(core.isWritable()).thenReturn(false);
+        pool.obtainUnordered(callback, 0L);
+        PerChannelBookieClient extra = pool.extraClients[0];
+        pool.scaleDownIdleChannels();
+        pool.scaleDownIdleChannels();
+        assertEquals(0, pool.numExtraClients);
+
+        // the channel being retired is used again rather than opening another one
+        pool.obtainUnordered(callback, 0L);
+        assertEquals(1, pool.numExtraClients);
+        assertSame(extra, pool.extraClients[0]);
+        assertEquals(2, created.size());
+        verify(extra, times(2)).connectIfNeededAndDoOp(callback);
+        pool.scaleDownIdleChannels();
+        verify(extra, never()).close(anyBoolean());
+    }
+
+    @Test
+    public void testIdleChannelsScaledDownWithoutTimeouts() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        ClientConfiguration conf = new ClientConfiguration()
+                .setAddEntryTimeout(0)
+                .setReadEntryTimeout(0)
+                .setMaxChannelsPerBookie(2);
+        conf.setNumChannelsPerBookie(1);
+        new BookieClientImpl(conf, null, null, null, scheduler, NullStatsLogger.INSTANCE, null);
+        verify(scheduler, times(1)).scheduleAtFixedRate(any(), anyLong(), anyLong(), eq(TimeUnit.SECONDS));
+
+        // with neither timeouts nor extra channels, there is nothing to monitor
+        scheduler = mock(ScheduledExecutorService.class);
+        conf.setMaxChannelsPerBookie(0);
+        new BookieClientImpl(conf, null, null, null, scheduler, NullStatsLogger.INSTANCE, null);
+        verify(scheduler, never()).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+    }
+}
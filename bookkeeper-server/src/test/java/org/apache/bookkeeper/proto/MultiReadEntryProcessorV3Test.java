@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntryRange;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the fencing of the ledgers of a multi read request, as sent by the bulk open of ledgers.
+ */
+public class MultiReadEntryProcessorV3Test {
+
+    private static final byte[] MASTER_KEY = "masterKey".getBytes();
+    private static final long FENCE_TIMEOUT_MS = 200;
+
+    private EmbeddedChannel channel;
+    private EventLoop eventLoop;
+    private ExecutorService fenceThreadPool;
+    private BookieRequestHandler requestHandler;
+    private BookieRequestProcessor requestProcessor;
+    private Bookie bookie;
+    private CompletableFuture<Void> finished;
+
+    @Before
+    public void setUp() throws Exception {
+        channel = new EmbeddedChannel();
+        eventLoop = new DefaultEventLoop();
+        fenceThreadPool = Executors.newSingleThreadExecutor();
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        when(ctx.executor()).thenReturn(eventLoop);
+        requestHandler = mock(BookieRequestHandler.class);
+        when(requestHandler.ctx()).thenReturn(ctx);
+        bookie = mock(Bookie.class);
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(
+                invocation -> Unpooled.wrappedBuffer(("entry-" + invocation.getArgument(0)).getBytes()));
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+        when(requestProcessor.getWaitTimeoutOnBackpressureMillis()).thenReturn(-1L);
+        finished = new CompletableFuture<>();
+        doAnswer(invocation -> finished.complete(null)).when(requestProcessor).onReadRequestFinish(requestHandler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fenceThreadPool.shutdown();
+        eventLoop.shutdownGracefully();
+        channel.close();
+    }
+
+    private static Request request(int numLedgers, int numFencedLedgers) {
+        MultiReadRequest.Builder multiRead = MultiReadRequest.newBuilder();
+        for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+            LedgerEntryRange.Builder range = LedgerEntryRange.newBuilder()
+                    .setLedgerId(ledgerId)
+                    .setStartEntryId(BookieProtocol.LAST_ADD_CONFIRMED)
+                    .setMaxCount(1);
+            if (ledgerId < numFencedLedgers) {
+                range.setMasterKey(ByteString.copyFrom(MASTER_KEY));
+            }
+            multiRead.addRanges(range);
+        }
+        return Request.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.MULTI_READ_ENTRY)
+                        .setTxnId(1L))
+                .setMultiReadRequest(multiRead)
+                .build();
+    }
+
+    private MultiReadEntryProcessorV3 processor(Request request, ExecutorService fenceThreadPool) {
+        return new MultiReadEntryProcessorV3(request, requestHandler, requestProcessor, 1024 * 1024,
+                fenceThreadPool, FENCE_TIMEOUT_MS);
+    }
+
+    private MultiReadResponse awaitResponse() throws Exception {
+        // the request finishes once the response is sent
+        finished.get(10, TimeUnit.SECONDS);
+        Response response = channel.readOutbound();
+        assertEquals(StatusCode.EOK, response.getStatus());
+        return response.getMultiReadResponse();
+    }
+
+    private static void assertRead(MultiReadResponse response, int rangeIdx) {
+        assertEquals(StatusCode.EOK, response.getLedgerEntries(rangeIdx).getStatus());
+        assertEquals("entry-" + rangeIdx, response.getLedgerEntries(rangeIdx).getEntries(0).toStringUtf8());
+    }
+
+    @Test
+    public void testFenceWithoutHoldingTheReadThread() throws Exception {
+        CompletableFuture<Boolean> fenceResult = new CompletableFuture<>();
+        when(bookie.fenceLedger(anyLong(), any())).thenReturn(fenceResult);
+
+        processor(request(3, 2), fenceThreadPool).run();
+        // the processor returns while the ledgers are being fenced, and reads the ranges once fenced
+        assertFalse(finished.isDone());
+        verify(bookie, times(2)).fenceLedger(anyLong(), eq(MASTER_KEY));
+        verify(bookie, never()).readEntry(anyLong(), anyLong());
+
+        fenceResult.complete(true);
+        MultiReadResponse response = awaitResponse();
+        assertEquals(3, response.getLedgerEntriesCount());
+        for (int i = 0; i < 3; i++) {
+            assertRead(response, i);
+        }
+    }
+
+    @Test
+    public void testLedgerNotFenced() throws Exception {
+        when(bookie.fenceLedger(eq(0L), any())).thenReturn(CompletableFuture.completedFuture(true));
+        when(bookie.fenceLedger(eq(1L), any())).thenReturn(CompletableFuture.completedFuture(false));
+        CompletableFuture<Boolean> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new Exception("journal failure"));
+        when(bookie.fenceLedger(eq(2L), any())).thenReturn(failed);
+
+        processor(request(4, 3), fenceThreadPool).run();
+        MultiReadResponse response = awaitResponse();
+        assertEquals(4, response.getLedgerEntriesCount());
+        assertRead(response, 0);
+        assertEquals(StatusCode.EIO, response.getLedgerEntries(1).getStatus());
+        assertEquals(0, response.getLedgerEntries(1).getEntriesCount());
+        assertEquals(StatusCode.EIO, response.getLedgerEntries(2).getStatus());
+        assertRead(response, 3);
+        verify(bookie, never()).readEntry(eq(1L), anyLong());
+        verify(bookie, never()).readEntry(eq(2L), anyLong());
+    }
+
+    @Test
+    public void testFenceTimeout() throws Exception {
+        when(bookie.fenceLedger(eq(0L), any())).thenReturn(CompletableFuture.completedFuture(true));
+        when(bookie.fenceLedger(eq(1L), any())).thenReturn(new CompletableFuture<>());
+
+        long startNanos = System.nanoTime();
+        processor(request(2, 2), fenceThreadPool).run();
+        MultiReadResponse response = awaitResponse();
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(FENCE_TIMEOUT_MS));
+        assertRead(response, 0);
+        assertEquals(StatusCode.EIO, response.getLedgerEntries(1).getStatus());
+        assertTrue(finished.isDone());
+    }
+
+    @Test
+    public void testFenceTimeoutWithoutFenceThread() throws Exception {
+        when(bookie.fenceLedger(eq(0L), any())).thenReturn(new CompletableFuture<>());
+        when(bookie.fenceLedger(eq(1L), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        // the fencing results are awaited on the calling thread, up to the fence timeout
+        processor(request(2, 2), null).run();
+        Response response = channel.readOutbound();
+        assertEquals(StatusCode.EIO, response.getMultiReadResponse().getLedgerEntries(0).getStatus());
+        assertRead(response.getMultiReadResponse(), 1);
+        assertTrue(finished.isDone());
+    }
+
+    @Test
+    public void testNoFencing() throws Exception {
+        processor(request(2, 0), fenceThreadPool).run();
+        // read on the calling thread
+        Response response = channel.readOutbound();
+        assertRead(response.getMultiReadResponse(), 0);
+        assertRead(response.getMultiReadResponse(), 1);
+        verify(bookie, never()).fenceLedger(anyLong(), any());
+    }
+}
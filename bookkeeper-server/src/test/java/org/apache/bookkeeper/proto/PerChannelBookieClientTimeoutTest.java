@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the timeout of the requests in flight on a channel by {@link PerChannelBookieClient}, from the timeout queues
+ * of its completions.
+ */
+public class PerChannelBookieClientTimeoutTest {
+
+    private static final int ADD_TIMEOUT_SECONDS = 60;
+
+    private OrderedExecutor executor;
+    private EventLoopGroup eventLoopGroup;
+    private EmbeddedChannel channel;
+    private PerChannelBookieClient client;
+    private final List<Long> timedOut = Collections.synchronizedList(new ArrayList<>());
+    private final WriteCallback callback = (rc, ledgerId, entryId, addr, ctx) -> {
+        if (rc == BKException.Code.TimeoutException) {
+            timedOut.add(entryId);
+        }
+    };
+    private long txnId = 0;
+
+    @Before
+    public void setup() throws Exception {
+        executor = OrderedExecutor.newBuilder().numThreads(1).build();
+        eventLoopGroup = new DefaultEventLoopGroup(1);
+        ClientConfiguration conf = new ClientConfiguration().setAddEntryTimeout(ADD_TIMEOUT_SECONDS);
+        client = new PerChannelBookieClient(conf, executor, eventLoopGroup, BookieId.parse("127.0.0.1:3181"),
+                NullStatsLogger.INSTANCE, null, null, null, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        channel = new EmbeddedChannel();
+        client.channel = channel;
+    }
+
+    @After
+    public void teardown() throws Exception {
+        client.close();
+        channel.close();
+        eventLoopGroup.shutdownGracefully();
+        executor.shutdown();
+    }
+
+    private PerChannelBookieClient.CompletionKey send(long ledgerId, long entryId, boolean expired) {
+        PerChannelBookieClient.CompletionKey key = client.newCompletionKey(txnId++, OperationType.ADD_ENTRY);
+        PerChannelBookieClient.AddCompletion completion =
+                client.acquireAddCompletion(key, callback, null, ledgerId, entryId);
+        if (expired) {
+            completion.startTime = MathUtils.nowInNano() - TimeUnit.SECONDS.toNanos(ADD_TIMEOUT_SECONDS + 1);
+        }
+        client.putCompletionKeyValue(key, completion);
+        return key;
+    }
+
+    private void checkTimeouts() throws Exception {
+        client.checkTimeoutOnPendingOperations();
+        // wait for the callbacks, run by the single thread of the executor
+        executor.submit(() -> null).get();
+    }
+
+    @Test
+    public void testOnlyExpiredRequestsTimeOut() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            send(i % 7, i, i < 20);
+        }
+        assertEquals(50, client.getNumInFlightRequests());
+
+        checkTimeouts();
+        assertEquals(20, timedOut.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(timedOut.contains((long) i));
+        }
+        assertEquals(30, client.getNumInFlightRequests());
+        assertEquals(30, client.getNumPendingCompletionRequests());
+
+        // the requests timed out are gone from the queues
+        checkTimeouts();
+        assertEquals(20, timedOut.size());
+    }
+
+    @Test
+    public void testCompletedRequestsLeaveQueue() throws Exception {
+        List<PerChannelBookieClient.CompletionKey> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(send(1L, i, true));
+        }
+        for (int i = 0; i < 10; i += 2) {
+            PerChannelBookieClient.CompletionValue completion = client.removeCompletionValue(keys.get(i));
+            ((PerChannelBookieClient.AddCompletion) completion).writeComplete(BKException.Code.OK, 1L, i, null,
+                    null);
+        }
+        assertEquals(5, client.getNumInFlightRequests());
+
+        checkTimeouts();
+        assertEquals(5, timedOut.size());
+        for (int i = 1; i < 10; i += 2) {
+            assertTrue(timedOut.contains((long) i));
+        }
+        assertEquals(0, client.getNumInFlightRequests());
+        assertEquals(0, client.getNumPendingCompletionRequests());
+    }
+
+    @Test
+    public void testRequestsTimeOutInEveryQueueSection() throws Exception {
+        // requests of many ledgers and entries, spread over the sections of the queue
+        for (long ledgerId = 0; ledgerId < 100; ledgerId++) {
+            send(ledgerId, ledgerId * 31, true);
+        }
+        for (long ledgerId = 0; ledgerId < 100; ledgerId++) {
+            send(ledgerId, ledgerId * 31 + 1, false);
+        }
+        checkTimeouts();
+        assertEquals(100, timedOut.size());
+        assertEquals(100, client.getNumInFlightRequests());
+    }
+
+    @Test
+    public void testCompletionQueuedAgainLeavesPreviousPosition() throws Exception {
+        PerChannelBookieClient.CompletionKey key = client.newCompletionKey(txnId++, OperationType.ADD_ENTRY);
+        PerChannelBookieClient.AddCompletion completion =
+                client.acquireAddCompletion(key, callback, null, 1L, 0L);
+        completion.startTime = MathUtils.nowInNano() - TimeUnit.SECONDS.toNanos(ADD_TIMEOUT_SECONDS + 1);
+        client.putCompletionKeyValue(key, completion);
+
+        // the completion is queued again, with a new deadline, without having been removed
+        completion.startTime = MathUtils.nowInNano();
+        client.putCompletionKeyValue(key, completion);
+        assertEquals(1, client.getNumInFlightRequests());
+
+        checkTimeouts();
+        assertTrue(timedOut.isEmpty());
+        assertEquals(1, client.getNumInFlightRequests());
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.AddResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.Test;
+
+/**
+ * Test that the messages encoded by {@link ProtobufV3Codec} are the ones of the generated {@link BookkeeperProtocol}
+ * code, and the other way around.
+ */
+public class ProtobufV3CodecTest {
+
+    private static final ByteBufAllocator ALLOCATOR = ByteBufAllocator.DEFAULT;
+
+    // single and multi byte varints, and negative values which are sign extended to ten bytes
+    private static final long[] LONG_VALUES = {
+        0L, 1L, 127L, 128L, 16383L, 16384L, Integer.MAX_VALUE, 1L << 35, Long.MAX_VALUE,
+        -1L, -128L, Integer.MIN_VALUE, Long.MIN_VALUE
+    };
+    private static final int[] INT_VALUES = { 0, 1, 127, 128, 300, Integer.MAX_VALUE, -1, -300, Integer.MIN_VALUE };
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Return the message of a frame, checking its size prefix, and release the frame.
+     */
+    private static byte[] frameToMessage(Object frame) {
+        ByteBuf buf = frame instanceof ByteBufList ? ByteBufList.coalesce((ByteBufList) frame) : (ByteBuf) frame;
+        try {
+            int size = buf.readInt();
+            assertEquals(size, buf.readableBytes());
+            byte[] message = new byte[size];
+            buf.readBytes(message);
+            return message;
+        } finally {
+            if (buf != frame) {
+                buf.release();
+            }
+            ReferenceCountUtil.release(frame);
+        }
+    }
+
+    private static Request encodeAddRequest(long txnId, int priority, long ledgerId, long entryId, byte[] masterKey,
+                                            boolean recoveryAdd, int writeFlags, ByteBufList body) throws Exception {
+        byte[] bodyBytes = body.toArray();
+        ProtobufV3Codec.AddEntryRequest request = ProtobufV3Codec.AddEntryRequest.create(txnId, priority, ledgerId,
+                entryId, masterKey, recoveryAdd, writeFlags, body);
+        byte[] message = frameToMessage(request.encode(ALLOCATOR));
+        assertEquals(0, request.refCnt());
+
+        Request parsed = Request.parseFrom(message);
+        Request.Builder expected = Request.newBuilder()
+                .setHeader(header(OperationType.ADD_ENTRY, txnId, priority));
+        AddRequest.Builder addRequest = AddRequest.newBuilder()
+                .setLedgerId(ledgerId)
+                .setEntryId(entryId)
+                .setMasterKey(ByteString.copyFrom(masterKey))
+                .setBody(ByteString.copyFrom(bodyBytes));
+        if (recoveryAdd) {
+            addRequest.setFlag(AddRequest.Flag.RECOVERY_ADD);
+        }
+        if (writeFlags != 0) {
+            addRequest.setWriteFlags(writeFlags);
+        }
+        expected.setAddRequest(addRequest);
+        assertEquals(expected.build(), parsed);
+        // the fields are ordered differently, but the encoded size must be the same
+        assertEquals(parsed.getSerializedSize(), message.length);
+        if (!recoveryAdd && writeFlags == 0) {
+            // the body is the last field anyway
+            assertArrayEquals(parsed.toByteArray(), message);
+        }
+        return parsed;
+    }
+
+    private static BKPacketHeader header(OperationType operation, long txnId, int priority) {
+        BKPacketHeader.Builder header = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(operation)
+                .setTxnId(txnId);
+        if (priority != 0) {
+            header.setPriority(priority);
+        }
+        return header.build();
+    }
+
+    @Test
+    public void testAddRequestEdgeValues() throws Exception {
+        byte[] masterKey = "masterKey".getBytes();
+        byte[] body = randomBytes(64);
+        for (long value : LONG_VALUES) {
+            Request parsed = encodeAddRequest(value, 0, value, value, masterKey, false, 0,
+                    ByteBufList.get(Unpooled.wrappedBuffer(body)));
+            assertEquals(value, parsed.getHeader().getTxnId());
+            assertEquals(value, parsed.getAddRequest().getLedgerId());
+            assertEquals(value, parsed.getAddRequest().getEntryId());
+            assertArrayEquals(body, parsed.getAddRequest().getBody().toByteArray());
+        }
+        for (int value : INT_VALUES) {
+            Request parsed = encodeAddRequest(1L, value, 2L, 3L, masterKey, false, value,
+                    ByteBufList.get(Unpooled.wrappedBuffer(body)));
+            assertEquals(value != 0, parsed.getHeader().hasPriority());
+            assertEquals(value, parsed.getHeader().getPriority());
+            assertEquals(value != 0, parsed.getAddRequest().hasWriteFlags());
+            assertEquals(value, parsed.getAddRequest().getWriteFlags());
+        }
+    }
+
+    @Test
+    public void testAddRequestOptionalFields() throws Exception {
+        byte[] body = randomBytes(16);
+        Request parsed = encodeAddRequest(1L, 0, 2L, 3L, new byte[0], false, 0,
+                ByteBufList.get(Unpooled.wrappedBuffer(body)));
+        assertFalse(parsed.getHeader().hasPriority());
+        assertFalse(parsed.getAddRequest().hasFlag());
+        assertFalse(parsed.getAddRequest().hasWriteFlags());
+        assertTrue(parsed.getAddRequest().getMasterKey().isEmpty());
+
+        parsed = encodeAddRequest(1L, 1, 2L, 3L, new byte[0], true, 1, ByteBufList.get(Unpooled.wrappedBuffer(body)));
+        assertEquals(AddRequest.Flag.RECOVERY_ADD, parsed.getAddRequest().getFlag());
+        assertEquals(1, parsed.getAddRequest().getWriteFlags());
+    }
+
+    @Test
+    public void testAddRequestBodies() throws Exception {
+        byte[] masterKey = randomBytes(20);
+        // empty body
+        Request parsed = encodeAddRequest(1L, 0, 2L, 3L, masterKey, false, 0, ByteBufList.get(Unpooled.EMPTY_BUFFER));
+        assertTrue(parsed.getAddRequest().hasBody());
+        assertTrue(parsed.getAddRequest().getBody().isEmpty());
+
+        // large body, split in several buffers whose reader index isn't 0
+        byte[] body = randomBytes(5 * 1024 * 1024 + 7);
+        int split = body.length / 3;
+        ByteBuf first = Unpooled.buffer(split + 10);
+        first.writeZero(10);
+        first.writeBytes(body, 0, split);
+        first.skipBytes(10);
+        ByteBufList bodyList = ByteBufList.get(first, Unpooled.wrappedBuffer(body, split, split));
+        bodyList.add(Unpooled.directBuffer().writeBytes(body, 2 * split, body.length - 2 * split));
+        parsed = encodeAddRequest(1L, 0, 2L, 3L, masterKey, true, 0, bodyList);
+        assertArrayEquals(body, parsed.getAddRequest().getBody().toByteArray());
+        assertArrayEquals(masterKey, parsed.getAddRequest().getMasterKey().toByteArray());
+    }
+
+    private static ReadResponse.Builder readResponse(StatusCode status, long ledgerId, long entryId) {
+        return ReadResponse.newBuilder().setStatus(status).setLedgerId(ledgerId).setEntryId(entryId);
+    }
+
+    private static Response response(long txnId, StatusCode status, ReadResponse readResponse) {
+        return Response.newBuilder()
+                .setHeader(header(OperationType.READ_ENTRY, txnId, 0))
+                .setStatus(status)
+                .setReadResponse(readResponse)
+                .build();
+    }
+
+    /**
+     * Encode a read response with the codec, check that the generated code parses the expected message, and that
+     * the codec decodes it back.
+     */
+    private static void checkReadResponse(long txnId, ReadResponse readResponse) throws Exception {
+        ReadResponse withoutBody = readResponse.toBuilder().clearBody().build();
+        ByteBuf body = readResponse.hasBody() ? Unpooled.wrappedBuffer(readResponse.getBody().toByteArray()) : null;
+        ProtobufV3Codec.ReadEntryResponse response =
+                ProtobufV3Codec.ReadEntryResponse.create(txnId, withoutBody, body);
+        Object frame = response.encode(ALLOCATOR);
+        assertEquals(0, response.refCnt());
+        byte[] message = frameToMessage(frame);
+
+        Response expected = response(txnId, readResponse.getStatus(), readResponse);
+        Response parsed = Response.parseFrom(message);
+        assertEquals(expected, parsed);
+        assertEquals(expected.getSerializedSize(), message.length);
+        if (!readResponse.hasMaxLAC() && !readResponse.hasLacUpdateTimestamp()) {
+            assertArrayEquals(expected.toByteArray(), message);
+        }
+
+        checkDecode(message, txnId, readResponse);
+        checkDecode(expected.toByteArray(), txnId, readResponse);
+    }
+
+    private static void checkDecode(byte[] message, long txnId, ReadResponse expected) {
+        ByteBuf packet = Unpooled.wrappedBuffer(message);
+        ProtobufV3Codec.ReadEntryResponse decoded = ProtobufV3Codec.ReadEntryResponse.decode(packet);
+        try {
+            assertNotNull(decoded);
+            assertFalse(packet.isReadable());
+            assertEquals(txnId, decoded.getTxnId());
+            assertEquals(expected.getStatus(), decoded.getStatus());
+            assertEquals(expected.getLedgerId(), decoded.getLedgerId());
+            assertEquals(expected.getEntryId(), decoded.getEntryId());
+            assertEquals(expected.hasMaxLAC(), decoded.hasMaxLAC());
+            if (expected.hasMaxLAC()) {
+                assertEquals(expected.getMaxLAC(), decoded.getMaxLAC());
+            }
+            assertEquals(expected.hasLacUpdateTimestamp(), decoded.hasLacUpdateTimestamp());
+            if (expected.hasLacUpdateTimestamp()) {
+                assertEquals(expected.getLacUpdateTimestamp(), decoded.getLacUpdateTimestamp());
+            }
+            if (expected.hasBody()) {
+                byte[] body = new byte[decoded.getBody().readableBytes()];
+                decoded.getBody().getBytes(decoded.getBody().readerIndex(), body);
+                assertArrayEquals(expected.getBody().toByteArray(), body);
+            } else {
+                assertNull(decoded.getBody());
+            }
+        } finally {
+            if (decoded != null) {
+                decoded.release();
+            }
+            // the body is a retained slice of the packet
+            assertEquals(1, packet.refCnt());
+            packet.release();
+        }
+    }
+
+    @Test
+    public void testReadResponseEdgeValues() throws Exception {
+        ByteString body = ByteString.copyFrom(randomBytes(64));
+        for (long value : LONG_VALUES) {
+            checkReadResponse(value, readResponse(StatusCode.EOK, value, value)
+                    .setBody(body).setMaxLAC(value).setLacUpdateTimestamp(value).build());
+            checkReadResponse(value, readResponse(StatusCode.EOK, value, value).setBody(body).build());
+        }
+    }
+
+    @Test
+    public void testReadResponseOptionalFields() throws Exception {
+        // no body, as sent on errors
+        for (StatusCode status : StatusCode.values()) {
+            checkReadResponse(1L, readResponse(status, 2L, 3L).build());
+        }
+        checkReadResponse(1L, readResponse(StatusCode.ENOENTRY, 2L, -1L).setMaxLAC(-1L).build());
+        checkReadResponse(1L, readResponse(StatusCode.EOK, 2L, 3L).setLacUpdateTimestamp(0L).build());
+        // empty body, which is present
+        checkReadResponse(1L, readResponse(StatusCode.EOK, 2L, 3L).setBody(ByteString.EMPTY).build());
+        checkReadResponse(1L, readResponse(StatusCode.EOK, 2L, 3L).setBody(ByteString.EMPTY).setMaxLAC(0L).build());
+    }
+
+    @Test
+    public void testReadResponseLargeBody() throws Exception {
+        ByteString body = ByteString.copyFrom(randomBytes(5 * 1024 * 1024 + 7));
+        checkReadResponse(1L, readResponse(StatusCode.EOK, 2L, 3L).setBody(body).setMaxLAC(2L).build());
+        checkReadResponse(1L, readResponse(StatusCode.EOK, 2L, 3L).setBody(body).build());
+    }
+
+    @Test
+    public void testDecodeErrorStatusOfResponse() {
+        // the status of the response takes precedence over the one of the read response
+        Response response = response(1L, StatusCode.EUA, readResponse(StatusCode.EOK, 2L, 3L).build());
+        ByteBuf packet = Unpooled.wrappedBuffer(response.toByteArray());
+        ProtobufV3Codec.ReadEntryResponse decoded = ProtobufV3Codec.ReadEntryResponse.decode(packet);
+        assertNotNull(decoded);
+        assertEquals(StatusCode.EUA, decoded.getStatus());
+        decoded.release();
+    }
+
+    @Test
+    public void testDecodeOtherMessages() {
+        // messages which aren't read responses are left to the generated code
+        Response addResponse = Response.newBuilder()
+                .setHeader(header(OperationType.ADD_ENTRY, 1L, 0))
+                .setStatus(StatusCode.EOK)
+                .setAddResponse(AddResponse.newBuilder().setStatus(StatusCode.EOK).setLedgerId(2L).setEntryId(3L))
+                .build();
+        Response unknownField = response(1L, StatusCode.EOK, readResponse(StatusCode.EOK, 2L, 3L).build()).toBuilder()
+                .setAddResponse(AddResponse.newBuilder().setStatus(StatusCode.EOK).setLedgerId(2L).setEntryId(3L))
+                .build();
+        Response noReadResponse = response(1L, StatusCode.EOK, readResponse(StatusCode.EOK, 2L, 3L).build())
+                .toBuilder().clearReadResponse().buildPartial();
+        byte[] valid = response(1L, StatusCode.EOK, readResponse(StatusCode.EOK, 2L, 3L)
+                .setBody(ByteString.copyFrom(randomBytes(16))).build()).toByteArray();
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 1);
+
+        for (byte[] message : new byte[][] {
+                addResponse.toByteArray(), unknownField.toByteArray(), noReadResponse.toByteArray(), truncated }) {
+            ByteBuf packet = Unpooled.wrappedBuffer(message);
+            assertNull(ProtobufV3Codec.ReadEntryResponse.decode(packet));
+            assertEquals(0, packet.readerIndex());
+            assertEquals(1, packet.refCnt());
+            packet.release();
+        }
+    }
+}
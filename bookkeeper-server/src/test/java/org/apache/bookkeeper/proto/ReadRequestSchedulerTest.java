@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.bookkeeper.bookie.TestBKConfiguration;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.proto.ReadRequestScheduler.ReadClass;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the classification, the in-flight limits and the queueing of the reads by {@link ReadRequestScheduler}.
+ */
+public class ReadRequestSchedulerTest {
+
+    private final List<Runnable> submitted = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private boolean rejectSubmissions = false;
+    private OrderedExecutor readThreadPool;
+    private ServerConfiguration conf;
+
+    @Before
+    public void setup() {
+        readThreadPool = mock(OrderedExecutor.class);
+        doAnswer(invocation -> {
+            if (rejectSubmissions) {
+                throw new RejectedExecutionException("Rejected by the test");
+            }
+            submitted.add(invocation.getArgument(1));
+            return null;
+        }).when(readThreadPool).executeOrdered(anyLong(), any(Runnable.class));
+        conf = TestBKConfiguration.newServerConfiguration()
+                .setReadSchedulerTailingDistance(10)
+                .setReadSchedulerTailingMaxInFlightReads(0)
+                .setReadSchedulerBacklogMaxInFlightReads(2)
+                .setReadSchedulerMaxQueuedReads(2);
+    }
+
+    private ReadRequestScheduler newScheduler() {
+        return new ReadRequestScheduler(conf, readThreadPool, NullStatsLogger.INSTANCE);
+    }
+
+    private void schedule(ReadRequestScheduler scheduler, long ledgerId, long entryId, String name) {
+        scheduler.executeOrdered(ledgerId, entryId, () -> events.add("read-" + name),
+                () -> events.add("reject-" + name));
+    }
+
+    private void runSubmitted(int index) {
+        submitted.get(index).run();
+    }
+
+    @Test
+    public void testClassify() {
+        ReadRequestScheduler scheduler = newScheduler();
+        assertEquals(ReadClass.BACKLOG, scheduler.classify(1L, 0L));
+
+        scheduler.onAddEntry(1L, 100L);
+        scheduler.onAddEntry(1L, 50L);
+        assertEquals(ReadClass.TAILING, scheduler.classify(1L, 100L));
+        assertEquals(ReadClass.TAILING, scheduler.classify(1L, 90L));
+        assertEquals(ReadClass.TAILING, scheduler.classify(1L, 101L));
+        assertEquals(ReadClass.BACKLOG, scheduler.classify(1L, 89L));
+        assertEquals(ReadClass.BACKLOG, scheduler.classify(2L, 100L));
+    }
+
+    @Test
+    public void testBacklogReadsQueuedOverInFlightLimit() {
+        ReadRequestScheduler scheduler = newScheduler();
+        schedule(scheduler, 1L, 0L, "a");
+        schedule(scheduler, 1L, 1L, "b");
+        schedule(scheduler, 1L, 2L, "c");
+        assertEquals(2, submitted.size());
+
+        // tailing reads are not limited by the backlog reads in flight
+        scheduler.onAddEntry(2L, 5L);
+        schedule(scheduler, 2L, 5L, "tail");
+        assertEquals(3, submitted.size());
+
+        // the completion of a backlog read hands its slot over to the queued read
+        runSubmitted(0);
+        assertEquals(4, submitted.size());
+        runSubmitted(3);
+        runSubmitted(1);
+        runSubmitted(2);
+        assertEquals(4, submitted.size());
+        assertEquals(4, events.size());
+        assertTrue(events.contains("read-c"));
+
+        // all the slots are released
+        schedule(scheduler, 1L, 3L, "d");
+        schedule(scheduler, 1L, 4L, "e");
+        assertEquals(6, submitted.size());
+    }
+
+    @Test
+    public void testRejectWhenQueueFull() {
+        ReadRequestScheduler scheduler = newScheduler();
+        for (int i = 0; i < 4; i++) {
+            schedule(scheduler, 1L, i, "r" + i);
+        }
+        assertEquals(2, submitted.size());
+        try {
+            schedule(scheduler, 1L, 4L, "r4");
+            fail("Should reject a read when the queue is full");
+        } catch (RejectedExecutionException ree) {
+            // expected
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testRejectedDispatchReleasesSlot() {
+        ReadRequestScheduler scheduler = newScheduler();
+        rejectSubmissions = true;
+        for (int i = 0; i < 3; i++) {
+            try {
+                schedule(scheduler, 1L, i, "r" + i);
+                fail("Should propagate the rejection of the read thread pool");
+            } catch (RejectedExecutionException ree) {
+                // expected
+            }
+        }
+        rejectSubmissions = false;
+        schedule(scheduler, 1L, 3L, "r3");
+        schedule(scheduler, 1L, 4L, "r4");
+        assertEquals(2, submitted.size());
+    }
+
+    @Test
+    public void testQueuedReadRejectedOnDequeueIsNotRunInline() {
+        ReadRequestScheduler scheduler = newScheduler();
+        schedule(scheduler, 1L, 0L, "a");
+        schedule(scheduler, 1L, 1L, "b");
+        schedule(scheduler, 2L, 2L, "c");
+        schedule(scheduler, 3L, 3L, "d");
+        assertEquals(2, submitted.size());
+
+        // the read thread pool rejects the queued reads once dequeued: they must be failed, not run on the
+        // thread of the completed read
+        rejectSubmissions = true;
+        runSubmitted(0);
+        assertEquals(2, submitted.size());
+        assertEquals(3, events.size());
+        assertEquals("read-a", events.get(0));
+        assertEquals("reject-c", events.get(1));
+        assertEquals("reject-d", events.get(2));
+
+        // the slot of the completed read is released rather than leaked
+        rejectSubmissions = false;
+        schedule(scheduler, 1L, 4L, "e");
+        assertEquals(3, submitted.size());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.server.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.bookie.LedgerStorage;
+import org.apache.bookkeeper.bookie.TestBKConfiguration;
+import org.apache.bookkeeper.bookie.storage.BlockVerificationListener;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManagerFactory;
+import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.server.conf.BookieConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link EntryLogScrubberService}.
+ */
+public class EntryLogScrubberServiceTest {
+
+    private static final BookieId BOOKIE_ID = BookieId.parse("bookie-1:3181");
+
+    private LedgerStorage ledgerStorage;
+    private LedgerUnderreplicationManager underreplicationManager;
+    private EntryLogScrubberService scrubber;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setEntryLogScrubPeriod(1);
+        ledgerStorage = mock(LedgerStorage.class);
+        underreplicationManager = mock(LedgerUnderreplicationManager.class);
+        when(underreplicationManager.markLedgerUnderreplicatedAsync(anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        LedgerManagerFactory ledgerManagerFactory = mock(LedgerManagerFactory.class);
+        when(ledgerManagerFactory.newLedgerUnderreplicationManager()).thenReturn(underreplicationManager);
+        scrubber = new EntryLogScrubberService(NullStatsLogger.INSTANCE, new BookieConfiguration(conf),
+                ledgerStorage, ledgerManagerFactory, BOOKIE_ID);
+    }
+
+    @After
+    public void tearDown() {
+        scrubber.stop();
+        scrubber.close();
+    }
+
+    @Test
+    public void testMarkCorruptedLedgersUnderreplicated() throws Exception {
+        doAnswer(invocation -> {
+            BlockVerificationListener listener = invocation.getArgument(0);
+            listener.beforeBlock(1024);
+            listener.onBlockVerified(1L, 0L, 1024L, 1000L);
+            listener.beforeBlock(1024);
+            listener.onBlockCorrupted(1L, 1024L, 2048L, new HashSet<>(Arrays.asList(7L, 9L)));
+            return null;
+        }).when(ledgerStorage).verifyEntryLogs(any());
+        scrubber.start();
+
+        verify(underreplicationManager, timeout(10000)).markLedgerUnderreplicatedAsync(
+                eq(7L), eq(Collections.singleton(BOOKIE_ID.toString())));
+        verify(underreplicationManager, timeout(10000)).markLedgerUnderreplicatedAsync(
+                eq(9L), eq(Collections.singleton(BOOKIE_ID.toString())));
+        verify(underreplicationManager, never()).markLedgerUnderreplicatedAsync(eq(1L), any());
+    }
+
+    @Test
+    public void testScrubRescheduledAfterFailure() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IOException("injected");
+            }
+            return null;
+        }).when(ledgerStorage).verifyEntryLogs(any());
+        scrubber.start();
+
+        // a failed run doesn't stop the next ones
+        verify(ledgerStorage, timeout(10000).times(2)).verifyEntryLogs(any());
+    }
+}
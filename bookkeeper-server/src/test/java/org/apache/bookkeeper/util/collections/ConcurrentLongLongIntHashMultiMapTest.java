@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.util.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Test {@link ConcurrentLongLongIntHashMultiMap}.
+ */
+public class ConcurrentLongLongIntHashMultiMapTest {
+
+    /**
+     * A value equal to every other value, to check that values are matched by identity.
+     */
+    private static final class Value {
+        private final String name;
+
+        Value(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static ConcurrentLongLongIntHashMultiMap<Value> singleSectionMap() {
+        return ConcurrentLongLongIntHashMultiMap.<Value>newBuilder()
+                .expectedItems(16)
+                .concurrencyLevel(1)
+                .build();
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        ConcurrentLongLongIntHashMultiMap<Value> map = ConcurrentLongLongIntHashMultiMap.<Value>newBuilder().build();
+        Value v1 = new Value("v1");
+        Value v2 = new Value("v2");
+        map.put(1L, 2L, 3, v1);
+        map.put(1L, 2L, 3, v2);
+        // the same value twice
+        map.put(1L, 2L, 3, v1);
+        // keys only differing by one of their parts
+        map.put(2L, 2L, 3, v2);
+        map.put(1L, 3L, 3, v2);
+        map.put(1L, 2L, 4, v2);
+        assertEquals(6, map.size());
+        assertTrue(map.containsValue(1L, 2L, 3, v1));
+        assertTrue(map.containsValue(1L, 2L, 3, v2));
+
+        List<Value> removed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            removed.add(map.remove(1L, 2L, 3));
+        }
+        assertNull(map.remove(1L, 2L, 3));
+        assertEquals(2, removed.stream().filter(v -> v == v1).count());
+        assertEquals(1, removed.stream().filter(v -> v == v2).count());
+        assertFalse(map.containsValue(1L, 2L, 3, v1));
+        assertEquals(3, map.size());
+        assertSame(v2, map.remove(2L, 2L, 3));
+        assertSame(v2, map.remove(1L, 3L, 3));
+        assertSame(v2, map.remove(1L, 2L, 4));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testRemoveByIdentity() {
+        ConcurrentLongLongIntHashMultiMap<Value> map = ConcurrentLongLongIntHashMultiMap.<Value>newBuilder().build();
+        Value v1 = new Value("v1");
+        Value v2 = new Value("v2");
+        Value notPut = new Value("notPut");
+        map.put(1L, 2L, 3, v1);
+        map.put(1L, 2L, 3, v2);
+        map.put(1L, 2L, 3, v2);
+
+        // equal values are not the values put
+        assertFalse(map.containsValue(1L, 2L, 3, notPut));
+        assertFalse(map.remove(1L, 2L, 3, notPut));
+        // the values of another key
+        assertFalse(map.remove(1L, 2L, 4, v1));
+        assertEquals(3, map.size());
+
+        // a value put twice is removed once
+        assertTrue(map.remove(1L, 2L, 3, v2));
+        assertTrue(map.containsValue(1L, 2L, 3, v2));
+        assertTrue(map.remove(1L, 2L, 3, v2));
+        assertFalse(map.containsValue(1L, 2L, 3, v2));
+        assertFalse(map.remove(1L, 2L, 3, v2));
+
+        assertTrue(map.containsValue(1L, 2L, 3, v1));
+        assertTrue(map.remove(1L, 2L, 3, v1));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Find keys whose bucket, in a section of the given capacity, is the given one.
+     */
+    private static long[] keysOfBucket(int bucket, int capacity, int numKeys) {
+        long[] keys = new long[numKeys];
+        int found = 0;
+        for (long key = 0; found < numKeys; key++) {
+            long h = ConcurrentLongLongIntHashMultiMap.hash(key, 0L, 0);
+            if (ConcurrentLongLongIntHashMultiMap.signSafeMod((int) h, capacity) == bucket) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void testTombstonesCleanedUpAcrossWrapAround() {
+        ConcurrentLongLongIntHashMultiMap<Value> map = singleSectionMap();
+        int capacity = (int) map.capacity();
+        // the keys all probe from the last bucket, and wrap around to the first ones
+        long[] keys = keysOfBucket(capacity - 1, capacity, 3);
+        Value[] values = new Value[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = new Value("v" + i);
+            map.put(keys[i], 0L, 0, values[i]);
+        }
+        assertEquals(3, map.getUsedBucketCount());
+
+        // the removed values leave tombstones, in the last bucket then in the first one
+        assertTrue(map.remove(keys[0], 0L, 0, values[0]));
+        assertTrue(map.remove(keys[1], 0L, 0, values[1]));
+        assertEquals(1, map.size());
+        assertEquals(3, map.getUsedBucketCount());
+        // the value after the tombstones is still found
+        assertTrue(map.containsValue(keys[2], 0L, 0, values[2]));
+        assertFalse(map.containsValue(keys[0], 0L, 0, values[0]));
+
+        // removing the last value of the probe sequence cleans up the tombstones before it, across the wrap-around
+        assertTrue(map.remove(keys[2], 0L, 0, values[2]));
+        assertEquals(0, map.size());
+        assertEquals(0, map.getUsedBucketCount());
+        assertEquals(capacity, map.capacity());
+
+        // the buckets can be used again
+        map.put(keys[1], 0L, 0, values[1]);
+        assertEquals(1, map.getUsedBucketCount());
+        assertSame(values[1], map.remove(keys[1], 0L, 0));
+        assertEquals(0, map.getUsedBucketCount());
+    }
+
+    @Test
+    public void testTombstonesDoNotGrowTheMap() {
+        ConcurrentLongLongIntHashMultiMap<Value> map = singleSectionMap();
+        long capacity = map.capacity();
+        Value value = new Value("v");
+        for (long key = 0; key < 100 * capacity; key++) {
+            map.put(key, key, (int) key, value);
+            map.put(key + 1, key, (int) key, value);
+            assertTrue(map.remove(key, key, (int) key, value));
+            assertTrue(map.remove(key + 1, key, (int) key, value));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(capacity, map.capacity());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        ConcurrentLongLongIntHashMultiMap<Value> map = ConcurrentLongLongIntHashMultiMap.<Value>newBuilder()
+                .expectedItems(16)
+                .concurrencyLevel(2)
+                .autoShrink(true)
+                .build();
+        Value even = new Value("even");
+        Value odd = new Value("odd");
+        for (long entryId = 0; entryId < 100; entryId++) {
+            Value value = entryId % 2 == 0 ? even : odd;
+            map.put(1L, entryId, 3, value);
+            // a duplicate
+            map.put(1L, entryId, 3, value);
+        }
+        assertEquals(200, map.size());
+
+        assertEquals(100, map.removeIf((key1, key2, key3, value) -> {
+            assertEquals(1L, key1);
+            assertEquals(3, key3);
+            assertSame(key2 % 2 == 0 ? even : odd, value);
+            return value == even;
+        }));
+        assertEquals(100, map.size());
+        Set<Long> entryIds = new HashSet<>();
+        map.forEach((key1, key2, key3, value) -> {
+            assertSame(odd, value);
+            entryIds.add(key2);
+        });
+        assertEquals(50, entryIds.size());
+        for (long entryId = 0; entryId < 100; entryId++) {
+            assertEquals(entryId % 2 != 0, map.containsValue(1L, entryId, 3, odd));
+            assertFalse(map.containsValue(1L, entryId, 3, even));
+        }
+
+        assertEquals(0, map.removeIf((key1, key2, key3, value) -> false));
+        assertEquals(100, map.removeIf((key1, key2, key3, value) -> true));
+        assertTrue(map.isEmpty());
+        assertEquals(Arrays.asList(), map.values());
+    }
+
+    @Test
+    public void testConcurrentPutRemoveAndRehash() throws Exception {
+        int numThreads = 4;
+        int numEntries = 2000;
+        // small sections, growing and shrinking as the entries are put and removed
+        ConcurrentLongLongIntHashMultiMap<Value> map = ConcurrentLongLongIntHashMultiMap.<Value>newBuilder()
+                .expectedItems(16)
+                .concurrencyLevel(4)
+                .autoShrink(true)
+                .build();
+        // values staying in the map, which must always be found while the sections are rehashed
+        Value[] stable = new Value[100];
+        for (int i = 0; i < stable.length; i++) {
+            stable[i] = new Value("stable-" + i);
+            map.put(0L, i, 0, stable[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads + 1);
+        AtomicBoolean done = new AtomicBoolean(false);
+        CyclicBarrier barrier = new CyclicBarrier(numThreads + 1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                long ledgerId = t + 1;
+                writers.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int round = 0; round < 5; round++) {
+                        Value[] values = new Value[numEntries];
+                        for (int i = 0; i < numEntries; i++) {
+                            values[i] = new Value(ledgerId + "-" + i);
+                            map.put(ledgerId, i, round, values[i]);
+                            // a duplicate of the key
+                            map.put(ledgerId, i, round, values[i]);
+                        }
+                        for (int i = 0; i < numEntries; i++) {
+                            assertTrue(map.containsValue(ledgerId, i, round, values[i]));
+                            assertTrue(map.remove(ledgerId, i, round, values[i]));
+                        }
+                        for (int i = 0; i < numEntries; i++) {
+                            assertSame(values[i], map.remove(ledgerId, i, round));
+                            assertNull(map.remove(ledgerId, i, round));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                barrier.await();
+                while (!done.get()) {
+                    for (int i = 0; i < stable.length; i++) {
+                        assertTrue(map.containsValue(0L, i, 0, stable[i]));
+                    }
+                }
+                return null;
+            });
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            done.set(true);
+            reader.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(stable.length, map.size());
+        for (int i = 0; i < stable.length; i++) {
+            assertTrue(map.remove(0L, i, 0, stable[i]));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.getUsedBucketCount());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the on-heap and the off-heap memtables of the sorted ledger storage.
+ *
+ * <p>Run it with the gc profiler ({@code -prof gc}) to compare the allocation rates of the two memtables.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class EntryMemTableBenchmark {
+
+    private static final int NUM_LEDGERS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class TestState {
+
+        @Param({"false", "true"})
+        private boolean offHeap;
+
+        @Param({"1024"})
+        private int entrySize;
+
+        private EntryMemTable memTable;
+        private ByteBuffer entry;
+
+        private final SkipListFlusher flusher = (ledgerId, entryId, entry) -> { };
+        // flush the snapshot right away, on the thread which made it
+        private final CacheCallback cacheCallback = cp -> memTable.flush(flusher);
+
+        @Setup(Level.Trial)
+        public void setup() {
+            ServerConfiguration conf = new ServerConfiguration();
+            conf.setSkipListSizeLimit(64 * 1024 * 1024);
+            if (offHeap) {
+                memTable = new OffHeapEntryMemTable(conf, CheckpointSource.DEFAULT, NullStatsLogger.INSTANCE,
+                        PooledByteBufAllocator.DEFAULT);
+            } else {
+                memTable = new EntryMemTable(conf, CheckpointSource.DEFAULT, NullStatsLogger.INSTANCE);
+            }
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer(entrySize, entrySize);
+            buf.writerIndex(entrySize);
+            entry = buf.nioBuffer();
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            memTable.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long ledgerId;
+        private long entryId;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            ledgerId = Thread.currentThread().getId() % NUM_LEDGERS;
+        }
+    }
+
+    @Benchmark
+    public long addAndFlush(TestState s, ThreadState t) throws Exception {
+        long ledgerId = (t.ledgerId++) % NUM_LEDGERS;
+        return s.memTable.addEntry(ledgerId, t.entryId++, s.entry.duplicate(), s.cacheCallback);
+    }
+}
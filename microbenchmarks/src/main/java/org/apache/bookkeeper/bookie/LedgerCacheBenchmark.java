@@ -0,0 +1,110 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.apache.bookkeeper.util.SnapshotMap;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the index page cache of the interleaved ledger storage with a large number of open ledgers,
+ * and a page limit smaller than the working set so that pages get evicted.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class LedgerCacheBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TestState {
+
+        @Param({"10000", "100000"})
+        private int numLedgers;
+
+        @Param({"20000"})
+        private int pageLimit;
+
+        private File dir;
+        private LedgerCacheImpl ledgerCache;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            dir = Files.createTempDirectory("ledger-cache-benchmark").toFile();
+            ServerConfiguration conf = new ServerConfiguration();
+            conf.setLedgerDirNames(new String[] { dir.getAbsolutePath() });
+            conf.setPageLimit(pageLimit);
+            // stay below the usual fd limits
+            conf.setOpenFileLimit(1000);
+            LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                    new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+            ledgerCache = new LedgerCacheImpl(conf, new SnapshotMap<>(), ledgerDirsManager);
+            byte[] masterKey = new byte[0];
+            for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+                ledgerCache.setMasterKey(ledgerId, masterKey);
+                ledgerCache.putEntryOffset(ledgerId, 0, 1);
+            }
+            ledgerCache.flushLedger(true);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            ledgerCache.close();
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long entryId = 1;
+    }
+
+    @Benchmark
+    public void putEntryOffset(TestState s, ThreadState t) throws Exception {
+        long ledgerId = ThreadLocalRandom.current().nextInt(s.numLedgers);
+        s.ledgerCache.putEntryOffset(ledgerId, t.entryId++ % 1024, t.entryId);
+    }
+
+    @Benchmark
+    public long getEntryOffset(TestState s) throws Exception {
+        long ledgerId = ThreadLocalRandom.current().nextInt(s.numLedgers);
+        return s.ledgerCache.getEntryOffset(ledgerId, 0);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.BatchedLedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmarks of the results of a batched read: building the ledger entries from the entries received from
+ * a bookie, iterating over them and releasing them.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation rates of one {@link LedgerEntryImpl} per entry and of
+ * {@link BatchedLedgerEntriesImpl}.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class BatchedReadEntriesBenchmark {
+
+    private static final long LEDGER_ID = 1234L;
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Thread)
+    public static class TestState {
+        @Param({"100", "1000"})
+        private int numEntries;
+
+        @Param({"100"})
+        private int entrySize;
+
+        // the response received from the bookie, holding all the entries
+        private ByteBuf response;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            response = PooledByteBufAllocator.DEFAULT.directBuffer(numEntries * entrySize);
+            response.writeZero(numEntries * entrySize);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            response.release();
+        }
+
+        ByteBuf entry(int index) {
+            return response.retainedSlice(index * entrySize, entrySize);
+        }
+    }
+
+    @Benchmark
+    public void entryPerObject(TestState s, Blackhole bh) {
+        List<LedgerEntry> entryList = new ArrayList<>(s.numEntries);
+        for (int i = 0; i < s.numEntries; i++) {
+            entryList.add(LedgerEntryImpl.create(LEDGER_ID, i, (long) i * s.entrySize, s.entry(i)));
+        }
+        consume(LedgerEntriesImpl.create(entryList), bh);
+    }
+
+    @Benchmark
+    public void batchedEntries(TestState s, Blackhole bh) {
+        ByteBufList buffers = ByteBufList.get();
+        for (int i = 0; i < s.numEntries; i++) {
+            buffers.add(s.entry(i));
+        }
+        BatchedLedgerEntriesImpl entries = BatchedLedgerEntriesImpl.create(LEDGER_ID, 0L, buffers);
+        for (int i = 0; i < s.numEntries; i++) {
+            entries.setLength(i, (long) i * s.entrySize);
+        }
+        consume(entries, bh);
+    }
+
+    private static void consume(LedgerEntries entries, Blackhole bh) {
+        try {
+            for (LedgerEntry entry : entries) {
+                bh.consume(entry.getLength());
+                bh.consume(entry.getEntryBuffer().readableBytes());
+            }
+        } finally {
+            entries.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the add path of a single ledger handle, writing to a mock bookie client
+ * which acknowledges every write.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LedgerAddBenchmark {
+
+    private static final long LEDGER_ID = 1234L;
+    private static final int MAX_PENDING_ADDS = 1000;
+
+    /**
+     * State holder of the test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+        @Param({"100", "1024"})
+        private int entrySize;
+
+        private OrderedExecutor mainWorkerPool;
+        private OrderedScheduler scheduler;
+        private LedgerHandle lh;
+        private byte[] entry;
+        private Semaphore pendingAdds;
+        private AsyncCallback.AddCallback addCallback;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            mainWorkerPool = OrderedExecutor.newBuilder().name("main-worker").numThreads(2).build();
+            scheduler = OrderedScheduler.newSchedulerBuilder().name("scheduler").numThreads(1).build();
+
+            List<BookieId> ensemble = Arrays.asList(
+                    BookieId.parse("bookie-1:3181"), BookieId.parse("bookie-2:3181"), BookieId.parse("bookie-3:3181"));
+            LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                    .withId(LEDGER_ID)
+                    .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                    .withPassword(new byte[0]).withDigestType(DigestType.CRC32C)
+                    .newEnsembleEntry(0L, ensemble)
+                    .build();
+
+            // no add throttling, to measure the add path itself
+            ClientConfiguration conf = new ClientConfiguration().setThrottleValue(0);
+            ClientContext clientCtx = newClientContext(ClientInternalConf.fromConfig(conf),
+                    newBookieClient(mainWorkerPool), mainWorkerPool, scheduler);
+            lh = new LedgerHandle(clientCtx, LEDGER_ID, new Versioned<>(metadata, new LongVersion(0L)),
+                    BookKeeper.DigestType.CRC32C, new byte[0], EnumSet.noneOf(WriteFlag.class));
+
+            entry = new byte[entrySize];
+            Arrays.fill(entry, (byte) 'a');
+            pendingAdds = new Semaphore(MAX_PENDING_ADDS);
+            addCallback = (rc, handle, entryId, ctx) -> pendingAdds.release();
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            pendingAdds.acquire(MAX_PENDING_ADDS);
+            mainWorkerPool.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void addEntry(TestState s) throws Exception {
+        s.pendingAdds.acquire();
+        s.lh.asyncAddEntry(Unpooled.wrappedBuffer(s.entry), s.addCallback, null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addEntryConcurrently(TestState s) throws Exception {
+        s.pendingAdds.acquire();
+        s.lh.asyncAddEntry(Unpooled.wrappedBuffer(s.entry), s.addCallback, null);
+    }
+
+    /**
+     * A bookie client acknowledging every add on the ordered executor of the ledger, as the real client does.
+     */
+    private static BookieClient newBookieClient(OrderedExecutor executor) {
+        return (BookieClient) Proxy.newProxyInstance(BookieClient.class.getClassLoader(),
+                new Class<?>[] { BookieClient.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "addEntry":
+                        long ledgerId = (Long) args[1];
+                        long entryId = (Long) args[3];
+                        BookieId addr = (BookieId) args[0];
+                        WriteCallback cb = (WriteCallback) args[5];
+                        Object ctx = args[6];
+                        executor.executeOrdered(ledgerId,
+                                () -> cb.writeComplete(BKException.Code.OK, ledgerId, entryId, addr, ctx));
+                        return null;
+                    case "isWritable":
+                        return true;
+                    case "getNumPendingRequests":
+                        return 0L;
+                    case "isClosed":
+                        return false;
+                    default:
+                        return null;
+                    }
+                });
+    }
+
+    private static ClientContext newClientContext(ClientInternalConf conf, BookieClient bookieClient,
+                                                  OrderedExecutor mainWorkerPool, OrderedScheduler scheduler) {
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE);
+        BookieReadLatencyTracker readLatencyTracker = new BookieReadLatencyTracker(0.95, 60000L);
+        return new ClientContext() {
+            @Override
+            public ClientInternalConf getConf() {
+                return conf;
+            }
+
+            @Override
+            public LedgerManager getLedgerManager() {
+                return null;
+            }
+
+            @Override
+            public BookieWatcher getBookieWatcher() {
+                return null;
+            }
+
+            @Override
+            public EnsemblePlacementPolicy getPlacementPolicy() {
+                return null;
+            }
+
+            @Override
+            public BookieClient getBookieClient() {
+                return bookieClient;
+            }
+
+            @Override
+            public ByteBufAllocator getByteBufAllocator() {
+                return ByteBufAllocator.DEFAULT;
+            }
+
+            @Override
+            public OrderedExecutor getMainWorkerPool() {
+                return mainWorkerPool;
+            }
+
+            @Override
+            public OrderedScheduler getScheduler() {
+                return scheduler;
+            }
+
+            @Override
+            public BookKeeperClientStats getClientStats() {
+                return clientStats;
+            }
+
+            @Override
+            public BookieReadLatencyTracker getBookieReadLatencyTracker() {
+                return readLatencyTracker;
+            }
+
+            @Override
+            public boolean isClientClosed() {
+                return false;
+            }
+        };
+    }
+}
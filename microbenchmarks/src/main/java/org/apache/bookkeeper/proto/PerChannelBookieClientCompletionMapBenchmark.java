@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.util.Recycler;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongIntHashMultiMap;
+import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarking the put and remove of the completions of v2 requests, keyed by (ledgerId, entryId, operation),
+ * against the number of requests in flight on the channel.
+ *
+ * <p>{@link #objectKeyed} models the completions keyed by pooled key objects, acquired once for the request and once
+ * for the response, for reference.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PerChannelBookieClientCompletionMapBenchmark {
+
+    static final int OPERATION = 2;
+
+    @Param({"100", "10000"})
+    int inFlight;
+
+    ConcurrentLongLongIntHashMultiMap<Object> primitiveKeyedMap;
+    // the completion holds the key of its request, so it's modelled by the key itself
+    ConcurrentOpenHashMap<EntryKey, EntryKey> objectKeyedMap;
+    Object completion;
+    long entryId;
+
+    @Setup
+    public void prepare() {
+        primitiveKeyedMap = ConcurrentLongLongIntHashMultiMap.newBuilder().autoShrink(true).build();
+        objectKeyedMap = ConcurrentOpenHashMap.<EntryKey, EntryKey>newBuilder().autoShrink(true).build();
+        completion = new Object();
+        for (entryId = 0; entryId < inFlight; entryId++) {
+            primitiveKeyedMap.put(1L, entryId, OPERATION, completion);
+            EntryKey key = EntryKey.acquire(1L, entryId, OPERATION);
+            objectKeyedMap.put(key, key);
+        }
+    }
+
+    /**
+     * Send a request and receive the response of the oldest request in flight.
+     */
+    @Benchmark
+    public Object primitiveKeyed() {
+        primitiveKeyedMap.put(1L, entryId, OPERATION, completion);
+        return primitiveKeyedMap.remove(1L, entryId++ - inFlight, OPERATION);
+    }
+
+    /**
+     * Send a request and receive the response of the oldest request in flight.
+     */
+    @Benchmark
+    public Object objectKeyed() {
+        EntryKey requestKey = EntryKey.acquire(1L, entryId, OPERATION);
+        objectKeyedMap.put(requestKey, requestKey);
+        EntryKey responseKey = EntryKey.acquire(1L, entryId++ - inFlight, OPERATION);
+        EntryKey completed = objectKeyedMap.remove(responseKey);
+        responseKey.release();
+        // the key of the request is released once it completes
+        completed.release();
+        return completed;
+    }
+
+    static final class EntryKey {
+        private static final Recycler<EntryKey> RECYCLER = new Recycler<EntryKey>() {
+            @Override
+            protected EntryKey newObject(Recycler.Handle<EntryKey> handle) {
+                return new EntryKey(handle);
+            }
+        };
+
+        private final Recycler.Handle<EntryKey> handle;
+        long ledgerId;
+        long entryId;
+        int operation;
+
+        private EntryKey(Recycler.Handle<EntryKey> handle) {
+            this.handle = handle;
+        }
+
+        static EntryKey acquire(long ledgerId, long entryId, int operation) {
+            EntryKey key = RECYCLER.get();
+            key.ledgerId = ledgerId;
+            key.entryId = entryId;
+            key.operation = operation;
+            return key;
+        }
+
+        void release() {
+            handle.recycle(this);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey that = (EntryKey) object;
+            return this.entryId == that.entryId
+                && this.ledgerId == that.ledgerId
+                && this.operation == that.operation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(ledgerId) * 31 + Long.hashCode(entryId);
+        }
+    }
+}
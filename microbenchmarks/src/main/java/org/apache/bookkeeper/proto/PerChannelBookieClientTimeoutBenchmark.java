@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.MathUtils;
+import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarking the periodic timeout check of a channel, against the number of requests in flight on the channel.
+ *
+ * <p>{@link #fullScan} models the check scanning all the requests in flight, for reference.
+ *
+ * <p>{@link #sendAndComplete} measures the bookkeeping of a request of the channel, registering it when sent and
+ * removing it when its response is received, which also queues and dequeues it for the timeout check. The channel
+ * is shared by the benchmark threads, run it with {@code -t} to measure the contention between them.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PerChannelBookieClientTimeoutBenchmark {
+
+    static final long TIMEOUT_NANOS = TimeUnit.HOURS.toNanos(1);
+    static final WriteCallback NOOP_CALLBACK = (rc, ledgerId, entryId, addr, ctx) -> {};
+
+    @Param({"1000", "10000", "100000"})
+    int inFlight;
+
+    OrderedExecutor executor;
+    EventLoopGroup eventLoopGroup;
+    PerChannelBookieClient client;
+    EmbeddedChannel channel;
+    ConcurrentOpenHashMap<Long, Long> startTimes;
+
+    @Setup
+    public void prepare() throws Exception {
+        executor = OrderedExecutor.newBuilder().numThreads(1).build();
+        eventLoopGroup = new DefaultEventLoopGroup(1);
+        ClientConfiguration conf = new ClientConfiguration()
+                .setAddEntryTimeout((int) TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS));
+        client = new PerChannelBookieClient(conf, executor, eventLoopGroup, BookieId.parse("127.0.0.1:3181"),
+                NullStatsLogger.INSTANCE, null, null, null, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        // the requests are written to an embedded channel, and stay in flight as no response ever comes
+        channel = new EmbeddedChannel();
+        client.channel = channel;
+        startTimes = ConcurrentOpenHashMap.<Long, Long>newBuilder().build();
+        for (int i = 0; i < inFlight; i++) {
+            client.addEntry(1L, new byte[0], i, ByteBufList.get(Unpooled.wrappedBuffer(new byte[16])),
+                    NOOP_CALLBACK, null, 0, false, EnumSet.noneOf(WriteFlag.class));
+            startTimes.put((long) i, MathUtils.nowInNano());
+        }
+        channel.releaseOutbound();
+    }
+
+    @TearDown
+    public void teardown() {
+        client.close();
+        channel.close();
+        eventLoopGroup.shutdownGracefully();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void checkTimeouts() {
+        client.checkTimeoutOnPendingOperations();
+    }
+
+    @Benchmark
+    public int fullScan() {
+        long nowNanos = MathUtils.nowInNano();
+        return startTimes.removeIf((entryId, startTime) -> nowNanos - startTime >= TIMEOUT_NANOS);
+    }
+
+    /**
+     * The requests sent by a benchmark thread, each thread adding entries to its own ledger.
+     */
+    @State(Scope.Thread)
+    public static class Sender {
+        static final AtomicLong LEDGER_IDS = new AtomicLong(2L);
+
+        final long ledgerId = LEDGER_IDS.getAndIncrement();
+        long entryId;
+    }
+
+    @Benchmark
+    public void sendAndComplete(Sender sender) {
+        long entryId = sender.entryId++;
+        PerChannelBookieClient.CompletionKey key =
+                client.newCompletionKey((sender.ledgerId << 40) + entryId, OperationType.ADD_ENTRY);
+        PerChannelBookieClient.AddCompletion completion =
+                client.acquireAddCompletion(key, NOOP_CALLBACK, null, sender.ledgerId, entryId);
+        client.putCompletionKeyValue(key, completion);
+        client.removeCompletionValue(key);
+        completion.writeComplete(BKException.Code.OK, sender.ledgerId, entryId, null, null);
+    }
+}
@@ -20,8 +20,10 @@ package org.apache.bookkeeper.proto;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.ExtensionRegistry;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import java.util.concurrent.ThreadLocalRandom;
@@ -29,11 +31,17 @@ import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.proto.BookieProtoEncoding.EnDecoder;
 import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDeCoderPreV3;
 import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDecoderV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.ResponseEnDecoderV3;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.LedgerEntriesResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.MultiReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -53,6 +61,10 @@ import org.slf4j.MDC;
 @State(Scope.Thread)
 public class ProtocolBenchmark {
 
+    // reads served by the read entries benchmarks, spread over MULTI_READ_LEDGERS ledgers
+    static final int MULTI_READ_ENTRIES = 16;
+    static final int MULTI_READ_LEDGERS = 4;
+
     @Param({"10", "100", "1000", "10000"})
     int size;
 
@@ -63,6 +75,9 @@ public class ProtocolBenchmark {
     short flags;
     EnDecoder reqEnDeV2;
     EnDecoder reqEnDeV3;
+    EnDecoder respEnDeV3;
+    ByteString entryBytes;
+    ByteBuf readResponseFrame;
 
     @Setup
     public void prepare() {
@@ -77,6 +92,24 @@ public class ProtocolBenchmark {
         // prepare the encoder
         this.reqEnDeV2 = new RequestEnDeCoderPreV3(null);
         this.reqEnDeV3 = new RequestEnDecoderV3(null);
+        this.respEnDeV3 = new ResponseEnDecoderV3(ExtensionRegistry.newInstance());
+        this.entryBytes = ByteString.copyFrom(data);
+
+        // a read response, as received on a channel once the frame length is stripped
+        Response response = Response.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.READ_ENTRY)
+                        .setTxnId(0L))
+                .setStatus(StatusCode.EOK)
+                .setReadResponse(ReadResponse.newBuilder()
+                        .setStatus(StatusCode.EOK)
+                        .setLedgerId(ledgerId)
+                        .setEntryId(entryId)
+                        .setMaxLAC(entryId - 1)
+                        .setBody(entryBytes))
+                .build();
+        this.readResponseFrame = Unpooled.wrappedBuffer(response.toByteArray());
     }
 
     @Benchmark
@@ -136,6 +169,15 @@ public class ProtocolBenchmark {
         MDC.clear();
     }
 
+    @Benchmark
+    public void testAddEntryV3Codec() throws Exception {
+        ProtobufV3Codec.AddEntryRequest request = ProtobufV3Codec.AddEntryRequest.create(0L, 0, ledgerId, entryId,
+                masterKey, true, 0, ByteBufList.get(entry.retainedSlice()));
+
+        Object res = request.encode(ByteBufAllocator.DEFAULT);
+        ReferenceCountUtil.release(res);
+    }
+
     static Request.Builder appendRequestContextNoMdc(Request.Builder builder) {
         final BookkeeperProtocol.ContextPair context1 = BookkeeperProtocol.ContextPair.newBuilder()
                 .setKey("parent_id")
@@ -178,4 +220,136 @@ public class ProtocolBenchmark {
         Object res = this.reqEnDeV3.encode(request, ByteBufAllocator.DEFAULT);
         ReferenceCountUtil.release(res);
     }
+
+    @Benchmark
+    public void testReadEntryResponseV3() throws Exception {
+        ReadResponse readResponse = ReadResponse.newBuilder()
+                .setStatus(StatusCode.EOK)
+                .setLedgerId(ledgerId)
+                .setEntryId(entryId)
+                .setMaxLAC(entryId - 1)
+                .setBody(ByteString.copyFrom(entry.nioBuffer()))
+                .build();
+        Response response = Response.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.READ_ENTRY)
+                        .setTxnId(0L))
+                .setStatus(readResponse.getStatus())
+                .setReadResponse(readResponse)
+                .build();
+
+        Object res = this.respEnDeV3.encode(response, ByteBufAllocator.DEFAULT);
+        ReferenceCountUtil.release(res);
+    }
+
+    @Benchmark
+    public void testReadEntryResponseV3Codec() throws Exception {
+        ReadResponse readResponse = ReadResponse.newBuilder()
+                .setStatus(StatusCode.EOK)
+                .setLedgerId(ledgerId)
+                .setEntryId(entryId)
+                .setMaxLAC(entryId - 1)
+                .build();
+        ProtobufV3Codec.ReadEntryResponse response =
+                ProtobufV3Codec.ReadEntryResponse.create(0L, readResponse, entry.retainedSlice());
+
+        Object res = response.encode(ByteBufAllocator.DEFAULT);
+        ReferenceCountUtil.release(res);
+    }
+
+    @Benchmark
+    public int testDecodeReadEntryResponseV3() throws Exception {
+        ByteBuf frame = readResponseFrame.duplicate();
+        Response response = Response.parseFrom(new ByteBufInputStream(frame), ExtensionRegistry.getEmptyRegistry());
+        ByteBuf body = Unpooled.wrappedBuffer(response.getReadResponse().getBody().asReadOnlyByteBuffer());
+        return body.readableBytes();
+    }
+
+    @Benchmark
+    public int testDecodeReadEntryResponseV3Codec() throws Exception {
+        ByteBuf frame = readResponseFrame.duplicate();
+        ProtobufV3Codec.ReadEntryResponse response = ProtobufV3Codec.ReadEntryResponse.decode(frame);
+        try {
+            return response.getBody().readableBytes();
+        } finally {
+            response.release();
+        }
+    }
+
+    /**
+     * Serve {@link #MULTI_READ_ENTRIES} reads with one v3 read response per entry.
+     */
+    @Benchmark
+    public int testReadEntriesV3() throws Exception {
+        int decoded = 0;
+        for (int i = 0; i < MULTI_READ_ENTRIES; i++) {
+            BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                    .setVersion(ProtocolVersion.VERSION_THREE)
+                    .setOperation(OperationType.READ_ENTRY)
+                    .setTxnId(i);
+            ReadResponse.Builder readBuilder = ReadResponse.newBuilder()
+                    .setStatus(StatusCode.EOK)
+                    .setLedgerId(ledgerId + (i % MULTI_READ_LEDGERS))
+                    .setEntryId(entryId + (i / MULTI_READ_LEDGERS))
+                    .setBody(entryBytes);
+            Response response = Response.newBuilder()
+                    .setHeader(headerBuilder)
+                    .setStatus(StatusCode.EOK)
+                    .setReadResponse(readBuilder)
+                    .build();
+            // single entry read responses are decoded by the codec
+            ProtobufV3Codec.ReadEntryResponse decodedResponse =
+                    (ProtobufV3Codec.ReadEntryResponse) encodeAndDecodeResponse(response);
+            decoded += decodedResponse.getBody().readableBytes();
+            decodedResponse.release();
+        }
+        return decoded;
+    }
+
+    /**
+     * Serve {@link #MULTI_READ_ENTRIES} reads with a single v3 multi read response.
+     */
+    @Benchmark
+    public int testMultiReadEntriesV3() throws Exception {
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.MULTI_READ_ENTRY)
+                .setTxnId(0L);
+        MultiReadResponse.Builder multiReadBuilder = MultiReadResponse.newBuilder();
+        for (int l = 0; l < MULTI_READ_LEDGERS; l++) {
+            LedgerEntriesResponse.Builder ledgerEntries = LedgerEntriesResponse.newBuilder()
+                    .setStatus(StatusCode.EOK)
+                    .setLedgerId(ledgerId + l)
+                    .setStartEntryId(entryId);
+            for (int i = 0; i < MULTI_READ_ENTRIES / MULTI_READ_LEDGERS; i++) {
+                ledgerEntries.addEntries(entryBytes);
+            }
+            multiReadBuilder.addLedgerEntries(ledgerEntries);
+        }
+        Response response = Response.newBuilder()
+                .setHeader(headerBuilder)
+                .setStatus(StatusCode.EOK)
+                .setMultiReadResponse(multiReadBuilder)
+                .build();
+        int decoded = 0;
+        for (LedgerEntriesResponse ledgerEntries
+                : ((Response) encodeAndDecodeResponse(response)).getMultiReadResponse().getLedgerEntriesList()) {
+            for (ByteString entry : ledgerEntries.getEntriesList()) {
+                decoded += entry.size();
+            }
+        }
+        return decoded;
+    }
+
+    private Object encodeAndDecodeResponse(Response response) throws Exception {
+        ByteBuf encoded = (ByteBuf) this.respEnDeV3.encode(response, ByteBufAllocator.DEFAULT);
+        try {
+            // skip the frame length, stripped by the frame decoder on a real channel
+            encoded.skipBytes(4);
+            return this.respEnDeV3.decode(encoded);
+        } finally {
+            ReferenceCountUtil.release(encoded);
+        }
+    }
 }